@@ -0,0 +1,473 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * An {@link EventQueue} implemented as a calendar queue (R. Brown, "Calendar queues: a fast O(1)
+ * priority queue implementation for the simulation event set problem", CACM 1988).
+ * <p>
+ * Time is divided into "days" of a fixed width, and each day is mapped onto one of a power-of-two
+ * number of buckets, wrapping around once per "year". Each bucket keeps its events sorted by
+ * {@link SimEvent#compareTo(SimEvent)}, so events are dequeued in exactly the same (time, serial)
+ * order as with {@link TreeSetEventQueue}. The number of buckets is doubled or halved as the
+ * queue grows or shrinks, and the day width is re-estimated from the spacing of the first events
+ * at every resize, which keeps the number of events per bucket constant on average. Enqueue and
+ * dequeue therefore cost amortised O(1).
+ * <p>
+ * The iterator walks a snapshot of the queue taken when it is created; it is meant for the
+ * occasional full scan (e.g. event cancellation), not for the hot path, which should use
+ * {@link #peek()} and {@link #poll()}.
+ *
+ * @see FutureQueue
+ */
+public class CalendarEventQueue implements EventQueue {
+
+	/** The minimum (and initial) number of buckets. */
+	private static final int MIN_BUCKETS = 16;
+
+	/** The number of leading events sampled to estimate the bucket width on resize. */
+	private static final int SAMPLE_SIZE = 25;
+
+	/** The bucket width used until enough events have been seen to estimate one. */
+	private static final double DEFAULT_WIDTH = 1.0;
+
+	/** The buckets. The length is always a power of two. */
+	private Bucket[] buckets;
+
+	/** Bit mask mapping a day number onto a bucket index. */
+	private int mask;
+
+	/** The width of a day (the time span covered by one bucket in one year). */
+	private double width;
+
+	/**
+	 * The day number from which the next search for the first event starts. No event in the
+	 * queue belongs to an earlier day.
+	 */
+	private long currentDay;
+
+	/** The number of events in the queue. */
+	private int size;
+
+	/** Whether resizing is allowed; disabled while a resize is in progress. */
+	private boolean resizeEnabled = true;
+
+	/**
+	 * Creates an empty calendar queue.
+	 */
+	public CalendarEventQueue() {
+		this(MIN_BUCKETS, DEFAULT_WIDTH);
+	}
+
+	/**
+	 * Creates an empty calendar queue with an initial geometry. Useful when the spacing of events is
+	 * known in advance; the geometry is still adapted as the queue grows and shrinks.
+	 *
+	 * @param numBuckets the initial number of buckets, rounded up to a power of two
+	 * @param width the initial width of a bucket, in simulation time units
+	 */
+	public CalendarEventQueue(int numBuckets, double width) {
+		if (width <= 0 || Double.isNaN(width) || Double.isInfinite(width)) {
+			throw new IllegalArgumentException("The bucket width should be positive, but is: " + width);
+		}
+		int n = MIN_BUCKETS;
+		while (n < numBuckets) {
+			n <<= 1;
+		}
+		init(n, width);
+	}
+
+	@Override
+	public void add(SimEvent event) {
+		long day = dayOf(event.eventTime());
+		buckets[(int) (day & mask)].insert(event);
+		if (size == 0 || day < currentDay) {
+			currentDay = day;
+		}
+		size++;
+		if (size > 2 * buckets.length) {
+			resize(buckets.length * 2);
+		}
+	}
+
+	@Override
+	public SimEvent peek() {
+		Bucket bucket = locateFirst();
+		return bucket == null ? null : bucket.first();
+	}
+
+	@Override
+	public SimEvent poll() {
+		Bucket bucket = locateFirst();
+		if (bucket == null) {
+			return null;
+		}
+		return removeFirst(bucket);
+	}
+
+	@Override
+	public SimEvent pollAt(double time) {
+		Bucket bucket = locateFirst();
+		if (bucket == null || bucket.first().eventTime() != time) {
+			return null;
+		}
+		return removeFirst(bucket);
+	}
+
+	/**
+	 * Removes the first event of the queue, shrinking the calendar if needed.
+	 *
+	 * @param bucket the bucket holding the first event, as found by {@link #locateFirst()}
+	 * @return the event
+	 */
+	private SimEvent removeFirst(Bucket bucket) {
+		SimEvent event = bucket.removeFirst();
+		size--;
+		if (size < buckets.length / 2 && buckets.length > MIN_BUCKETS) {
+			resize(buckets.length / 2);
+		}
+		return event;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		if (size == 0) {
+			return false;
+		}
+		if (buckets[(int) (dayOf(event.eventTime()) & mask)].remove(event)) {
+			size--;
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public Iterator<SimEvent> iterator() {
+		final SimEvent[] snapshot = toSortedArray();
+		return new Iterator<SimEvent>() {
+
+			private int next = 0;
+
+			private SimEvent last = null;
+
+			@Override
+			public boolean hasNext() {
+				return next < snapshot.length;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				last = snapshot[next++];
+				return last;
+			}
+
+			@Override
+			public void remove() {
+				if (last == null) {
+					throw new IllegalStateException();
+				}
+				CalendarEventQueue.this.remove(last);
+				last = null;
+			}
+		};
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		init(MIN_BUCKETS, DEFAULT_WIDTH);
+	}
+
+	/**
+	 * Returns the current number of buckets. Exposed for testing and tuning.
+	 *
+	 * @return the number of buckets
+	 */
+	public int getNumBuckets() {
+		return buckets.length;
+	}
+
+	/**
+	 * Returns the current bucket width. Exposed for testing and tuning.
+	 *
+	 * @return the bucket width
+	 */
+	public double getBucketWidth() {
+		return width;
+	}
+
+	// --------------- PRIVATE METHODS ------------------
+
+	/**
+	 * (Re)creates the empty bucket array.
+	 *
+	 * @param numBuckets the number of buckets, a power of two
+	 * @param newWidth the bucket width
+	 */
+	private void init(int numBuckets, double newWidth) {
+		buckets = new Bucket[numBuckets];
+		for (int i = 0; i < numBuckets; i++) {
+			buckets[i] = new Bucket();
+		}
+		mask = numBuckets - 1;
+		width = newWidth;
+		currentDay = 0;
+		size = 0;
+	}
+
+	/**
+	 * Gets the day an event time falls in.
+	 *
+	 * @param time the event time
+	 * @return the day number
+	 */
+	private long dayOf(double time) {
+		return (long) Math.floor(time / width);
+	}
+
+	/**
+	 * Finds the bucket holding the first event of the queue and moves {@link #currentDay} to the
+	 * day of that event.
+	 *
+	 * @return the bucket, or <tt>null</tt> if the queue is empty
+	 */
+	private Bucket locateFirst() {
+		if (size == 0) {
+			return null;
+		}
+
+		// Walk one year of days starting at the current one. Since no event is earlier than the
+		// current day, the first bucket whose head belongs to the day being visited holds the
+		// first event of the queue.
+		long day = currentDay;
+		for (int i = 0; i < buckets.length; i++, day++) {
+			Bucket bucket = buckets[(int) (day & mask)];
+			if (!bucket.isEmpty() && dayOf(bucket.first().eventTime()) <= day) {
+				currentDay = day;
+				return bucket;
+			}
+		}
+
+		// Nothing within a year: the events are sparse, so search the bucket heads directly.
+		Bucket best = null;
+		for (Bucket bucket : buckets) {
+			if (!bucket.isEmpty() && (best == null || bucket.first().compareTo(best.first()) < 0)) {
+				best = bucket;
+			}
+		}
+		currentDay = dayOf(best.first().eventTime());
+		return best;
+	}
+
+	/**
+	 * Changes the number of buckets, re-estimating the bucket width from the first events.
+	 *
+	 * @param numBuckets the new number of buckets
+	 */
+	private void resize(int numBuckets) {
+		if (!resizeEnabled) {
+			return;
+		}
+		resizeEnabled = false;
+
+		SimEvent[] sample = new SimEvent[Math.min(size, SAMPLE_SIZE)];
+		for (int i = 0; i < sample.length; i++) {
+			sample[i] = poll();
+		}
+		double newWidth = estimateWidth(sample);
+
+		SimEvent[] rest = new SimEvent[size];
+		int count = 0;
+		for (Bucket bucket : buckets) {
+			for (int i = bucket.head; i < bucket.tail; i++) {
+				rest[count++] = bucket.events[i];
+			}
+		}
+
+		init(numBuckets, newWidth);
+		for (SimEvent event : sample) {
+			add(event);
+		}
+		for (SimEvent event : rest) {
+			add(event);
+		}
+
+		resizeEnabled = true;
+	}
+
+	/**
+	 * Estimates a bucket width from the first events of the queue, as three times their average
+	 * separation after discarding separations larger than twice the mean.
+	 *
+	 * @param sample the first events of the queue, in order
+	 * @return the new width, or the current one if the sample does not allow an estimate
+	 */
+	private double estimateWidth(SimEvent[] sample) {
+		if (sample.length < 2) {
+			return width;
+		}
+		double average = (sample[sample.length - 1].eventTime() - sample[0].eventTime()) / (sample.length - 1);
+		if (average <= 0) {
+			return width;
+		}
+
+		double sum = 0;
+		int count = 0;
+		for (int i = 1; i < sample.length; i++) {
+			double separation = sample[i].eventTime() - sample[i - 1].eventTime();
+			if (separation <= 2 * average) {
+				sum += separation;
+				count++;
+			}
+		}
+		double newWidth = count > 0 ? 3 * sum / count : 0;
+		return newWidth > 0 ? newWidth : width;
+	}
+
+	/**
+	 * Returns all events of the queue in order, by merging the (sorted) buckets.
+	 *
+	 * @return the events
+	 */
+	private SimEvent[] toSortedArray() {
+		SimEvent[] result = new SimEvent[size];
+		PriorityQueue<int[]> heads = new PriorityQueue<int[]>(Math.max(1, buckets.length),
+				(a, b) -> buckets[a[0]].events[a[1]].compareTo(buckets[b[0]].events[b[1]]));
+		for (int i = 0; i < buckets.length; i++) {
+			if (!buckets[i].isEmpty()) {
+				heads.add(new int[] { i, buckets[i].head });
+			}
+		}
+
+		int count = 0;
+		while (!heads.isEmpty()) {
+			int[] cursor = heads.poll();
+			Bucket bucket = buckets[cursor[0]];
+			result[count++] = bucket.events[cursor[1]];
+			if (++cursor[1] < bucket.tail) {
+				heads.add(cursor);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * A bucket: a growable array holding its events sorted in queue order between <tt>head</tt>
+	 * (inclusive) and <tt>tail</tt> (exclusive). Removing the first event and appending a later
+	 * one, which is by far the common case, are O(1).
+	 */
+	private static final class Bucket {
+
+		private SimEvent[] events = new SimEvent[4];
+
+		private int head;
+
+		private int tail;
+
+		boolean isEmpty() {
+			return head == tail;
+		}
+
+		SimEvent first() {
+			return events[head];
+		}
+
+		SimEvent removeFirst() {
+			SimEvent event = events[head];
+			events[head++] = null;
+			if (head == tail) {
+				head = 0;
+				tail = 0;
+			}
+			return event;
+		}
+
+		void insert(SimEvent event) {
+			if (tail == events.length) {
+				makeRoom();
+			}
+
+			// Find the first event ordered after the new one; same rule as a TreeSet descent.
+			int position = tail;
+			if (head < tail && event.compareTo(events[tail - 1]) < 0) {
+				int low = head;
+				int high = tail - 1;
+				while (low < high) {
+					int mid = (low + high) >>> 1;
+					if (event.compareTo(events[mid]) < 0) {
+						high = mid;
+					} else {
+						low = mid + 1;
+					}
+				}
+				position = low;
+				System.arraycopy(events, position, events, position + 1, tail - position);
+			}
+			events[position] = event;
+			tail++;
+		}
+
+		boolean remove(SimEvent event) {
+			double time = event.eventTime();
+
+			// Skip the events with an earlier time, then look for the event itself among the
+			// events with the same time.
+			int low = head;
+			int high = tail;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (events[mid].eventTime() < time) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			for (int i = low; i < tail && events[i].eventTime() == time; i++) {
+				if (events[i] == event) {
+					System.arraycopy(events, i + 1, events, i, tail - i - 1);
+					events[--tail] = null;
+					if (head == tail) {
+						head = 0;
+						tail = 0;
+					}
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private void makeRoom() {
+			int count = tail - head;
+			if (head > 0 && count < events.length / 2) {
+				System.arraycopy(events, head, events, 0, count);
+			} else {
+				SimEvent[] grown = new SimEvent[events.length * 2];
+				System.arraycopy(events, head, grown, 0, count);
+				events = grown;
+			}
+			for (int i = count; i < tail && i < events.length; i++) {
+				events[i] = null;
+			}
+			head = 0;
+			tail = count;
+		}
+	}
+
+}
@@ -9,13 +9,12 @@
 package org.cloudbus.cloudsim.core;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Calendar;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.core.predicates.Predicate;
@@ -39,40 +38,148 @@ public class CloudSim {
 	/** The Constant CLOUDSIM_VERSION_STRING. */
 	private static final String CLOUDSIM_VERSION_STRING = "3.0";
 
-	/** The id of CIS entity. */
-	private static int cisId = -1;
-
-	/** The id of CloudSimShutdown entity. */
-	@SuppressWarnings("unused")
-	private static int shutdownId = -1;
-
-	/** The CIS object. */
-	private static CloudInformationService cis = null;
-
 	/** The Constant NOT_FOUND. */
 	private static final int NOT_FOUND = -1;
 
-	/** The trace flag. */
-	@SuppressWarnings("unused")
-	private static boolean traceFlag = false;
+	/**
+	 * The implementation of the future event queue, see {@link FutureQueue#TREE_SET}. Shared by all
+	 * simulation contexts.
+	 */
+	private static int futureQueueType = FutureQueue.TREE_SET;
 
-	/** The calendar. */
-	private static Calendar calendar = null;
+	/**
+	 * Whether cancelled events are dropped lazily from the future event queue. Shared by all
+	 * simulation contexts.
+	 */
+	private static boolean lazyCancellation = false;
 
-	/** The termination time. */
-	private static double terminateAt = -1;
+	/** Whether processed events are recycled. Shared by all simulation contexts. */
+	private static boolean eventPooling = false;
 
-	/** The minimal time between events. Events within shorter periods after the last event are discarded. */
-	private static double minTimeBetweenEvents = 0.1;
+	/**
+	 * Whether processed events are marked to detect their later use, instead of being recycled.
+	 * Shared by all simulation contexts.
+	 */
+	private static boolean eventPoolDebug = false;
 
-	private static int FogBrokerId;
+	/** Whether the event handlers are profiled. Shared by all simulation contexts. */
+	private static boolean profiling = false;
 
 	public static int getFogBrokerId(){
-		return FogBrokerId;
+		return SimulationContext.current().fogBrokerId;
 	}
 	public static void setFogBrokerId(int id){
-		FogBrokerId = id;
+		SimulationContext.current().fogBrokerId = id;
+	}
+
+	/**
+	 * Gets the implementation used for the future event queue.
+	 * 
+	 * @return the queue type, {@link FutureQueue#TREE_SET} or {@link FutureQueue#CALENDAR}
+	 */
+	public static int getFutureQueueType() {
+		return futureQueueType;
+	}
+
+	/**
+	 * Sets the implementation used for the future event queue. Takes effect the next time the
+	 * queues are created, i.e. on {@link #init(int, Calendar, boolean)} or {@link #clearQueues()}.
+	 * 
+	 * @param queueType the queue type, {@link FutureQueue#TREE_SET} or {@link FutureQueue#CALENDAR}
+	 */
+	public static void setFutureQueueType(int queueType) {
+		FutureQueue.createEventQueue(queueType); // validates the type
+		futureQueueType = queueType;
+	}
+
+	/**
+	 * Checks if cancelled events are left in the future event queue and dropped when they are due,
+	 * instead of being removed immediately.
+	 * 
+	 * @return true, if cancellation is lazy
+	 */
+	public static boolean isLazyCancellation() {
+		return lazyCancellation;
 	}
+
+	/**
+	 * Sets whether cancelled events are dropped lazily from the future event queue. Takes effect the
+	 * next time the queues are created, i.e. on {@link #init(int, Calendar, boolean)} or
+	 * {@link #clearQueues()}.
+	 * 
+	 * @param lazy true to drop cancelled events lazily
+	 */
+	public static void setLazyCancellation(boolean lazy) {
+		lazyCancellation = lazy;
+	}
+
+	/**
+	 * Checks if processed events are recycled for the next events sent.
+	 * 
+	 * @return true, if events are recycled
+	 */
+	public static boolean isEventPooling() {
+		return eventPooling;
+	}
+
+	/**
+	 * Sets whether processed events are recycled for the next events sent. Entities must not keep
+	 * the events they process. Takes effect on the next {@link #init(int, Calendar, boolean)}.
+	 * 
+	 * @param pooling true to recycle events
+	 */
+	public static void setEventPooling(boolean pooling) {
+		eventPooling = pooling;
+	}
+
+	/**
+	 * Checks if processed events are marked to detect their use, instead of being recycled.
+	 * 
+	 * @return true, if the event pool is in debug mode
+	 */
+	public static boolean isEventPoolDebug() {
+		return eventPoolDebug;
+	}
+
+	/**
+	 * Sets whether processed events are marked, instead of recycled, so that using an event after
+	 * it was processed throws an {@link IllegalStateException}. Takes effect on the next
+	 * {@link #init(int, Calendar, boolean)}.
+	 * 
+	 * @param debug true to detect the use of processed events
+	 */
+	public static void setEventPoolDebug(boolean debug) {
+		eventPoolDebug = debug;
+	}
+
+	/**
+	 * Checks if the event handlers and queues of simulations are profiled.
+	 * 
+	 * @return true, if simulations are profiled
+	 */
+	public static boolean isProfiling() {
+		return profiling;
+	}
+
+	/**
+	 * Sets whether the event handlers and queues of simulations are profiled by a
+	 * {@link SimulationProfiler}. Takes effect on the next {@link #init(int, Calendar, boolean)}.
+	 * 
+	 * @param profile true to profile simulations
+	 */
+	public static void setProfiling(boolean profile) {
+		profiling = profile;
+	}
+
+	/**
+	 * Gets the profiler of the current simulation.
+	 * 
+	 * @return the profiler, or <tt>null</tt> if profiling was off when the simulation was created
+	 */
+	public static SimulationProfiler getProfiler() {
+		return SimulationContext.current().profiler;
+	}
+
 	
 	/**
 	 * Initialises all the common attributes.
@@ -87,21 +194,22 @@ public class CloudSim {
 	 */
 	private static void initCommonVariable(Calendar _calendar, boolean _traceFlag, int numUser)
 			throws Exception {
+		SimulationContext ctx = SimulationContext.current();
 		initialize();
 		// NOTE: the order for the below 3 lines are important
-		traceFlag = _traceFlag;
+		ctx.traceFlag = _traceFlag;
 
 		// Set the current Wall clock time as the starting time of
 		// simulation
 		if (_calendar == null) {
-			calendar = Calendar.getInstance();
+			ctx.calendar = Calendar.getInstance();
 		} else {
-			calendar = _calendar;
+			ctx.calendar = _calendar;
 		}
 
 		// creates a CloudSimShutdown object
 		CloudSimShutdown shutdown = new CloudSimShutdown("CloudSimShutdown", numUser);
-		shutdownId = shutdown.getId();
+		ctx.shutdownId = shutdown.getId();
 	}
 
 	/**
@@ -126,14 +234,15 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static void init(int numUser, Calendar cal, boolean traceFlag) {
+		SimulationContext ctx = SimulationContext.current();
 		try {
 			initCommonVariable(cal, traceFlag, numUser);
 
 			// create a GIS object
-			cis = new CloudInformationService("CloudInformationService");
+			ctx.cis = new CloudInformationService("CloudInformationService");
 
 			// set all the above entity IDs
-			cisId = cis.getId();
+			ctx.cisId = ctx.cis.getId();
 		} catch (IllegalArgumentException s) {
 			Log.printLine("CloudSim.init(): The simulation has been terminated due to an unexpected error");
 			Log.printLine(s.getMessage());
@@ -172,7 +281,7 @@ public class CloudSim {
 	    }
 	    
 	    init(numUser, cal, traceFlag);
-	    minTimeBetweenEvents = periodBetweenEvents;
+	    SimulationContext.current().minTimeBetweenEvents = periodBetweenEvents;
 	}
 	
 	
@@ -192,16 +301,17 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static double startSimulation() throws NullPointerException {
+		SimulationContext ctx = SimulationContext.current();
 		Log.printLine("Starting CloudSim version " + CLOUDSIM_VERSION_STRING);
 		try {
 			double clock = run();
 
 			// reset all static variables
-			cisId = -1;
-			shutdownId = -1;
-			cis = null;
-			calendar = null;
-			traceFlag = false;
+			ctx.cisId = -1;
+			ctx.shutdownId = -1;
+			ctx.cis = null;
+			ctx.calendar = null;
+			ctx.traceFlag = false;
 
 			return clock;
 		} catch (IllegalArgumentException e) {
@@ -235,8 +345,9 @@ public class CloudSim {
 	// We only empty the queues, CloudSim will reset its (static) state
 	// init should be called again later (in main sim file)
 	public static void clearQueues() {
-		CloudSim.future = new FutureQueue();
-		CloudSim.deferred = new DeferredQueue();
+		SimulationContext ctx = SimulationContext.current();
+		ctx.future = new FutureQueue(futureQueueType, lazyCancellation);
+		ctx.deferred = new DeferredQueue();
 	}
 
 
@@ -246,7 +357,8 @@ public class CloudSim {
 	 * @return true, if successful; false otherwise.
 	 */
 	public static boolean terminateSimulation() {
-		running = false;
+		SimulationContext ctx = SimulationContext.current();
+		ctx.running = false;
 		printMessage("Simulation: Reached termination time.");
 		return true;
 	}
@@ -258,10 +370,11 @@ public class CloudSim {
 	 * @return true, if successful otherwise.
 	 */
 	public static boolean terminateSimulation(double time) {
-		if (time <= clock) {
+		SimulationContext ctx = SimulationContext.current();
+		if (time <= ctx.clock) {
 			return false;
 		} else {
-			terminateAt = time;
+			ctx.terminateAt = time;
 		}
 		return true;
 	}
@@ -272,7 +385,7 @@ public class CloudSim {
 	 * @return the minimum time between events.
 	 */
 	public static double getMinTimeBetweenEvents() {
-	    return minTimeBetweenEvents;
+	    return SimulationContext.current().minTimeBetweenEvents;
 	}
 
 	/**
@@ -285,10 +398,11 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static Calendar getSimulationCalendar() {
+		SimulationContext ctx = SimulationContext.current();
 		// make a new copy
-		Calendar clone = calendar;
-		if (calendar != null) {
-			clone = (Calendar) calendar.clone();
+		Calendar clone = ctx.calendar;
+		if (ctx.calendar != null) {
+			clone = (Calendar) ctx.calendar.clone();
 		}
 
 		return clone;
@@ -302,7 +416,7 @@ public class CloudSim {
 	 * @post $result >= -1
 	 */
 	public static int getCloudInfoServiceEntityId() {
-		return cisId;
+		return SimulationContext.current().cisId;
 	}
 
 	/**
@@ -315,59 +429,33 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static List<Integer> getCloudResourceList() {
-		if (cis == null) {
+		SimulationContext ctx = SimulationContext.current();
+		if (ctx.cis == null) {
 			return null;
 		}
 
-		return cis.getList();
+		return ctx.cis.getList();
 	}
 
 	// ======== SIMULATION METHODS ===============//
 
-	/** The entities. */
-	private static List<SimEntity> entities;
-
-	/** The future event queue. */
-	protected static FutureQueue future;
-
-	/** The deferred event queue. */
-	protected static DeferredQueue deferred;
-
-	/** The simulation clock. */
-	private static double clock;
-
-	/** Flag for checking if the simulation is running. */
-	private static boolean running;
-
-	/** The entities by name. */
-	private static Map<String, SimEntity> entitiesByName;
-
-	// The predicates used in entity wait methods
-	/** The wait predicates. */
-	private static Map<Integer, Predicate> waitPredicates;
-
-	/** The paused. */
-	private static boolean paused = false;
-
-	/** The pause at. */
-	private static long pauseAt = -1;
-
-	/** The abrupt terminate. */
-	private static boolean abruptTerminate = false;
-
 	/**
 	 * Initialise the simulation for stand alone simulations. This function should be called at the
 	 * start of the simulation.
 	 */
 	protected static void initialize() {
+		SimulationContext ctx = SimulationContext.current();
 		Log.printLine("Initialising...");
-		entities = new ArrayList<SimEntity>();
-		entitiesByName = new LinkedHashMap<String, SimEntity>();
-		future = new FutureQueue();
-		deferred = new DeferredQueue();
-		waitPredicates = new HashMap<Integer, Predicate>();
-		clock = 0;
-		running = false;
+		ctx.entities = new ArrayList<SimEntity>();
+		ctx.entitiesByName = new LinkedHashMap<String, SimEntity>();
+		ctx.runnableEntities = new BitSet();
+		ctx.future = new FutureQueue(futureQueueType, lazyCancellation);
+		ctx.deferred = new DeferredQueue();
+		ctx.eventPool = new SimEventPool(eventPooling, eventPoolDebug);
+		ctx.profiler = profiling ? new SimulationProfiler() : null;
+		ctx.waitPredicates = new HashMap<Integer, Predicate>();
+		ctx.clock = 0;
+		ctx.running = false;
 	}
 
 	// The two standard predicates
@@ -386,7 +474,7 @@ public class CloudSim {
 	 * @return the simulation time
 	 */
 	public static double clock() {
-		return clock;
+		return SimulationContext.current().clock;
 	}
 
 	/**
@@ -395,7 +483,7 @@ public class CloudSim {
 	 * @return The number of entities
 	 */
 	public static int getNumEntities() {
-		return entities.size();
+		return SimulationContext.current().entities.size();
 	}
 
 	/**
@@ -405,7 +493,7 @@ public class CloudSim {
 	 * @return The entity, or if it could not be found
 	 */
 	public static SimEntity getEntity(int id) {
-		return entities.get(id);
+		return SimulationContext.current().entities.get(id);
 	}
 
 	/**
@@ -415,7 +503,7 @@ public class CloudSim {
 	 * @return The entity
 	 */
 	public static SimEntity getEntity(String name) {
-		return entitiesByName.get(name);
+		return SimulationContext.current().entitiesByName.get(name);
 	}
 
 	/**
@@ -425,7 +513,8 @@ public class CloudSim {
 	 * @return The entity's unique id number
 	 */
 	public static int getEntityId(String name) {
-		SimEntity obj = entitiesByName.get(name);
+		SimulationContext ctx = SimulationContext.current();
+		SimEntity obj = ctx.entitiesByName.get(name);
 		if (obj == null) {
 			return NOT_FOUND;
 		} else {
@@ -472,10 +561,11 @@ public class CloudSim {
 	 * @return the entity iterator
 	 */
 	public static List<SimEntity> getEntityList() {
+		SimulationContext ctx = SimulationContext.current();
 		// create a new list to prevent the user from changing
 		// the list of entities used by Simulation
 		List<SimEntity> list = new LinkedList<SimEntity>();
-		list.addAll(entities);
+		list.addAll(ctx.entities);
 		return list;
 	}
 
@@ -488,19 +578,36 @@ public class CloudSim {
 	 * @param e The new entity
 	 */
 	public static void addEntity(SimEntity e) {
+		SimulationContext ctx = SimulationContext.current();
 		SimEvent evt;
-		if (running) {
+		if (ctx.running) {
 			// Post an event to make this entity
-			evt = new SimEvent(SimEvent.CREATE, clock, 1, 0, 0, e);
-			future.addEvent(evt);
+			evt = new SimEvent(SimEvent.CREATE, ctx.clock, 1, 0, 0, e);
+			ctx.future.addEvent(evt);
 		}
 		if (e.getId() == -1) { // Only add once!
 			
 			//System.out.println("From CloudSim.addEntity(): Adding SimEntity "+e.getName());
-			int id = entities.size();
+			int id = ctx.entities.size();
 			e.setId(id);
-			entities.add(e);
-			entitiesByName.put(e.getName(), e);
+			ctx.entities.add(e);
+			ctx.entitiesByName.put(e.getName(), e);
+			if (e.getState() == SimEntity.RUNNABLE) {
+				markRunnable(id);
+			}
+		}
+	}
+
+	/**
+	 * Internal method used to flag an entity as having (potentially) work to do in the next clock
+	 * tick. It should <b>not</b> be called from user simulations.
+	 * 
+	 * @param id the id of the entity
+	 */
+	static void markRunnable(int id) {
+		SimulationContext ctx = SimulationContext.current();
+		if (id >= 0 && ctx.runnableEntities != null) {
+			ctx.runnableEntities.set(id);
 		}
 	}
 
@@ -526,53 +633,54 @@ public class CloudSim {
 	 * @return true, if successful otherwise
 	 */
 	public static boolean runClockTick() {
-		SimEntity ent;
+		SimulationContext ctx = SimulationContext.current();
 		boolean queue_empty;
-		
-		int entities_size = entities.size();
 
-		for (int i = 0; i < entities_size; i++) {
-			ent = entities.get(i);
-			if (ent.getState() == SimEntity.RUNNABLE) {
-				ent.run();
-			}
-		}
+		runEntities(ctx);
 				
 		// If there are more future events then deal with them
-		if (future.size() > 0) {
-			List<SimEvent> toRemove = new ArrayList<SimEvent>();
-			Iterator<SimEvent> fit = future.iterator();
+		SimEvent first = ctx.future.poll();
+		if (first != null) {
 			queue_empty = false;
-			SimEvent first = fit.next();
+			double time = first.eventTime();
 			processEvent(first);
-			future.remove(first);
-
-			fit = future.iterator();
-
-			// Check if next events are at same time...
-			boolean trymore = fit.hasNext();
-			while (trymore) {
-				SimEvent next = fit.next();
-				if (next.eventTime() == first.eventTime()) {
-					processEvent(next);
-					toRemove.add(next);
-					trymore = fit.hasNext();
-				} else {
-					trymore = false;
-				}
-			}
+			int dispatched = 1;
 
-			future.removeAll(toRemove);
+			// Dispatch the events at the same time in the same pass
+			for (SimEvent next = ctx.future.pollAt(time); next != null; next = ctx.future.pollAt(time)) {
+				processEvent(next);
+				dispatched++;
+			}
+			if (ctx.profiler != null) {
+				ctx.profiler.tick(ctx.clock, dispatched, ctx.future.size(), ctx.deferred.size());
+			}
 
 		} else {
 			queue_empty = true;
-			running = false;
+			ctx.running = false;
 			printMessage("Simulation: No more future events");
 		}
 
 		return queue_empty;
 	}
 
+	/**
+	 * Runs the entities with events to process at the current time.
+	 * 
+	 * @param ctx the context of the simulation
+	 */
+	private static void runEntities(SimulationContext ctx) {
+		// Only entities flagged since they last ran can have events to process; running any other
+		// entity would be a no-op. Entities are still run in id order.
+		for (int i = ctx.runnableEntities.nextSetBit(0); i >= 0; i = ctx.runnableEntities.nextSetBit(i + 1)) {
+			ctx.runnableEntities.clear(i);
+			SimEntity ent = ctx.entities.get(i);
+			if (ent.getState() == SimEntity.RUNNABLE) {
+				ent.run(ctx);
+			}
+		}
+	}
+
 	/**
 	 * Internal method used to stop the simulation. This method should <b>not</b> be used directly.
 	 */
@@ -588,9 +696,10 @@ public class CloudSim {
 	 * @param delay the delay
 	 */
 	public static void hold(int src, long delay) {
-		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
-		future.addEvent(e);
-		entities.get(src).setState(SimEntity.HOLDING);
+		SimulationContext ctx = SimulationContext.current();
+		SimEvent e = ctx.eventPool.acquire(SimEvent.HOLD_DONE, ctx.clock + delay, src, -1, -1, null);
+		ctx.future.addEvent(e);
+		ctx.entities.get(src).setState(SimEntity.HOLDING);
 	}
 
 	/**
@@ -600,9 +709,10 @@ public class CloudSim {
 	 * @param delay the delay
 	 */
 	public static void pause(int src, double delay) {
-		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
-		future.addEvent(e);
-		entities.get(src).setState(SimEntity.HOLDING);
+		SimulationContext ctx = SimulationContext.current();
+		SimEvent e = ctx.eventPool.acquire(SimEvent.HOLD_DONE, ctx.clock + delay, src, -1, -1, null);
+		ctx.future.addEvent(e);
+		ctx.entities.get(src).setState(SimEntity.HOLDING);
 	}
 
 	/**
@@ -615,12 +725,55 @@ public class CloudSim {
 	 * @param data the data
 	 */
 	public static void send(int src, int dest, double delay, int tag, Object data) {
+		SimulationContext ctx = SimulationContext.current();
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+
+		SimEvent e = ctx.eventPool.acquire(SimEvent.SEND, ctx.clock + delay, src, dest, tag, data);
+		ctx.future.addEvent(e);
+	}
+
+	/**
+	 * Used to send an event with an int as data, without boxing it. The destination reads it with
+	 * {@link SimEvent#getIntData()}.
+	 * 
+	 * @param src the src
+	 * @param dest the dest
+	 * @param delay the delay
+	 * @param tag the tag
+	 * @param data the data
+	 */
+	public static void sendInt(int src, int dest, double delay, int tag, int data) {
+		SimulationContext ctx = SimulationContext.current();
 		if (delay < 0) {
 			throw new IllegalArgumentException("Send delay can't be negative.");
 		}
 
-		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
-		future.addEvent(e);
+		SimEvent e = ctx.eventPool.acquire(SimEvent.SEND, ctx.clock + delay, src, dest, tag, null);
+		e.setIntData(data);
+		ctx.future.addEvent(e);
+	}
+
+	/**
+	 * Used to send an event with a double as data, without boxing it. The destination reads it
+	 * with {@link SimEvent#getDoubleData()}.
+	 * 
+	 * @param src the src
+	 * @param dest the dest
+	 * @param delay the delay
+	 * @param tag the tag
+	 * @param data the data
+	 */
+	public static void sendDouble(int src, int dest, double delay, int tag, double data) {
+		SimulationContext ctx = SimulationContext.current();
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+
+		SimEvent e = ctx.eventPool.acquire(SimEvent.SEND, ctx.clock + delay, src, dest, tag, null);
+		e.setDoubleData(data);
+		ctx.future.addEvent(e);
 	}
 
 	/**
@@ -633,12 +786,13 @@ public class CloudSim {
 	 * @param data the data
 	 */
 	public static void sendFirst(int src, int dest, double delay, int tag, Object data) {
+		SimulationContext ctx = SimulationContext.current();
 		if (delay < 0) {
 			throw new IllegalArgumentException("Send delay can't be negative.");
 		}
 
-		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
-		future.addEventFirst(e);
+		SimEvent e = ctx.eventPool.acquire(SimEvent.SEND, ctx.clock + delay, src, dest, tag, data);
+		ctx.future.addEventFirst(e);
 	}
 
 	/**
@@ -650,10 +804,11 @@ public class CloudSim {
 	 * @param p the p
 	 */
 	public static void wait(int src, Predicate p) {
-		entities.get(src).setState(SimEntity.WAITING);
+		SimulationContext ctx = SimulationContext.current();
+		ctx.entities.get(src).setState(SimEntity.WAITING);
 		if (p != SIM_ANY) {
 			// If a predicate has been used store it in order to check it
-			waitPredicates.put(src, p);
+			ctx.waitPredicates.put(src, p);
 		}
 	}
 
@@ -665,16 +820,7 @@ public class CloudSim {
 	 * @return the int
 	 */
 	public static int waiting(int d, Predicate p) {
-		int count = 0;
-		SimEvent event;
-		Iterator<SimEvent> iterator = deferred.iterator();
-		while (iterator.hasNext()) {
-			event = iterator.next();
-			if ((event.getDestination() == d) && (p.match(event))) {
-				count++;
-			}
-		}
-		return count;
+		return SimulationContext.current().deferred.count(d, p);
 	}
 
 	/**
@@ -682,19 +828,10 @@ public class CloudSim {
 	 * 
 	 * @param src the src
 	 * @param p the p
-	 * @return the sim event
+	 * @return the sim event, or <tt>null</tt> if no event matches
 	 */
 	public static SimEvent select(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iterator = deferred.iterator();
-		while (iterator.hasNext()) {
-			ev = iterator.next();
-			if (ev.getDestination() == src && p.match(ev)) {
-				iterator.remove();
-				break;
-			}
-		}
-		return ev;
+		return SimulationContext.current().deferred.removeFirst(src, p);
 	}
 
 	/**
@@ -702,18 +839,10 @@ public class CloudSim {
 	 * 
 	 * @param src the src
 	 * @param p the p
-	 * @return the sim event
+	 * @return the sim event, or <tt>null</tt> if no event matches
 	 */
 	public static SimEvent findFirstDeferred(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iterator = deferred.iterator();
-		while (iterator.hasNext()) {
-			ev = iterator.next();
-			if (ev.getDestination() == src && p.match(ev)) {
-				break;
-			}
-		}
-		return ev;
+		return SimulationContext.current().deferred.findFirst(src, p);
 	}
 
 	/**
@@ -721,20 +850,10 @@ public class CloudSim {
 	 * 
 	 * @param src the src
 	 * @param p the p
-	 * @return the sim event
+	 * @return the sim event, or <tt>null</tt> if no event matches
 	 */
 	public static SimEvent cancel(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iter = future.iterator();
-		while (iter.hasNext()) {
-			ev = iter.next();
-			if (ev.getSource() == src && p.match(ev)) {
-				iter.remove();
-				break;
-			}
-		}
-
-		return ev;
+		return SimulationContext.current().future.cancel(src, p);
 	}
 
 	/**
@@ -746,16 +865,7 @@ public class CloudSim {
 	 * @return true, if successful
 	 */
 	public static boolean cancelAll(int src, Predicate p) {
-		SimEvent ev = null;
-		int previousSize = future.size();
-		Iterator<SimEvent> iter = future.iterator();
-		while (iter.hasNext()) {
-			ev = iter.next();
-			if (ev.getSource() == src && p.match(ev)) {
-				iter.remove();
-			}
-		}
-		return previousSize < future.size();
+		return SimulationContext.current().future.cancelAll(src, p);
 	}
 
 	//
@@ -768,13 +878,14 @@ public class CloudSim {
 	 * @param e the e
 	 */
 	private static void processEvent(SimEvent e) {
+		SimulationContext ctx = SimulationContext.current();
 		int dest, src;
 		SimEntity dest_ent;
 		// Update the system's clock
-		if (e.eventTime() < clock) {
+		if (e.eventTime() < ctx.clock) {
 			throw new IllegalArgumentException("Past event detected.");
 		}
-		clock = e.eventTime();
+		ctx.clock = e.eventTime();
 
 		// Ok now process it
 		switch (e.getType()) {
@@ -784,6 +895,7 @@ public class CloudSim {
 			case SimEvent.CREATE:
 				SimEntity newe = (SimEntity) e.getData();
 				addEntityDynamically(newe);
+				releaseEvent(e);
 				break;
 
 			case SimEvent.SEND:
@@ -793,19 +905,22 @@ public class CloudSim {
 					throw new IllegalArgumentException("Attempt to send to a null entity detected.");
 				} else {
 					int tag = e.getTag();
-					dest_ent = entities.get(dest);
+					dest_ent = ctx.entities.get(dest);
 					if (dest_ent.getState() == SimEntity.WAITING) {
 						Integer destObj = Integer.valueOf(dest);
-						Predicate p = waitPredicates.get(destObj);
+						Predicate p = ctx.waitPredicates.get(destObj);
 						if ((p == null) || (tag == 9999) || (p.match(e))) {
-							dest_ent.setEventBuffer((SimEvent) e.clone());
+							// the event is not queued anywhere else, so no need to copy it
+							dest_ent.setEventBuffer(e);
 							dest_ent.setState(SimEntity.RUNNABLE);
-							waitPredicates.remove(destObj);
+							ctx.waitPredicates.remove(destObj);
 						} else {
-							deferred.addEvent(e);
+							ctx.deferred.addEvent(e);
+							markRunnable(dest);
 						}
 					} else {
-						deferred.addEvent(e);
+						ctx.deferred.addEvent(e);
+						markRunnable(dest);
 					}
 				}
 				break;
@@ -815,8 +930,9 @@ public class CloudSim {
 				if (src < 0) {
 					throw new IllegalArgumentException("Null entity holding.");
 				} else {
-					entities.get(src).setState(SimEntity.RUNNABLE);
+					ctx.entities.get(src).setState(SimEntity.RUNNABLE);
 				}
+				releaseEvent(e);
 				break;
 
 			default:
@@ -824,14 +940,28 @@ public class CloudSim {
 		}
 	}
 
+	/**
+	 * Internal method used to release an event once it has been processed, so that it can be
+	 * recycled. It should <b>not</b> be called from user simulations.
+	 * 
+	 * @param e the event
+	 */
+	static void releaseEvent(SimEvent e) {
+		SimEventPool pool = SimulationContext.current().eventPool;
+		if (pool != null) {
+			pool.release(e);
+		}
+	}
+
 	/**
 	 * Internal method used to start the simulation. This method should <b>not</b> be used by user
 	 * simulations.
 	 */
 	public static void runStart() {
-		running = true;
+		SimulationContext ctx = SimulationContext.current();
+		ctx.running = true;
 		// Start all the entities
-		for (SimEntity ent : entities) {
+		for (SimEntity ent : ctx.entities) {
 			//System.out.println("From CloudSim.runStart(): Starting SimEntity "+ent.getName());
 			ent.startEntity();
 		}
@@ -846,7 +976,7 @@ public class CloudSim {
 	 * @return if the simulation is still running, otherwise
 	 */
 	public static boolean running() {
-		return running;
+		return SimulationContext.current().running;
 	}
 
 	/**
@@ -855,8 +985,9 @@ public class CloudSim {
 	 * @return true, if successful otherwise.
 	 */
 	public static boolean pauseSimulation() {
-		paused = true;
-		return paused;
+		SimulationContext ctx = SimulationContext.current();
+		ctx.paused = true;
+		return ctx.paused;
 	}
 
 	/**
@@ -866,10 +997,11 @@ public class CloudSim {
 	 * @return true, if successful otherwise.
 	 */
 	public static boolean pauseSimulation(long time) {
-		if (time <= clock) {
+		SimulationContext ctx = SimulationContext.current();
+		if (time <= ctx.clock) {
 			return false;
 		} else {
-			pauseAt = time;
+			ctx.pauseAt = time;
 		}
 		return true;
 	}
@@ -880,13 +1012,14 @@ public class CloudSim {
 	 * @return if the simulation has been restarted or or otherwise.
 	 */
 	public static boolean resumeSimulation() {
-		paused = false;
+		SimulationContext ctx = SimulationContext.current();
+		ctx.paused = false;
 
-		if (pauseAt <= clock) {
-			pauseAt = -1;
+		if (ctx.pauseAt <= ctx.clock) {
+			ctx.pauseAt = -1;
 		}
 
-		return !paused;
+		return !ctx.paused;
 	}
 
 	/**
@@ -896,43 +1029,101 @@ public class CloudSim {
 	 * @return the double last clock value
 	 */
 	public static double run() {
-		if (!running) {
+		SimulationContext ctx = SimulationContext.current();
+		if (!ctx.running) {
 			runStart();
 		}
-		while (true) {
-			if (runClockTick() || abruptTerminate) {
-				break;
-			}
+		if (ctx.profiler != null) {
+			ctx.profiler.start();
+		}
+		while (!runStep(ctx)) {
+			// until the simulation is over
+		}
+		if (ctx.profiler != null) {
+			ctx.profiler.stop();
+		}
 
-			// this block allows termination of simulation at a specific time
-			if (terminateAt > 0.0 && clock >= terminateAt) {
-				terminateSimulation();
-				clock = terminateAt;
-				break;
-			}
+		double clock = clock();
 
-			if (pauseAt != -1
-					&& ((future.size() > 0 && clock <= pauseAt && pauseAt <= future.iterator().next()
-							.eventTime()) || future.size() == 0 && pauseAt <= clock)) {
-				pauseSimulation();
-				clock = pauseAt;
-			}
+		finishSimulation();
+//		runStop();
 
-			while (paused) {
-				try {
-					Thread.sleep(100);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
+		return clock;
+	}
+
+	/**
+	 * Runs the simulation up to a given time: every event at or before that time is processed, and
+	 * the simulation stops before the first clock tick after it, without finishing. A later call to
+	 * this method or to {@link #run()} resumes it where it stopped, so a simulation run in steps
+	 * gives the same results as one run at once. In between, the simulation can be changed, e.g. to
+	 * branch off a warm-up run up to the given time.
+	 * <p>
+	 * If the simulation ends before the given time, it is finished as by {@link #run()}.
+	 * 
+	 * @param time the time to run the simulation up to
+	 * @return true if the simulation stopped at the given time, false if it ended before
+	 */
+	public static boolean runUntil(double time) {
+		SimulationContext ctx = SimulationContext.current();
+		if (!ctx.running) {
+			runStart();
+		}
+		if (ctx.profiler != null) {
+			ctx.profiler.start();
+		}
+		try {
+			while (true) {
+				// the entities process the events already dispatched first, as they may send
+				// events up to the given time
+				runEntities(ctx);
+				SimEvent next = ctx.future.peek();
+				if (next != null && next.eventTime() > time) {
+					return true;
 				}
+				if (runStep(ctx)) {
+					finishSimulation();
+					return false;
+				}
+			}
+		} finally {
+			if (ctx.profiler != null) {
+				ctx.profiler.stop();
 			}
 		}
+	}
 
-		double clock = clock();
+	/**
+	 * Runs one clock tick of a sequential simulation, then handles the termination time and pauses.
+	 * 
+	 * @param ctx the context of the simulation
+	 * @return true if the simulation is over
+	 */
+	private static boolean runStep(SimulationContext ctx) {
+		if (runClockTick() || ctx.abruptTerminate) {
+			return true;
+		}
 
-		finishSimulation();
-//		runStop();
+		// this block allows termination of simulation at a specific time
+		if (ctx.terminateAt > 0.0 && ctx.clock >= ctx.terminateAt) {
+			terminateSimulation();
+			ctx.clock = ctx.terminateAt;
+			return true;
+		}
 
-		return clock;
+		if (ctx.pauseAt != -1
+				&& ((ctx.future.size() > 0 && ctx.clock <= ctx.pauseAt && ctx.pauseAt <= ctx.future.peek().eventTime()) || ctx.future.size() == 0 && ctx.pauseAt <= ctx.clock)) {
+			pauseSimulation();
+			ctx.clock = ctx.pauseAt;
+		}
+
+		while (ctx.paused) {
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+		}
+		return false;
 	}
 
 	/**
@@ -940,39 +1131,42 @@ public class CloudSim {
 	 * in user simulations.
 	 */
 	public static void finishSimulation() {
+		SimulationContext ctx = SimulationContext.current();
 		// Allow all entities to exit their body method
-		if (!abruptTerminate) {
-			for (SimEntity ent : entities) {
+		if (!ctx.abruptTerminate) {
+			for (SimEntity ent : ctx.entities) {
 				if (ent.getState() != SimEntity.FINISHED) {
-					ent.run();
+					ent.run(ctx);
 				}
 			}
 		}
 
-		for (SimEntity ent : entities) {
+		for (SimEntity ent : ctx.entities) {
 			ent.shutdownEntity();
 		}
 
 		// reset all static variables
 		// Private data members
-		entities = null;
-		entitiesByName = null;
-		future = null;
-		deferred = null;
-		clock = 0L;
-		running = false;
-
-		waitPredicates = null;
-		paused = false;
-		pauseAt = -1;
-		abruptTerminate = false;
+		ctx.entities = null;
+		ctx.entitiesByName = null;
+		ctx.runnableEntities = null;
+		ctx.future = null;
+		ctx.deferred = null;
+		ctx.eventPool = null;
+		ctx.clock = 0L;
+		ctx.running = false;
+
+		ctx.waitPredicates = null;
+		ctx.paused = false;
+		ctx.pauseAt = -1;
+		ctx.abruptTerminate = false;
 	}
 
 	/**
 	 * Abruptally terminate.
 	 */
 	public static void abruptallyTerminate() {
-		abruptTerminate = true;
+		SimulationContext.current().abruptTerminate = true;
 	}
 
 	/**
@@ -990,7 +1184,7 @@ public class CloudSim {
 	 * @return true, if is paused
 	 */
 	public static boolean isPaused() {
-		return paused;
+		return SimulationContext.current().paused;
 	}
 
 }
@@ -8,14 +8,22 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.core.predicates.PredicateAny;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
 
 /**
- * This class implements the deferred event queue used by {@link Simulation}. The event queue uses a
- * linked list to store the events.
+ * This class implements the deferred event queue used by {@link Simulation}. The events are kept in
+ * one linked list per destination entity, so that looking up the events of an entity only costs in
+ * proportion to the events waiting for that entity. Each list preserves the temporal order of the
+ * events of its destination.
  * 
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
@@ -24,11 +32,11 @@ import java.util.ListIterator;
  */
 public class DeferredQueue {
 
-	/** The list. */
-	private final List<SimEvent> list = new LinkedList<SimEvent>();
+	/** The lists of events, indexed by destination entity id. */
+	private final List<LinkedList<SimEvent>> lists = new ArrayList<LinkedList<SimEvent>>();
 
-	/** The max time. */
-	private double maxTime = -1;
+	/** The number of events in the queue. */
+	private int size = 0;
 
 	/**
 	 * Adds a new event to the queue. Adding a new event to the queue preserves the temporal order
@@ -37,36 +45,167 @@ public class DeferredQueue {
 	 * @param newEvent The event to be added to the queue.
 	 */
 	public void addEvent(SimEvent newEvent) {
+		int dest = newEvent.getDestination();
+		if (dest < 0) {
+			throw new IllegalArgumentException("Deferred event without destination.");
+		}
+		while (lists.size() <= dest) {
+			lists.add(null);
+		}
+		LinkedList<SimEvent> list = lists.get(dest);
+		if (list == null) {
+			list = new LinkedList<SimEvent>();
+			lists.set(dest, list);
+		}
+		size++;
+
 		// The event has to be inserted as the last of all events
 		// with the same event_time(). Yes, this matters.
 		double eventTime = newEvent.eventTime();
-		if (eventTime >= maxTime) {
+		if (list.isEmpty() || list.getLast().eventTime() <= eventTime) {
 			list.add(newEvent);
-			maxTime = eventTime;
 			return;
 		}
 
-		ListIterator<SimEvent> iterator = list.listIterator();
-		SimEvent event;
-		while (iterator.hasNext()) {
-			event = iterator.next();
-			if (event.eventTime() > eventTime) {
-				iterator.previous();
+		ListIterator<SimEvent> iterator = list.listIterator(list.size());
+		while (iterator.hasPrevious()) {
+			if (iterator.previous().eventTime() <= eventTime) {
+				iterator.next();
 				iterator.add(newEvent);
 				return;
 			}
 		}
 
-		list.add(newEvent);
+		list.addFirst(newEvent);
+	}
+
+	/**
+	 * Counts the events for a given entity matching a predicate.
+	 * 
+	 * @param dest the id of the destination entity
+	 * @param p the predicate
+	 * @return the number of matching events
+	 */
+	public int count(int dest, Predicate p) {
+		LinkedList<SimEvent> list = getList(dest);
+		if (list == null) {
+			return 0;
+		}
+		if (p instanceof PredicateAny) {
+			return list.size();
+		}
+
+		int[] tags = getTags(p);
+		int count = 0;
+		for (SimEvent event : list) {
+			if (matches(event, p, tags)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Finds the first event for a given entity matching a predicate.
+	 * 
+	 * @param dest the id of the destination entity
+	 * @param p the predicate
+	 * @return the event, or <tt>null</tt> if no event matches
+	 */
+	public SimEvent findFirst(int dest, Predicate p) {
+		LinkedList<SimEvent> list = getList(dest);
+		if (list == null || list.isEmpty()) {
+			return null;
+		}
+		if (p instanceof PredicateAny) {
+			return list.getFirst();
+		}
+
+		int[] tags = getTags(p);
+		for (SimEvent event : list) {
+			if (matches(event, p, tags)) {
+				return event;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the first event for a given entity matching a predicate.
+	 * 
+	 * @param dest the id of the destination entity
+	 * @param p the predicate
+	 * @return the removed event, or <tt>null</tt> if no event matches
+	 */
+	public SimEvent removeFirst(int dest, Predicate p) {
+		LinkedList<SimEvent> list = getList(dest);
+		if (list == null || list.isEmpty()) {
+			return null;
+		}
+		if (p instanceof PredicateAny) {
+			size--;
+			return list.removeFirst();
+		}
+
+		int[] tags = getTags(p);
+		Iterator<SimEvent> iterator = list.iterator();
+		while (iterator.hasNext()) {
+			SimEvent event = iterator.next();
+			if (matches(event, p, tags)) {
+				iterator.remove();
+				size--;
+				return event;
+			}
+		}
+		return null;
 	}
 
 	/**
-	 * Returns an iterator to the events in the queue.
+	 * Returns an iterator to the events in the queue. The events are grouped by destination entity
+	 * and are in temporal order within each group.
 	 * 
 	 * @return the iterator
 	 */
 	public Iterator<SimEvent> iterator() {
-		return list.iterator();
+		return new Iterator<SimEvent>() {
+
+			private int index = 0;
+
+			private Iterator<SimEvent> current = null;
+
+			private Iterator<SimEvent> last = null;
+
+			@Override
+			public boolean hasNext() {
+				while (current == null || !current.hasNext()) {
+					if (index >= lists.size()) {
+						return false;
+					}
+					LinkedList<SimEvent> list = lists.get(index++);
+					current = list == null ? null : list.iterator();
+				}
+				return true;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				last = current;
+				return current.next();
+			}
+
+			@Override
+			public void remove() {
+				if (last == null) {
+					throw new IllegalStateException();
+				}
+				last.remove();
+				last = null;
+				size--;
+			}
+		};
 	}
 
 	/**
@@ -75,14 +214,57 @@ public class DeferredQueue {
 	 * @return the number of events in the queue.
 	 */
 	public int size() {
-		return list.size();
+		return size;
+	}
+
+	/**
+	 * Gets the list of events of an entity.
+	 * 
+	 * @param dest the id of the destination entity
+	 * @return the list, or <tt>null</tt> if the entity never had deferred events
+	 */
+	private LinkedList<SimEvent> getList(int dest) {
+		return dest >= 0 && dest < lists.size() ? lists.get(dest) : null;
+	}
+
+	/**
+	 * Gets the tags of a {@link PredicateType}, so that they can be compared directly instead of
+	 * calling {@link Predicate#match(SimEvent)} for every event.
+	 * 
+	 * @param p the predicate
+	 * @return the tags, or <tt>null</tt> if the predicate is not a {@link PredicateType}
+	 */
+	private static int[] getTags(Predicate p) {
+		return p instanceof PredicateType ? ((PredicateType) p).getTags() : null;
+	}
+
+	/**
+	 * Checks if an event matches a predicate.
+	 * 
+	 * @param event the event
+	 * @param p the predicate
+	 * @param tags the tags of the predicate, if it is a {@link PredicateType}
+	 * @return true, if the event matches
+	 */
+	private static boolean matches(SimEvent event, Predicate p, int[] tags) {
+		if (tags == null) {
+			return p.match(event);
+		}
+		int tag = event.getTag();
+		for (int t : tags) {
+			if (tag == t) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	/**
 	 * Clears the queue.
 	 */
 	public void clear() {
-		list.clear();
+		lists.clear();
+		size = 0;
 	}
 
-}
\ No newline at end of file
+}
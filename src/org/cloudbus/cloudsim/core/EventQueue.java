@@ -0,0 +1,83 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Iterator;
+
+/**
+ * A priority queue of {@link SimEvent}s ordered by {@link SimEvent#compareTo(SimEvent)}, i.e. by
+ * event time and then by serial number. This is the storage behind {@link FutureQueue}; different
+ * implementations trade memory for enqueue/dequeue cost, but all of them must hand out events in
+ * exactly the same order so that simulations remain reproducible.
+ *
+ * @see FutureQueue
+ * @see SimEvent
+ */
+public interface EventQueue {
+
+	/**
+	 * Adds an event to the queue. The serial number of the event must already be set.
+	 *
+	 * @param event the event
+	 */
+	void add(SimEvent event);
+
+	/**
+	 * Returns the first event of the queue without removing it.
+	 *
+	 * @return the first event, or <tt>null</tt> if the queue is empty
+	 */
+	SimEvent peek();
+
+	/**
+	 * Removes and returns the first event of the queue.
+	 *
+	 * @return the first event, or <tt>null</tt> if the queue is empty
+	 */
+	SimEvent poll();
+
+	/**
+	 * Removes and returns the first event of the queue if it occurs at the given time. This lets
+	 * the simulation drain all the events of a clock tick without peeking first.
+	 *
+	 * @param time the event time
+	 * @return the first event, or <tt>null</tt> if the queue is empty or the first event occurs at
+	 *         a different time
+	 */
+	SimEvent pollAt(double time);
+
+	/**
+	 * Removes the given event from the queue.
+	 *
+	 * @param event the event
+	 * @return true, if the event was in the queue
+	 */
+	boolean remove(SimEvent event);
+
+	/**
+	 * Returns an iterator over the events in queue order. The iterator supports
+	 * {@link Iterator#remove()}.
+	 *
+	 * @return the iterator
+	 */
+	Iterator<SimEvent> iterator();
+
+	/**
+	 * Returns the number of events in the queue.
+	 *
+	 * @return the size
+	 */
+	int size();
+
+	/**
+	 * Removes all the events from the queue.
+	 */
+	void clear();
+
+}
@@ -8,28 +8,149 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
 
 /**
- * This class implements the future event queue used by {@link Simulation}. The event queue uses a
- * {@link TreeSet} in order to store the events.
+ * This class implements the future event queue used by {@link Simulation}. The events are stored in
+ * an {@link EventQueue}; by default a {@link TreeSetEventQueue}, or a {@link CalendarEventQueue} for
+ * simulations with very large numbers of pending events.
+ * <p>
+ * Events can be cancelled by source entity and predicate. The first time an entity cancels events,
+ * its pending events are indexed by tag, so that later cancellations only look at the events of
+ * that entity. With lazy cancellation, cancelled events are only marked and are dropped when they
+ * reach the head of the queue, which avoids removing them from the middle of the queue.
  * 
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  * @see Simulation
- * @see java.util.TreeSet
+ * @see EventQueue
  */
 public class FutureQueue {
 
-	/** The sorted set. */
-	private final SortedSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
+	/** Queue type: events stored in a {@link TreeSetEventQueue}. */
+	public static final int TREE_SET = 0;
+
+	/** Queue type: events stored in a {@link CalendarEventQueue}. */
+	public static final int CALENDAR = 1;
+
+	/** Name of the {@link #TREE_SET} queue type, as used in configuration files. */
+	public static final String TREE_SET_STR = "TREE_SET";
+
+	/** Name of the {@link #CALENDAR} queue type, as used in configuration files. */
+	public static final String CALENDAR_STR = "CALENDAR";
+
+	/** Maps queue type names to queue type codes. */
+	private static final Map<String, Integer> queueTypes = new HashMap<String, Integer>();
+
+	static {
+		queueTypes.put(TREE_SET_STR, TREE_SET);
+		queueTypes.put(CALENDAR_STR, CALENDAR);
+	}
+
+	/** The events. */
+	private final EventQueue queue;
 
 	/** The serial. */
 	private long serial = 0;
 
+	/** Whether cancelled events are left in the queue and dropped when they reach its head. */
+	private final boolean lazyCancellation;
+
+	/** The number of cancelled events still in the queue. */
+	private int cancelledCount = 0;
+
+	/** The ids of the entities whose events are indexed. */
+	private final BitSet indexedSources = new BitSet();
+
+	/** The pending events of the indexed entities, by source entity id and then by tag. */
+	private final Map<Integer, Map<Integer, Set<SimEvent>>> sourceIndex = new HashMap<Integer, Map<Integer, Set<SimEvent>>>();
+
+	/**
+	 * Creates a future queue backed by a {@link TreeSetEventQueue}.
+	 */
+	public FutureQueue() {
+		this(TREE_SET);
+	}
+
+	/**
+	 * Creates a future queue of the given type.
+	 * 
+	 * @param queueType the queue type, {@link #TREE_SET} or {@link #CALENDAR}
+	 */
+	public FutureQueue(int queueType) {
+		this(queueType, false);
+	}
+
+	/**
+	 * Creates a future queue of the given type.
+	 * 
+	 * @param queueType the queue type, {@link #TREE_SET} or {@link #CALENDAR}
+	 * @param lazyCancellation whether cancelled events are dropped lazily
+	 */
+	public FutureQueue(int queueType, boolean lazyCancellation) {
+		this(createEventQueue(queueType), lazyCancellation);
+	}
+
+	/**
+	 * Creates a future queue storing its events in the given queue.
+	 * 
+	 * @param queue the (empty) event queue
+	 */
+	public FutureQueue(EventQueue queue) {
+		this(queue, false);
+	}
+
+	/**
+	 * Creates a future queue storing its events in the given queue.
+	 * 
+	 * @param queue the (empty) event queue
+	 * @param lazyCancellation whether cancelled events are dropped lazily
+	 */
+	public FutureQueue(EventQueue queue, boolean lazyCancellation) {
+		this.queue = queue;
+		this.lazyCancellation = lazyCancellation;
+	}
+
+	/**
+	 * Creates an empty event queue of the given type.
+	 * 
+	 * @param queueType the queue type, {@link #TREE_SET} or {@link #CALENDAR}
+	 * @return the event queue
+	 */
+	public static EventQueue createEventQueue(int queueType) {
+		switch (queueType) {
+			case TREE_SET:
+				return new TreeSetEventQueue();
+			case CALENDAR:
+				return new CalendarEventQueue();
+			default:
+				throw new IllegalArgumentException("Unknown future queue type: " + queueType);
+		}
+	}
+
+	/**
+	 * Converts a queue type name (e.g. "CALENDAR") to its code.
+	 * 
+	 * @param queueTypeName the name of the queue type, case-insensitive
+	 * @return the queue type code, or -1 if not found
+	 */
+	public static int getQueueTypeCode(String queueTypeName) {
+		return queueTypes.getOrDefault(queueTypeName.toUpperCase(), -1);
+	}
+
 	/**
 	 * Add a new event to the queue. Adding a new event to the queue preserves the temporal order of
 	 * the events in the queue.
@@ -38,7 +159,8 @@ public class FutureQueue {
 	 */
 	public void addEvent(SimEvent newEvent) {
 		newEvent.setSerial(serial++);
-		sortedSet.add(newEvent);
+		queue.add(newEvent);
+		index(newEvent);
 	}
 
 	/**
@@ -48,7 +170,100 @@ public class FutureQueue {
 	 */
 	public void addEventFirst(SimEvent newEvent) {
 		newEvent.setSerial(0);
-		sortedSet.add(newEvent);
+		queue.add(newEvent);
+		index(newEvent);
+	}
+
+	/**
+	 * Returns the first event of the queue without removing it.
+	 * 
+	 * @return the first event, or <tt>null</tt> if the queue is empty
+	 */
+	public SimEvent peek() {
+		SimEvent event = queue.peek();
+		while (event != null && event.isCancelled()) {
+			queue.poll();
+			cancelledCount--;
+			event = queue.peek();
+		}
+		return event;
+	}
+
+	/**
+	 * Removes and returns the first event of the queue.
+	 * 
+	 * @return the first event, or <tt>null</tt> if the queue is empty
+	 */
+	public SimEvent poll() {
+		SimEvent event = queue.poll();
+		while (event != null && event.isCancelled()) {
+			cancelledCount--;
+			event = queue.poll();
+		}
+		unindex(event);
+		return event;
+	}
+
+	/**
+	 * Removes and returns the first event of the queue if it occurs at the given time.
+	 * 
+	 * @param time the event time
+	 * @return the first event, or <tt>null</tt> if there is no event at that time at the head of
+	 *         the queue
+	 */
+	public SimEvent pollAt(double time) {
+		// a cancelled head at another time means there is no event at this time either
+		SimEvent event = queue.pollAt(time);
+		while (event != null && event.isCancelled()) {
+			cancelledCount--;
+			event = queue.pollAt(time);
+		}
+		unindex(event);
+		return event;
+	}
+
+	/**
+	 * Removes the first event from a given source entity matching a predicate.
+	 * 
+	 * @param src the id of the source entity
+	 * @param p the predicate
+	 * @return the cancelled event, or <tt>null</tt> if no event matches
+	 */
+	public SimEvent cancel(int src, Predicate p) {
+		SimEvent first = null;
+		for (Set<SimEvent> events : getIndexedEvents(src, p)) {
+			for (SimEvent event : events) {
+				if ((first == null || event.compareTo(first) < 0) && (p instanceof PredicateType || p.match(event))) {
+					first = event;
+				}
+			}
+		}
+		if (first != null) {
+			cancelEvent(first);
+		}
+		return first;
+	}
+
+	/**
+	 * Removes all the events from a given source entity matching a predicate.
+	 * 
+	 * @param src the id of the source entity
+	 * @param p the predicate
+	 * @return true, if at least one event was cancelled
+	 */
+	public boolean cancelAll(int src, Predicate p) {
+		List<SimEvent> matching = new ArrayList<SimEvent>();
+		for (Set<SimEvent> events : getIndexedEvents(src, p)) {
+			for (SimEvent event : events) {
+				if (p instanceof PredicateType || p.match(event)) {
+					matching.add(event);
+				}
+			}
+		}
+		for (SimEvent event : matching) {
+			cancelEvent(event);
+		}
+		return !matching.isEmpty();
 	}
 
 	/**
@@ -57,7 +272,56 @@ public class FutureQueue {
 	 * @return the iterator
 	 */
 	public Iterator<SimEvent> iterator() {
-		return sortedSet.iterator();
+		final Iterator<SimEvent> iterator = queue.iterator();
+		return new Iterator<SimEvent>() {
+
+			private SimEvent next = null;
+
+			private SimEvent last = null;
+
+			/** Whether the queue iterator moved past the last event returned, looking for the next one. */
+			private boolean advanced = false;
+
+			@Override
+			public boolean hasNext() {
+				while (next == null && iterator.hasNext()) {
+					SimEvent event = iterator.next();
+					advanced = true;
+					if (!event.isCancelled()) {
+						next = event;
+					}
+				}
+				return next != null;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				last = next;
+				next = null;
+				advanced = false;
+				return last;
+			}
+
+			@Override
+			public void remove() {
+				if (last == null) {
+					throw new IllegalStateException();
+				}
+				if (advanced) {
+					// the queue iterator can no longer remove it, so it is dropped like a cancelled
+					// event, without the purge of cancelEvent that would break this iteration
+					last.setCancelled();
+					cancelledCount++;
+				} else {
+					iterator.remove();
+				}
+				unindex(last);
+				last = null;
+			}
+		};
 	}
 
 	/**
@@ -66,7 +330,7 @@ public class FutureQueue {
 	 * @return the size
 	 */
 	public int size() {
-		return sortedSet.size();
+		return queue.size() - cancelledCount;
 	}
 
 	/**
@@ -76,7 +340,11 @@ public class FutureQueue {
 	 * @return true, if successful
 	 */
 	public boolean remove(SimEvent event) {
-		return sortedSet.remove(event);
+		if (event.isCancelled() || !queue.remove(event)) {
+			return false;
+		}
+		unindex(event);
+		return true;
 	}
 
 	/**
@@ -86,14 +354,135 @@ public class FutureQueue {
 	 * @return true, if successful
 	 */
 	public boolean removeAll(Collection<SimEvent> events) {
-		return sortedSet.removeAll(events);
+		boolean changed = false;
+		for (SimEvent event : events) {
+			changed |= remove(event);
+		}
+		return changed;
 	}
 
 	/**
 	 * Clears the queue.
 	 */
 	public void clear() {
-		sortedSet.clear();
+		queue.clear();
+		cancelledCount = 0;
+		indexedSources.clear();
+		sourceIndex.clear();
+	}
+
+	/**
+	 * Takes a cancelled event out of the queue, or only marks it if cancellation is lazy. Marked
+	 * events are purged when they make up more than half of the queue.
+	 * 
+	 * @param event the event
+	 */
+	private void cancelEvent(SimEvent event) {
+		unindex(event);
+		if (!lazyCancellation && queue.remove(event)) {
+			return;
+		}
+		event.setCancelled();
+		cancelledCount++;
+		if (cancelledCount > queue.size() / 2) {
+			Iterator<SimEvent> iterator = queue.iterator();
+			while (iterator.hasNext()) {
+				if (iterator.next().isCancelled()) {
+					iterator.remove();
+				}
+			}
+			cancelledCount = 0;
+		}
+	}
+
+	/**
+	 * Gets the indexed events of a source entity that may match a predicate. The first call for an
+	 * entity indexes its pending events; from then on its events are indexed as they are added.
+	 * For a {@link PredicateType} only the events with the given tags are returned, so all of them
+	 * match.
+	 * 
+	 * @param src the id of the source entity
+	 * @param p the predicate
+	 * @return the sets of events
+	 */
+	private List<Set<SimEvent>> getIndexedEvents(int src, Predicate p) {
+		List<Set<SimEvent>> result = new ArrayList<Set<SimEvent>>();
+		if (src < 0) {
+			return result;
+		}
+		if (!indexedSources.get(src)) {
+			indexedSources.set(src);
+			Iterator<SimEvent> iterator = iterator();
+			while (iterator.hasNext()) {
+				SimEvent event = iterator.next();
+				if (event.getSource() == src) {
+					index(event);
+				}
+			}
+		}
+
+		Map<Integer, Set<SimEvent>> byTag = sourceIndex.get(src);
+		if (byTag == null) {
+			return result;
+		}
+		if (p instanceof PredicateType) {
+			int[] tags = ((PredicateType) p).getTags();
+			Arrays.sort(tags);
+			for (int i = 0; i < tags.length; i++) {
+				Set<SimEvent> events = byTag.get(tags[i]);
+				if (events != null && (i == 0 || tags[i] != tags[i - 1])) {
+					result.add(events);
+				}
+			}
+		} else {
+			result.addAll(byTag.values());
+		}
+		return result;
+	}
+
+	/**
+	 * Adds an event to the index, if its source entity is indexed.
+	 * 
+	 * @param event the event
+	 */
+	private void index(SimEvent event) {
+		int src = event.getSource();
+		if (src < 0 || !indexedSources.get(src)) {
+			return;
+		}
+		Map<Integer, Set<SimEvent>> byTag = sourceIndex.get(src);
+		if (byTag == null) {
+			byTag = new HashMap<Integer, Set<SimEvent>>();
+			sourceIndex.put(src, byTag);
+		}
+		Set<SimEvent> events = byTag.get(event.getTag());
+		if (events == null) {
+			events = new HashSet<SimEvent>();
+			byTag.put(event.getTag(), events);
+		}
+		events.add(event);
+	}
+
+	/**
+	 * Removes an event from the index, if its source entity is indexed.
+	 * 
+	 * @param event the event, may be <tt>null</tt>
+	 */
+	private void unindex(SimEvent event) {
+		if (event == null) {
+			return;
+		}
+		int src = event.getSource();
+		if (src < 0 || !indexedSources.get(src)) {
+			return;
+		}
+		Map<Integer, Set<SimEvent>> byTag = sourceIndex.get(src);
+		if (byTag != null) {
+			Set<SimEvent> events = byTag.get(event.getTag());
+			if (events != null) {
+				events.remove(event);
+			}
+		}
 	}
 
 }
\ No newline at end of file
@@ -8,7 +8,6 @@
 
 package org.cloudbus.cloudsim.core;
 
-import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.NetworkTopology;
 import org.cloudbus.cloudsim.core.predicates.Predicate;
 
@@ -400,10 +399,29 @@ public abstract class SimEntity implements Cloneable {
 	public abstract void shutdownEntity();
 
 	public void run() {
+		run(SimulationContext.current());
+	}
+
+	/**
+	 * Processes the events of the entity, as {@link #run()}. The simulation loops pass their
+	 * context, so that the profiler and the event pool are not looked up for every event.
+	 * 
+	 * @param ctx the context of the simulation of the entity
+	 */
+	void run(SimulationContext ctx) {
+		SimulationProfiler profiler = ctx.profiler;
+		SimEventPool pool = ctx.eventPool;
 		SimEvent ev = evbuf != null ? evbuf : getNextEvent();
 
 		while (ev != null) {
-			processEvent(ev);
+			if (profiler == null) {
+				processEvent(ev);
+			} else {
+				profiler.process(this, ev);
+			}
+			if (pool != null) {
+				pool.release(ev);
+			}
 			if (state != RUNNABLE) {
 				break;
 			}
@@ -481,6 +499,9 @@ public abstract class SimEntity implements Cloneable {
 	 */
 	protected void setState(int state) {
 		this.state = state;
+		if (state == RUNNABLE) {
+			CloudSim.markRunnable(id);
+		}
 	}
 
 	/**
@@ -522,6 +543,61 @@ public abstract class SimEntity implements Cloneable {
 			return;
 		}
 
+		schedule(entityId, getSendDelay(entityId, delay), cloudSimTag, data);
+	}
+
+	/**
+	 * Sends an event/message with an int as data, without boxing it, to another entity by
+	 * <tt>delaying</tt> the simulation time from the current time. The destination reads the data
+	 * with {@link SimEvent#getIntData()}.
+	 * 
+	 * @param entityId the id number of the destination entity
+	 * @param delay how long from the current simulation time the event should be sent. If delay is
+	 *            a negative number, then it will be changed to 0
+	 * @param cloudSimTag an user-defined number representing the type of an event/message
+	 * @param data the data to be sent with the event
+	 */
+	protected void sendInt(int entityId, double delay, int cloudSimTag, int data) {
+		if (entityId < 0) {
+			return;
+		}
+
+		delay = getSendDelay(entityId, delay);
+		if (CloudSim.running()) {
+			CloudSim.sendInt(id, entityId, delay, cloudSimTag, data);
+		}
+	}
+
+	/**
+	 * Sends an event/message with a double as data, without boxing it, to another entity by
+	 * <tt>delaying</tt> the simulation time from the current time. The destination reads the data
+	 * with {@link SimEvent#getDoubleData()}.
+	 * 
+	 * @param entityId the id number of the destination entity
+	 * @param delay how long from the current simulation time the event should be sent. If delay is
+	 *            a negative number, then it will be changed to 0
+	 * @param cloudSimTag an user-defined number representing the type of an event/message
+	 * @param data the data to be sent with the event
+	 */
+	protected void sendDouble(int entityId, double delay, int cloudSimTag, double data) {
+		if (entityId < 0) {
+			return;
+		}
+
+		delay = getSendDelay(entityId, delay);
+		if (CloudSim.running()) {
+			CloudSim.sendDouble(id, entityId, delay, cloudSimTag, data);
+		}
+	}
+
+	/**
+	 * Gets the delay of an event sent to another entity, including the network delay.
+	 * 
+	 * @param entityId the id number of the destination entity
+	 * @param delay the delay requested; if negative, it is changed to 0
+	 * @return the delay
+	 */
+	private double getSendDelay(int entityId, double delay) {
 		// if delay is -ve, then it doesn't make sense. So resets to 0.0
 		if (delay < 0) {
 			delay = 0;
@@ -531,17 +607,11 @@ public abstract class SimEntity implements Cloneable {
 			throw new IllegalArgumentException("The specified delay is infinite value");
 		}
 
-		if (entityId < 0) {
-			Log.printLine(getName() + ".send(): Error - " + "invalid entity id " + entityId);
-			return;
-		}
-
 		int srcId = getId();
 		if (entityId != srcId) {// does not delay self messages
 			delay += getNetworkDelay(srcId, entityId);
 		}
-
-		schedule(entityId, delay, cloudSimTag, data);
+		return delay;
 	}
 
 	/**
@@ -10,6 +10,10 @@ package org.cloudbus.cloudsim.core;
 
 /**
  * This class represents a simulation event which is passed between the entities in the simulation.
+ * <p>
+ * Events are recycled by the simulation (see {@link SimEventPool}): an event handed to
+ * {@link SimEntity#processEvent(SimEvent)} by {@link SimEntity#run()} must not be used once
+ * <tt>processEvent</tt> returns. Keep its data instead.
  * 
  * @author Costas Simatos
  * @see Simulation
@@ -18,10 +22,10 @@ package org.cloudbus.cloudsim.core;
 public class SimEvent implements Cloneable, Comparable<SimEvent> {
 
 	/** internal event type **/
-	private final int etype;
+	private int etype;
 
 	/** time at which event should occur **/
-	private final double time;
+	private double time;
 
 	/** time that the event was removed from the queue for service **/
 	private double endWaitingTime;
@@ -33,13 +37,33 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	private int entDst;
 
 	/** the user defined type of the event **/
-	private final int tag;
+	private int tag;
 
 	/** any data the event is carrying **/
-	private final Object data;
+	private Object data;
+
+	/** the kind of data the event is carrying: an object, an int or a double **/
+	private int dataType = OBJECT_DATA;
+
+	/** the int or double (as raw bits) data the event is carrying **/
+	private long primitiveData;
 
 	private long serial = -1;
 
+	/** whether the event was cancelled while still in the future queue **/
+	private boolean cancelled = false;
+
+	/** whether the event was released, in debug mode (see {@link SimEventPool}) **/
+	private boolean released = false;
+
+	// Kinds of data
+
+	private static final int OBJECT_DATA = 0;
+
+	private static final int INT_DATA = 1;
+
+	private static final int DOUBLE_DATA = 2;
+
 	// Internal event types
 
 	public static final int ENULL = 0;
@@ -82,10 +106,82 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 		data = null;
 	}
 
+	/**
+	 * Resets a recycled event, as if it was created with
+	 * {@link #SimEvent(int, double, int, int, int, Object)}.
+	 */
+	void reset(int evtype, double time, int src, int dest, int tag, Object edata) {
+		etype = evtype;
+		this.time = time;
+		endWaitingTime = -1.0;
+		entSrc = src;
+		entDst = dest;
+		this.tag = tag;
+		data = edata;
+		dataType = OBJECT_DATA;
+		serial = -1;
+		cancelled = false;
+		released = false;
+	}
+
+	/**
+	 * Sets an int as the data of the event, without boxing it.
+	 * 
+	 * @param value the data
+	 */
+	void setIntData(int value) {
+		data = null;
+		dataType = INT_DATA;
+		primitiveData = value;
+	}
+
+	/**
+	 * Sets a double as the data of the event, without boxing it.
+	 * 
+	 * @param value the data
+	 */
+	void setDoubleData(double value) {
+		data = null;
+		dataType = DOUBLE_DATA;
+		primitiveData = Double.doubleToRawLongBits(value);
+	}
+
+	/**
+	 * Marks the event as released, so that any further use of it fails.
+	 */
+	void setReleased() {
+		released = true;
+	}
+
+	/**
+	 * Fails if the event was released.
+	 */
+	private void checkNotReleased() {
+		if (released) {
+			throw new IllegalStateException("Event (tag = " + tag + ") used after it was processed.");
+		}
+	}
+
 	protected void setSerial(long serial) {
 		this.serial = serial;
 	}
 
+	/**
+	 * Checks if the event was cancelled, but not yet taken out of the future queue.
+	 * 
+	 * @return true, if cancelled
+	 */
+	boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Marks the event as cancelled. The future queue will drop it instead of delivering it.
+	 */
+	void setCancelled() {
+		cancelled = true;
+	}
+
 	/**
 	 * Used to set the time at which this event finished waiting in the event
 	 * 
@@ -138,6 +234,7 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	 * @return the id number
 	 */
 	public int getDestination() {
+		checkNotReleased();
 		return entDst;
 	}
 
@@ -147,6 +244,7 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	 * @return the id number
 	 */
 	public int getSource() {
+		checkNotReleased();
 		return entSrc;
 	}
 
@@ -156,6 +254,7 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	 * @return The simulation time
 	 */
 	public double eventTime() {
+		checkNotReleased();
 		return time;
 	}
 
@@ -165,6 +264,7 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	 * @return The simulation time
 	 */
 	public double endWaitingTime() {
+		checkNotReleased();
 		return endWaitingTime;
 	}
 
@@ -174,6 +274,7 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	 * @return The tag
 	 */
 	public int type() {
+		checkNotReleased();
 		return tag;
 	}
 
@@ -183,6 +284,7 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	 * @return the id number
 	 */
 	public int scheduledBy() {
+		checkNotReleased();
 		return entSrc;
 	}
 
@@ -192,16 +294,49 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	 * @return The tag
 	 */
 	public int getTag() {
+		checkNotReleased();
 		return tag;
 	}
 
 	/**
-	 * Get the data passed in this event.
+	 * Get the data passed in this event. Int and double data are boxed.
 	 * 
 	 * @return A reference to the data
 	 */
 	public Object getData() {
-		return data;
+		checkNotReleased();
+		switch (dataType) {
+			case INT_DATA:
+				return Integer.valueOf((int) primitiveData);
+			case DOUBLE_DATA:
+				return Double.valueOf(Double.longBitsToDouble(primitiveData));
+			default:
+				return data;
+		}
+	}
+
+	/**
+	 * Get the data passed in this event as an int, e.g. sent with
+	 * {@link CloudSim#sendInt(int, int, double, int, int)}.
+	 * 
+	 * @return The data
+	 * @throws ClassCastException if the data is not a number
+	 */
+	public int getIntData() {
+		checkNotReleased();
+		return dataType == INT_DATA ? (int) primitiveData : ((Number) getData()).intValue();
+	}
+
+	/**
+	 * Get the data passed in this event as a double, e.g. sent with
+	 * {@link CloudSim#sendDouble(int, int, double, int, double)}.
+	 * 
+	 * @return The data
+	 * @throws ClassCastException if the data is not a number
+	 */
+	public double getDoubleData() {
+		checkNotReleased();
+		return dataType == DOUBLE_DATA ? Double.longBitsToDouble(primitiveData) : ((Number) getData()).doubleValue();
 	}
 
 	/**
@@ -211,7 +346,11 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	 */
 	@Override
 	public Object clone() {
-		return new SimEvent(etype, time, entSrc, entDst, tag, data);
+		checkNotReleased();
+		SimEvent copy = new SimEvent(etype, time, entSrc, entDst, tag, data);
+		copy.dataType = dataType;
+		copy.primitiveData = primitiveData;
+		return copy;
 	}
 
 	/**
@@ -0,0 +1,84 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayDeque;
+
+/**
+ * Recycles the {@link SimEvent}s of a simulation, so that sending an event does not allocate one.
+ * Events are released once they have been processed: by {@link SimEntity#run()} after
+ * {@link SimEntity#processEvent(SimEvent)} returns, or by {@link CloudSim} for its internal events.
+ * <p>
+ * In debug mode, released events are not reused but marked, so that any later use of them throws
+ * an {@link IllegalStateException}. This finds entities that keep events past their processing.
+ *
+ * @see CloudSim#setEventPooling(boolean)
+ * @see CloudSim#setEventPoolDebug(boolean)
+ */
+class SimEventPool {
+
+	/** The maximum number of free events kept. */
+	static final int MAX_SIZE = 4096;
+
+	/** The free events. */
+	private final ArrayDeque<SimEvent> free = new ArrayDeque<SimEvent>();
+
+	/** Whether events are recycled. */
+	private final boolean pooling;
+
+	/** Whether released events are marked instead of recycled. */
+	private final boolean debug;
+
+	/**
+	 * Creates an empty pool.
+	 *
+	 * @param pooling whether events are recycled
+	 * @param debug whether released events are marked instead of recycled
+	 */
+	SimEventPool(boolean pooling, boolean debug) {
+		this.pooling = pooling;
+		this.debug = debug;
+	}
+
+	/**
+	 * Gets an event, recycled if possible.
+	 *
+	 * @param evtype the internal event type
+	 * @param time the time at which the event should occur
+	 * @param src the id of the source entity
+	 * @param dest the id of the destination entity
+	 * @param tag the user-defined type of the event
+	 * @param data the data of the event
+	 * @return the event
+	 */
+	SimEvent acquire(int evtype, double time, int src, int dest, int tag, Object data) {
+		SimEvent e = free.pollLast();
+		if (e == null) {
+			return new SimEvent(evtype, time, src, dest, tag, data);
+		}
+		e.reset(evtype, time, src, dest, tag, data);
+		return e;
+	}
+
+	/**
+	 * Releases an event that has been processed.
+	 *
+	 * @param e the event
+	 */
+	void release(SimEvent e) {
+		if (debug) {
+			e.setReleased();
+		} else if (pooling && free.size() < MAX_SIZE) {
+			// drop the data now rather than when the event is reused
+			e.reset(SimEvent.ENULL, -1, -1, -1, -1, null);
+			free.addLast(e);
+		}
+	}
+
+}
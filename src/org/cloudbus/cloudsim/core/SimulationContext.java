@@ -0,0 +1,167 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+/**
+ * The state of one simulation: the clock, the entities and the event queues used by
+ * {@link CloudSim}, plus any per-simulation state of higher layers, stored as components.
+ * <p>
+ * {@link CloudSim} and its entities always work on the <i>current</i> context. A thread can bind
+ * its own context with {@link #setCurrent(SimulationContext)}, so independent simulations can run
+ * concurrently on different threads. Threads that never bind a context share a default one, which
+ * is what plain single-threaded simulations use.
+ * 
+ * @see CloudSim
+ */
+public class SimulationContext {
+
+	/** The context used by threads that did not bind one. */
+	private static final SimulationContext DEFAULT = new SimulationContext();
+
+	/** The context bound to each thread. */
+	private static final ThreadLocal<SimulationContext> BOUND = new ThreadLocal<SimulationContext>();
+
+	/** Whether any thread ever bound a context; until then the thread-local lookup is skipped. */
+	private static volatile boolean anyBound = false;
+
+	/** The id of CIS entity. */
+	int cisId = -1;
+
+	/** The id of CloudSimShutdown entity. */
+	int shutdownId = -1;
+
+	/** The CIS object. */
+	CloudInformationService cis = null;
+
+	/** The trace flag. */
+	boolean traceFlag = false;
+
+	/** The calendar. */
+	Calendar calendar = null;
+
+	/** The termination time. */
+	double terminateAt = -1;
+
+	/** The minimal time between events. Events within shorter periods after the last event are discarded. */
+	double minTimeBetweenEvents = 0.1;
+
+	/** The id of the fog broker. */
+	int fogBrokerId;
+
+	/** The entities. */
+	List<SimEntity> entities;
+
+	/** The future event queue. */
+	FutureQueue future;
+
+	/** The deferred event queue. */
+	DeferredQueue deferred;
+
+	/** The recycled events. */
+	SimEventPool eventPool;
+
+	/** The profiler of the event handlers, or <tt>null</tt> if profiling is off. */
+	SimulationProfiler profiler;
+
+	/** The simulation clock. */
+	double clock;
+
+	/** Flag for checking if the simulation is running. */
+	boolean running;
+
+	/** The entities by name. */
+	Map<String, SimEntity> entitiesByName;
+
+	/**
+	 * The ids of the entities that may have work to do in the next clock tick, i.e. that became
+	 * RUNNABLE or received deferred events since they last ran. Other entities are not visited.
+	 */
+	BitSet runnableEntities;
+
+	/** The predicates used in entity wait methods. */
+	Map<Integer, Predicate> waitPredicates;
+
+	/** The paused. */
+	boolean paused = false;
+
+	/** The pause at. */
+	long pauseAt = -1;
+
+	/** The abrupt terminate. */
+	boolean abruptTerminate = false;
+
+	/**
+	 * The per-simulation state of higher layers, by class. Concurrent, since the worker threads of
+	 * a simulation may look components up while it runs.
+	 */
+	private final Map<Class<?>, Object> components = new ConcurrentHashMap<Class<?>, Object>();
+
+	/**
+	 * Gets the context of the calling thread.
+	 * 
+	 * @return the context bound to the thread, or the default context if none was bound
+	 */
+	public static SimulationContext current() {
+		if (!anyBound) {
+			return DEFAULT;
+		}
+		SimulationContext context = BOUND.get();
+		return context == null ? DEFAULT : context;
+	}
+
+	/**
+	 * Binds a context to the calling thread. Everything the thread does through {@link CloudSim}
+	 * from now on uses this context.
+	 * 
+	 * @param context the context, or <tt>null</tt> to go back to the default context
+	 */
+	public static void setCurrent(SimulationContext context) {
+		if (context == null) {
+			BOUND.remove();
+		} else {
+			anyBound = true;
+			BOUND.set(context);
+		}
+	}
+
+	/**
+	 * Gets a component of this context, creating it on first use.
+	 * 
+	 * @param type the class of the component, used as its key
+	 * @param factory creates the component if it does not exist yet
+	 * @return the component
+	 */
+	public <T> T getComponent(Class<T> type, Supplier<? extends T> factory) {
+		Object component = components.get(type);
+		if (component == null) {
+			component = components.computeIfAbsent(type, key -> factory.get());
+		}
+		return type.cast(component);
+	}
+
+	/**
+	 * Removes a component from this context, so that the next
+	 * {@link #getComponent(Class, Supplier)} creates a fresh one.
+	 * 
+	 * @param type the class of the component
+	 */
+	public void removeComponent(Class<?> type) {
+		components.remove(type);
+	}
+
+}
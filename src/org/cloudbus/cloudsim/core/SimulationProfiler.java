@@ -0,0 +1,462 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Records where the wall-clock time of a simulation goes: the number of events and the time spent
+ * handling them, by entity class and tag, with a histogram of the handling times; the depth of the
+ * event queues over simulated time; and the number of events processed per second. Handlers are
+ * also reported to Java Flight Recorder as <tt>org.cloudbus.cloudsim.EventHandler</tt> events
+ * (longer than 1 ms by default) and queue depths as <tt>org.cloudbus.cloudsim.QueueDepth</tt>
+ * events, to be correlated with GC and other JVM activity.
+ * <p>
+ * Profiling is off by default; see {@link CloudSim#setProfiling(boolean)}. When it is off, the
+ * only cost is a null check per event.
+ *
+ * @see CloudSim#getProfiler()
+ */
+public class SimulationProfiler {
+
+	/** The simulated time between two samples of the queue depths. */
+	private static final double SAMPLE_INTERVAL = 1.0;
+
+	/** The number of buckets of the handling time histograms, one per power of two nanoseconds. */
+	private static final int BUCKETS = 64;
+
+	/** The names of the tags, by tag. */
+	private static final Map<Integer, String> tagNames = new ConcurrentHashMap<Integer, String>();
+
+	static {
+		addTagNames(CloudSimTags.class);
+	}
+
+	/** The statistics of the handlers, by entity class and tag. */
+	private final Map<Class<?>, Map<Integer, HandlerStats>> handlers = new HashMap<Class<?>, Map<Integer, HandlerStats>>();
+
+	/** The samples of the queue depths. */
+	private final List<QueueSample> samples = new ArrayList<QueueSample>();
+
+	/** The number of events dispatched. */
+	private long events = 0;
+
+	/** The wall-clock time spent running the simulation, in nanoseconds. */
+	private long elapsedNanos = 0;
+
+	/** When the simulation started running, or -1 if it is not running. */
+	private long runStartNanos = -1;
+
+	/** The largest size of the future event queue. */
+	private int maxFutureSize = 0;
+
+	/** The largest size of the deferred event queue. */
+	private int maxDeferredSize = 0;
+
+	/** The simulated time of the next sample. */
+	private double nextSampleTime = 0;
+
+	/** The number of events dispatched at the last sample. */
+	private long lastSampleEvents = 0;
+
+	/** The wall-clock time of the last sample, in nanoseconds. */
+	private long lastSampleNanos = -1;
+
+	/**
+	 * Registers the names of the tags defined as <tt>public static final int</tt> constants of a
+	 * class, e.g. {@link CloudSimTags}, for the reports. Tags with several names get all of them.
+	 *
+	 * @param constants the class defining the tags
+	 */
+	public static void addTagNames(Class<?> constants) {
+		for (Field field : constants.getFields()) {
+			int modifiers = field.getModifiers();
+			if (field.getType() == int.class && Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers)) {
+				try {
+					String name = field.getName();
+					tagNames.merge(field.getInt(null), name, (a, b) -> a.equals(b) ? a : a + "/" + b);
+				} catch (IllegalAccessException e) {
+					// not a tag
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the name of a tag.
+	 *
+	 * @param tag the tag
+	 * @return the registered name, or the tag number if it has none
+	 */
+	public static String getTagName(int tag) {
+		String name = tagNames.get(tag);
+		return name != null ? name : String.valueOf(tag);
+	}
+
+	/**
+	 * Marks the start of a run of the simulation.
+	 */
+	void start() {
+		runStartNanos = System.nanoTime();
+		if (lastSampleNanos < 0) {
+			lastSampleNanos = runStartNanos;
+		}
+	}
+
+	/**
+	 * Marks the end of a run of the simulation.
+	 */
+	void stop() {
+		if (runStartNanos >= 0) {
+			elapsedNanos += System.nanoTime() - runStartNanos;
+			runStartNanos = -1;
+		}
+	}
+
+	/**
+	 * Makes an entity process an event, and records the time it takes.
+	 *
+	 * @param entity the entity
+	 * @param ev the event
+	 */
+	void process(SimEntity entity, SimEvent ev) {
+		int tag = ev.getTag();
+		HandlerEvent event = new HandlerEvent();
+		event.begin();
+		long start = System.nanoTime();
+		entity.processEvent(ev);
+		long duration = System.nanoTime() - start;
+		event.end();
+		if (event.shouldCommit()) {
+			event.entityClass = entity.getClass().getName();
+			event.entityName = entity.getName();
+			event.tag = tag;
+			event.tagName = getTagName(tag);
+			event.simulationTime = CloudSim.clock();
+			event.commit();
+		}
+		handlerStats(entity.getClass(), tag).add(duration);
+	}
+
+	/**
+	 * Records a clock tick, and samples the queue depths once per {@link #SAMPLE_INTERVAL} of
+	 * simulated time.
+	 *
+	 * @param clock the clock
+	 * @param dispatched the number of events dispatched in the tick
+	 * @param futureSize the size of the future event queue
+	 * @param deferredSize the size of the deferred event queue
+	 */
+	void tick(double clock, int dispatched, int futureSize, int deferredSize) {
+		events += dispatched;
+		maxFutureSize = Math.max(maxFutureSize, futureSize);
+		maxDeferredSize = Math.max(maxDeferredSize, deferredSize);
+		if (clock < nextSampleTime) {
+			return;
+		}
+		nextSampleTime = (Math.floor(clock / SAMPLE_INTERVAL) + 1) * SAMPLE_INTERVAL;
+
+		long now = System.nanoTime();
+		double seconds = lastSampleNanos < 0 ? 0 : (now - lastSampleNanos) / 1e9;
+		double eventsPerSecond = seconds > 0 ? (events - lastSampleEvents) / seconds : 0;
+		long wallNanos = runStartNanos < 0 ? elapsedNanos : elapsedNanos + now - runStartNanos;
+		samples.add(new QueueSample(clock, wallNanos, futureSize, deferredSize, eventsPerSecond));
+		lastSampleNanos = now;
+		lastSampleEvents = events;
+
+		QueueDepthEvent event = new QueueDepthEvent();
+		if (event.shouldCommit()) {
+			event.simulationTime = clock;
+			event.futureQueueSize = futureSize;
+			event.deferredQueueSize = deferredSize;
+			event.eventsPerSecond = eventsPerSecond;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Gets the statistics of a handler, creating them on first use.
+	 *
+	 * @param type the class of the entity
+	 * @param tag the tag of the events
+	 * @return the statistics
+	 */
+	private HandlerStats handlerStats(Class<?> type, int tag) {
+		Map<Integer, HandlerStats> byTag = handlers.get(type);
+		if (byTag == null) {
+			byTag = new HashMap<Integer, HandlerStats>();
+			handlers.put(type, byTag);
+		}
+		HandlerStats stats = byTag.get(tag);
+		if (stats == null) {
+			stats = new HandlerStats();
+			byTag.put(tag, stats);
+		}
+		return stats;
+	}
+
+	/**
+	 * Gets the number of events dispatched.
+	 *
+	 * @return the number of events
+	 */
+	public long getEventCount() {
+		return events;
+	}
+
+	/**
+	 * Gets the wall-clock time spent running the simulation.
+	 *
+	 * @return the time in seconds
+	 */
+	public double getElapsedSeconds() {
+		long nanos = elapsedNanos;
+		if (runStartNanos >= 0) {
+			nanos += System.nanoTime() - runStartNanos;
+		}
+		return nanos / 1e9;
+	}
+
+	/**
+	 * Gets the number of events dispatched per second of wall-clock time.
+	 *
+	 * @return the events per second
+	 */
+	public double getEventsPerSecond() {
+		double seconds = getElapsedSeconds();
+		return seconds > 0 ? events / seconds : 0;
+	}
+
+	/**
+	 * Writes the summary table: one row per entity class and tag, one per entity class and one per
+	 * tag (with <tt>*</tt> for the other column), sorted by the time spent in the handlers.
+	 * Durations are in milliseconds for totals and microseconds otherwise; the percentiles are the
+	 * upper bounds of their histogram buckets.
+	 *
+	 * @param file the path of the CSV file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writeSummary(String file) throws IOException {
+		Map<String, HandlerStats> byClass = new HashMap<String, HandlerStats>();
+		Map<Integer, HandlerStats> byTag = new HashMap<Integer, HandlerStats>();
+		List<Row> rows = new ArrayList<Row>();
+		long totalNanos = 0;
+		for (Map.Entry<Class<?>, Map<Integer, HandlerStats>> classEntry : handlers.entrySet()) {
+			String className = classEntry.getKey().getSimpleName();
+			for (Map.Entry<Integer, HandlerStats> tagEntry : classEntry.getValue().entrySet()) {
+				HandlerStats stats = tagEntry.getValue();
+				rows.add(new Row(className, String.valueOf(tagEntry.getKey()), getTagName(tagEntry.getKey()), stats));
+				byClass.computeIfAbsent(className, k -> new HandlerStats()).add(stats);
+				byTag.computeIfAbsent(tagEntry.getKey(), k -> new HandlerStats()).add(stats);
+				totalNanos += stats.totalNanos;
+			}
+		}
+		for (Map.Entry<String, HandlerStats> entry : byClass.entrySet()) {
+			rows.add(new Row(entry.getKey(), "*", "*", entry.getValue()));
+		}
+		for (Map.Entry<Integer, HandlerStats> entry : byTag.entrySet()) {
+			rows.add(new Row("*", String.valueOf(entry.getKey()), getTagName(entry.getKey()), entry.getValue()));
+		}
+		rows.sort(Comparator.comparingLong((Row r) -> r.stats.totalNanos).reversed());
+
+		try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+			out.printf("# events=%d, wallSeconds=%.3f, eventsPerSecond=%.1f, handlerSeconds=%.3f, maxFutureQueue=%d, maxDeferredQueue=%d%n",
+					events, getElapsedSeconds(), getEventsPerSecond(), totalNanos / 1e9, maxFutureSize, maxDeferredSize);
+			out.println("EntityClass,Tag,TagName,Count,TotalMs,MeanUs,P50Us,P90Us,P99Us,MaxUs,TimeShare");
+			for (Row row : rows) {
+				HandlerStats s = row.stats;
+				out.printf("%s,%s,%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.4f%n", row.entityClass, row.tag, row.tagName,
+						s.count, s.totalNanos / 1e6, s.totalNanos / 1e3 / s.count, s.percentile(0.5) / 1e3,
+						s.percentile(0.9) / 1e3, s.percentile(0.99) / 1e3, s.maxNanos / 1e3,
+						totalNanos > 0 ? (double) s.totalNanos / totalNanos : 0);
+			}
+		}
+	}
+
+	/**
+	 * Writes the samples of the queue depths, one row per sample.
+	 *
+	 * @param file the path of the CSV file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writeQueueDepths(String file) throws IOException {
+		try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+			out.println("SimulationTime,WallMs,FutureQueue,DeferredQueue,EventsPerSecond");
+			for (QueueSample sample : samples) {
+				out.printf("%.3f,%.3f,%d,%d,%.1f%n", sample.clock, sample.wallNanos / 1e6, sample.futureSize,
+						sample.deferredSize, sample.eventsPerSecond);
+			}
+		}
+	}
+
+	/**
+	 * The number of events handled by a handler and the time spent in it.
+	 */
+	private static class HandlerStats {
+
+		long count = 0;
+
+		long totalNanos = 0;
+
+		long maxNanos = 0;
+
+		/** The number of durations <tt>d</tt> with <tt>2^i &lt;= d &lt; 2^(i+1)</tt>, by <tt>i</tt>. */
+		final long[] histogram = new long[BUCKETS];
+
+		void add(long nanos) {
+			count++;
+			totalNanos += nanos;
+			maxNanos = Math.max(maxNanos, nanos);
+			histogram[nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos)]++;
+		}
+
+		void add(HandlerStats other) {
+			count += other.count;
+			totalNanos += other.totalNanos;
+			maxNanos = Math.max(maxNanos, other.maxNanos);
+			for (int i = 0; i < BUCKETS; i++) {
+				histogram[i] += other.histogram[i];
+			}
+		}
+
+		/**
+		 * Gets a percentile of the durations.
+		 *
+		 * @param p the percentile, between 0 and 1
+		 * @return the upper bound of the bucket of the percentile, in nanoseconds
+		 */
+		double percentile(double p) {
+			long rank = (long) Math.ceil(p * count);
+			long seen = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				seen += histogram[i];
+				if (seen >= rank) {
+					return Math.min(Math.pow(2, i + 1), maxNanos);
+				}
+			}
+			return maxNanos;
+		}
+
+	}
+
+	/**
+	 * A row of the summary table.
+	 */
+	private static class Row {
+
+		final String entityClass;
+
+		final String tag;
+
+		final String tagName;
+
+		final HandlerStats stats;
+
+		Row(String entityClass, String tag, String tagName, HandlerStats stats) {
+			this.entityClass = entityClass;
+			this.tag = tag;
+			this.tagName = tagName;
+			this.stats = stats;
+		}
+
+	}
+
+	/**
+	 * A sample of the queue depths.
+	 */
+	private static class QueueSample {
+
+		final double clock;
+
+		final long wallNanos;
+
+		final int futureSize;
+
+		final int deferredSize;
+
+		final double eventsPerSecond;
+
+		QueueSample(double clock, long wallNanos, int futureSize, int deferredSize, double eventsPerSecond) {
+			this.clock = clock;
+			this.wallNanos = wallNanos;
+			this.futureSize = futureSize;
+			this.deferredSize = deferredSize;
+			this.eventsPerSecond = eventsPerSecond;
+		}
+
+	}
+
+	/**
+	 * The processing of an event by an entity, for Java Flight Recorder.
+	 */
+	@Name("org.cloudbus.cloudsim.EventHandler")
+	@Label("Simulation Event Handler")
+	@Category("CloudSim")
+	@Description("An entity processing a simulation event")
+	@Threshold("1 ms")
+	static class HandlerEvent extends Event {
+
+		@Label("Entity Class")
+		String entityClass;
+
+		@Label("Entity")
+		String entityName;
+
+		@Label("Tag")
+		int tag;
+
+		@Label("Tag Name")
+		String tagName;
+
+		@Label("Simulation Time")
+		double simulationTime;
+
+	}
+
+	/**
+	 * A sample of the depths of the event queues, for Java Flight Recorder.
+	 */
+	@Name("org.cloudbus.cloudsim.QueueDepth")
+	@Label("Simulation Queue Depth")
+	@Category("CloudSim")
+	@Description("The sizes of the event queues of a simulation")
+	static class QueueDepthEvent extends Event {
+
+		@Label("Simulation Time")
+		double simulationTime;
+
+		@Label("Future Queue Size")
+		int futureQueueSize;
+
+		@Label("Deferred Queue Size")
+		int deferredQueueSize;
+
+		@Label("Events per Second")
+		double eventsPerSecond;
+
+	}
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Iterator;
+import java.util.TreeSet;
+
+/**
+ * The original {@link EventQueue} implementation, backed by a {@link TreeSet}. Every operation
+ * costs O(log n).
+ *
+ * @see FutureQueue
+ */
+public class TreeSetEventQueue implements EventQueue {
+
+	/** The sorted set. */
+	private final TreeSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
+
+	@Override
+	public void add(SimEvent event) {
+		sortedSet.add(event);
+	}
+
+	@Override
+	public SimEvent peek() {
+		return sortedSet.isEmpty() ? null : sortedSet.first();
+	}
+
+	@Override
+	public SimEvent poll() {
+		return sortedSet.pollFirst();
+	}
+
+	@Override
+	public SimEvent pollAt(double time) {
+		if (sortedSet.isEmpty() || sortedSet.first().eventTime() != time) {
+			return null;
+		}
+		return sortedSet.pollFirst();
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		return sortedSet.remove(event);
+	}
+
+	@Override
+	public Iterator<SimEvent> iterator() {
+		return sortedSet.iterator();
+	}
+
+	@Override
+	public int size() {
+		return sortedSet.size();
+	}
+
+	@Override
+	public void clear() {
+		sortedSet.clear();
+	}
+
+}
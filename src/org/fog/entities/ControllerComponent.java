@@ -30,6 +30,16 @@ public class ControllerComponent {
         this.deviceId = deviceId;
     }
 
+    /**
+     * Replaces the placement logic of a FON, e.g. in a simulation branching off a warm-up.
+     * The placements made so far are kept.
+     *
+     * @param microservicePlacementLogic the new placement logic
+     */
+    public void setMicroservicePlacementLogic(MicroservicePlacementLogic microservicePlacementLogic) {
+        this.microservicePlacementLogic = microservicePlacementLogic;
+    }
+
 
     // Resource Availability Info
     /**
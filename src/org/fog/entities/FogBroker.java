@@ -5,6 +5,7 @@ import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.cloudbus.cloudsim.power.PowerDatacenterBroker;
 import org.fog.application.AppEdge;
 import org.fog.application.AppLoop;
@@ -18,23 +19,30 @@ import java.util.*;
 
 public class FogBroker extends PowerDatacenterBroker{
 
-	// batch number -> perDevice, which is Device -> (Application -> List <ModuleLaunchConfig which contains unique module object and instance count>)
-	private static final Map<Integer, Map<Integer, Boolean>> checklist = new HashMap<>();
-	private static final Map<Integer, Map<PlacementRequest, Integer>> toSend = new HashMap<>();
-	// DeviceId -> List(VmId)
-	private static final Map<Integer, Set<Integer>> activatedVMs = new HashMap<>();
+	// Broker state, kept per simulation context
+	private static class BrokerState {
+		// batch number -> perDevice, which is Device -> (Application -> List <ModuleLaunchConfig which contains unique module object and instance count>)
+		private final Map<Integer, Map<Integer, Boolean>> checklist = new HashMap<>();
+		private final Map<Integer, Map<PlacementRequest, Integer>> toSend = new HashMap<>();
+		// DeviceId -> List(VmId)
+		private final Map<Integer, Set<Integer>> activatedVMs = new HashMap<>();
 
-	// Track the number of VMs created for debugging
-	private static int vmCounter = 0;
+		// Track the number of VMs created for debugging
+		private int vmCounter = 0;
 
-	// Cloud ID for routing tuples through the cloud
-	private static int cloudId = -1;
+		// Cloud ID for routing tuples through the cloud
+		private int cloudId = -1;
 
-	private static int cycleNumber = 1;
+		private int cycleNumber = 1;
 
-	private static final Map<String, Application> applicationInfo = new HashMap<>();
-	private static final Map<Application, String> applicationToFirstServiceMap = new HashMap<>();
-	private static final Map<Application, List<String>> applicationToSecondServicesMap = new HashMap<>();
+		private final Map<String, Application> applicationInfo = new HashMap<>();
+		private final Map<Application, String> applicationToFirstServiceMap = new HashMap<>();
+		private final Map<Application, List<String>> applicationToSecondServicesMap = new HashMap<>();
+	}
+
+	private static BrokerState state() {
+		return SimulationContext.current().getComponent(BrokerState.class, BrokerState::new);
+	}
 
 	public FogBroker(String name) throws Exception {
 		super(name);
@@ -42,14 +50,7 @@ public class FogBroker extends PowerDatacenterBroker{
 
 	// Clear FogBroker for Experiment purposes
 	public static void clear(){
-		applicationInfo.clear();
-		applicationToFirstServiceMap.clear();
-		applicationToSecondServicesMap.clear();
-		setCycleNumber(1);
-		checklist.clear();
-		toSend.clear();
-		activatedVMs.clear();
-		vmCounter = 0;
+		SimulationContext.current().removeComponent(BrokerState.class);
 		System.out.println("FogBroker state cleared, vmCounter reset to 0");
 	}
 
@@ -60,8 +61,9 @@ public class FogBroker extends PowerDatacenterBroker{
 	protected void processOtherEvent(SimEvent ev) {
 		switch (ev.getTag()) {
 			case FogEvents.RECEIVE_PLACEMENT_DECISION:
-				if (cloudId == -1) cloudId = ev.getSource();
-				else if (cloudId != ev.getSource()) throw new NullPointerException("There should be only one cloud communicating with FogBroker");
+				BrokerState state = state();
+				if (state.cloudId == -1) state.cloudId = ev.getSource();
+				else if (state.cloudId != ev.getSource()) throw new NullPointerException("There should be only one cloud communicating with FogBroker");
 				processPlacementDecision(ev);
 				break;
 			case FogEvents.RECEIVE_INSTALL_NOTIF:
@@ -100,20 +102,20 @@ public class FogBroker extends PowerDatacenterBroker{
 
 	// perDevice: deviceId -> (Application -> List (Module, instanceCount))
 	public void createChecklist(Map<Integer, Map<Application, List<ModuleLaunchConfig>>> perDevice, int cycleNumber) {
-        checklist.computeIfAbsent(cycleNumber, k -> new HashMap<>());
+		Map<Integer, Boolean> checklist = state().checklist.computeIfAbsent(cycleNumber, k -> new HashMap<>());
 		for (Integer deviceId : perDevice.keySet()) {
-			checklist.get(cycleNumber).put(deviceId, false);
+			checklist.put(deviceId, false);
 		}
 	}
 
 	private void setToSend(Map<PlacementRequest, Integer> targets, int cycleNumber) {
-		toSend.computeIfAbsent(cycleNumber, k -> new HashMap<>());
-		toSend.put(cycleNumber, targets);
+		state().toSend.computeIfAbsent(cycleNumber, k -> new HashMap<>());
+		state().toSend.put(cycleNumber, targets);
 	}
 
 	public void handleInstallationNotification(int deviceId, int cycleNumber) {
-		if (checklist.get(cycleNumber).containsKey(deviceId)) {
-			checklist.get(cycleNumber).put(deviceId, true); // Mark as acknowledged
+		if (state().checklist.get(cycleNumber).containsKey(deviceId)) {
+			state().checklist.get(cycleNumber).put(deviceId, true); // Mark as acknowledged
 			if (allAcknowledged(cycleNumber)) {
 				triggerExecution(cycleNumber); // Start tuple execution
 			}
@@ -122,7 +124,7 @@ public class FogBroker extends PowerDatacenterBroker{
 	}
 
 	private boolean allAcknowledged(int cycleNumber) {
-		return checklist.get(cycleNumber).values().stream().allMatch(Boolean::booleanValue);
+		return state().checklist.get(cycleNumber).values().stream().allMatch(Boolean::booleanValue);
 	}
 
 	public void handleExecutionTimeout(int cycleNumber) {
@@ -132,14 +134,15 @@ public class FogBroker extends PowerDatacenterBroker{
 	}
 
 	public void triggerExecution(int cycleNumber) {
-		Map<PlacementRequest, Integer> ts = toSend.get(cycleNumber);
+		BrokerState state = state();
+		Map<PlacementRequest, Integer> ts = state.toSend.get(cycleNumber);
 		for (Map.Entry<PlacementRequest, Integer> entry : ts.entrySet()) {
 			ContextPlacementRequest pr = (ContextPlacementRequest) entry.getKey();
 			Integer deviceId = entry.getValue();
 			if (deviceId == null) {
 				Logger.error("Missing Key Error", "toSend state was not updated properly.");
 			}
-			Application a = applicationInfo.get(pr.getApplicationId());
+			Application a = state.applicationInfo.get(pr.getApplicationId());
 			if (a != null) {
 				transmit(deviceId, a, pr);
 			} else {
@@ -149,7 +152,7 @@ public class FogBroker extends PowerDatacenterBroker{
 	}
 
 	public void transmit(int targetId, Application app, ContextPlacementRequest pr){
-		String firstMicroservice = applicationToFirstServiceMap.get(app);
+		String firstMicroservice = state().applicationToFirstServiceMap.get(app);
 		AppEdge _edge = null;
 		for(AppEdge edge : app.getEdges()){
 			if(edge.getSource().equals(firstMicroservice)) {
@@ -198,7 +201,7 @@ public class FogBroker extends PowerDatacenterBroker{
 		tuple.setActualTupleId(actualTupleId);
 
 		// Instead of sending directly to the target device, send through cloud
-		if (cloudId == -1) {
+		if (state().cloudId == -1) {
 			throw new NullPointerException("Cloud ID not set in FogBroker. Cannot route tuples through cloud.");
 		}
 		
@@ -209,13 +212,13 @@ public class FogBroker extends PowerDatacenterBroker{
 		managementTuple.setStartingTuple(tuple);
 		
 		// Send to cloud (costless since FogBroker is attached to cloud)
-		sendNow(cloudId, FogEvents.MANAGEMENT_TUPLE_ARRIVAL, managementTuple);
+		sendNow(state().cloudId, FogEvents.MANAGEMENT_TUPLE_ARRIVAL, managementTuple);
 	}
 
 	private static AppModule getTargetVM(PlacementRequest pr, String targetService) {
 		int deviceId = pr.getRequester();
 		SPPFogDevice device = (SPPFogDevice) CloudSim.getEntity(deviceId);
-		if (!activatedVMs.containsKey(deviceId)) activatedVMs.put(deviceId, new HashSet<Integer>());
+		Set<Integer> activatedVMs = state().activatedVMs.computeIfAbsent(deviceId, k -> new HashSet<Integer>());
 
 		// Debug VM IDs
 		System.out.println("Getting AppModule for service: " + targetService + 
@@ -231,7 +234,7 @@ public class FogBroker extends PowerDatacenterBroker{
 			// Find the first VM in the edge device's VMList that has not been already transmitted to,
 			// ie the first VM with name equal to the client microservice (firstMicroservice)
 			// and with ID not in activatedVMs state.
-			if (Objects.equals(am.getName(), targetService) && !activatedVMs.get(deviceId).contains(am.getId())) {
+			if (Objects.equals(am.getName(), targetService) && !activatedVMs.contains(am.getId())) {
 				// Error catching: Cloudlet Scheduler of the VM must be idle.
 				TupleScheduler ts = (TupleScheduler) am.getCloudletScheduler();
 				if (ts.runningCloudlets() == 0) {
@@ -250,7 +253,7 @@ public class FogBroker extends PowerDatacenterBroker{
 					d.getVmList()
 			));
 		}
-        activatedVMs.get(deviceId).add(firstMicroserviceModule.getId());
+		activatedVMs.add(firstMicroserviceModule.getId());
 		return firstMicroserviceModule;
 	}
 
@@ -282,38 +285,38 @@ public class FogBroker extends PowerDatacenterBroker{
 	}
 
 	public static int getCycleNumber(){
-		return cycleNumber;
+		return state().cycleNumber;
 	}
 
 	public static void setCycleNumber(int cycleNumber) {
-		FogBroker.cycleNumber = cycleNumber;
+		state().cycleNumber = cycleNumber;
 	}
 
 	public static Map<String, Application> getApplicationInfo() {
-		return applicationInfo;
+		return state().applicationInfo;
 	}
 
 	public static Map<Application, String> getApplicationToFirstServiceMap() {
-		return applicationToFirstServiceMap;
+		return state().applicationToFirstServiceMap;
 	}
 
 	public static Map<Application, List<String>> getApplicationToSecondServicesMap() {
-		return applicationToSecondServicesMap;
+		return state().applicationToSecondServicesMap;
 	}
 
 	public static Map<Integer, Map<PlacementRequest, Integer>> getToSend() {
-		return toSend;
+		return state().toSend;
 	}
 
 	public static Map<Integer, Map<Integer, Boolean>> getChecklist() {
-		return checklist;
+		return state().checklist;
 	}
 
 	public static int getCloudId() {
-		return cloudId;
+		return state().cloudId;
 	}
 	
 	public static void setCloudId(int cloudId) {
-		FogBroker.cloudId = cloudId;
+		state().cloudId = cloudId;
 	}
 }
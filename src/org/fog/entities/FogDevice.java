@@ -714,7 +714,7 @@ public class FogDevice extends PowerDatacenter {
         send(ev.getSource(), CloudSim.getMinTimeBetweenEvents(), FogEvents.TUPLE_ACK);
 
         // TODO Coordinate-based control flow
-        if (FogUtils.appIdToGeoCoverageMap.containsKey(tuple.getAppId())) {
+        if (FogUtils.getAppIdToGeoCoverageMap().containsKey(tuple.getAppId())) {
         }
 
         if (tuple.getDirection() == Tuple.ACTUATOR) {
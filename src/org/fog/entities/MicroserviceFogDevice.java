@@ -166,7 +166,7 @@ public class MicroserviceFogDevice extends FogDevice {
 
         send(ev.getSource(), CloudSim.getMinTimeBetweenEvents(), FogEvents.TUPLE_ACK);
 
-        if (FogUtils.appIdToGeoCoverageMap.containsKey(tuple.getAppId())) {
+        if (FogUtils.getAppIdToGeoCoverageMap().containsKey(tuple.getAppId())) {
         }
 
         if (tuple.getDirection() == Tuple.ACTUATOR) {
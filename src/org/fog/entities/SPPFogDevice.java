@@ -197,7 +197,7 @@ public class SPPFogDevice extends FogDevice {
 
 		send(ev.getSource(), CloudSim.getMinTimeBetweenEvents(), FogEvents.TUPLE_ACK);
 
-		if (FogUtils.appIdToGeoCoverageMap.containsKey(tuple.getAppId())) {
+		if (FogUtils.getAppIdToGeoCoverageMap().containsKey(tuple.getAppId())) {
 		}
 
 		// Case where tuple is at the end of AppLoop
@@ -145,6 +145,8 @@ public class AmbulanceUserMobilityState extends DeviceMobilityState {
         
         // For all other states, proceed with normal path creation
         if (currentAttractor != null && strategy != null) {
+            // Until the first waypoint of the new path, the device stays where it left the old one
+            currentLocation = getPathStart();
             path = strategy.makePath(currentAttractor, speed, currentLocation);
         }
     }
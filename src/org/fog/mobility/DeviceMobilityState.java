@@ -1,6 +1,8 @@
 package org.fog.mobility;
 
+import org.cloudbus.cloudsim.core.CloudSim;
 import org.fog.mobilitydata.Location;
+import org.fog.utils.MicroservicePlacementConfig;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -89,6 +91,39 @@ public abstract class DeviceMobilityState {
         return currentLocation;
     }
 
+    /**
+     * Gets the location of the device at a time before its next movement update, when some
+     * waypoints of its path may have been passed without an update: the last waypoint reached
+     * by then, or the current location if none was.
+     *
+     * @param time the simulation time
+     * @return the location at that time
+     */
+    public Location getLocationAt(double time) {
+        Location location = currentLocation;
+        for (WayPoint waypoint : path.getRemainingWaypoints()) {
+            if (waypoint.getArrivalTime() > time) {
+                break;
+            }
+            location = waypoint.getLocation();
+        }
+        return location;
+    }
+
+    /**
+     * Gets the location a new path starts from. With handover events, the device may have passed
+     * waypoints of its current path since its last movement update, so a path replacing it starts
+     * from the last one of them.
+     *
+     * @return the location of the device for a new path
+     */
+    protected Location getPathStart() {
+        if (MicroservicePlacementConfig.HANDOVER_EVENTS) {
+            return getLocationAt(CloudSim.clock());
+        }
+        return currentLocation;
+    }
+
     public Attractor getCurrentAttractor() {
         return currentAttractor;
     }
@@ -168,10 +203,22 @@ public abstract class DeviceMobilityState {
      */
     public void makePath() {
         if (currentAttractor != null && strategy != null) {
+            // Until the first waypoint of the new path, the device stays where it left the old one
+            currentLocation = getPathStart();
             path = strategy.makePath(currentAttractor, speed, currentLocation);
         }
     }
 
+    /**
+     * Prepares the next call to makePath for the current attraction point, see
+     * {@link PathingStrategy#prefetchRoute}. May run on a worker thread.
+     */
+    public void prefetchPath() {
+        if (currentAttractor != null && strategy != null) {
+            strategy.prefetchRoute(currentAttractor, getPathStart());
+        }
+    }
+
     /**
      * Creates or updates the IAttract object that represents the new destination or point of interest.
      * The default (or random) strategy may create a brand new IAttract each time.
@@ -1,16 +1,27 @@
 package org.fog.mobility;
 
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.fog.entities.FogDevice;
 import org.fog.entities.SPPFogDevice;
 import org.fog.mobilitydata.Location;
+import org.fog.placement.LatencyOracle;
 import org.fog.placement.LocationManager;
 import org.fog.utils.Logger;
+import org.fog.utils.MicroservicePlacementConfig;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Complete implementation of MobilityStrategy for handling device mobility.
@@ -21,6 +32,10 @@ public class FullMobilityStrategy implements MobilityStrategy {
     private List<FogDevice> fogDevices;
     private Map<Integer, Integer> parentReferences = new HashMap<>();
     private List<Attractor> landmarks = new ArrayList<>();
+    private LatencyOracle latencyOracle;
+    
+    // Compute the routes of batched path creation, by thread count; shared by all the simulations
+    private static final Map<Integer, ExecutorService> PATH_EXECUTORS = new HashMap<>();
     
     @Override
     public void initialize(List<FogDevice> fogDevices, Map<Integer, Integer> initialParentReferences) {
@@ -30,6 +45,11 @@ public class FullMobilityStrategy implements MobilityStrategy {
         this.parentReferences.putAll(initialParentReferences);
     }
     
+    @Override
+    public void setLatencyOracle(LatencyOracle latencyOracle) {
+        this.latencyOracle = latencyOracle;
+    }
+    
     @Override
     public double handleMovementUpdate(int deviceId, DeviceMobilityState dms, LocationManager locationManager) {
         if (dms == null) {
@@ -47,6 +67,17 @@ public class FullMobilityStrategy implements MobilityStrategy {
 //            return -1.0;
         }
         double currentTime = CloudSim.clock();
+        if (MicroservicePlacementConfig.HANDOVER_EVENTS) {
+            // Waypoints passed without an update since the last one, see nextUpdateWayPoint
+            while (currentTime - nextWaypoint.getArrivalTime() > 0.00001) {
+                dms.getJourney().put(nextWaypoint.getArrivalTime(), nextWaypoint.getLocation());
+                path.removeNextWayPoint();
+                nextWaypoint = path.getNextWayPoint();
+                if (nextWaypoint == null) {
+                    throw new NullPointerException("CRITICAL ERROR: Passed the end of the WayPointPath");
+                }
+            }
+        }
 //        Logger.debug("Values should be roughly equal", "CloudSim timestamp: " + currentTime +
 //                    ", timestamp: " + nextWaypoint.getArrivalTime());
         if (currentTime - nextWaypoint.getArrivalTime() > 0.00001) {
@@ -81,7 +112,9 @@ public class FullMobilityStrategy implements MobilityStrategy {
         
         // Schedule next movement if there are more waypoints
         if (!path.isEmpty()) {
-            WayPoint nextNextWaypoint = path.getNextWayPoint();
+            WayPoint nextNextWaypoint = MicroservicePlacementConfig.HANDOVER_EVENTS
+                ? nextUpdateWayPoint(deviceId, path, locationManager)
+                : path.getNextWayPoint();
             double nextArrivalTime = nextNextWaypoint.getArrivalTime();
             double delay = nextArrivalTime - CloudSim.clock();
             System.out.println("Scheduled next movement for device " + CloudSim.getEntityName(deviceId) + " at time " + nextArrivalTime);
@@ -98,6 +131,35 @@ public class FullMobilityStrategy implements MobilityStrategy {
         }
     }
     
+    /**
+     * Finds the next waypoint at which the device needs a movement update: the first one where
+     * its closest parent is not its current parent, or the last one of the path. At the waypoints
+     * before it, an update would find the same parent and change nothing, so handovers happen at
+     * the same times as with an update at every waypoint. While the device stays well inside the
+     * area of its parent, a waypoint is checked in constant time, without searching for its
+     * closest parent.
+     *
+     * @param deviceId the device ID
+     * @param path the remaining path of the device, not empty
+     * @param locationManager the location manager, for the closest parents
+     * @return the waypoint of the next movement update
+     */
+    private WayPoint nextUpdateWayPoint(int deviceId, WayPointPath path, LocationManager locationManager) {
+        int parentId = parentReferences.get(deviceId);
+        WayPoint waypoint = null;
+        for (WayPoint candidate : path.getRemainingWaypoints()) {
+            waypoint = candidate;
+            if (locationManager.isClosestUserParent(parentId, candidate.getLocation(), fogDevices)) {
+                continue;
+            }
+            int closestParentId = locationManager.determineUserParentByProximity(candidate.getLocation(), fogDevices);
+            if (closestParentId != -1 && closestParentId != parentId) {
+                break;
+            }
+        }
+        return waypoint;
+    }
+    
     @Override
     public double makePath(int deviceId, DeviceMobilityState dms) {
         if (dms == null) {
@@ -108,6 +170,81 @@ public class FullMobilityStrategy implements MobilityStrategy {
         dms.startMoving();
         // Create a new attraction point and path
         dms.updateAttractionPoint(dms.getCurrentAttractor());
+        return followNewPath(deviceId, dms);
+    }
+    
+    @Override
+    public Map<Integer, Double> makePaths(SortedMap<Integer, DeviceMobilityState> mobilityStates) {
+        // Attraction points and paths draw from random streams shared by the devices, so they are
+        //  made one device at a time in ID order; only the routes in between are computed concurrently
+        for (Map.Entry<Integer, DeviceMobilityState> entry : mobilityStates.entrySet()) {
+            DeviceMobilityState dms = entry.getValue();
+            if (dms == null) {
+                throw new NullPointerException("CRITICAL ERROR: Device mobility state not found for device " + entry.getKey());
+            }
+            dms.startMoving();
+            dms.updateAttractionPoint(dms.getCurrentAttractor());
+        }
+        prefetchPaths(mobilityStates.values());
+        
+        Map<Integer, Double> delays = new LinkedHashMap<>();
+        for (Map.Entry<Integer, DeviceMobilityState> entry : mobilityStates.entrySet()) {
+            delays.put(entry.getKey(), followNewPath(entry.getKey(), entry.getValue()));
+        }
+        return delays;
+    }
+    
+    /**
+     * Prefetches the paths of the devices to their attraction points on the path worker threads
+     * (see {@link MicroservicePlacementConfig#PATH_THREADS}), and waits for all of them.
+     */
+    private void prefetchPaths(Collection<DeviceMobilityState> mobilityStates) {
+        // Workers read the route cache of this simulation
+        SimulationContext context = SimulationContext.current();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (DeviceMobilityState dms : mobilityStates) {
+            tasks.add(() -> {
+                SimulationContext.setCurrent(context);
+                try {
+                    dms.prefetchPath();
+                } finally {
+                    SimulationContext.setCurrent(null);
+                }
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> result : getPathExecutor().invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while prefetching paths", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Path prefetching failed", e.getCause());
+        }
+    }
+    
+    /**
+     * @return the pool of {@link MicroservicePlacementConfig#PATH_THREADS} threads, created on first
+     * use, so that simulations configured with different thread counts each get their own
+     */
+    private static synchronized ExecutorService getPathExecutor() {
+        int threads = MicroservicePlacementConfig.PATH_THREADS;
+        return PATH_EXECUTORS.computeIfAbsent(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(),
+            count -> Executors.newFixedThreadPool(count, r -> {
+                Thread thread = new Thread(r, "path_prefetch");
+                thread.setDaemon(true);
+                return thread;
+            }));
+    }
+    
+    /**
+     * Makes the path of a device to its new attraction point.
+     * 
+     * @return the delay until the first movement on the path, or -1 if no movement is scheduled
+     */
+    private double followNewPath(int deviceId, DeviceMobilityState dms) {
         dms.makePath();
         
         if (!dms.getPath().isEmpty()) {
@@ -171,6 +308,9 @@ public class FullMobilityStrategy implements MobilityStrategy {
         
         newParent.getChildToLatencyMap().put(fogDeviceId, latency);
         prevParent.getChildToLatencyMap().remove(fogDeviceId);
+        if (latencyOracle != null) {
+            latencyOracle.setLink(fogDeviceId, newParent.getId(), latency);
+        }
         newParent.addChild(fogDeviceId);
         prevParent.removeChild(fogDevice.getId());
         
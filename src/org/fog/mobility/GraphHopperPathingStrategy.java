@@ -8,8 +8,17 @@ import org.cloudbus.cloudsim.core.CloudSim;
 import org.fog.mobilitydata.Location;
 import org.cloudbus.cloudsim.Consts;
 import org.fog.utils.Config;
+import org.fog.utils.MicroservicePlacementConfig;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.graphhopper.util.Parameters;
 import com.graphhopper.util.PointList;
@@ -17,6 +26,9 @@ import com.graphhopper.util.PointList;
 public class GraphHopperPathingStrategy extends AbstractPathingStrategy {
     private GraphHopper hopper;
 
+    // Routes computed ahead by prefetchRoute, by exact origin and destination, until makePath uses them
+    private final Map<RouteCache.Key, RouteCache.Route[]> prefetchedRoutes = new ConcurrentHashMap<>();
+
     // Base path for resource files
     private static final String BASE_PATH = "./";
     
@@ -41,6 +53,24 @@ public class GraphHopperPathingStrategy extends AbstractPathingStrategy {
     private static final double MIN_WAYPOINT_DISTANCE = 5.0;  // meters, reduced from 20.0 for more detailed paths
     private static final double MAX_DISTANCE_THRESHOLD = 1200.0;  // kilometers threshold
 
+    private static final int MIN_NETWORK_SIZE = 200;
+    private static final double DISTANCE_INFLUENCE = 0.1;
+
+    // Simulations running in parallel share the graph folder, so only one of them may clean and import it at a time
+    private static final Object IMPORT_LOCK = new Object();
+
+    // Per graph key (see graphKey): the GraphHopper instance shared by all the strategies of the JVM.
+    //  GraphHopper is thread-safe for routing, so parallel simulations can share it too. The
+    //  instances are closed when the JVM shuts down, or by closeSharedHoppers
+    private static final Map<String, GraphHopper> SHARED_HOPPERS = new HashMap<>();
+
+    // Per OSM file path, size and modification time: the hash of its content
+    private static final Map<String, String> OSM_FILE_HASHES = new HashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(GraphHopperPathingStrategy::closeSharedHoppers, "graphhopper_close"));
+    }
+
     public GraphHopperPathingStrategy() {
         super(); // Initialize with default seed
         updateAreaSettings();
@@ -101,21 +131,24 @@ public class GraphHopperPathingStrategy extends AbstractPathingStrategy {
     }
     
     /**
-     * Resets the GraphHopper instance, forcing reinitialization on next use.
+     * Releases this strategy's GraphHopper instance, forcing reinitialization on next use.
      * Call this method between simulations or when changing geographic areas.
+     * The instance itself stays open and shared with the other strategies until the JVM shuts
+     * down or {@link #closeSharedHoppers()} is called, see {@link #init()}.
      */
     public void reset() {
-        if (hopper != null) {
-            try {
-                hopper.close();
-            } catch (Exception e) {
-                System.err.println("Error closing GraphHopper: " + e.getMessage());
-            }
-            hopper = null;
-        }
+        hopper = null;
+        prefetchedRoutes.clear();
         System.out.println("GraphHopper instance reset");
     }
 
+    /**
+     * Gets the road graph of the current settings. Users and sequential simulations of the JVM share
+     * one GraphHopper instance per graph. The prepared graph is kept on disk, in a folder of
+     * {@code graphFolderFiles} named after a hash of everything it is built from (see
+     * {@link #graphKey}), and loaded memory-mapped when it is there; it is only imported from the
+     * OSM file when it is not, or cannot be loaded. A failed import is cleaned and retried once.
+     */
     private void init() {
         if (hopper != null) return;
         
@@ -128,60 +161,201 @@ public class GraphHopperPathingStrategy extends AbstractPathingStrategy {
         } else {
             System.out.println("OSM file verified: " + osmFileLocation + " (" + osmFile.length() / (1024 * 1024) + " MB)");
         }
-        
-        // Create graph folder if it doesn't exist
-        File graphFolder = new File(graphFolderFiles);
-        if (!graphFolder.exists()) {
-            if (graphFolder.mkdirs()) {
-                System.out.println("Created graph folder: " + graphFolderFiles);
-            } else {
-                System.err.println("Failed to create graph folder: " + graphFolderFiles);
+
+        boolean useCH = useCH();
+
+        synchronized (IMPORT_LOCK) {
+            String key = graphKey(osmFile, useCH);
+            GraphHopper shared = SHARED_HOPPERS.get(key);
+            if (shared != null) {
+                System.out.println("Reusing GraphHopper graph " + key);
+                hopper = shared;
+                return;
+            }
+
+            String graphLocation = graphFolderFiles + File.separator + key;
+            File graphFolder = new File(graphLocation);
+            if (!graphFolder.exists()) {
+                if (graphFolder.mkdirs()) {
+                    System.out.println("Created graph folder: " + graphLocation);
+                } else {
+                    System.err.println("Failed to create graph folder: " + graphLocation);
+                }
+            }
+            System.out.println("Using graph folder: " + graphLocation);
+
+            // Only a graph loaded or imported in full is kept, by this strategy and the others
+            GraphHopper graph = null;
+            // GraphHopper writes the properties file last, once the graph is complete
+            if (new File(graphFolder, "properties").exists()) {
+                GraphHopper loaded = createHopper(graphLocation, "MMAP", useCH);
+                loaded.setAllowWrites(false);
+                try {
+                    if (loaded.load()) {
+                        graph = loaded;
+                        System.out.println("Loaded prepared GraphHopper graph (memory-mapped)");
+                    }
+                } catch (Exception e) {
+                    System.err.println("WARNING [GraphHopperPathingStrategy] Could not load the prepared graph: " + e.getMessage());
+                }
+                if (graph == null) {
+                    loaded.close();
+                }
+            }
+
+            if (graph == null) {
+                System.out.println("Initializing GraphHopper with OSM file: " + osmFileLocation);
+                graph = createHopper(graphLocation, "RAM_STORE", useCH);
+                graph.clean();
+                try {
+                    graph.importOrLoad();
+                } catch (Exception e) {
+                    System.err.println("ERROR [GraphHopperPathingStrategy] GraphHopper graph file must be re-imported!");
+                    graph.close();
+                    graph = createHopper(graphLocation, "RAM_STORE", useCH);
+                    graph.clean();
+                    try {
+                        graph.importOrLoad();
+                    } catch (RuntimeException retryFailure) {
+                        graph.close();
+                        throw retryFailure;
+                    }
+                }
             }
+            SHARED_HOPPERS.put(key, graph);
+            hopper = graph;
         }
+    }
 
-        CustomModel fastestModel = new CustomModel();
-        // Distance influence 0.1 is "fastest", distance influence 100.0 is "shortest"
-        fastestModel.setDistanceInfluence(0.1);
+    /** Whether the graph is prepared with contraction hierarchies, which blocked areas and alternative routes cannot use. */
+    private boolean useCH() {
+        return !((blockedAreas != null && !blockedAreas.isEmpty()) || allowAlternativeRoutes);
+    }
+
+    /**
+     * Gets the folder of the prepared graph of the current settings, named after their graph key.
+     *
+     * @return the folder the graph is loaded from, or imported into
+     */
+    public String getGraphLocation() {
+        return graphFolderFiles + File.separator + graphKey(new File(osmFileLocation), useCH());
+    }
 
-        System.out.println("CustomModel used: " + fastestModel);
-        System.out.println("Initializing GraphHopper with OSM file: " + osmFileLocation);
-        System.out.println("Using graph folder: " + graphFolderFiles);
+    /**
+     * Closes the GraphHopper instances shared by the strategies of the JVM, so that the next ones
+     * are loaded from their prepared graphs again. Strategies must be {@link #reset()} before they
+     * route again.
+     */
+    public static void closeSharedHoppers() {
+        synchronized (IMPORT_LOCK) {
+            for (GraphHopper shared : SHARED_HOPPERS.values()) {
+                try {
+                    shared.close();
+                } catch (Exception e) {
+                    System.err.println("WARNING [GraphHopperPathingStrategy] Could not close a GraphHopper graph: " + e.getMessage());
+                }
+            }
+            SHARED_HOPPERS.clear();
+        }
+    }
 
-        hopper = new GraphHopper();
-        hopper.setGraphHopperLocation(graphFolderFiles);
-        hopper.clean();
-        hopper.init(
+    /**
+     * Creates a GraphHopper instance for the current settings, not loaded yet.
+     *
+     * @param graphLocation the folder of the prepared graph
+     * @param dataAccess    the GraphHopper data access type, e.g. RAM_STORE or MMAP
+     * @param useCH         whether to prepare contraction hierarchies
+     */
+    private GraphHopper createHopper(String graphLocation, String dataAccess, boolean useCH) {
+        GraphHopper graphHopper = new GraphHopper();
+        graphHopper.setGraphHopperLocation(graphLocation);
+        graphHopper.init(
             new GraphHopperConfig().
                     putObject("datareader.file", osmFileLocation).
-                    putObject("graph.location", graphFolderFiles).
-                    putObject("prepare.min_network_size", 200).
+                    putObject("graph.location", graphLocation).
+                    putObject("graph.dataaccess.default_type", dataAccess).
+                    putObject("prepare.min_network_size", MIN_NETWORK_SIZE).
                     putObject("import.osm.ignored_highways", ""). // if you are only using car you can ignore paths, tracks etc. here, take a look at the documentation in `config-example.yml`
                     // todo Removed, not compatible with v8.0. These give more precise points (following road structure)
 //                    putObject("graph.encoded_values", "road_class, road_class_link,road_environment,max_speed,surface").
                     putObject("graph.encoded_values", "").
                     setProfiles(Collections.singletonList(
-                    new Profile(movementType).setVehicle(movementType).setWeighting(navigationalType).setTurnCosts(false).setCustomModel(fastestModel)
+                    new Profile(movementType).setVehicle(movementType).setWeighting(navigationalType).setTurnCosts(false).setCustomModel(createCustomModel())
             )));
 
-        if (!((blockedAreas != null && !blockedAreas.isEmpty()) || allowAlternativeRoutes)) {
+        if (useCH) {
             List<CHProfile> l = new ArrayList<>();
             l.add(new CHProfile(movementType));
-            hopper.getCHPreparationHandler().setCHProfiles(l);
+            graphHopper.getCHPreparationHandler().setCHProfiles(l);
         }
+        return graphHopper;
+    }
 
+    private static CustomModel createCustomModel() {
+        CustomModel fastestModel = new CustomModel();
+        // Distance influence 0.1 is "fastest", distance influence 100.0 is "shortest"
+        fastestModel.setDistanceInfluence(DISTANCE_INFLUENCE);
+        return fastestModel;
+    }
+
+    /**
+     * Key of the prepared graph of the current settings: a hash of the content of the OSM file, and of
+     * the profile, custom model and CH settings. A graph prepared with other settings gets another key,
+     * so it is never loaded by mistake.
+     */
+    private String graphKey(File osmFile, boolean useCH) {
+        String settings = osmFileHash(osmFile) + "|" + movementType + "|" + navigationalType
+            + "|distance_influence=" + DISTANCE_INFLUENCE + "|ch=" + useCH
+            + "|min_network_size=" + MIN_NETWORK_SIZE;
+        return toHex(sha256(settings.getBytes(StandardCharsets.UTF_8))).substring(0, 16);
+    }
+
+    /** Hash of the content of the OSM file, computed once per JVM as long as the file is unchanged. */
+    private static String osmFileHash(File osmFile) {
+        if (!osmFile.exists()) return "missing:" + osmFile.getPath();
+        String fileVersion = osmFile.getAbsolutePath() + "|" + osmFile.length() + "|" + osmFile.lastModified();
+        return OSM_FILE_HASHES.computeIfAbsent(fileVersion, v -> {
+            MessageDigest digest = newDigest();
+            byte[] buffer = new byte[1 << 20];
+            try (InputStream in = new FileInputStream(osmFile)) {
+                for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                    digest.update(buffer, 0, read);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read OSM file " + osmFile, e);
+            }
+            return toHex(digest.digest());
+        });
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        return newDigest().digest(bytes);
+    }
+
+    private static MessageDigest newDigest() {
         try {
-            hopper.importOrLoad();
-        } catch (Exception e) {
-            System.err.println("ERROR [GraphHopperPathingStrategy] GraphHopper graph file must be re-imported!");
-            hopper.clean();
-            hopper.importOrLoad();
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
     }
 
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
 
-    // Speed in m/s
-    @Override
-    public WayPointPath makePath(Attractor attractionPoint, double speed, Location currentLocation) {
+
+    /**
+     * Gets the road graph of the current geographic area ready. Synchronized, as devices share
+     * strategies and may prefetch their routes concurrently.
+     *
+     * @return the GraphHopper instance to route with
+     */
+    private synchronized GraphHopper initForCurrentArea() {
         // Check if we need to update for a new geographic area
         String currentArea = Config.getGeographicArea();
         if (!graphFolderFiles.contains(currentArea.toLowerCase())) {
@@ -189,62 +363,79 @@ public class GraphHopperPathingStrategy extends AbstractPathingStrategy {
         }
         
         if (hopper == null) init();
+        return hopper;
+    }
+
+    /**
+     * Computes the route of a later {@link #makePath} call ahead, on a worker thread. Only routes:
+     * the random draws and the updates of the route cache are left to makePath, which runs on the
+     * simulation thread in a deterministic order.
+     */
+    @Override
+    public void prefetchRoute(Attractor attractionPoint, Location currentLocation) {
+        Location destination = attractionPoint.getAttractionPoint();
+        try {
+            GraphHopper graph = initForCurrentArea();
+            RouteCache cache = RouteCache.getInstance();
+            if (cache != null && cache.contains(
+                    new RouteCache.Key(routeSettings(), currentLocation, destination, MicroservicePlacementConfig.ROUTE_CACHE_GRID))) {
+                return;
+            }
+            RouteCache.Route[] routes = route(graph, currentLocation, destination);
+            if (routes != null) {
+                prefetchedRoutes.put(new RouteCache.Key(routeSettings(), currentLocation, destination, 0), routes);
+            }
+        } catch (Exception e) {
+            // makePath routes again, and falls back if it fails again
+            System.err.println("Error during route prefetching: " + e.getMessage());
+        }
+    }
+
+    // Speed in m/s
+    @Override
+    public WayPointPath makePath(Attractor attractionPoint, double speed, Location currentLocation) {
+        GraphHopper graph = initForCurrentArea();
         WayPointPath path;
         Location destination = attractionPoint.getAttractionPoint();
         double speedKmps = speed * Consts.METERS_TO_KM;
 
+        // Route computed ahead by prefetchRoute, if any
+        RouteCache.Route[] prefetched = prefetchedRoutes.remove(
+            new RouteCache.Key(routeSettings(), currentLocation, destination, 0));
         try {
-            GHRequest req = new GHRequest(
-                    currentLocation.getLatitude(),
-                    currentLocation.getLongitude(),
-                    destination.getLatitude(),
-                    destination.getLongitude())
-                    .setProfile(movementType)
-                    .setLocale(Locale.ENGLISH);
-
-            // todo If we want GraphHopper to NOT remove points from output, uncomment.
-            //  eg If we use a visual interface, we don't want to see ambulances driving through buildings.
-            //  But for our current arrival time estimation purposes, simplification is fine.
-            req.getHints().put("simplify_response", "false");
-
-            // Simon says put is deprecated because PMAP should be immutable ("final" config),
-            //  But this code probably won't run.
-            if (blockedAreas != null && !blockedAreas.isEmpty()) {
-                req.getHints().put("block_area", blockedAreas);
-            }
-            if (allowAlternativeRoutes) {
-                req.setAlgorithm(Parameters.Algorithms.ALT_ROUTE);
-                req.getHints().put(Parameters.Algorithms.AltRoute.MAX_WEIGHT, "2.0");
-                req.getHints().put(Parameters.Algorithms.AltRoute.MAX_PATHS, "5");
-            }
+            // Routes between the same places may be cached, see MicroservicePlacementConfig.ROUTE_CACHE_SIZE
+            RouteCache cache = RouteCache.getInstance();
+            RouteCache.Key key = cache != null
+                ? new RouteCache.Key(routeSettings(), currentLocation, destination, MicroservicePlacementConfig.ROUTE_CACHE_GRID)
+                : null;
+            RouteCache.Route[] routes = cache != null ? cache.get(key) : null;
 
-            GHResponse rsp = hopper.route(req);
-            if (rsp.hasErrors()) {
-                System.err.println("Routing error: " + rsp.getErrors());
-                return createFallbackPath(currentLocation, destination, speedKmps);
+            if (routes == null) {
+                routes = prefetched != null ? prefetched : route(graph, currentLocation, destination);
+                if (routes == null) {
+                    return createFallbackPath(currentLocation, destination, speedKmps);
+                }
+                if (cache != null) {
+                    cache.put(key, routes);
+                }
             }
 
-            ResponsePath route = rsp.getBest();
-            if (route == null) {
-                System.err.println("GraphHopper returned null route, using fallback path");
-                return createFallbackPath(currentLocation, destination, speedKmps);
-            }
-            
-            if (allowAlternativeRoutes && rsp.getAll().size() > 1
+            // The random draws are the same with or without the cache, so that results are too
+            RouteCache.Route route = routes[0];
+            if (allowAlternativeRoutes && routes.length > 1
                     && rand.nextDouble() <= probabilityForAlternativeRoute) {
-                int altIdx = rand.nextInt(rsp.getAll().size() - 1) + 1;
-                route = rsp.getAll().get(altIdx);
+                int altIdx = rand.nextInt(routes.length - 1) + 1;
+                route = routes[altIdx];
             }
 
             // NOTE: Both start and end point is snapped to nearest road by graphhopper.
-            PointList points = route.getPoints();
-            if (points == null || points.isEmpty()) {
+            if (route.size() == 0) {
                 System.err.println("GraphHopper returned empty PointList, using fallback path");
                 return createFallbackPath(currentLocation, destination, speedKmps);
             }
             
             double totalDistanceKm = route.getDistance() * Consts.METERS_TO_KM;
-            path = createWaypointsFromPointList(points, totalDistanceKm, speedKmps, currentLocation);
+            path = createWaypointsFromRoute(route, totalDistanceKm, speedKmps, currentLocation);
         } catch (Exception e) {
             System.err.println("Error during path creation: " + e.getMessage());
             path = createFallbackPath(currentLocation, attractionPoint.getAttractionPoint(), speedKmps);
@@ -253,9 +444,83 @@ public class GraphHopperPathingStrategy extends AbstractPathingStrategy {
     }
 
     /**
-     * Converts a GraphHopper-generated {@link PointList} into a {@link WayPointPath} for simulation.
+     * Routes from a location to a destination with GraphHopper.
+     *
+     * @return the routes found, best one first, or null if routing failed
+     */
+    private RouteCache.Route[] route(GraphHopper graph, Location currentLocation, Location destination) {
+        GHRequest req = new GHRequest(
+                currentLocation.getLatitude(),
+                currentLocation.getLongitude(),
+                destination.getLatitude(),
+                destination.getLongitude())
+                .setProfile(movementType)
+                .setLocale(Locale.ENGLISH);
+
+        // todo If we want GraphHopper to NOT remove points from output, uncomment.
+        //  eg If we use a visual interface, we don't want to see ambulances driving through buildings.
+        //  But for our current arrival time estimation purposes, simplification is fine.
+        req.getHints().put("simplify_response", "false");
+
+        // Simon says put is deprecated because PMAP should be immutable ("final" config),
+        //  But this code probably won't run.
+        if (blockedAreas != null && !blockedAreas.isEmpty()) {
+            req.getHints().put("block_area", blockedAreas);
+        }
+        if (allowAlternativeRoutes) {
+            req.setAlgorithm(Parameters.Algorithms.ALT_ROUTE);
+            req.getHints().put(Parameters.Algorithms.AltRoute.MAX_WEIGHT, "2.0");
+            req.getHints().put(Parameters.Algorithms.AltRoute.MAX_PATHS, "5");
+        }
+
+        GHResponse rsp = graph.route(req);
+        if (rsp.hasErrors()) {
+            System.err.println("Routing error: " + rsp.getErrors());
+            return null;
+        }
+
+        if (rsp.getBest() == null) {
+            System.err.println("GraphHopper returned null route, using fallback path");
+            return null;
+        }
+        return toRoutes(rsp);
+    }
+
+    /**
+     * Settings that a route depends on besides its origin and destination, for the key of the
+     * {@link RouteCache}.
+     */
+    private String routeSettings() {
+        return osmFileLocation + "|" + movementType + "|" + navigationalType + "|" + blockedAreas
+            + "|" + allowAlternativeRoutes;
+    }
+
+    /**
+     * Copies the routes of a GraphHopper response: the best one, then the alternatives if
+     * alternative routes are allowed.
+     */
+    private RouteCache.Route[] toRoutes(GHResponse rsp) {
+        int count = allowAlternativeRoutes ? Math.max(1, rsp.getAll().size()) : 1;
+        RouteCache.Route[] routes = new RouteCache.Route[count];
+        for (int r = 0; r < count; r++) {
+            ResponsePath responsePath = r == 0 ? rsp.getBest() : rsp.getAll().get(r);
+            PointList points = responsePath.getPoints();
+            int size = points != null ? points.size() : 0;
+            double[] latitudes = new double[size];
+            double[] longitudes = new double[size];
+            for (int i = 0; i < size; i++) {
+                latitudes[i] = points.getLat(i);
+                longitudes[i] = points.getLon(i);
+            }
+            routes[r] = new RouteCache.Route(latitudes, longitudes, responsePath.getDistance());
+        }
+        return routes;
+    }
+
+    /**
+     * Converts the geometry of a GraphHopper route into a {@link WayPointPath} for simulation.
      * <p>
-     * Assumes the entity moves at constant speed along straight lines between consecutive points in the {@code PointList}.
+     * Assumes the entity moves at constant speed along straight lines between consecutive points of the route.
      * Linearly interpolates timestamps for each waypoint.
      * Does NOT consider turn penalties, actual road curvature, or variable speed limits.
      * <p>
@@ -269,24 +534,24 @@ public class GraphHopperPathingStrategy extends AbstractPathingStrategy {
      * This function assumes the total path length is reasonably close to the actual route length reported by GraphHopper,
      * but may slightly overshoot due to haversine approximation.
      *
-     * @param pointList        the {@link PointList} from a GraphHopper route representing the geometry of the path
+     * @param route            the points of a GraphHopper route, possibly cached, representing the geometry of the path
      * @param totalDistanceKm  the full distance of the route, as reported by {@code response.getDistance()} (in kilometers)
      * @param speedKmps        the constant speed of the entity (in kilometers per second)
      * @param currentLocation  the starting location of the entity at the beginning of the path
      * @return a {@link WayPointPath} containing timestamped waypoints based on straight-line interpolation
      */
-    private WayPointPath createWaypointsFromPointList(PointList pointList, double totalDistanceKm,
-                                                      double speedKmps, Location currentLocation) {
+    private WayPointPath createWaypointsFromRoute(RouteCache.Route route, double totalDistanceKm,
+                                                  double speedKmps, Location currentLocation) {
         WayPointPath path = new WayPointPath();
-        if (pointList.isEmpty()) return path;
+        if (route.size() == 0) return path;
 
         double currentTime = CloudSim.clock();
         double distanceCoveredKm = 0;
         Location prevLoc = currentLocation;
 
-        for (int i = 1; i < pointList.size(); i++) {
-            double lat = pointList.getLat(i);
-            double lon = pointList.getLon(i);
+        for (int i = 1; i < route.size(); i++) {
+            double lat = route.getLatitude(i);
+            double lon = route.getLongitude(i);
             Location wpLoc = new Location(lat, lon, -1);
 
             double segDistKm = prevLoc.calculateDistance(wpLoc);
@@ -295,7 +560,7 @@ public class GraphHopperPathingStrategy extends AbstractPathingStrategy {
             currentTime += segTime;
 
             // MUST add the last point (because that is destination)
-            if (i == pointList.size() - 1 || segDistKm * Consts.KM_TO_METERS >= MIN_WAYPOINT_DISTANCE) {
+            if (i == route.size() - 1 || segDistKm * Consts.KM_TO_METERS >= MIN_WAYPOINT_DISTANCE) {
                 path.addWayPoint(new WayPoint(wpLoc, currentTime));
                 prevLoc = wpLoc;
             }
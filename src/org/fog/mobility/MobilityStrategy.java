@@ -1,10 +1,12 @@
 package org.fog.mobility;
 
 import org.fog.entities.FogDevice;
+import org.fog.placement.LatencyOracle;
 import org.fog.placement.LocationManager;
 
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
 
 /**
  * Interface defining strategy for handling device mobility in the fog network.
@@ -19,6 +21,13 @@ public interface MobilityStrategy {
      */
     void initialize(List<FogDevice> fogDevices, Map<Integer, Integer> initialParentReferences);
     
+    /**
+     * Sets the latencies of the network links, to update when a device changes parent
+     * 
+     * @param latencyOracle The latencies shared with the placement logics
+     */
+    void setLatencyOracle(LatencyOracle latencyOracle);
+    
     /**
      * Handles device movement updates
      * 
@@ -38,6 +47,15 @@ public interface MobilityStrategy {
      */
     double makePath(int deviceId, DeviceMobilityState mobilityState);
     
+    /**
+     * Creates new paths for several devices at once, with the same result as calling makePath
+     * for each of them in device ID order
+     * 
+     * @param mobilityStates The mobility states of the devices, by device ID
+     * @return Per device ID, in the same order: the time until the first movement on its new path
+     */
+    Map<Integer, Double> makePaths(SortedMap<Integer, DeviceMobilityState> mobilityStates);
+    
     /**
      * Starts mobility for a device
      * 
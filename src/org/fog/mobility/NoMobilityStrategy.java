@@ -2,13 +2,16 @@ package org.fog.mobility;
 
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.fog.entities.FogDevice;
+import org.fog.placement.LatencyOracle;
 import org.fog.placement.LocationManager;
 import org.fog.utils.Logger;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
 
 /**
  * No-op implementation of MobilityStrategy for when mobility is not needed.
@@ -39,6 +42,20 @@ public class NoMobilityStrategy implements MobilityStrategy {
         return -1.0;
     }
     
+    @Override
+    public Map<Integer, Double> makePaths(SortedMap<Integer, DeviceMobilityState> mobilityStates) {
+        Map<Integer, Double> delays = new LinkedHashMap<>();
+        for (Map.Entry<Integer, DeviceMobilityState> entry : mobilityStates.entrySet()) {
+            delays.put(entry.getKey(), makePath(entry.getKey(), entry.getValue()));
+        }
+        return delays;
+    }
+    
+    @Override
+    public void setLatencyOracle(LatencyOracle latencyOracle) {
+        // No device changes parent
+    }
+    
     @Override
     public double startDeviceMobility(int deviceId, DeviceMobilityState mobilityState) {
         Logger.error("Mobility Error", "Attempted to start mobility for device " + deviceId + " but mobility is not enabled");
@@ -18,6 +18,18 @@ public interface PathingStrategy {
      */
     WayPointPath makePath(Attractor attractionPoint, double speed, Location currentLocation);
     
+    /**
+     * Prepares a later call to makePath with the same attraction point and location, e.g. by
+     * computing its route ahead. Called for many devices at once on worker threads when paths
+     * are made in batches, so implementations must be thread-safe and must not change what
+     * makePath returns, only how fast. Does nothing by default.
+     * 
+     * @param attractionPoint the final destination or point of interest
+     * @param currentLocation the starting location
+     */
+    default void prefetchRoute(Attractor attractionPoint, Location currentLocation) {
+    }
+    
     /**
      * Sets the random seed used by this pathing strategy.
      * 
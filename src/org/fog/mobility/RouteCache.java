@@ -0,0 +1,222 @@
+package org.fog.mobility;
+
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.fog.mobilitydata.Location;
+import org.fog.utils.MicroservicePlacementConfig;
+
+import java.util.*;
+
+/**
+ * Road routes computed by GraphHopper, for reuse by later requests between the same places instead
+ * of routing again. Two requests are between the same places if they have the same {@link Key}:
+ * same routing settings, and origin and destination in the same cells of a grid. A cached route is
+ * only its geometry, which the caller timestamps for the speed of the device and the current time.
+ * <p>
+ * At most the routes of {@code capacity} requests and {@code maxPoints} points are kept, the least
+ * recently used routes being dropped first. There is one cache per simulation, see {@link #getInstance()}.
+ */
+public class RouteCache {
+
+    // Metres per degree of latitude
+    private static final double METERS_PER_DEGREE = 111320.0;
+
+    /** What two routing requests must share to use the same route. */
+    public static final class Key {
+        private final String settings;
+        private final long originLat;
+        private final long originLon;
+        private final long destinationLat;
+        private final long destinationLon;
+
+        /**
+         * @param settings    the routing settings, e.g. profile and graph
+         * @param origin      the location of the device
+         * @param destination the destination of the device
+         * @param gridSize    the side of the grid cells in metres, 0 for exact locations
+         */
+        public Key(String settings, Location origin, Location destination, double gridSize) {
+            this.settings = settings;
+            this.originLat = latitudeCell(origin, gridSize);
+            this.originLon = longitudeCell(origin, gridSize);
+            this.destinationLat = latitudeCell(destination, gridSize);
+            this.destinationLon = longitudeCell(destination, gridSize);
+        }
+
+        private static long latitudeCell(Location location, double gridSize) {
+            if (gridSize <= 0) return Double.doubleToLongBits(location.getLatitude());
+            return (long) Math.floor(location.getLatitude() * METERS_PER_DEGREE / gridSize);
+        }
+
+        private static long longitudeCell(Location location, double gridSize) {
+            if (gridSize <= 0) return Double.doubleToLongBits(location.getLongitude());
+            double metersPerDegree = METERS_PER_DEGREE * Math.cos(Math.toRadians(location.getLatitude()));
+            return (long) Math.floor(location.getLongitude() * metersPerDegree / gridSize);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key that = (Key) o;
+            return originLat == that.originLat && originLon == that.originLon
+                    && destinationLat == that.destinationLat && destinationLon == that.destinationLon
+                    && settings.equals(that.settings);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(settings, originLat, originLon, destinationLat, destinationLon);
+        }
+    }
+
+    /** The geometry of a route. */
+    public static final class Route {
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final double distance;
+
+        /**
+         * @param latitudes  the latitude of every point of the route
+         * @param longitudes the longitude of every point of the route
+         * @param distance   the length of the route in metres
+         */
+        public Route(double[] latitudes, double[] longitudes, double distance) {
+            if (latitudes.length != longitudes.length) {
+                throw new IllegalArgumentException("Route has " + latitudes.length + " latitudes but "
+                    + longitudes.length + " longitudes");
+            }
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.distance = distance;
+        }
+
+        public int size() {
+            return latitudes.length;
+        }
+
+        public double getLatitude(int i) {
+            return latitudes[i];
+        }
+
+        public double getLongitude(int i) {
+            return longitudes[i];
+        }
+
+        /** @return the length of the route in metres */
+        public double getDistance() {
+            return distance;
+        }
+    }
+
+    private final int capacity;
+    private final long maxPoints;
+    // In access order, so that the first entry is the least recently used. Every entry holds the
+    //  routes of one request, the best one first, then the alternatives if any
+    private final LinkedHashMap<Key, Route[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long points = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * @param capacity  the number of requests whose routes are kept, at least 1
+     * @param maxPoints the number of route points kept, at least 1
+     */
+    public RouteCache(int capacity, long maxPoints) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1, got " + capacity);
+        }
+        if (maxPoints < 1) {
+            throw new IllegalArgumentException("Maximum number of points must be at least 1, got " + maxPoints);
+        }
+        this.capacity = capacity;
+        this.maxPoints = maxPoints;
+    }
+
+    /**
+     * Gets the route cache of the current simulation, sized by
+     * {@link MicroservicePlacementConfig#ROUTE_CACHE_SIZE} and
+     * {@link MicroservicePlacementConfig#ROUTE_CACHE_MEMORY_MB}.
+     *
+     * @return the cache, or null if route caching is off
+     */
+    public static RouteCache getInstance() {
+        if (MicroservicePlacementConfig.ROUTE_CACHE_SIZE <= 0) return null;
+        return SimulationContext.current().getComponent(RouteCache.class, () -> new RouteCache(
+            MicroservicePlacementConfig.ROUTE_CACHE_SIZE,
+            Math.max(1, MicroservicePlacementConfig.ROUTE_CACHE_MEMORY_MB * 1024L * 1024 / (2 * Double.BYTES))));
+    }
+
+    /**
+     * Drops the route cache of the current simulation, i.e. of the context bound to the calling
+     * thread; call between simulations. The caches of simulations running on other threads are
+     * left alone.
+     */
+    public static void clear() {
+        SimulationContext.current().removeComponent(RouteCache.class);
+    }
+
+    /** @return the routes cached for the key, best one first, or null; counted as a hit or a miss */
+    public synchronized Route[] get(Key key) {
+        Route[] routes = entries.get(key);
+        if (routes != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return routes;
+    }
+
+    /** @return whether routes are cached for the key; not counted as a hit or a miss */
+    public synchronized boolean contains(Key key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * Caches the routes of a request, replacing the ones of the key if any. Routes larger than the
+     * whole cache are not cached.
+     *
+     * @param routes the routes, best one first
+     */
+    public synchronized void put(Key key, Route[] routes) {
+        long size = pointCount(routes);
+        if (size > maxPoints) return;
+        Route[] replaced = entries.put(key, routes);
+        points += size - (replaced != null ? pointCount(replaced) : 0);
+        Iterator<Route[]> eldest = entries.values().iterator();
+        while (entries.size() > capacity || points > maxPoints) {
+            points -= pointCount(eldest.next());
+            eldest.remove();
+        }
+    }
+
+    private static long pointCount(Route[] routes) {
+        long count = 0;
+        for (Route route : routes) {
+            count += route.size();
+        }
+        return count;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** @return the number of route points kept */
+    public synchronized long getPoints() {
+        return points;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /** @return the share of lookups that found routes, NaN if there was none */
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? Double.NaN : (double) hits / lookups;
+    }
+}
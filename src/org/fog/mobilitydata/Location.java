@@ -1,5 +1,6 @@
 package org.fog.mobilitydata;
 
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.fog.utils.Config;
 
 import java.util.HashMap;
@@ -14,18 +15,25 @@ public class Location {
 	public double longitude;
 	public int block;
 
-	private static double[][] BOUNDARY = Config.getBOUNDARY();
-	private static double minLat = Config.getMinLat();
-	private static double maxLat = Config.getMaxLat();
-	private static double minLon = Config.getMinLon();
-	private static double maxLon = Config.getMaxLon();
-	
-	// Cache of points of interest for improved performance
-	private static Map<String, Location> pointsOfInterestCache = new HashMap<>();
-	
-	// Default random seed for location generation
-	private static long defaultRandomSeed = System.currentTimeMillis();
-	private static Random defaultRandom = new Random(defaultRandomSeed);
+	// Location settings, kept per simulation context
+	private static class Settings {
+		private double[][] BOUNDARY = Config.getBOUNDARY();
+		private double minLat = Config.getMinLat();
+		private double maxLat = Config.getMaxLat();
+		private double minLon = Config.getMinLon();
+		private double maxLon = Config.getMaxLon();
+
+		// Cache of points of interest for improved performance
+		private final Map<String, Location> pointsOfInterestCache = new HashMap<>();
+
+		// Default random seed for location generation
+		private long defaultRandomSeed = System.currentTimeMillis();
+		private Random defaultRandom = new Random(defaultRandomSeed);
+	}
+
+	private static Settings settings() {
+		return SimulationContext.current().getComponent(Settings.class, Settings::new);
+	}
 
 	/**
 	 * Sets the default random seed for all random location generation methods
@@ -34,8 +42,9 @@ public class Location {
 	 * @param seed the seed to use for random location generation
 	 */
 	public static void setDefaultRandomSeed(long seed) {
-		defaultRandomSeed = seed;
-		defaultRandom = new Random(seed);
+		Settings settings = settings();
+		settings.defaultRandomSeed = seed;
+		settings.defaultRandom = new Random(seed);
 		System.out.println("Location default random seed set to: " + seed);
 	}
 	
@@ -45,7 +54,7 @@ public class Location {
 	 * @return the default random seed
 	 */
 	public static long getDefaultRandomSeed() {
-		return defaultRandomSeed;
+		return settings().defaultRandomSeed;
 	}
 	
 	/**
@@ -56,6 +65,7 @@ public class Location {
 	 * @return the Location, or null if not found
 	 */
 	public static Location getPointOfInterest(String name) {
+		Map<String, Location> pointsOfInterestCache = settings().pointsOfInterestCache;
 		if (!pointsOfInterestCache.containsKey(name)) {
 			Location loc = Config.getPointOfInterest(name);
 			if (loc != null) {
@@ -89,15 +99,16 @@ public class Location {
 	 * Location class uses the latest values.
 	 */
 	public static void refreshConfigValues() {
-		BOUNDARY = Config.getBOUNDARY();
-		minLat = Config.getMinLat();
-		maxLat = Config.getMaxLat();
-		minLon = Config.getMinLon();
-		maxLon = Config.getMaxLon();
+		Settings settings = settings();
+		settings.BOUNDARY = Config.getBOUNDARY();
+		settings.minLat = Config.getMinLat();
+		settings.maxLat = Config.getMaxLat();
+		settings.minLon = Config.getMinLon();
+		settings.maxLon = Config.getMaxLon();
 		
 		// Clear and reload points of interest cache
-		pointsOfInterestCache.clear();
-		pointsOfInterestCache.putAll(Config.getAllPointsOfInterest());
+		settings.pointsOfInterestCache.clear();
+		settings.pointsOfInterestCache.putAll(Config.getAllPointsOfInterest());
 	}
 	
 	public Location(double latitude, double longitude, int block) {
@@ -186,11 +197,12 @@ public class Location {
 	 */
 	public static Location getRandomLocation() {
 		// Use the persistent defaultRandom instance so each call generates a DIFFERENT location
+		Settings settings = settings();
 		while (true) {
-			double randLat = minLat + defaultRandom.nextDouble() * (maxLat - minLat);
-			double randLon = minLon + defaultRandom.nextDouble() * (maxLon - minLon);
+			double randLat = settings.minLat + settings.defaultRandom.nextDouble() * (settings.maxLat - settings.minLat);
+			double randLon = settings.minLon + settings.defaultRandom.nextDouble() * (settings.maxLon - settings.minLon);
 
-			if (isPointInPolygon(randLat, randLon, BOUNDARY)) {
+			if (isPointInPolygon(randLat, randLon, settings.BOUNDARY)) {
 				return new Location(randLat, randLon, -1);
 			}
 		}
@@ -209,10 +221,11 @@ public class Location {
 	public static Location getRandomLocationWithinRadius(double centerLat, double centerLon, double radiusInMeters) {
 		// Use the persistent defaultRandom instance so each call generates a DIFFERENT location
 		final double radiusInDegrees = radiusInMeters / 111_000.0;
+		Settings settings = settings();
 
 		while (true) {
-			double distance = radiusInDegrees * Math.sqrt(defaultRandom.nextDouble());
-			double angle = defaultRandom.nextDouble() * 2 * Math.PI;
+			double distance = radiusInDegrees * Math.sqrt(settings.defaultRandom.nextDouble());
+			double angle = settings.defaultRandom.nextDouble() * 2 * Math.PI;
 
 			// Offset from center point
 			double offsetLat = distance * Math.cos(angle);
@@ -221,7 +234,7 @@ public class Location {
 			double newLat = centerLat + offsetLat;
 			double newLon = centerLon + offsetLon;
 
-			if (isPointInPolygon(newLat, newLon, BOUNDARY)) {
+			if (isPointInPolygon(newLat, newLon, settings.BOUNDARY)) {
 				return new Location(newLat, newLon, -1);
 			}
 		}
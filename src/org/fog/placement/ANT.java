@@ -17,14 +17,10 @@ public class ANT {
     // Current node
     private int currentNode;
 
-    // Current edge entity
-    private SPPHeuristic.DeviceState fogDevice;
-
     public ANT(int size) {
         this.memories = new ANTMemory[size];
         this.superior = false;
         this.currentNode = -1;
-        this.fogDevice = null;
     }
 
     public ANTMemory[] getMemories() {
@@ -59,12 +55,4 @@ public class ANT {
         this.currentNode = -1;
         this.superior = false;
     }
-
-    public SPPHeuristic.DeviceState getFogDevice() {
-        return fogDevice;
-    }
-
-    public void setFogDevice(SPPHeuristic.DeviceState fogDevice) {
-        this.fogDevice = fogDevice;
-    }
 }
\ No newline at end of file
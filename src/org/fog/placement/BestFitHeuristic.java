@@ -1,7 +1,6 @@
 package org.fog.placement;
 
 import org.cloudbus.cloudsim.core.CloudSim;
-import org.fog.application.AppModule;
 import org.fog.application.Application;
 import org.fog.entities.FogDevice;
 import org.fog.entities.ContextPlacementRequest;
@@ -23,7 +22,9 @@ public class BestFitHeuristic extends SPPHeuristic implements MicroservicePlacem
         super(fonID);
     }
 
-    private List<DeviceState> DeviceStates = new ArrayList<>();
+    private DeviceStateArrays DeviceStates;
+    // Orders DeviceStates by utilisation; every allocation goes through it
+    private FreeCapacityIndex capacityIndex;
 
     @Override
     public void postProcessing() {
@@ -39,11 +40,13 @@ public class BestFitHeuristic extends SPPHeuristic implements MicroservicePlacem
             placementCompleteCount = fillToPlace(placementCompleteCount, toPlace, placementRequests);
         }
 
-        DeviceStates = new ArrayList<>();
+        List<DeviceState> states = new ArrayList<>();
         for (FogDevice fogDevice : edgeFogDevices) {
-            DeviceStates.add(new DeviceState(fogDevice.getId(), resourceAvailability.get(fogDevice.getId()),
+            states.add(new DeviceState(fogDevice.getId(), resourceAvailability.get(fogDevice.getId()),
                     fogDevice.getHost().getTotalMips(), fogDevice.getHost().getRam(), fogDevice.getHost().getStorage()));
         }
+        DeviceStates = new DeviceStateArrays(states);
+        capacityIndex = new FreeCapacityIndex(DeviceStates);
 
         Map<PlacementRequest, Integer> prStatus = new LinkedHashMap<>();
         // Process every PR individually
@@ -63,7 +66,7 @@ public class BestFitHeuristic extends SPPHeuristic implements MicroservicePlacem
 
     @Override
     protected List<DeviceState> getCurrentDeviceStates() {
-        return DeviceStates;
+        return DeviceStates != null ? DeviceStates.toDeviceStates() : new ArrayList<>();
     }
 
     @Override
@@ -72,30 +75,26 @@ public class BestFitHeuristic extends SPPHeuristic implements MicroservicePlacem
         for (int i = 0 ; i < microservices.size() ; i++) {
             placed[i] = -1;
         }
+        int[] services = getServices(microservices, app);
 
         for (int j = 0 ; j < microservices.size() ; j++) {
             String s = microservices.get(j);
-            AppModule service = getModule(s, app);
-            Collections.sort(DeviceStates);
-
-            if (!DeviceStates.get(0).canFit(service.getMips(), service.getRam(), service.getSize())) {
+            double cpu = problem.getCpu(services[j]);
+            double ram = problem.getRam(services[j]);
+            double storage = problem.getStorage(services[j]);
+            // The first fitting node in DeviceState order, i.e. the least utilised one
+            int least = capacityIndex.least();
+            int best = capacityIndex.leastUtilisedFitting(cpu, ram, storage);
+
+            if (least < 0 || !DeviceStates.canFit(least, cpu, ram, storage)) {
                 Logger.error("Simulation CPU limitation problem", "FogDevices have no CPU! Check DeviceStates.");
             }
 
-            for (int i = 0; i < DeviceStates.size(); i++) {
-                // Try to place
-                if (DeviceStates.get(i).canFit(service.getMips(), service.getRam(), service.getSize())) {
-
-                    DeviceStates.get(i).allocate(service.getMips(), service.getRam(), service.getSize());
-//                    addToCpu.accept(getModule(microservice, app).getMips());
-//                    addToRam.accept(getModule(microservice, app).getRam());
-//                    addToStorage.accept(getModule(microservice, app).getSize());
-//                    markAsPlaced.accept(microservice);
-
-                    // Update temporary state
-                    placed[j]  = DeviceStates.get(i).getId();
-                    break;
-                }
+            // Try to place
+            if (best >= 0) {
+                capacityIndex.allocate(best, cpu, ram, storage);
+                // Update temporary state
+                placed[j] = DeviceStates.getId(best);
             }
 
             if (placed[j] < 0) {
@@ -109,18 +108,10 @@ public class BestFitHeuristic extends SPPHeuristic implements MicroservicePlacem
                 // Undo every "placement" recorded in placed. Only deviceStates was changed, so we change it back
                 for (int i = 0 ; i < placed.length ; i++) {
                     int deviceId = placed[i];
-                    String microservice = microservices.get(i);
                     if (deviceId != -1) {
-                        DeviceState targetDeviceState = null;
-                        for (DeviceState DeviceState : DeviceStates) {
-                            if (DeviceState.getId() == deviceId) {
-                                targetDeviceState = DeviceState;
-                                break;
-                            }
-                        }
-                        assert targetDeviceState != null;
-                        AppModule placedService = getModule(microservice, app);
-                        targetDeviceState.deallocate(placedService.getMips(), placedService.getRam(), placedService.getSize());
+                        int target = DeviceStates.indexOf(deviceId);
+                        assert target >= 0;
+                        capacityIndex.deallocate(target, problem.getCpu(services[i]), problem.getRam(services[i]), problem.getStorage(services[i]));
                     }
                 }
                 break;
@@ -146,7 +137,7 @@ public class BestFitHeuristic extends SPPHeuristic implements MicroservicePlacem
             
             for (int i = 0 ; i < microservices.size(); i++) {
                 String s = microservices.get(i);
-                AppModule service = getModule(s, app);
+                double cpu = problem.getCpu(services[i]);
                 int deviceId = placed[i];
 
                 Logger.debug("Placement Success", String.format("Operator %s on device %s, Device id: %d, sensorId: %d, prIndex: %d%n",
@@ -165,9 +156,9 @@ public class BestFitHeuristic extends SPPHeuristic implements MicroservicePlacem
 
                 //currentModuleLoad
                 if (!currentModuleLoadMap.get(deviceId).containsKey(s))
-                    currentModuleLoadMap.get(deviceId).put(s, service.getMips());
+                    currentModuleLoadMap.get(deviceId).put(s, cpu);
                 else
-                    currentModuleLoadMap.get(deviceId).put(s, service.getMips() + currentModuleLoadMap.get(deviceId).get(s)); // todo Simon says isn't this already vertical scaling? But is on PR side not FogDevice side
+                    currentModuleLoadMap.get(deviceId).put(s, cpu + currentModuleLoadMap.get(deviceId).get(s)); // todo Simon says isn't this already vertical scaling? But is on PR side not FogDevice side
 
                 //currentModuleInstance
                 if (!currentModuleInstanceNum.get(deviceId).containsKey(s))
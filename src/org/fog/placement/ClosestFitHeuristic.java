@@ -1,7 +1,6 @@
 package org.fog.placement;
 
 import org.cloudbus.cloudsim.core.CloudSim;
-import org.fog.application.AppModule;
 import org.fog.application.Application;
 import org.fog.entities.FogDevice;
 import org.fog.entities.PlacementRequest;
@@ -23,9 +22,11 @@ public class ClosestFitHeuristic extends SPPHeuristic implements MicroservicePla
         super(fonID);
     }
 
-    // Add DeviceStates field to match other implementations
-    private List<DeviceState> DeviceStates = new ArrayList<>();
-    private Map<Integer, DeviceState> deviceStateMap = new LinkedHashMap<>();
+    // Ordered like edgeFogDevices
+    private DeviceStateArrays DeviceStates;
+    // Per request receiving node (device id): the indices in DeviceStates of all the nodes, closest first.
+    //  Built once per placement cycle, when the first PR of the receiver is placed
+    private Map<Integer, int[]> candidatesByReceiver = new HashMap<>();
 
     @Override
     public void postProcessing() {
@@ -46,19 +47,18 @@ public class ClosestFitHeuristic extends SPPHeuristic implements MicroservicePla
         }
 
         // Initialize DeviceStates similar to other implementations
-        DeviceStates = new ArrayList<>();
-        deviceStateMap = new LinkedHashMap<>();
+        List<DeviceState> states = new ArrayList<>();
         for (FogDevice fogDevice : edgeFogDevices) {
-            DeviceState state = new DeviceState(
+            states.add(new DeviceState(
                 fogDevice.getId(), 
                 resourceAvailability.get(fogDevice.getId()),
                 fogDevice.getHost().getTotalMips(), 
                 fogDevice.getHost().getRam(), 
                 fogDevice.getHost().getStorage()
-            );
-            DeviceStates.add(state);
-            deviceStateMap.put(fogDevice.getId(), state);
+            ));
         }
+        DeviceStates = new DeviceStateArrays(states);
+        candidatesByReceiver = new HashMap<>();
 
         Map<PlacementRequest, Integer> prStatus = new LinkedHashMap<>();
         // Process every PR individually
@@ -75,42 +75,64 @@ public class ClosestFitHeuristic extends SPPHeuristic implements MicroservicePla
         return prStatus;
     }
 
+    /**
+     * The nodes to try for the PRs of a request receiving node, closest first. They are the same
+     * for all the PRs the node receives in a cycle, so they are sorted once.
+     *
+     * @param receiverId Id of the request receiving node
+     * @return Indices in DeviceStates
+     */
+    private int[] getCandidates(int receiverId) {
+        int[] candidates = candidatesByReceiver.get(receiverId);
+        if (candidates == null) {
+            FogDevice closestFogDevice = getDevice(receiverId);
+            List<RelativeLatencyDeviceState> nodes = new ArrayList<>();
+            for (FogDevice fogDevice : edgeFogDevices) {
+                nodes.add(new RelativeLatencyDeviceState(fogDevice, closestFogDevice));
+            }
+            Integer[] order = new Integer[nodes.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (i, j) -> nodes.get(i).compareTo(nodes.get(j)));
+            candidates = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                candidates[i] = order[i];
+            }
+            candidatesByReceiver.put(receiverId, candidates);
+        }
+        return candidates;
+    }
+
     @Override
     protected List<DeviceState> getCurrentDeviceStates() {
-        return new ArrayList<>(deviceStateMap.values());
+        return DeviceStates != null ? DeviceStates.toDeviceStates() : new ArrayList<>();
     }
 
     @Override
     protected int doTryPlacingOnePr(List<String> microservices, Application app, PlacementRequest placementRequest) {
 
-        // The closest node changes with every PR
-        // Hence `nodes` needs to be remade repeatedly
-        List<RelativeLatencyDeviceState> nodes = new ArrayList<>();
-        FogDevice closestFogDevice = getDevice(closestNodes.get(placementRequest));
-
-        for (FogDevice fogDevice : edgeFogDevices) {
-            nodes.add(new RelativeLatencyDeviceState(fogDevice, closestFogDevice, globalLatencies));
-        }
-
-        Collections.sort(nodes);
+        // The closest node changes with every PR, but PRs from the same node share their candidates
+        int[] candidates = getCandidates(closestNodes.get(placementRequest));
 
         // Initialize temporary state
         int[] placed = new int[microservices.size()];
         for (int j = 0 ; j < microservices.size() ; j++) {
             placed[j] = -1;
         }
+        int[] services = getServices(microservices, app);
 
 
         for (int j = 0 ; j < microservices.size() ; j++) {
             String s = microservices.get(j);
-            AppModule service = getModule(s, app);
-
-            for (int i = 0; i < nodes.size(); i++) {
-                int deviceId = nodes.get(i).fogDevice.getId();
-                DeviceState deviceState = deviceStateMap.get(deviceId);
-                if (deviceState.canFit(service.getMips(), service.getRam(), service.getSize())) {
-                    deviceState.allocate(service.getMips(), service.getRam(), service.getSize());
-                    placed[j] = deviceId;
+            double cpu = problem.getCpu(services[j]);
+            double ram = problem.getRam(services[j]);
+            double storage = problem.getStorage(services[j]);
+
+            for (int node : candidates) {
+                if (DeviceStates.canFit(node, cpu, ram, storage)) {
+                    DeviceStates.allocate(node, cpu, ram, storage);
+                    placed[j] = DeviceStates.getId(node);
                     break;
                 }
             }
@@ -127,12 +149,10 @@ public class ClosestFitHeuristic extends SPPHeuristic implements MicroservicePla
                 for (int i = 0 ; i < placed.length ; i++) {
                     int deviceId = placed[i];
                     if (deviceId != -1) {
-                        String microservice = microservices.get(i);
-                        AppModule placedService = getModule(microservice, app);
-                        deviceStateMap.get(deviceId).deallocate(
-                            placedService.getMips(), 
-                            placedService.getRam(), 
-                            placedService.getSize()
+                        DeviceStates.deallocate(DeviceStates.indexOf(deviceId),
+                            problem.getCpu(services[i]), 
+                            problem.getRam(services[i]), 
+                            problem.getStorage(services[i])
                         );
                     }
                 }
@@ -159,7 +179,7 @@ public class ClosestFitHeuristic extends SPPHeuristic implements MicroservicePla
             
             for (int i = 0 ; i < microservices.size(); i++) {
                 String s = microservices.get(i);
-                AppModule service = getModule(s, app);
+                double cpu = problem.getCpu(services[i]);
                 int deviceId = placed[i];
 
                 System.out.printf("Placement of operator %s on device %s successful. Device id: %d, sensorId: %d, prIndex: %d%n",
@@ -169,24 +189,7 @@ public class ClosestFitHeuristic extends SPPHeuristic implements MicroservicePla
                         placementRequest.getSensorId(),
                         ((ContextPlacementRequest) placementRequest).getPrIndex());
 
-                moduleToApp.put(s, app.getAppId());
-
-                if (!currentModuleMap.get(deviceId).contains(s))
-                    currentModuleMap.get(deviceId).add(s);
-
-                mappedMicroservices.get(prKey).put(s, deviceId);
-
-                //currentModuleLoad
-                if (!currentModuleLoadMap.get(deviceId).containsKey(s))
-                    currentModuleLoadMap.get(deviceId).put(s, service.getMips());
-                else
-                    currentModuleLoadMap.get(deviceId).put(s, service.getMips() + currentModuleLoadMap.get(deviceId).get(s));
-
-                //currentModuleInstance
-                if (!currentModuleInstanceNum.get(deviceId).containsKey(s))
-                    currentModuleInstanceNum.get(deviceId).put(s, 1);
-                else
-                    currentModuleInstanceNum.get(deviceId).put(s, currentModuleInstanceNum.get(deviceId).get(s) + 1);
+                recordPlacement(prKey, s, app, deviceId, cpu);
             }
         }
 
@@ -393,7 +393,7 @@ public class ClusteringController extends SimEntity {
     }
 
     public void submitApplication(Application application, int delay, ModulePlacement modulePlacement) {
-        FogUtils.appIdToGeoCoverageMap.put(application.getAppId(), application.getGeoCoverage());
+        FogUtils.getAppIdToGeoCoverageMap().put(application.getAppId(), application.getGeoCoverage());
         getApplications().put(application.getAppId(), application);
         getAppLaunchDelays().put(application.getAppId(), delay);
         getAppModulePlacementPolicy().put(application.getAppId(), modulePlacement);
@@ -428,7 +428,7 @@ public class ClusteringController extends SimEntity {
 
     private void processAppSubmit(Application application) {
         System.out.println(CloudSim.clock() + " Submitted application " + application.getAppId());
-        FogUtils.appIdToGeoCoverageMap.put(application.getAppId(), application.getGeoCoverage());
+        FogUtils.getAppIdToGeoCoverageMap().put(application.getAppId(), application.getGeoCoverage());
         getApplications().put(application.getAppId(), application);
 
         ModulePlacement modulePlacement = getAppModulePlacementPolicy().get(application.getAppId());
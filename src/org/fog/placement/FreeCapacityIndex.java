@@ -0,0 +1,207 @@
+package org.fog.placement;
+
+import java.util.SplittableRandom;
+
+/**
+ * Index of the nodes of a {@link SPPHeuristic.DeviceStateArrays} in
+ * {@link SPPHeuristic.DeviceStateArrays#compare(int, int)} order (least utilised first), to find the
+ * least or most utilised node that fits a microservice without scanning every node.
+ * <p>
+ * The nodes are kept in a treap whose subtrees also hold the largest free CPU, RAM and storage of
+ * their nodes. A search skips the subtrees where one of them is too small, so it usually takes
+ * logarithmic time. Resources must be allocated and deallocated through the index, which moves
+ * the node to its new position.
+ */
+public class FreeCapacityIndex {
+
+    private static final int NONE = -1;
+
+    private final SPPHeuristic.DeviceStateArrays states;
+
+    // Per node: its children in the treap and its heap priority
+    private final int[] left;
+    private final int[] right;
+    private final int[] priority;
+    // Per node: the largest free resources of its subtree
+    private final double[] maxCpu;
+    private final double[] maxRam;
+    private final double[] maxStorage;
+    private int root = NONE;
+    // Roots of the nodes before and after the key node, set by split
+    private int splitLeft;
+    private int splitRight;
+
+    /**
+     * @param states the nodes to index, whose resources are then changed through the index only
+     */
+    public FreeCapacityIndex(SPPHeuristic.DeviceStateArrays states) {
+        this.states = states;
+        int size = states.size();
+        left = new int[size];
+        right = new int[size];
+        priority = new int[size];
+        maxCpu = new double[size];
+        maxRam = new double[size];
+        maxStorage = new double[size];
+        // Fixed seed: the shape of the treap, not the result of a search, depends on it
+        SplittableRandom random = new SplittableRandom(size);
+        for (int i = 0; i < size; i++) {
+            left[i] = NONE;
+            right[i] = NONE;
+            priority[i] = random.nextInt();
+            root = insert(root, i);
+        }
+    }
+
+    public SPPHeuristic.DeviceStateArrays getStates() {
+        return states;
+    }
+
+    /** @return the least utilised node, or -1 if there is none */
+    public int least() {
+        int t = root;
+        if (t == NONE) return NONE;
+        while (left[t] != NONE) t = left[t];
+        return t;
+    }
+
+    /** @return the least utilised node that fits the resources, or -1 */
+    public int leastUtilisedFitting(double cpu, double ram, double storage) {
+        return first(root, cpu, ram, storage);
+    }
+
+    /** @return the most utilised node that fits the resources, or -1 */
+    public int mostUtilisedFitting(double cpu, double ram, double storage) {
+        return last(root, cpu, ram, storage);
+    }
+
+    public void allocate(int index, double cpu, double ram, double storage) {
+        root = remove(root, index);
+        states.allocate(index, cpu, ram, storage);
+        root = insert(root, index);
+    }
+
+    public void deallocate(int index, double cpu, double ram, double storage) {
+        root = remove(root, index);
+        states.deallocate(index, cpu, ram, storage);
+        root = insert(root, index);
+    }
+
+    /* ---------- searches ---------- */
+
+    private boolean mayFit(int t, double cpu, double ram, double storage) {
+        return t != NONE && maxCpu[t] >= cpu && maxRam[t] >= ram && maxStorage[t] >= storage;
+    }
+
+    private int first(int t, double cpu, double ram, double storage) {
+        if (!mayFit(t, cpu, ram, storage)) return NONE;
+        int found = first(left[t], cpu, ram, storage);
+        if (found != NONE) return found;
+        if (states.canFit(t, cpu, ram, storage)) return t;
+        return first(right[t], cpu, ram, storage);
+    }
+
+    private int last(int t, double cpu, double ram, double storage) {
+        if (!mayFit(t, cpu, ram, storage)) return NONE;
+        int found = last(right[t], cpu, ram, storage);
+        if (found != NONE) return found;
+        if (states.canFit(t, cpu, ram, storage)) return t;
+        return last(left[t], cpu, ram, storage);
+    }
+
+    /* ---------- treap ---------- */
+
+    private void update(int t) {
+        double cpu = states.getCPU(t);
+        double ram = states.getRAM(t);
+        double storage = states.getStorage(t);
+        int l = left[t];
+        if (l != NONE) {
+            cpu = Math.max(cpu, maxCpu[l]);
+            ram = Math.max(ram, maxRam[l]);
+            storage = Math.max(storage, maxStorage[l]);
+        }
+        int r = right[t];
+        if (r != NONE) {
+            cpu = Math.max(cpu, maxCpu[r]);
+            ram = Math.max(ram, maxRam[r]);
+            storage = Math.max(storage, maxStorage[r]);
+        }
+        maxCpu[t] = cpu;
+        maxRam[t] = ram;
+        maxStorage[t] = storage;
+    }
+
+    private int insert(int t, int node) {
+        if (t == NONE) {
+            left[node] = NONE;
+            right[node] = NONE;
+            update(node);
+            return node;
+        }
+        if (priority[node] > priority[t]) {
+            // node becomes the root of this subtree: split the subtree around it
+            split(t, node);
+            left[node] = splitLeft;
+            right[node] = splitRight;
+            update(node);
+            return node;
+        }
+        if (states.compare(node, t) < 0) {
+            left[t] = insert(left[t], node);
+        } else {
+            right[t] = insert(right[t], node);
+        }
+        update(t);
+        return t;
+    }
+
+    /** Splits a subtree into the nodes before and after the key node, in splitLeft and splitRight */
+    private void split(int t, int key) {
+        if (t == NONE) {
+            splitLeft = NONE;
+            splitRight = NONE;
+            return;
+        }
+        if (states.compare(t, key) < 0) {
+            split(right[t], key);
+            right[t] = splitLeft;
+            update(t);
+            splitLeft = t;
+            return;
+        }
+        split(left[t], key);
+        left[t] = splitRight;
+        update(t);
+        splitRight = t;
+    }
+
+    private int merge(int a, int b) {
+        if (a == NONE) return b;
+        if (b == NONE) return a;
+        if (priority[a] > priority[b]) {
+            right[a] = merge(right[a], b);
+            update(a);
+            return a;
+        }
+        left[b] = merge(a, left[b]);
+        update(b);
+        return b;
+    }
+
+    private int remove(int t, int node) {
+        if (t == NONE) {
+            throw new IllegalStateException("Node " + node + " is not in the index");
+        }
+        if (t == node) {
+            return merge(left[t], right[t]);
+        }
+        if (states.compare(node, t) < 0) {
+            left[t] = remove(left[t], node);
+        } else {
+            right[t] = remove(right[t], node);
+        }
+        update(t);
+        return t;
+    }
+}
@@ -1,26 +1,38 @@
 package org.fog.placement;
 
 import org.cloudbus.cloudsim.core.CloudSim;
-import org.fog.application.AppModule;
 import org.fog.application.Application;
 import org.fog.entities.FogDevice;
 import org.fog.entities.PlacementRequest;
 import org.fog.entities.ContextPlacementRequest;
 import org.fog.utils.Logger;
+import org.fog.utils.MicroservicePlacementConfig;
+import org.fog.utils.SPPMonitor;
 
 import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Instance;
 import org.btrplace.model.Mapping;
 import org.btrplace.model.Model;
 import org.btrplace.model.Node;
 import org.btrplace.model.VM;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.model.constraint.OptConstraint;
 import org.btrplace.model.constraint.Running;
 import org.btrplace.model.constraint.SatConstraint;
 import org.btrplace.model.view.ShareableResource;
 import org.btrplace.plan.ReconfigurationPlan;
 import org.btrplace.scheduler.choco.ChocoScheduler;
 import org.btrplace.scheduler.choco.DefaultChocoScheduler;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.btrplace.scheduler.choco.constraint.CObjective;
+import org.btrplace.scheduler.choco.constraint.mttr.CMinMTTR;
+import org.chocosolver.solver.variables.IntVar;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class ILPHeuristic extends SPPHeuristic implements MicroservicePlacementLogic {
     /**
@@ -29,6 +41,28 @@ public class ILPHeuristic extends SPPHeuristic implements MicroservicePlacementL
 
     private List<DeviceState> DeviceStates = new ArrayList<>();
 
+    /**
+     * btrplace model of the edge nodes, built once per placement cycle. Between PRs only the
+     * capacities of the nodes whose device got resources allocated and the VMs of the PR change.
+     * Node ids are the indices in DeviceStates.
+     */
+    private Model model;
+    private ShareableResource rcCPU;
+    private ShareableResource rcMem;
+    private Node[] nodes;
+    // Nodes whose capacities no longer match the free resources of their device
+    private final BitSet staleNodes = new BitSet();
+    // Solver of the per-PR problems without a portfolio, configured once per placement cycle
+    private ChocoScheduler scheduler;
+
+    // Runs the solvers of a portfolio; shared by all the simulations
+    private static final ExecutorService PORTFOLIO_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "ilp_portfolio");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final SolverPortfolio PORTFOLIO = new SolverPortfolio(PORTFOLIO_EXECUTOR);
+
     @Override
     public String getName() {
         return "ILP";
@@ -58,10 +92,21 @@ public class ILPHeuristic extends SPPHeuristic implements MicroservicePlacementL
                     fogDevice.getHost().getTotalMips(), fogDevice.getHost().getRam(), fogDevice.getHost().getStorage()));
         }
 
+        buildModel();
+        scheduler = newScheduler(0, MicroservicePlacementConfig.ILP_TIME_LIMIT);
+
+        // In batch mode, place the whole cycle at once first
+        Set<PlacementRequest> placedJointly = MicroservicePlacementConfig.BATCH_PLACEMENT && !toPlace.isEmpty()
+                ? placeJointly(toPlace) : Collections.emptySet();
+
         Map<PlacementRequest, Integer> prStatus = new LinkedHashMap<>();
         // Process every PR individually
         for (Map.Entry<PlacementRequest, List<String>> entry : toPlace.entrySet()) {
             PlacementRequest placementRequest = entry.getKey();
+            if (placedJointly.contains(placementRequest)) {
+                prStatus.put(placementRequest, -1);
+                continue;
+            }
             Application app = applicationInfo.get(placementRequest.getApplicationId());
             List<String> microservices = entry.getValue();
             // -1 if success, cloudId if failure
@@ -70,59 +115,310 @@ public class ILPHeuristic extends SPPHeuristic implements MicroservicePlacementL
             int status = processOnePr(microservices, app, placementRequest);
             prStatus.put(placementRequest, status);
         }
+
+        // Nothing of the solver is kept between cycles
+        model = null;
+        rcCPU = null;
+        rcMem = null;
+        nodes = null;
+        scheduler = null;
         return prStatus;
     }
 
-    @Override
-    protected List<DeviceState> getCurrentDeviceStates() {
-        return DeviceStates; // Already has DeviceStates field
-    }
+    /**
+     * Places all the PRs of the placement cycle with one btrplace model, so that they get the
+     * devices jointly instead of first come, first served. The model minimises the total latency
+     * of the chains of microservices from the request receivers ({@link MinLatency}). A solution
+     * found before the solver hits {@link MicroservicePlacementConfig#BATCH_TIME_BUDGET} is
+     * optimal; otherwise its gap is measured against
+     * {@link #chainLatencyLowerBound(int[], int[], DeviceStateArrays, int[])}. If none is found,
+     * no PR is placed and the cycle falls back to placing them one by one.
+     *
+     * @param toPlace The microservices to place, per PR
+     * @return The PRs placed
+     */
+    private Set<PlacementRequest> placeJointly(Map<PlacementRequest, List<String>> toPlace) {
+        long start = System.nanoTime();
 
-    @Override
-    protected int doTryPlacingOnePr(List<String> microservices, Application app, PlacementRequest placementRequest) {
+        refreshCapacities();
+        int[] serverIndices = new int[DeviceStates.size()];
+        for (int i = 0; i < serverIndices.length; i++) {
+            serverIndices[i] = problem.getDeviceIndex(DeviceStates.get(i).getId());
+        }
+        List<SatConstraint> constraints = new ArrayList<>();
+        MinLatency objective = new MinLatency(nodes, serverIndices, problem);
+        Map<PlacementRequest, int[]> servicesByPr = new HashMap<>();
+        Map<PlacementRequest, List<VM>> vmsByPr = new HashMap<>();
+        List<VM> allVms = new ArrayList<>();
+        List<Integer> allServices = new ArrayList<>();
+        List<Integer> sourceIndices = new ArrayList<>();
+        for (Map.Entry<PlacementRequest, List<String>> entry : toPlace.entrySet()) {
+            Application app = applicationInfo.get(entry.getKey().getApplicationId());
+            int[] services = getServices(entry.getValue(), app);
+            List<VM> vms = addVMs(services, constraints);
+            // Each PR starts from its request receiver
+            int receiverIndex = problem.getDeviceIndex(closestNodes.get(entry.getKey()));
+            for (int j = 0; j < vms.size(); j++) {
+                objective.add(vms.get(j), j == 0 ? receiverIndex : -1);
+                allServices.add(services[j]);
+                sourceIndices.add(j == 0 ? receiverIndex : -1);
+            }
+            servicesByPr.put(entry.getKey(), services);
+            vmsByPr.put(entry.getKey(), vms);
+            allVms.addAll(vms);
+        }
+        // Before the solution takes any resources
+        double bound = chainLatencyLowerBound(allServices.stream().mapToInt(Integer::intValue).toArray(),
+                sourceIndices.stream().mapToInt(Integer::intValue).toArray(),
+                new DeviceStateArrays(DeviceStates), serverIndices);
+
+        int timeLimit = Math.max(1, (int) Math.ceil(MicroservicePlacementConfig.BATCH_TIME_BUDGET));
+        ReconfigurationPlan plan = solve(newScheduler(0, timeLimit), constraints, objective, timeLimit);
+        double solveTimeMs = (System.nanoTime() - start) / 1e6;
+        boolean timedOut = solveTimeMs >= timeLimit * 1000.0;
+        removeVMs(allVms);
+
+        Set<PlacementRequest> placedPrs = new HashSet<>();
+        if (plan == null) {
+            String status = timedOut ? "TIMEOUT" : "INFEASIBLE";
+            Logger.debug("Batch Placement", status + " for " + toPlace.size() + " PRs, placing them one by one");
+            SPPMonitor.getInstance().recordSolve(getName(), "CYCLE", toPlace.size(), 0, solveTimeMs, Double.NaN, status);
+            return placedPrs;
+        }
 
-        int containers = microservices.size();
+        Mapping result = plan.getResult().getMapping();
+        double latency = 0;
+        for (Map.Entry<PlacementRequest, List<String>> entry : toPlace.entrySet()) {
+            PlacementRequest placementRequest = entry.getKey();
+            Application app = applicationInfo.get(placementRequest.getApplicationId());
+            List<String> microservices = entry.getValue();
+            int[] services = servicesByPr.get(placementRequest);
+            List<VM> vms = vmsByPr.get(placementRequest);
+
+            // Storage is not part of the model, so the solution is checked like in the per-PR path
+            int[] nodeIndices = new int[services.length];
+            int[] placed = new int[services.length];
+            int count = 0;
+            int from = problem.getDeviceIndex(closestNodes.get(placementRequest));
+            for (; count < services.length; count++) {
+                int service = services[count];
+                nodeIndices[count] = result.getVMLocation(vms.get(count)).id();
+                DeviceState node = DeviceStates.get(nodeIndices[count]);
+                latency += problem.getLatency(from, serverIndices[nodeIndices[count]]);
+                from = serverIndices[nodeIndices[count]];
+                if (!node.canFit(problem.getCpu(service), problem.getRam(service), problem.getStorage(service))) {
+                    break;
+                }
+                node.allocate(problem.getCpu(service), problem.getRam(service), problem.getStorage(service));
+                staleNodes.set(nodeIndices[count]);
+                placed[count] = node.getId();
+            }
+            if (count < services.length) {
+                // Left to the per-PR path
+                for (int j = 0; j < count; j++) {
+                    DeviceStates.get(nodeIndices[j]).deallocate(problem.getCpu(services[j]), problem.getRam(services[j]), problem.getStorage(services[j]));
+                }
+                continue;
+            }
+            commitPlacement(microservices, services, app, placementRequest, placed);
+            captureResourceMetricsAfterSuccessfulPlacement(placementRequest, getCurrentDeviceStates(), CloudSim.clock());
+            placedPrs.add(placementRequest);
+        }
 
-        List<VM> vms = new ArrayList<>();
-        Model model = new DefaultModel();
+        if (placedPrs.size() < toPlace.size()) {
+            SPPMonitor.getInstance().recordSolve(getName(), "CYCLE", toPlace.size(), placedPrs.size(), solveTimeMs,
+                    Double.NaN, "PARTIAL");
+        } else if (!timedOut) {
+            // The search finished, so the solution is optimal
+            SPPMonitor.getInstance().recordSolve(getName(), "CYCLE", toPlace.size(), placedPrs.size(), solveTimeMs,
+                    0.0, "SOLVED");
+        } else {
+            double gap = latency > 0 ? (latency - bound) / latency : 0.0;
+            SPPMonitor.getInstance().recordSolve(getName(), "CYCLE", toPlace.size(), placedPrs.size(), solveTimeMs,
+                    gap, "FEASIBLE");
+        }
+        return placedPrs;
+    }
+
+    /**
+     * Builds the model of the placement cycle: a node per device of DeviceStates, with the free
+     * CPU and RAM of the device as capacities.
+     */
+    private void buildModel() {
+        model = new DefaultModel();
+        rcCPU = new ShareableResource("cpu");
+        rcMem = new ShareableResource("mem");
+        nodes = new Node[DeviceStates.size()];
         Mapping map = model.getMapping();
+        for (int i = 0; i < DeviceStates.size(); i++) {
+            nodes[i] = model.newNode();
+            map.addOnlineNode(nodes[i]);
+            setCapacities(i);
+        }
+        staleNodes.clear();
 
-        ShareableResource rcCPU = new ShareableResource("cpu");
-        ShareableResource rcMem = new ShareableResource("mem");
+        //Attach the resources
+        model.attach(rcCPU);
+        model.attach(rcMem);
+    }
 
-        for (int i = 0; i < DeviceStates.size(); i++) {
-            Node n = model.newNode();
-            int cpu = (int) DeviceStates.get(i).getCPU();
-            int ram = (int) DeviceStates.get(i).getRAM();
-            rcCPU.setCapacity(n, cpu <= 0 ? 1: cpu);
-            rcMem.setCapacity(n, ram <= 0 ? 1: ram);
-            map.addOnlineNode(n);
+    private void setCapacities(int nodeIndex) {
+        int cpu = (int) DeviceStates.get(nodeIndex).getCPU();
+        int ram = (int) DeviceStates.get(nodeIndex).getRAM();
+        rcCPU.setCapacity(nodes[nodeIndex], cpu <= 0 ? 1: cpu);
+        rcMem.setCapacity(nodes[nodeIndex], ram <= 0 ? 1: ram);
+    }
+
+    /**
+     * Updates the capacities of the nodes whose device got resources allocated or freed since
+     * the last solve.
+     */
+    private void refreshCapacities() {
+        for (int i = staleNodes.nextSetBit(0); i >= 0; i = staleNodes.nextSetBit(i + 1)) {
+            setCapacities(i);
         }
+        staleNodes.clear();
+    }
 
-        for (int i = 0; i < containers; i++) {
+    /**
+     * Adds a VM per service to the model, each of them required to run somewhere.
+     *
+     * @return The VMs, in the order of the services
+     */
+    private List<VM> addVMs(int[] services, List<SatConstraint> constraints) {
+        List<VM> vms = new ArrayList<>();
+        Mapping map = model.getMapping();
+        for (int service : services) {
             VM v = model.newVM();
-            
-            AppModule service = getModule(microservices.get(i), app);
 
-            rcCPU.setConsumption(v, (int) service.getMips());
-            rcMem.setConsumption(v, (int) service.getRam());
+            rcCPU.setConsumption(v, (int) problem.getCpu(service));
+            rcMem.setConsumption(v, (int) problem.getRam(service));
 
             vms.add(v);
             map.addReadyVM(v);
+            constraints.add(new Running(v));
         }
+        return vms;
+    }
 
-        //Attach the resources
-        model.attach(rcCPU);
-        model.attach(rcMem);
+    /**
+     * Takes the VMs of a solved problem out of the model.
+     */
+    private void removeVMs(List<VM> vms) {
+        Mapping map = model.getMapping();
+        for (VM v : vms) {
+            map.remove(v);
+            rcCPU.unset(v);
+            rcMem.unset(v);
+        }
+    }
 
-        List<SatConstraint> constraints = new ArrayList<>();
+    /**
+     * Creates a solver of a portfolio of {@link MicroservicePlacementConfig#ILP_PORTFOLIO} solvers.
+     * The first one has the default settings; the others try the search with repair and/or
+     * optimisation so that they do not all get stuck on the same problems.
+     *
+     * @param index Index of the solver in the portfolio
+     * @param timeLimit Time limit of a solve in seconds, 0 for none
+     */
+    private static ChocoScheduler newScheduler(int index, int timeLimit) {
+        ChocoScheduler scheduler = new DefaultChocoScheduler();
+        if (index > 0) {
+            scheduler.doRepair(index % 2 == 1);
+            scheduler.doOptimize(index / 2 % 2 == 1);
+        }
+        if (timeLimit > 0) {
+            scheduler.setTimeLimit(timeLimit);
+        }
+        return scheduler;
+    }
+
+    /**
+     * Solves the model with the given constraints. With a portfolio, new solvers race on copies of
+     * the model and the first plan found is used; the others are interrupted, which stops their
+     * search (see {@link #stopOnInterrupt(ReconfigurationProblem)}).
+     *
+     * @param scheduler The solver used without a portfolio
+     * @param objective The latency to minimise, null to take the first solution
+     * @param timeLimit Time limit of a solve in seconds, 0 for none
+     * @return The plan, or null if no solver found one
+     */
+    private ReconfigurationPlan solve(ChocoScheduler scheduler, List<SatConstraint> constraints,
+                                      MinLatency objective, int timeLimit) {
+        int size = MicroservicePlacementConfig.ILP_PORTFOLIO;
+        if (size == 1) {
+            return solveWith(scheduler, model, constraints, objective);
+        }
+        List<Callable<ReconfigurationPlan>> solvers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ChocoScheduler solver = newScheduler(i, timeLimit);
+            Model copy = model.copy();
+            solvers.add(() -> solveWith(solver, copy, constraints, objective));
+        }
+        return PORTFOLIO.race(solvers);
+    }
+
+    /**
+     * Solves a model with one solver, which optimises the objective if there is one. Without
+     * one, the solver uses the btrplace default objective (see {@link CInterruptibleMinMTTR}).
+     */
+    private static ReconfigurationPlan solveWith(ChocoScheduler scheduler, Model model,
+                                                 List<SatConstraint> constraints, MinLatency objective) {
+        if (objective == null) {
+            scheduler.getMapper().mapConstraint(MinMTTR.class, CInterruptibleMinMTTR.class);
+            return scheduler.solve(model, constraints, new MinMTTR());
+        }
+        scheduler.getMapper().mapConstraint(MinLatency.class, CMinLatency.class);
+        scheduler.doOptimize(true);
+        return scheduler.solve(model, constraints, objective);
+    }
+
+    /**
+     * Stops the search of a problem once the thread solving it is interrupted, which choco does
+     * not check by itself.
+     */
+    private static void stopOnInterrupt(ReconfigurationProblem rp) {
+        rp.getSolver().addStopCriterion(() -> Thread.currentThread().isInterrupted());
+    }
+
+    @Override
+    protected List<DeviceState> getCurrentDeviceStates() {
+        return DeviceStates; // Already has DeviceStates field
+    }
 
-        for (int i = 0; i < containers; i++) {
-            constraints.add(new Running(vms.get(i)));
+    @Override
+    protected boolean supportsPlacementCache() {
+        return true;
+    }
+
+    @Override
+    protected boolean allocateCachedPlacement(int[] services, int[] deviceIds) {
+        for (int i = 0; i < services.length; i++) {
+            for (int k = 0; k < DeviceStates.size(); k++) {
+                if (DeviceStates.get(k).getId() == deviceIds[i]) {
+                    DeviceStates.get(k).allocate(problem.getCpu(services[i]), problem.getRam(services[i]), problem.getStorage(services[i]));
+                    // The model gets the new capacity before the next solve
+                    staleNodes.set(k);
+                    break;
+                }
+            }
         }
+        return true;
+    }
 
-        ChocoScheduler ra = new DefaultChocoScheduler();
-        ReconfigurationPlan plan = ra.solve(model, constraints);
+    @Override
+    protected int doTryPlacingOnePr(List<String> microservices, Application app, PlacementRequest placementRequest) {
+
+        int[] services = getServices(microservices, app);
+
+        refreshCapacities();
+        List<SatConstraint> constraints = new ArrayList<>();
+        List<VM> vms = addVMs(services, constraints);
+
+        long start = System.nanoTime();
+        ReconfigurationPlan plan = solve(scheduler, constraints, null, MicroservicePlacementConfig.ILP_TIME_LIMIT);
+        double solveTimeMs = (System.nanoTime() - start) / 1e6;
+        removeVMs(vms);
 
         // Initialize temporary state
         int[] placed = new int[microservices.size()];
@@ -134,10 +430,11 @@ public class ILPHeuristic extends SPPHeuristic implements MicroservicePlacementL
             for (int i = 0; i < plan.getSize(); i++) {
                 int nodeID = plan.getResult().getMapping().getVMLocation(vms.get(i)).id();
                 String s = microservices.get(i);
-                AppModule service = getModule(s, app);
+                int service = services[i];
                 DeviceState node = DeviceStates.get(nodeID);
-                if(DeviceStates.get(nodeID).canFit(service.getMips(), service.getRam(), service.getSize())) {
-                    DeviceStates.get(nodeID).allocate(service.getMips(), service.getRam(), service.getSize());
+                if(DeviceStates.get(nodeID).canFit(problem.getCpu(service), problem.getRam(service), problem.getStorage(service))) {
+                    DeviceStates.get(nodeID).allocate(problem.getCpu(service), problem.getRam(service), problem.getStorage(service));
+                    staleNodes.set(nodeID);
                     placed[i] = node.getId();
                 }
                 if (placed[i] < 0) {
@@ -150,9 +447,7 @@ public class ILPHeuristic extends SPPHeuristic implements MicroservicePlacementL
                     Logger.error("Control Flow Error", "This code should never be reached.");
                     for (int j = 0 ; j < placed.length ; j++) {
                         int placedDeviceId = placed[j];
-                        String microservice = microservices.get(j);
                         if (placedDeviceId != -1) {
-                            AppModule placedService = getModule(microservice, app);
                             int placedDeviceIndex = -1;
                             for (int k = 0 ; k < DeviceStates.size() ; k++) {
                                 if (DeviceStates.get(k).getId() == placedDeviceId) {
@@ -160,7 +455,8 @@ public class ILPHeuristic extends SPPHeuristic implements MicroservicePlacementL
                                 }
                             }
                             assert (placedDeviceIndex >= 0);
-                            DeviceStates.get(placedDeviceIndex).deallocate(placedService.getMips(), placedService.getRam(), placedService.getSize());
+                            DeviceStates.get(placedDeviceIndex).deallocate(problem.getCpu(services[j]), problem.getRam(services[j]), problem.getStorage(services[j]));
+                            staleNodes.set(placedDeviceIndex);
                         }
                     }
                     break;
@@ -178,49 +474,18 @@ public class ILPHeuristic extends SPPHeuristic implements MicroservicePlacementL
             if (p == -1) allPlaced = false;
         }
 
+        String status;
+        if (plan == null) {
+            int timeLimit = MicroservicePlacementConfig.ILP_TIME_LIMIT;
+            status = timeLimit > 0 && solveTimeMs >= timeLimit * 1000.0 ? "TIMEOUT" : "INFEASIBLE";
+        } else {
+            // The model has no latency objective, so the plan is only known to be feasible
+            status = allPlaced ? "FEASIBLE" : "PARTIAL";
+        }
+        SPPMonitor.getInstance().recordSolve(getName(), "PR", 1, allPlaced ? 1 : 0, solveTimeMs, Double.NaN, status);
+
         if (allPlaced) {
-            // Create a key for this placement request
-            PlacementRequestKey prKey = new PlacementRequestKey(
-                placementRequest.getSensorId(), 
-                ((ContextPlacementRequest)placementRequest).getPrIndex()
-            );
-            
-            // Ensure the key exists in mappedMicroservices
-            if (!mappedMicroservices.containsKey(prKey)) {
-                mappedMicroservices.put(prKey, new LinkedHashMap<>());
-            }
-            
-            for (int i = 0 ; i < microservices.size(); i++) {
-                String s = microservices.get(i);
-                AppModule service = getModule(s, app);
-                int deviceId = placed[i];
-
-                System.out.printf("Placement of operator %s on device %s successful. Device id: %d, sensorId: %d, prIndex: %d%n",
-                        s,
-                        CloudSim.getEntityName(deviceId),
-                        deviceId,
-                        placementRequest.getSensorId(),
-                        ((ContextPlacementRequest) placementRequest).getPrIndex());
-
-                moduleToApp.put(s, app.getAppId());
-
-                if (!currentModuleMap.get(deviceId).contains(s))
-                    currentModuleMap.get(deviceId).add(s);
-
-                mappedMicroservices.get(prKey).put(s, deviceId);
-
-                //currentModuleLoad
-                if (!currentModuleLoadMap.get(deviceId).containsKey(s))
-                    currentModuleLoadMap.get(deviceId).put(s, service.getMips());
-                else
-                    currentModuleLoadMap.get(deviceId).put(s, service.getMips() + currentModuleLoadMap.get(deviceId).get(s));
-
-                //currentModuleInstance
-                if (!currentModuleInstanceNum.get(deviceId).containsKey(s))
-                    currentModuleInstanceNum.get(deviceId).put(s, 1);
-                else
-                    currentModuleInstanceNum.get(deviceId).put(s, currentModuleInstanceNum.get(deviceId).get(s) + 1);
-            }
+            commitPlacement(microservices, services, app, placementRequest, placed);
         }
         else {
             System.out.println("Failed placement " + placementRequest.getSensorId());
@@ -229,7 +494,194 @@ public class ILPHeuristic extends SPPHeuristic implements MicroservicePlacementL
         if (allPlaced) return -1;
         else return getFonID();
     }
+
+    /**
+     * Records the placement of every microservice of a PR, whose resources are already allocated
+     * in DeviceStates.
+     *
+     * @param placed The id of the device of every microservice
+     */
+    private void commitPlacement(List<String> microservices, int[] services, Application app,
+                                 PlacementRequest placementRequest, int[] placed) {
+        // Create a key for this placement request
+        PlacementRequestKey prKey = new PlacementRequestKey(
+            placementRequest.getSensorId(), 
+            ((ContextPlacementRequest)placementRequest).getPrIndex()
+        );
+        
+        // Ensure the key exists in mappedMicroservices
+        if (!mappedMicroservices.containsKey(prKey)) {
+            mappedMicroservices.put(prKey, new LinkedHashMap<>());
+        }
+        
+        for (int i = 0 ; i < microservices.size(); i++) {
+            String s = microservices.get(i);
+            int deviceId = placed[i];
+
+            System.out.printf("Placement of operator %s on device %s successful. Device id: %d, sensorId: %d, prIndex: %d%n",
+                    s,
+                    CloudSim.getEntityName(deviceId),
+                    deviceId,
+                    placementRequest.getSensorId(),
+                    ((ContextPlacementRequest) placementRequest).getPrIndex());
+
+            recordPlacement(prKey, s, app, deviceId, problem.getCpu(services[i]));
+        }
+    }
     
+
+    /**
+     * Objective of the joint placement: the total latency of the chains of VMs, each reached
+     * from the request receiver of its PR or from the VM of the previous microservice, in
+     * hundredths of milliseconds. Nodes are connected through the cloud like in
+     * {@link PlacementProblem#getLatency(int, int)}.
+     */
+    public static class MinLatency extends OptConstraint {
+        // Latencies are kept in hundredths of milliseconds in the solver
+        static final double SCALE = 100;
+
+        private final Node[] nodes;
+        // Per node: the latency of its link to the cloud
+        private final int[] cloudLatencies;
+        private final int[] serverIndices;
+        private final PlacementProblem problem;
+        // Per VM: the latency from its request receiver to every node, or null if it follows the previous VM
+        private final List<VM> vms = new ArrayList<>();
+        private final List<int[]> receiverLatencies = new ArrayList<>();
+
+        /**
+         * @param nodes The nodes of the model
+         * @param serverIndices Index in the compiled problem of the device of every node
+         */
+        MinLatency(Node[] nodes, int[] serverIndices, PlacementProblem problem) {
+            this.nodes = nodes;
+            this.serverIndices = serverIndices;
+            this.problem = problem;
+            cloudLatencies = new int[nodes.length];
+            for (int i = 0; i < nodes.length; i++) {
+                cloudLatencies[i] = scale(problem.getCloudLatency(serverIndices[i]));
+            }
+        }
+
+        private static int scale(double latency) {
+            // Devices without a link to the cloud are not made cheaper than the others
+            return (int) Math.round(Math.max(0, latency) * SCALE);
+        }
+
+        /**
+         * Adds the next VM of the objective.
+         *
+         * @param receiverIndex Index in the compiled problem of the request receiver the VM is
+         *                      reached from, or -1 if it is reached from the previous VM
+         */
+        void add(VM vm, int receiverIndex) {
+            int[] fromReceiver = null;
+            if (receiverIndex >= 0) {
+                fromReceiver = new int[nodes.length];
+                for (int i = 0; i < nodes.length; i++) {
+                    fromReceiver[i] = scale(problem.getLatency(receiverIndex, serverIndices[i]));
+                }
+            }
+            vms.add(vm);
+            receiverLatencies.add(fromReceiver);
+        }
+
+        @Override
+        public String id() {
+            return "minLatency";
+        }
+    }
+
+    /**
+     * Choco implementation of {@link MinLatency}: the latency of every VM is looked up from the
+     * node hosting it and the one hosting the previous VM, and their sum is minimised.
+     */
+    public static class CMinLatency implements CObjective {
+        private final MinLatency objective;
+
+        public CMinLatency(MinLatency objective) {
+            this.objective = objective;
+        }
+
+        @Override
+        public boolean inject(Parameters ps, ReconfigurationProblem rp) {
+            org.chocosolver.solver.Model csp = rp.getModel();
+            // Tables are indexed by the node indices of the problem
+            int size = 0;
+            for (Node node : objective.nodes) {
+                size = Math.max(size, rp.getNode(node) + 1);
+            }
+            int[] cloud = new int[size];
+            int maxCloud = 0;
+            for (int i = 0; i < objective.nodes.length; i++) {
+                cloud[rp.getNode(objective.nodes[i])] = objective.cloudLatencies[i];
+                maxCloud = Math.max(maxCloud, objective.cloudLatencies[i]);
+            }
+
+            IntVar[] latencies = new IntVar[objective.vms.size()];
+            IntVar previousHost = null;
+            for (int k = 0; k < latencies.length; k++) {
+                IntVar host = rp.getVMAction(objective.vms.get(k)).getDSlice().getHoster();
+                int[] fromReceiver = objective.receiverLatencies.get(k);
+                if (fromReceiver != null) {
+                    int[] table = new int[size];
+                    int max = 0;
+                    for (int i = 0; i < objective.nodes.length; i++) {
+                        table[rp.getNode(objective.nodes[i])] = fromReceiver[i];
+                        max = Math.max(max, fromReceiver[i]);
+                    }
+                    latencies[k] = csp.intVar("latency(" + k + ")", 0, max, true);
+                    csp.element(latencies[k], table, host).post();
+                } else {
+                    // Nothing on the same node, through the cloud otherwise
+                    latencies[k] = csp.intVar("latency(" + k + ")", 0, 2 * maxCloud, true);
+                    IntVar out = csp.intVar("out(" + k + ")", 0, maxCloud, true);
+                    IntVar in = csp.intVar("in(" + k + ")", 0, maxCloud, true);
+                    csp.element(out, cloud, previousHost).post();
+                    csp.element(in, cloud, host).post();
+                    csp.ifThenElse(csp.arithm(previousHost, "=", host),
+                            csp.arithm(latencies[k], "=", 0),
+                            csp.sum(new IntVar[]{out, in}, "=", latencies[k]));
+                }
+                previousHost = host;
+            }
+            IntVar total = csp.intVar("latency", 0, Integer.MAX_VALUE / 100, true);
+            csp.sum(latencies, "=", total).post();
+            rp.setObjective(true, total);
+            stopOnInterrupt(rp);
+            return true;
+        }
+
+        @Override
+        public Set<VM> getMisPlacedVMs(Instance i) {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public void postCostConstraints() {
+            // All the constraints of the latencies are posted with the objective
+        }
+    }
+
+    /**
+     * The btrplace default objective, which is kept when there is no latency to minimise, with a
+     * search that stops when interrupted.
+     */
+    public static class CInterruptibleMinMTTR extends CMinMTTR {
+
+        public CInterruptibleMinMTTR(MinMTTR objective) {
+            super(objective);
+        }
+
+        @Override
+        public boolean inject(Parameters ps, ReconfigurationProblem rp) {
+            if (!super.inject(ps, rp)) {
+                return false;
+            }
+            stopOnInterrupt(rp);
+            return true;
+        }
+    }
 }
 
 
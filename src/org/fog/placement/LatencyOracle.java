@@ -0,0 +1,91 @@
+package org.fog.placement;
+
+import org.fog.entities.FogDevice;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Latencies of the network links between fog devices, kept for the whole simulation by the
+ * controller and read by the placement heuristics.
+ * <p>
+ * Only the real links are stored, as the parent and uplink latency of every child device (the
+ * network is a tree, a star around the cloud for the edge nodes). The latency between two devices
+ * that are not linked is derived from the links on demand. The owner of the oracle updates it when
+ * a link changes, see {@link #setLink} and {@link #removeLink}.
+ */
+public class LatencyOracle {
+
+    // Per child device id: its parent and the latency of the link to it
+    private final Map<Integer, Integer> parents = new HashMap<>();
+    private final Map<Integer, Double> uplinkLatencies = new HashMap<>();
+
+    /**
+     * @param fogDevices all the fog devices, whose links are read from the child to latency map
+     *                   of every parent
+     */
+    public LatencyOracle(List<FogDevice> fogDevices) {
+        for (FogDevice parent : fogDevices) {
+            for (Map.Entry<Integer, Double> link : parent.getChildToLatencyMap().entrySet()) {
+                setLink(link.getKey(), parent.getId(), link.getValue());
+            }
+        }
+    }
+
+    /** Links a device to its (new) parent. */
+    public void setLink(int childId, int parentId, double latency) {
+        parents.put(childId, parentId);
+        uplinkLatencies.put(childId, latency);
+    }
+
+    /** Removes the link of a device to its parent, if any. */
+    public void removeLink(int childId) {
+        parents.remove(childId);
+        uplinkLatencies.remove(childId);
+    }
+
+    /** @return the parent of the device, or -1 if it has none */
+    public int getParent(int deviceId) {
+        Integer parent = parents.get(deviceId);
+        return parent != null ? parent : -1;
+    }
+
+    /**
+     * @return the latency of the link between the devices, 0 for the same device, or -1 if they
+     *         are not linked
+     */
+    public double getDirectLatency(int deviceId1, int deviceId2) {
+        if (deviceId1 == deviceId2) return 0.0;
+        if (getParent(deviceId1) == deviceId2) return uplinkLatencies.get(deviceId1);
+        if (getParent(deviceId2) == deviceId1) return uplinkLatencies.get(deviceId2);
+        return -1.0;
+    }
+
+    /**
+     * Latency between two devices along the links of the tree, through their closest common
+     * ancestor, e.g. edge node to cloud to edge node.
+     *
+     * @return the latency, 0 for the same device, or -1 if the devices are not connected
+     */
+    public double getLatency(int deviceId1, int deviceId2) {
+        // Latency from device 1 up to each of its ancestors
+        Map<Integer, Double> up = new HashMap<>();
+        double latency = 0.0;
+        for (int device = deviceId1; device >= 0; device = getParent(device)) {
+            if (up.put(device, latency) != null) break; // Not a tree
+            Double uplink = uplinkLatencies.get(device);
+            if (uplink != null) latency += uplink;
+        }
+        latency = 0.0;
+        for (int device = deviceId2, steps = 0; device >= 0 && steps <= parents.size();
+             device = getParent(device), steps++) {
+            Double fromDevice1 = up.get(device);
+            if (fromDevice1 != null) return fromDevice1 + latency;
+            Double uplink = uplinkLatencies.get(device);
+            if (uplink == null) break;
+            latency += uplink;
+        }
+        return -1.0;
+    }
+}
@@ -1,9 +1,11 @@
 package org.fog.placement;
 
+import org.cloudbus.cloudsim.core.CloudSim;
 import org.fog.entities.FogDevice;
 import org.fog.mobility.DeviceMobilityState;
 import org.fog.mobilitydata.Location;
 import org.fog.utils.Config;
+import org.fog.utils.MicroservicePlacementConfig;
 
 
 import java.util.*;
@@ -20,6 +22,12 @@ public class LocationManager {
     private Map<Integer, ArrayList<String>> levelwiseResources;
     private Map<Integer, String> deviceToDataId = new HashMap<>();
     private Map<String, Integer> resourceToLevel = new HashMap<>();
+    // Per level: the index of the locations of its resources, built on first use after a registration,
+    //  an invalidation or a change of the list of devices
+    private Map<Integer, SpatialIndex> resourceIndexByLevel = new HashMap<>();
+    // The list of devices the indices were built from, and its size then
+    private List<FogDevice> indexedDevices;
+    private int indexedDeviceCount;
 
     
     /**
@@ -50,6 +58,46 @@ public class LocationManager {
         resourceLocations.put(deviceId, location);
         deviceToDataId.put(deviceId, dataId);
         resourceToLevel.put(dataId, level);
+        resourceIndexByLevel.clear();
+    }
+
+    /**
+     * Drops the indices of the resource locations, so that the next proximity search builds them
+     * again from the list of devices it is given. To be called after devices of that list are
+     * replaced or change level; another list, devices added or removed and new registered
+     * locations are noticed without it.
+     */
+    public void invalidateResourceIndex() {
+        resourceIndexByLevel.clear();
+    }
+
+    /**
+     * Gets the index of the locations of the devices of a level
+     *
+     * @param level the level
+     * @param fogDevices list of all fog devices
+     * @return the index of the devices of the level with a registered location, in list order, built
+     *         if needed
+     */
+    private SpatialIndex getResourceIndex(int level, List<FogDevice> fogDevices) {
+        if (fogDevices != indexedDevices || fogDevices.size() != indexedDeviceCount) {
+            resourceIndexByLevel.clear();
+            indexedDevices = fogDevices;
+            indexedDeviceCount = fogDevices.size();
+        }
+        SpatialIndex index = resourceIndexByLevel.get(level);
+        if (index == null) {
+            Map<Integer, Location> locations = new LinkedHashMap<>();
+            for (FogDevice device : fogDevices) {
+                Location location = resourceLocations.get(device.getId());
+                if (device.getLevel() == level && location != null) {
+                    locations.put(device.getId(), location);
+                }
+            }
+            index = new SpatialIndex(locations);
+            resourceIndexByLevel.put(level, index);
+        }
+        return index;
     }
     
     /**
@@ -61,6 +109,10 @@ public class LocationManager {
     public Location getDeviceLocation(int deviceId) {
         // Check if user device
         if (deviceMobilityStates.containsKey(deviceId)) {
+            // Users may have passed waypoints since their last movement update
+            if (MicroservicePlacementConfig.HANDOVER_EVENTS) {
+                return deviceMobilityStates.get(deviceId).getLocationAt(CloudSim.clock());
+            }
             return deviceMobilityStates.get(deviceId).getCurrentLocation();
         }
         
@@ -87,7 +139,9 @@ public class LocationManager {
     }
     
     /**
-     * Determines the parent for a device based on proximity
+     * Determines the parent for a device based on proximity, among the fog devices one level up.
+     * Uses the spatial index of that level, so it does not compute the distance to every device;
+     * the result is the same: the closest one, the first one in the list on ties.
      * 
      * @param deviceId the device ID
      * @param fogDevices list of all fog devices
@@ -120,24 +174,33 @@ public class LocationManager {
         } // Population of parent level is not very thorough
         
         // Find the closest fog device at parent level
-        double minDistance = Double.MAX_VALUE;
-        int closestParentId = -1;
-        
-        for (FogDevice device : fogDevices) {
-            if (device.getLevel() == parentLevel) {
-                Location parentLocation = getDeviceLocation(device.getId());
-                
-                if (parentLocation != null) {
-                    double distance = deviceLocation.calculateDistance(parentLocation);
-                    if (distance < minDistance) {
-                        minDistance = distance;
-                        closestParentId = device.getId();
-                    }
-                }
-            }
-        }
-        
-        return closestParentId;
+        return getResourceIndex(parentLevel, fogDevices).nearest(deviceLocation);
+    }
+    
+    /**
+     * Determines the parent a user device would have at a location, the same way as
+     * {@link #determineParentByProximity} does at its current location.
+     * 
+     * @param location the location of the user device
+     * @param fogDevices list of all fog devices
+     * @return the ID of the closest parent device, or -1 if none found
+     */
+    public int determineUserParentByProximity(Location location, List<FogDevice> fogDevices) {
+        return getResourceIndex(levelID.get("User") - 1, fogDevices).nearest(location);
+    }
+    
+    /**
+     * Checks whether a user device at a location would keep its parent, like
+     * {@code determineUserParentByProximity(location, fogDevices) == parentId}, usually without a
+     * search (see {@link SpatialIndex#isNearest}).
+     *
+     * @param parentId the ID of the parent device
+     * @param location the location of the user device
+     * @param fogDevices list of all fog devices
+     * @return whether the parent is the closest device one level up
+     */
+    public boolean isClosestUserParent(int parentId, Location location, List<FogDevice> fogDevices) {
+        return getResourceIndex(levelID.get("User") - 1, fogDevices).isNearest(parentId, location);
     }
     
     /**
@@ -1,7 +1,6 @@
 package org.fog.placement;
 
 import org.cloudbus.cloudsim.core.CloudSim;
-import org.fog.application.AppModule;
 import org.fog.application.Application;
 import org.fog.entities.FogDevice;
 import org.fog.entities.PlacementRequest;
@@ -23,7 +22,9 @@ public class MaxFitHeuristic extends SPPHeuristic implements MicroservicePlaceme
         super(fonID);
     }
 
-    private List<DeviceState> DeviceStates = new ArrayList<>();
+    private DeviceStateArrays DeviceStates;
+    // Orders DeviceStates by utilisation; every allocation goes through it
+    private FreeCapacityIndex capacityIndex;
 
     @Override
     public void postProcessing() {
@@ -39,11 +40,13 @@ public class MaxFitHeuristic extends SPPHeuristic implements MicroservicePlaceme
             placementCompleteCount = fillToPlace(placementCompleteCount, toPlace, placementRequests);
         }
 
-        DeviceStates = new ArrayList<>();
+        List<DeviceState> states = new ArrayList<>();
         for (FogDevice fogDevice : edgeFogDevices) {
-            DeviceStates.add(new DeviceState(fogDevice.getId(), resourceAvailability.get(fogDevice.getId()),
+            states.add(new DeviceState(fogDevice.getId(), resourceAvailability.get(fogDevice.getId()),
                     fogDevice.getHost().getTotalMips(), fogDevice.getHost().getRam(), fogDevice.getHost().getStorage()));
         }
+        DeviceStates = new DeviceStateArrays(states);
+        capacityIndex = new FreeCapacityIndex(DeviceStates);
 
         Map<PlacementRequest, Integer> prStatus = new LinkedHashMap<>();
         // Process every PR individually
@@ -63,7 +66,7 @@ public class MaxFitHeuristic extends SPPHeuristic implements MicroservicePlaceme
 
     @Override
     protected List<DeviceState> getCurrentDeviceStates() {
-        return DeviceStates;
+        return DeviceStates != null ? DeviceStates.toDeviceStates() : new ArrayList<>();
     }
 
     @Override
@@ -72,22 +75,21 @@ public class MaxFitHeuristic extends SPPHeuristic implements MicroservicePlaceme
         for (int i = 0 ; i < microservices.size() ; i++) {
             placed[i] = -1;
         }
+        int[] services = getServices(microservices, app);
 
         for (int j = 0 ; j < microservices.size() ; j++) {
             String s = microservices.get(j);
-            AppModule service = getModule(s, app);
-            Collections.sort(DeviceStates);
-            Collections.reverse(DeviceStates);
-
-            for (int i = 0; i < DeviceStates.size(); i++) {
-                // Try to place
-                if (DeviceStates.get(i).canFit(service.getMips(), service.getRam(), service.getSize())) {
-
-                    DeviceStates.get(i).allocate(service.getMips(), service.getRam(), service.getSize());
-                    // Update temporary state
-                    placed[j]  = DeviceStates.get(i).getId();
-                    break;
-                }
+            double cpu = problem.getCpu(services[j]);
+            double ram = problem.getRam(services[j]);
+            double storage = problem.getStorage(services[j]);
+            // The first fitting node in reverse DeviceState order, i.e. the most utilised one
+            int best = capacityIndex.mostUtilisedFitting(cpu, ram, storage);
+
+            // Try to place
+            if (best >= 0) {
+                capacityIndex.allocate(best, cpu, ram, storage);
+                // Update temporary state
+                placed[j] = DeviceStates.getId(best);
             }
 
             if (placed[j] < 0) {
@@ -103,18 +105,10 @@ public class MaxFitHeuristic extends SPPHeuristic implements MicroservicePlaceme
                 // Undo every "placement" recorded in placed. Only deviceStates was changed, so we change it back
                 for (int i = 0 ; i < placed.length ; i++) {
                     int deviceId = placed[i];
-                    String microservice = microservices.get(i);
                     if (deviceId != -1) {
-                        DeviceState targetDeviceState = null;
-                        for (DeviceState DeviceState : DeviceStates) {
-                            if (DeviceState.getId() == deviceId) {
-                                targetDeviceState = DeviceState;
-                                break;
-                            }
-                        }
-                        assert targetDeviceState != null;
-                        AppModule placedService = getModule(microservice, app);
-                        targetDeviceState.deallocate(placedService.getMips(), placedService.getRam(), placedService.getSize());
+                        int target = DeviceStates.indexOf(deviceId);
+                        assert target >= 0;
+                        capacityIndex.deallocate(target, problem.getCpu(services[i]), problem.getRam(services[i]), problem.getStorage(services[i]));
                     }
                 }
                 break;
@@ -140,7 +134,7 @@ public class MaxFitHeuristic extends SPPHeuristic implements MicroservicePlaceme
             
             for (int i = 0 ; i < microservices.size(); i++) {
                 String s = microservices.get(i);
-                AppModule service = getModule(s, app);
+                double cpu = problem.getCpu(services[i]);
                 int deviceId = placed[i];
 
                 System.out.printf("Placement of operator %s on device %s successful. Device id: %d, sensorId: %d, prIndex: %d%n",
@@ -159,9 +153,9 @@ public class MaxFitHeuristic extends SPPHeuristic implements MicroservicePlaceme
 
                 //currentModuleLoad
                 if (!currentModuleLoadMap.get(deviceId).containsKey(s))
-                    currentModuleLoadMap.get(deviceId).put(s, service.getMips());
+                    currentModuleLoadMap.get(deviceId).put(s, cpu);
                 else
-                    currentModuleLoadMap.get(deviceId).put(s, service.getMips() + currentModuleLoadMap.get(deviceId).get(s)); // todo Simon says isn't this already vertical scaling? But is on PR side not FogDevice side
+                    currentModuleLoadMap.get(deviceId).put(s, cpu + currentModuleLoadMap.get(deviceId).get(s)); // todo Simon says isn't this already vertical scaling? But is on PR side not FogDevice side
 
                 //currentModuleInstance
                 if (!currentModuleInstanceNum.get(deviceId).containsKey(s))
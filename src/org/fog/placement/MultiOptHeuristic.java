@@ -1,7 +1,6 @@
 package org.fog.placement;
 
 import org.cloudbus.cloudsim.core.CloudSim;
-import org.fog.application.AppModule;
 import org.fog.application.Application;
 import org.fog.entities.FogDevice;
 import org.fog.entities.PlacementRequest;
@@ -22,36 +21,12 @@ public class MultiOptHeuristic extends SPPHeuristic implements MicroservicePlace
         super(fonID);
     }
 
-    private List<DeviceState> DeviceStates = new ArrayList<>();
+    private DeviceStateArrays DeviceStates;
 
     @Override
     public void postProcessing() {
     }
 
-    class Result implements Comparable<Result> {
-
-        private int index;
-        private double score;
-
-        public Result(int index, double score) {
-            this.index = index;
-            this.score = score;
-        }
-
-        public int getIndex() {
-            return index;
-        }
-
-        public double getScore() {
-            return score;
-        }
-
-        @Override
-        public int compareTo(Result arg0) {
-            return this.score < arg0.getScore() ? -1 : this.score == arg0.getScore() ? 0 : 1;
-        }
-    }
-
     @Override
     protected Map<PlacementRequest, Integer> mapModules() {
         Map<PlacementRequest, List<String>> toPlace = new LinkedHashMap<>();
@@ -62,11 +37,12 @@ public class MultiOptHeuristic extends SPPHeuristic implements MicroservicePlace
             placementCompleteCount = fillToPlace(placementCompleteCount, toPlace, placementRequests);
         }
 
-        DeviceStates = new ArrayList<>();
+        List<DeviceState> states = new ArrayList<>();
         for (FogDevice fogDevice : edgeFogDevices) {
-            DeviceStates.add(new DeviceState(fogDevice.getId(), resourceAvailability.get(fogDevice.getId()),
+            states.add(new DeviceState(fogDevice.getId(), resourceAvailability.get(fogDevice.getId()),
                     fogDevice.getHost().getTotalMips(), fogDevice.getHost().getRam(), fogDevice.getHost().getStorage()));
         }
+        DeviceStates = new DeviceStateArrays(states);
 
         Map<PlacementRequest, Integer> prStatus = new LinkedHashMap<>();
         // Process every PR individually
@@ -86,7 +62,7 @@ public class MultiOptHeuristic extends SPPHeuristic implements MicroservicePlace
 
     @Override
     protected List<DeviceState> getCurrentDeviceStates() {
-        return DeviceStates;
+        return DeviceStates != null ? DeviceStates.toDeviceStates() : new ArrayList<>();
     }
 
     @Override
@@ -96,28 +72,34 @@ public class MultiOptHeuristic extends SPPHeuristic implements MicroservicePlace
         for (int i = 0 ; i < microservices.size() ; i++) {
             placed[i] = -1;
         }
+        int[] services = getServices(microservices, app);
 
-        List<DeviceState> servers = DeviceStates;
+        DeviceStateArrays servers = DeviceStates;
 
         for (int i = 0; i < placed.length; i++) {
-            List<Result> results = new ArrayList<>();
             String s = microservices.get(i);
-            AppModule service = getModule(s, app);
+            double cpu = problem.getCpu(services[i]);
+            double ram = problem.getRam(services[i]);
+            double storage = problem.getStorage(services[i]);
 
+            // The fitting node with the lowest score, the first one on ties
+            int best = -1;
+            double bestScore = 0;
             for (int j = 0; j < servers.size(); j++) {
-                if (servers.get(j).canFit(service.getMips(), service.getRam(), service.getSize())) {
-                    double rateCPU = (servers.get(j).getCPUUtil() * 100) / (1 - (servers.get(j).getCPUUtil() * 100));
-                    double rateRAM = (servers.get(j).getRAMUtil() * 100) / (1 - (servers.get(j).getRAMUtil() * 100));
+                if (servers.canFit(j, cpu, ram, storage)) {
+                    double rateCPU = (servers.getCPUUtil(j) * 100) / (1 - (servers.getCPUUtil(j) * 100));
+                    double rateRAM = (servers.getRAMUtil(j) * 100) / (1 - (servers.getRAMUtil(j) * 100));
                     double score = 0.5 * rateCPU + 0.5 * rateRAM;
-                    results.add(new Result(j, score));
+                    if (best < 0 || score < bestScore) {
+                        best = j;
+                        bestScore = score;
+                    }
                 }
             }
 
-            if (!results.isEmpty()) {
-                Collections.sort(results);
-                DeviceState edgeServer = servers.get(results.get(0).getIndex());
-                placed[i] = edgeServer.getId();
-                servers.get(results.get(0).getIndex()).allocate(service.getMips(), service.getRam(), service.getSize());
+            if (best >= 0) {
+                placed[i] = servers.getId(best);
+                servers.allocate(best, cpu, ram, storage);
             }
 
             if (placed[i] < 0) {
@@ -129,18 +111,10 @@ public class MultiOptHeuristic extends SPPHeuristic implements MicroservicePlace
                 // Undo every "placement" recorded in placed. Only deviceStates was changed, so we change it back
                 for (int k = 0 ; k < placed.length ; k++) {
                     int deviceId = placed[k];
-                    String microservice = microservices.get(k);
                     if (deviceId != -1) {
-                        DeviceState targetDeviceState = null;
-                        for (DeviceState DeviceState : DeviceStates) {
-                            if (DeviceState.getId() == deviceId) {
-                                targetDeviceState = DeviceState;
-                                break;
-                            }
-                        }
-                        assert targetDeviceState != null;
-                        AppModule placedService = getModule(microservice, app);
-                        targetDeviceState.deallocate(placedService.getMips(), placedService.getRam(), placedService.getSize());
+                        int target = DeviceStates.indexOf(deviceId);
+                        assert target >= 0;
+                        DeviceStates.deallocate(target, problem.getCpu(services[k]), problem.getRam(services[k]), problem.getStorage(services[k]));
                     }
                 }
                 break;
@@ -166,7 +140,7 @@ public class MultiOptHeuristic extends SPPHeuristic implements MicroservicePlace
             
             for (int i = 0 ; i < microservices.size(); i++) {
                 String s = microservices.get(i);
-                AppModule service = getModule(s, app);
+                double cpu = problem.getCpu(services[i]);
                 int deviceId = placed[i];
 
                 System.out.printf("Placement of operator %s on device %s successful. Device id: %d, sensorId: %d, prIndex: %d%n",
@@ -185,9 +159,9 @@ public class MultiOptHeuristic extends SPPHeuristic implements MicroservicePlace
 
                 //currentModuleLoad
                 if (!currentModuleLoadMap.get(deviceId).containsKey(s))
-                    currentModuleLoadMap.get(deviceId).put(s, service.getMips());
+                    currentModuleLoadMap.get(deviceId).put(s, cpu);
                 else
-                    currentModuleLoadMap.get(deviceId).put(s, service.getMips() + currentModuleLoadMap.get(deviceId).get(s)); // todo Simon says isn't this already vertical scaling? But is on PR side not FogDevice side
+                    currentModuleLoadMap.get(deviceId).put(s, cpu + currentModuleLoadMap.get(deviceId).get(s)); // todo Simon says isn't this already vertical scaling? But is on PR side not FogDevice side
 
                 //currentModuleInstance
                 if (!currentModuleInstanceNum.get(deviceId).containsKey(s))
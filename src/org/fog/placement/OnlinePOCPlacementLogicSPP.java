@@ -83,8 +83,8 @@ public class OnlinePOCPlacementLogicSPP extends SPPHeuristic implements Microser
      */
     @Override
     protected Map<PlacementRequest, Integer> mapModules() {
-        Map<PlacementRequest, List<String>> toPlace = new HashMap<>();
-        Map<PlacementRequest, Integer> currentTargets = new HashMap<>(closestNodes);
+        Map<PlacementRequest, List<String>> toPlace = new LinkedHashMap<>();
+        Map<PlacementRequest, Integer> currentTargets = new LinkedHashMap<>(closestNodes);
 
         int placementCompleteCount = 0;
         while (placementCompleteCount < placementRequests.size()) {
@@ -124,7 +124,7 @@ public class OnlinePOCPlacementLogicSPP extends SPPHeuristic implements Microser
                 }
             }
         }
-        Map<PlacementRequest, Integer> prStatus = new HashMap<>();
+        Map<PlacementRequest, Integer> prStatus = new LinkedHashMap<>();
         for (PlacementRequest placementRequest : placementRequests) {
             prStatus.put(placementRequest, -1);
         }
@@ -0,0 +1,101 @@
+package org.fog.placement;
+
+import java.util.*;
+
+/**
+ * Placements of PRs computed by a heuristic, for reuse by later similar PRs instead of running
+ * the heuristic again. Two PRs are similar if they have the same {@link Key}: same application,
+ * same closest node and same modules to place. A cached placement also holds the free capacity
+ * level of each of its devices when it was computed, for the caller to check that the devices
+ * are still in a similar state before reusing it.
+ * <p>
+ * At most {@code capacity} placements are kept, the least recently used one being dropped first.
+ */
+public class PlacementCache {
+
+    /** What two PRs must share to reuse the same placement. */
+    public static final class Key {
+        private final String appId;
+        private final int closestNodeId;
+        private final List<String> microservices;
+
+        public Key(String appId, int closestNodeId, List<String> microservices) {
+            this.appId = appId;
+            this.closestNodeId = closestNodeId;
+            this.microservices = new ArrayList<>(microservices);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key that = (Key) o;
+            return closestNodeId == that.closestNodeId && appId.equals(that.appId)
+                    && microservices.equals(that.microservices);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(appId, closestNodeId, microservices);
+        }
+    }
+
+    /** A cached placement. */
+    public static final class Entry {
+        private final int[] deviceIds;
+        private final int[] levels;
+
+        private Entry(int[] deviceIds, int[] levels) {
+            this.deviceIds = deviceIds;
+            this.levels = levels;
+        }
+
+        /** @return the id of the device of every microservice, in the order of the key */
+        public int[] getDeviceIds() {
+            return deviceIds;
+        }
+
+        /** @return the free capacity level of every device of getDeviceIds() before the placement */
+        public int[] getLevels() {
+            return levels;
+        }
+    }
+
+    private final int capacity;
+    // In access order, so that the first entry is the least recently used
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @param capacity the number of placements kept, at least 1
+     */
+    public PlacementCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1, got " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /** @return the placement cached for the key, or null */
+    public Entry get(Key key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Caches a placement, replacing the one of the key if any.
+     *
+     * @param deviceIds the id of the device of every microservice, in the order of the key
+     * @param levels the free capacity level of every device before the placement
+     */
+    public void put(Key key, int[] deviceIds, int[] levels) {
+        entries.put(key, new Entry(deviceIds, levels));
+        if (entries.size() > capacity) {
+            Iterator<Key> eldest = entries.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,257 @@
+package org.fog.placement;
+
+import org.fog.application.AppEdge;
+import org.fog.application.AppModule;
+import org.fog.application.Application;
+import org.fog.entities.FogDevice;
+import org.fog.entities.Tuple;
+
+import java.util.*;
+
+/**
+ * The placement problem of one placement cycle, compiled once in
+ * {@link SPPHeuristic#resetTemporaryState} so that the heuristics work on dense int indices
+ * instead of looking up {@link Application}s and {@link FogDevice}s by name or id.
+ * <p>
+ * Devices are indexed by their position in the list of all fog devices. Their latencies are
+ * taken from the {@link LatencyOracle} of the controller. Services get one index per (application, module) pair, applications and
+ * modules taken in order. Their requirements are kept in parallel arrays, and the service DAG as
+ * int adjacency arrays.
+ */
+public class PlacementProblem {
+
+    /** Marks a dependency on something that is not a service, which is never placed. */
+    private static final int NOT_A_SERVICE = -1;
+
+    /* ---------- devices ---------- */
+    private final List<FogDevice> devices;
+    private final Map<Integer, Integer> deviceIndexById = new HashMap<>();
+    private final Map<String, Integer> deviceIndexByName = new HashMap<>();
+    private final int cloudIndex;
+    // Per device: the latency of its link to the cloud, 0 for the cloud, -1 where there is no link
+    private final double[] cloudLatencies;
+
+    /* ---------- services ---------- */
+    private final Map<String, Map<String, Integer>> serviceIndexByApp = new HashMap<>();
+    private final Map<String, int[]> servicesByApp = new HashMap<>();
+    private final String[] names;
+    private final AppModule[] modules;
+    private final double[] cpu;
+    private final double[] ram;
+    private final double[] storage;
+    // Per service: the services with an UP edge into it, in edge order
+    private final int[][] clients;
+    // Per service: the services to place before it (destinations of its DOWN edges,
+    //  sources of the UP edges into it)
+    private final int[][] prerequisites;
+
+    /**
+     * @param devices all the fog devices
+     * @param applications the applications, by id
+     * @param cloudIndex the index of the cloud
+     * @param latencyOracle the latencies of the links between devices
+     */
+    public PlacementProblem(List<FogDevice> devices, Map<String, Application> applications,
+                            int cloudIndex, LatencyOracle latencyOracle) {
+        this.devices = devices;
+        for (int i = 0; i < devices.size(); i++) {
+            deviceIndexById.put(devices.get(i).getId(), i);
+            deviceIndexByName.putIfAbsent(devices.get(i).getName(), i);
+        }
+        this.cloudIndex = cloudIndex;
+        cloudLatencies = new double[devices.size()];
+        for (int i = 0; i < devices.size(); i++) {
+            cloudLatencies[i] = cloudIndex >= 0
+                    ? latencyOracle.getDirectLatency(devices.get(i).getId(), devices.get(cloudIndex).getId())
+                    : -1.0;
+        }
+
+        int count = 0;
+        for (Application app : applications.values()) {
+            count += app.getModules().size();
+        }
+        names = new String[count];
+        modules = new AppModule[count];
+        cpu = new double[count];
+        ram = new double[count];
+        storage = new double[count];
+        clients = new int[count][];
+        prerequisites = new int[count][];
+
+        int s = 0;
+        for (Application app : applications.values()) {
+            Map<String, Integer> byName = new HashMap<>();
+            int[] appServices = new int[app.getModules().size()];
+            for (int m = 0; m < appServices.length; m++, s++) {
+                AppModule module = app.getModules().get(m);
+                names[s] = module.getName();
+                modules[s] = module;
+                cpu[s] = module.getMips();
+                ram[s] = module.getRam();
+                storage[s] = module.getSize();
+                byName.putIfAbsent(module.getName(), s);
+                appServices[m] = s;
+            }
+            serviceIndexByApp.put(app.getAppId(), byName);
+            servicesByApp.put(app.getAppId(), appServices);
+
+            for (int service : appServices) {
+                List<Integer> clientList = new ArrayList<>();
+                List<Integer> prerequisiteList = new ArrayList<>();
+                for (AppEdge edge : app.getEdges()) {
+                    if (edge.getSource().equals(names[service]) && edge.getDirection() == Tuple.DOWN) {
+                        prerequisiteList.add(byName.getOrDefault(edge.getDestination(), NOT_A_SERVICE));
+                    }
+                    if (edge.getDestination().equals(names[service]) && edge.getDirection() == Tuple.UP) {
+                        Integer client = byName.get(edge.getSource());
+                        if (client != null) {
+                            clientList.add(client);
+                        }
+                        prerequisiteList.add(client != null ? client : NOT_A_SERVICE);
+                    }
+                }
+                clients[service] = toArray(clientList);
+                prerequisites[service] = toArray(prerequisiteList);
+            }
+        }
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    /* ---------- devices ---------- */
+
+    public int getDeviceCount() {
+        return devices.size();
+    }
+
+    /** @return the index of the device with the given id, or -1 */
+    public int getDeviceIndex(int deviceId) {
+        Integer index = deviceIndexById.get(deviceId);
+        return index != null ? index : -1;
+    }
+
+    /** @return the index of the first device with the given name, or -1 */
+    public int getDeviceIndex(String deviceName) {
+        Integer index = deviceIndexByName.get(deviceName);
+        return index != null ? index : -1;
+    }
+
+    public FogDevice getDevice(int index) {
+        return devices.get(index);
+    }
+
+    public int getDeviceId(int index) {
+        return devices.get(index).getId();
+    }
+
+    public int getCloudIndex() {
+        return cloudIndex;
+    }
+
+    /** @return the latency of the link of the device to the cloud, 0 for the cloud, -1 where there is no link */
+    public double getCloudLatency(int index) {
+        return cloudLatencies[index];
+    }
+
+    /**
+     * Latency between two devices in the centralised topology, where every edge node is connected
+     * through the cloud.
+     *
+     * @return the latency, 0 for the same device
+     */
+    public double getLatency(int index1, int index2) {
+        if (index1 == index2) return 0.0;
+        return cloudLatencies[index1] + cloudLatencies[index2];
+    }
+
+    /* ---------- services ---------- */
+
+    public int getServiceCount() {
+        return names.length;
+    }
+
+    /** @return the index of the module of the application, or -1 (also for unknown applications) */
+    public int getServiceIndex(Application app, String moduleName) {
+        Map<String, Integer> byName = serviceIndexByApp.get(app.getAppId());
+        if (byName == null) return -1;
+        Integer index = byName.get(moduleName);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * @return the indices of the modules of the application, in the same order
+     * @throws NullPointerException if a module is not found
+     */
+    public int[] getServiceIndices(Application app, List<String> moduleNames) {
+        int[] services = new int[moduleNames.size()];
+        for (int i = 0; i < services.length; i++) {
+            services[i] = getServiceIndex(app, moduleNames.get(i));
+            if (services[i] < 0) {
+                throw new NullPointerException("Module not found");
+            }
+        }
+        return services;
+    }
+
+    /** @return the services of the application in module order, empty for unknown applications */
+    public int[] getServices(Application app) {
+        int[] services = servicesByApp.get(app.getAppId());
+        return services != null ? services : new int[0];
+    }
+
+    public String getName(int service) {
+        return names[service];
+    }
+
+    public AppModule getModule(int service) {
+        return modules[service];
+    }
+
+    public double getCpu(int service) {
+        return cpu[service];
+    }
+
+    public double getRam(int service) {
+        return ram[service];
+    }
+
+    public double getStorage(int service) {
+        return storage[service];
+    }
+
+    /** @return the services that send tuples UP to the service */
+    public int[] getClients(int service) {
+        return clients[service];
+    }
+
+    /**
+     * A service can be placed once the services below it in the physical topology are: the
+     * destinations of its outgoing DOWN edges and the sources of its incoming UP edges.
+     *
+     * @param placed the placed services, by service index
+     * @return whether the service is not placed and all its prerequisites are
+     */
+    public boolean isReady(int service, boolean[] placed) {
+        if (placed[service]) return false;
+        for (int prerequisite : prerequisites[service]) {
+            if (prerequisite == NOT_A_SERVICE || !placed[prerequisite]) return false;
+        }
+        return true;
+    }
+
+    /** @return the placed services of the application, by service index */
+    public boolean[] toPlacedServices(Application app, Collection<String> placedModules) {
+        boolean[] placed = new boolean[names.length];
+        for (String moduleName : placedModules) {
+            int service = getServiceIndex(app, moduleName);
+            if (service >= 0) placed[service] = true;
+        }
+        return placed;
+    }
+}
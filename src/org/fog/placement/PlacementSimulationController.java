@@ -10,6 +10,7 @@ import org.fog.entities.*;
 import org.fog.mobility.*;
 import org.fog.utils.*;
 import org.json.simple.JSONObject;
+import org.apache.commons.math3.util.Pair;
 import org.fog.mobilitydata.Location;
 import org.fog.utils.distribution.PoissonDistribution;
 
@@ -34,7 +35,7 @@ public class PlacementSimulationController extends SimEntity {
      * A permanent set of Placement Requests, initialized with one per user device.
      * For PR generation, simulation will always make copies of these.
      */
-    protected Map<PlacementRequest, Integer> placementRequestDelayMap = new HashMap<>();
+    protected Map<PlacementRequest, Integer> placementRequestDelayMap = new LinkedHashMap<>();
 
     // For PR generation
     private List<SPPFogDevice> userDevices = new ArrayList<>();
@@ -53,6 +54,12 @@ public class PlacementSimulationController extends SimEntity {
     
     // Mobility strategy
     protected MobilityStrategy mobilityStrategy;
+    // Devices waiting for the next batch of path creation (see MicroservicePlacementConfig.BATCH_PATHS)
+    private final SortedSet<Integer> pendingPathDevices = new TreeSet<>();
+    
+    // Latencies of the network links, built once the devices are connected, kept up to date by
+    //  the mobility strategy and read by the placement logics
+    protected LatencyOracle latencyOracle;
     
     // Add these new fields after the existing field declarations (around line 35-40)
     private Map<Integer, List<PassiveSensor>> deviceToSensors = new HashMap<>();
@@ -94,6 +101,7 @@ public class PlacementSimulationController extends SimEntity {
             }
         }
         deviceMobilityStates.clear();
+        pendingPathDevices.clear();
         
         // Reset mobility strategy
         mobilityStrategy = new NoMobilityStrategy();
@@ -276,6 +284,7 @@ public class PlacementSimulationController extends SimEntity {
             initialParentReferences.put(device.getId(), device.getParentId());
         }
         mobilityStrategy.initialize(fogDevices, initialParentReferences);
+        mobilityStrategy.setLatencyOracle(latencyOracle);
     }
 
     /**
@@ -295,16 +304,19 @@ public class PlacementSimulationController extends SimEntity {
             initialParentReferences.put(device.getId(), device.getParentId());
         }
         mobilityStrategy.initialize(fogDevices, initialParentReferences);
+        mobilityStrategy.setLatencyOracle(latencyOracle);
     }
 
     protected void init() {
         connectWithLatencies();
+        latencyOracle = new LatencyOracle(fogDevices);
         initializeControllers(placementLogic);
         generateRoutingTable();
     }
 
     protected void init(Map<Integer, List<FogDevice>> monitored) {
         connectWithLatencies();
+        latencyOracle = new LatencyOracle(fogDevices);
         initializeControllers(placementLogic, monitored);
         generateRoutingTable();
     }
@@ -321,24 +333,7 @@ public class PlacementSimulationController extends SimEntity {
             // responsible for placement decision-making
             if (cdevice.getDeviceType().equals(SPPFogDevice.FON) || cdevice.getDeviceType().equals(SPPFogDevice.CLOUD)) {
                 List<FogDevice> monitoredDevices = getDevicesForFON(cdevice);
-                MicroservicePlacementLogic microservicePlacementLogic;
-                
-                // Handle either string or int placementLogic
-                if (placementLogic instanceof String) {
-                    microservicePlacementLogic = placementLogicFactory.getPlacementLogic((String)placementLogic, cdevice.getId());
-                } else if (placementLogic instanceof Number) {
-                    microservicePlacementLogic = placementLogicFactory.getPlacementLogic(((Number)placementLogic).intValue(), cdevice.getId());
-                } else {
-                    Logger.error("Placement Logic Error", "Unknown placement logic type: " + placementLogic.getClass().getName());
-                    microservicePlacementLogic = null;
-                }
-                
-                // Set the seed if the placement logic is a MyHeuristic instance
-                if (microservicePlacementLogic instanceof SPPHeuristic) {
-                    ((SPPHeuristic) microservicePlacementLogic).setSeed(heuristicSeed);
-                    System.out.println("Set heuristic seed to " + heuristicSeed + " for " + 
-                        microservicePlacementLogic.getClass().getSimpleName());
-                }
+                MicroservicePlacementLogic microservicePlacementLogic = createPlacementLogic(placementLogic, cdevice);
                 
                 cdevice.initializeController(loadBalancer, microservicePlacementLogic, getResourceInfo(monitoredDevices), applications, monitoredDevices);
             } else if (cdevice.getDeviceType().equals(SPPFogDevice.FCN) || cdevice.isUserDevice()) {
@@ -358,24 +353,7 @@ public class PlacementSimulationController extends SimEntity {
             //responsible for placement decision making
             if (cdevice.getDeviceType().equals(SPPFogDevice.FON) || cdevice.getDeviceType().equals(SPPFogDevice.CLOUD)) {
                 List<FogDevice> monitoredDevices = monitored.get(cdevice.getFonId());
-                MicroservicePlacementLogic microservicePlacementLogic;
-                
-                // Handle either string or int placementLogic
-                if (placementLogic instanceof String) {
-                    microservicePlacementLogic = placementLogicFactory.getPlacementLogic((String)placementLogic, cdevice.getId());
-                } else if (placementLogic instanceof Number) {
-                    microservicePlacementLogic = placementLogicFactory.getPlacementLogic(((Number)placementLogic).intValue(), cdevice.getId());
-                } else {
-                    Logger.error("Placement Logic Error", "Unknown placement logic type: " + placementLogic.getClass().getName());
-                    microservicePlacementLogic = null;
-                }
-                
-                // Set the seed if the placement logic is a MyHeuristic instance
-                if (microservicePlacementLogic instanceof SPPHeuristic) {
-                    ((SPPHeuristic) microservicePlacementLogic).setSeed(heuristicSeed);
-                    System.out.println("Set heuristic seed to " + heuristicSeed + " for " + 
-                        microservicePlacementLogic.getClass().getSimpleName());
-                }
+                MicroservicePlacementLogic microservicePlacementLogic = createPlacementLogic(placementLogic, cdevice);
                 
                 cdevice.initializeController(loadBalancer, microservicePlacementLogic, getResourceInfo(monitoredDevices), applications, monitoredDevices);
             } else if (cdevice.getDeviceType().equals(SPPFogDevice.FCN) || cdevice.isUserDevice()) {
@@ -387,6 +365,54 @@ public class PlacementSimulationController extends SimEntity {
         }
     }
 
+    /**
+     * Creates the placement logic of a FON or cloud device.
+     *
+     * @param placementLogic Placement logic identifier (can be Integer or String)
+     * @param cdevice The device making the placement decisions
+     * @return The placement logic, or null if the identifier is of an unknown type
+     */
+    private MicroservicePlacementLogic createPlacementLogic(Object placementLogic, SPPFogDevice cdevice) {
+        MicroservicePlacementLogic microservicePlacementLogic;
+        
+        // Handle either string or int placementLogic
+        if (placementLogic instanceof String) {
+            microservicePlacementLogic = placementLogicFactory.getPlacementLogic((String)placementLogic, cdevice.getId());
+        } else if (placementLogic instanceof Number) {
+            microservicePlacementLogic = placementLogicFactory.getPlacementLogic(((Number)placementLogic).intValue(), cdevice.getId());
+        } else {
+            Logger.error("Placement Logic Error", "Unknown placement logic type: " + placementLogic.getClass().getName());
+            microservicePlacementLogic = null;
+        }
+        
+        // Set the seed if the placement logic is a MyHeuristic instance
+        if (microservicePlacementLogic instanceof SPPHeuristic) {
+            ((SPPHeuristic) microservicePlacementLogic).setSeed(heuristicSeed);
+            ((SPPHeuristic) microservicePlacementLogic).setLatencyOracle(latencyOracle);
+            System.out.println("Set heuristic seed to " + heuristicSeed + " for " + 
+                microservicePlacementLogic.getClass().getSimpleName());
+        }
+        return microservicePlacementLogic;
+    }
+
+    /**
+     * Replaces the placement logic of every FON and cloud device, keeping the placements made so far.
+     * Used to continue a simulation run up to the fork time with another placement algorithm.
+     *
+     * @param placementLogic Placement logic identifier (can be Integer or String)
+     * @param heuristicSeed Seed for the new placement logic, if it is a heuristic
+     */
+    public void switchPlacementLogic(Object placementLogic, int heuristicSeed) {
+        this.placementLogic = placementLogic;
+        this.heuristicSeed = heuristicSeed;
+        for (FogDevice device : fogDevices) {
+            SPPFogDevice cdevice = (SPPFogDevice) device;
+            if (cdevice.getDeviceType().equals(SPPFogDevice.FON) || cdevice.getDeviceType().equals(SPPFogDevice.CLOUD)) {
+                cdevice.getControllerComponent().setMicroservicePlacementLogic(createPlacementLogic(placementLogic, cdevice));
+            }
+        }
+    }
+
     @Override
     public void processEvent(SimEvent ev) {
         switch (ev.getTag()) {
@@ -417,10 +443,19 @@ public class PlacementSimulationController extends SimEntity {
                 break;
             // Handle mobility events
             case FogEvents.SCHEDULER_NEXT_MOVEMENT_UPDATE:
-                handleMovementUpdate((int) ev.getData());
+                @SuppressWarnings("unchecked")
+                Pair<Integer, WayPointPath> update = (Pair<Integer, WayPointPath>) ev.getData();
+                handleMovementUpdate(update.getFirst(), update.getSecond());
                 break;
             case FogEvents.MAKE_PATH:
-                makePath((int) ev.getData());
+                if (MicroservicePlacementConfig.BATCH_PATHS) {
+                    queuePath(ev.getIntData());
+                } else {
+                    makePath(ev.getIntData());
+                }
+                break;
+            case FogEvents.MAKE_PATHS:
+                makeQueuedPaths();
                 break;
             case FogEvents.OPERA_ACCIDENT_EVENT:
                 handleAccidentEvent(ev);
@@ -439,6 +474,9 @@ public class PlacementSimulationController extends SimEntity {
     public void enableMobility() {
         this.mobilityEnabled = true;
         this.mobilityStrategy = new FullMobilityStrategy();
+        if (latencyOracle != null) {
+            mobilityStrategy.setLatencyOracle(latencyOracle);
+        }
         
         // Initialize the strategy with current state
         // Map<Integer, Integer> initialParentReferences = new HashMap<>();
@@ -461,27 +499,45 @@ public class PlacementSimulationController extends SimEntity {
         }
     }
     
+    /**
+     * Schedules the next movement update of a device on its current path. The event carries the
+     * path, so that it is ignored if the device has been given another path in the meantime.
+     *
+     * @param deviceId the device ID
+     * @param delay the delay until the update
+     * @param mobilityState the mobility state of the device
+     */
+    private void scheduleMovementUpdate(int deviceId, double delay, DeviceMobilityState mobilityState) {
+        send(getId(), delay, FogEvents.SCHEDULER_NEXT_MOVEMENT_UPDATE, new Pair<>(deviceId, mobilityState.getPath()));
+    }
+    
     /**
      * Handles a movement update event for a device
      * 
      * @param deviceId the device ID
+     * @param path the path the update was scheduled on
      */
-    protected void handleMovementUpdate(int deviceId) {
+    protected void handleMovementUpdate(int deviceId, WayPointPath path) {
         DeviceMobilityState mobilityState = getDeviceMobilityState(deviceId);
         if (mobilityState == null) {
             Logger.error("Mobility Error", "No mobility state found for device " + deviceId);
             return;
         }
+        if (mobilityState.getPath() != path) {
+            // The path was replaced, e.g. by an event, and its updates are scheduled with it
+            Logger.debug("Mobility", "Ignoring the movement update of device " + deviceId + " on a replaced path");
+            return;
+        }
         
         double nextEventDelay = mobilityStrategy.handleMovementUpdate(deviceId, mobilityState, locationManager);
         
         if (nextEventDelay > 0) {
             // If there are more waypoints, schedule the next movement update
             if (!mobilityState.getPath().isEmpty()) {
-                send(getId(), nextEventDelay, FogEvents.SCHEDULER_NEXT_MOVEMENT_UPDATE, deviceId);
+                scheduleMovementUpdate(deviceId, nextEventDelay, mobilityState);
             } else {
                 // If the device reached its destination, schedule the next path creation
-                send(getId(), nextEventDelay, FogEvents.MAKE_PATH, deviceId);
+                sendInt(getId(), nextEventDelay, FogEvents.MAKE_PATH, deviceId);
             }
         }
         else {
@@ -504,7 +560,42 @@ public class PlacementSimulationController extends SimEntity {
         double delay = mobilityStrategy.makePath(deviceId, mobilityState);
         
         if (delay > 0) {
-            send(getId(), delay, FogEvents.SCHEDULER_NEXT_MOVEMENT_UPDATE, deviceId);
+            scheduleMovementUpdate(deviceId, delay, mobilityState);
+        }
+    }
+    
+    /**
+     * Queues a device for the next batch of path creation. The batch is made once all the events
+     * of the current simulated time queued so far have been processed.
+     * 
+     * @param deviceId the device ID
+     */
+    protected void queuePath(int deviceId) {
+        if (pendingPathDevices.isEmpty()) {
+            send(getId(), 0, FogEvents.MAKE_PATHS);
+        }
+        pendingPathDevices.add(deviceId);
+    }
+    
+    /**
+     * Creates the paths of all the queued devices at once, in device ID order
+     */
+    protected void makeQueuedPaths() {
+        SortedMap<Integer, DeviceMobilityState> mobilityStates = new TreeMap<>();
+        for (int deviceId : pendingPathDevices) {
+            DeviceMobilityState mobilityState = getDeviceMobilityState(deviceId);
+            if (mobilityState == null) {
+                Logger.error("Mobility Error", "No mobility state found for device " + deviceId);
+                continue;
+            }
+            mobilityStates.put(deviceId, mobilityState);
+        }
+        pendingPathDevices.clear();
+        
+        for (Map.Entry<Integer, Double> delay : mobilityStrategy.makePaths(mobilityStates).entrySet()) {
+            if (delay.getValue() > 0) {
+                scheduleMovementUpdate(delay.getKey(), delay.getValue(), mobilityStates.get(delay.getKey()));
+            }
         }
     }
     
@@ -521,10 +612,20 @@ public class PlacementSimulationController extends SimEntity {
         
         // Get the delay for the first movement from the strategy
         double delay = mobilityStrategy.startDeviceMobility(deviceId, mobilityState);
-        
+        scheduleFirstMovement(deviceId, mobilityState, delay);
+    }
+    
+    /**
+     * Schedules the first movement of a device on its initial path
+     * 
+     * @param deviceId the device ID
+     * @param mobilityState the mobility state of the device
+     * @param delay the delay until the first movement, as returned by the mobility strategy
+     */
+    private void scheduleFirstMovement(int deviceId, DeviceMobilityState mobilityState, double delay) {
         // Schedule the movement update event if a valid delay was returned
         if (delay > 0) {
-            send(getId(), delay, FogEvents.SCHEDULER_NEXT_MOVEMENT_UPDATE, deviceId);
+            scheduleMovementUpdate(deviceId, delay, mobilityState);
         }
         else {
             // Check if this is expected behavior (ambulance waiting for emergency, immobile user, etc.)
@@ -740,11 +841,27 @@ public class PlacementSimulationController extends SimEntity {
 
     public void startEntity() {
         if (mobilityEnabled) {
+            // With batched path creation, the initial paths of all the devices are made at once
+            Map<Integer, Double> firstMovementDelays = null;
+            if (MicroservicePlacementConfig.BATCH_PATHS) {
+                SortedMap<Integer, DeviceMobilityState> mobilityStates = new TreeMap<>();
+                for (Map.Entry<Integer, DeviceMobilityState> entry : deviceMobilityStates.entrySet()) {
+                    if (entry.getValue() != null) {
+                        mobilityStates.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                firstMovementDelays = mobilityStrategy.makePaths(mobilityStates);
+            }
+            
             for (int deviceId : deviceMobilityStates.keySet()) {
                 DeviceMobilityState mobilityState = deviceMobilityStates.get(deviceId);
 
                 if (mobilityState != null) {
-                    startDeviceMobility(deviceId);
+                    if (firstMovementDelays != null) {
+                        scheduleFirstMovement(deviceId, mobilityState, firstMovementDelays.get(deviceId));
+                    } else {
+                        startDeviceMobility(deviceId);
+                    }
 
                     System.out.println("Started mobility for device: " + CloudSim.getEntityName(deviceId) +
                             " at location: " + mobilityState.getCurrentLocation().latitude + ", " + mobilityState.getCurrentLocation().longitude);
@@ -1284,7 +1401,7 @@ public class PlacementSimulationController extends SimEntity {
                 double delay = state.handleEvent(FogEvents.OPERA_ACCIDENT_EVENT, eventData);
                 if (delay > 0) {
                     // Schedule the next movement with the returned delay
-                    send(getId(), delay, FogEvents.SCHEDULER_NEXT_MOVEMENT_UPDATE, deviceId);
+                    scheduleMovementUpdate(deviceId, delay, state);
                     respondedCount++;
                     System.out.println("Device " + deviceName + " responded to accident event and will move in " + delay + " time units");
                 }
@@ -1,7 +1,6 @@
 package org.fog.placement;
 
 import org.cloudbus.cloudsim.core.CloudSim;
-import org.fog.application.AppModule;
 import org.fog.application.Application;
 import org.fog.entities.FogDevice;
 import org.fog.entities.ContextPlacementRequest;
@@ -86,6 +85,7 @@ public class RandomHeuristic extends SPPHeuristic implements MicroservicePlaceme
         for (int i = 0 ; i < microservices.size() ; i++) {
             placed[i] = -1;
         }
+        int[] services = getServices(microservices, app);
 
         // Shallow Copy
         List<FogDevice> nodes = new ArrayList<>(edgeFogDevices);
@@ -95,11 +95,13 @@ public class RandomHeuristic extends SPPHeuristic implements MicroservicePlaceme
             int nodeIndex = getRandom().nextInt(nodes.size());
             int deviceId = nodes.get(nodeIndex).getId();
             String s = microservices.get(j);
-            AppModule service = getModule(s, app);
+            double cpu = problem.getCpu(services[j]);
+            double ram = problem.getRam(services[j]);
+            double storage = problem.getStorage(services[j]);
 
             DeviceState deviceState = deviceStateMap.get(deviceId);
-            if (deviceState.canFit(service.getMips(), service.getRam(), service.getSize())) {
-                deviceState.allocate(service.getMips(), service.getRam(), service.getSize());
+            if (deviceState.canFit(cpu, ram, storage)) {
+                deviceState.allocate(cpu, ram, storage);
                 placed[j] = deviceId;
             }
 
@@ -112,12 +114,10 @@ public class RandomHeuristic extends SPPHeuristic implements MicroservicePlaceme
                 for (int i = 0 ; i < placed.length ; i++) {
                     int placedDeviceId = placed[i];
                     if (placedDeviceId != -1) {
-                        String microservice = microservices.get(i);
-                        AppModule placedService = getModule(microservice, app);
                         deviceStateMap.get(placedDeviceId).deallocate(
-                            placedService.getMips(), 
-                            placedService.getRam(), 
-                            placedService.getSize()
+                            problem.getCpu(services[i]), 
+                            problem.getRam(services[i]), 
+                            problem.getStorage(services[i])
                         );
                     }
                 }
@@ -144,7 +144,7 @@ public class RandomHeuristic extends SPPHeuristic implements MicroservicePlaceme
             
             for (int i = 0 ; i < microservices.size(); i++) {
                 String s = microservices.get(i);
-                AppModule service = getModule(s, app);
+                double cpu = problem.getCpu(services[i]);
                 int deviceId = placed[i];
 
                 System.out.printf("Placement of operator %s on device %s successful. Device id: %d, sensorId: %d, prIndex: %d%n",
@@ -163,9 +163,9 @@ public class RandomHeuristic extends SPPHeuristic implements MicroservicePlaceme
 
                 //currentModuleLoad
                 if (!currentModuleLoadMap.get(deviceId).containsKey(s))
-                    currentModuleLoadMap.get(deviceId).put(s, service.getMips());
+                    currentModuleLoadMap.get(deviceId).put(s, cpu);
                 else
-                    currentModuleLoadMap.get(deviceId).put(s, service.getMips() + currentModuleLoadMap.get(deviceId).get(s));
+                    currentModuleLoadMap.get(deviceId).put(s, cpu + currentModuleLoadMap.get(deviceId).get(s));
 
                 //currentModuleInstance
                 if (!currentModuleInstanceNum.get(deviceId).containsKey(s))
@@ -2,13 +2,14 @@ package org.fog.placement;
 
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.power.PowerHost;
-import org.fog.application.AppModule;
 import org.fog.application.Application;
 import org.fog.entities.*;
 import org.fog.utils.Logger;
 import org.fog.utils.MicroservicePlacementConfig;
+import org.fog.utils.SPPMonitor;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 public class SPPACO extends SPPHeuristic implements MicroservicePlacementLogic {
     @Override
@@ -33,7 +34,9 @@ public class SPPACO extends SPPHeuristic implements MicroservicePlacementLogic {
     private double tau0 = 4.0;
 //    private int antsNumber = 10; TODO 1000 for performance evaluation
     private int antsNumber = 200;
-    private List<DeviceState> DeviceStates = new ArrayList<>();
+    private DeviceStateArrays DeviceStates;
+    // Index of every node of DeviceStates in the compiled problem
+    private int[] problemIndices;
 
     @Override
     public void postProcessing() {
@@ -52,11 +55,11 @@ public class SPPACO extends SPPHeuristic implements MicroservicePlacementLogic {
         // Simon says in the ACO algorithm itself, copies of these DeviceStates will be made.
         // This initialisation occurs only once,
         // capturing the state of resourceAvailability (and fogDevices) at this point in time
-        DeviceStates = new ArrayList<>();
+        List<DeviceState> states = new ArrayList<>();
         for (FogDevice fogDevice : edgeFogDevices) {
             Map<String, Double> dev = resourceAvailability.get(fogDevice.getId());
             PowerHost host = fogDevice.getHost();
-            DeviceStates.add(
+            states.add(
                     new DeviceState(
                         fogDevice.getId(),
                         host.getTotalMips(),
@@ -66,11 +69,24 @@ public class SPPACO extends SPPHeuristic implements MicroservicePlacementLogic {
                         dev.get(ControllerComponent.RAM),
                         dev.get(ControllerComponent.STORAGE)));
         }
+        DeviceStates = new DeviceStateArrays(states);
+        problemIndices = new int[DeviceStates.size()];
+        for (int i = 0; i < DeviceStates.size(); i++) {
+            problemIndices[i] = problem.getDeviceIndex(DeviceStates.getId(i));
+        }
+
+        // In batch mode, place the whole cycle at once first
+        Set<PlacementRequest> placedJointly = MicroservicePlacementConfig.BATCH_PLACEMENT && !toPlace.isEmpty()
+                ? placeJointly(toPlace) : Collections.emptySet();
 
         Map<PlacementRequest, Integer> prStatus = new LinkedHashMap<>();
         // Process every PR individually
         for (Map.Entry<PlacementRequest, List<String>> entry : toPlace.entrySet()) {
             PlacementRequest placementRequest = entry.getKey();
+            if (placedJointly.contains(placementRequest)) {
+                prStatus.put(placementRequest, -1);
+                continue;
+            }
             Application app = applicationInfo.get(placementRequest.getApplicationId());
             List<String> microservices = entry.getValue();
             // -1 if success, cloudId if failure
@@ -82,16 +98,115 @@ public class SPPACO extends SPPHeuristic implements MicroservicePlacementLogic {
         return prStatus;
     }
 
+    /**
+     * Places all the PRs of the placement cycle with one ant colony: every ant places the
+     * microservices of all the PRs, one PR after the other, on its copy of the servers, so the
+     * colony minimises the total latency of the cycle. If the ants have not found a placement
+     * within {@link MicroservicePlacementConfig#BATCH_TIME_BUDGET}, the best one of the last
+     * iteration is used; if they have not finished an iteration, or cannot place every PR, no PR
+     * is placed and the cycle falls back to placing them one by one.
+     * <p>
+     * The optimality gap is measured against the latency of placing every microservice on its
+     * closest server with enough free resources, ignoring the resources taken by the others.
+     *
+     * @param toPlace The microservices to place, per PR
+     * @return The PRs placed
+     */
+    private Set<PlacementRequest> placeJointly(Map<PlacementRequest, List<String>> toPlace) {
+        long start = System.nanoTime();
+        long deadline = start + (long) (MicroservicePlacementConfig.BATCH_TIME_BUDGET * 1e9);
+
+        List<String> microservices = new ArrayList<>();
+        int total = 0;
+        for (List<String> prMicroservices : toPlace.values()) {
+            total += prMicroservices.size();
+        }
+        int[] services = new int[total];
+        int[] sourceIndices = new int[total];
+        int offset = 0;
+        for (Map.Entry<PlacementRequest, List<String>> entry : toPlace.entrySet()) {
+            Application app = applicationInfo.get(entry.getKey().getApplicationId());
+            int[] prServices = getServices(entry.getValue(), app);
+            // Each PR starts from its request receiver
+            int[] prSources = chainFrom(problem.getDeviceIndex(closestNodes.get(entry.getKey())), prServices.length);
+            System.arraycopy(prServices, 0, services, offset, prServices.length);
+            System.arraycopy(prSources, 0, sourceIndices, offset, prSources.length);
+            microservices.addAll(entry.getValue());
+            offset += prServices.length;
+        }
+
+        MyACOHelper acoHelper = new MyACOHelper(microservices, services, sourceIndices, DeviceStates, problemIndices, antsNumber, tau0);
+        int[] placement = acoHelper.acoSchedule(deadline);
+        double solveTimeMs = (System.nanoTime() - start) / 1e6;
+
+        for (int p : placement) {
+            if (p == -1) {
+                String status = acoHelper.isTimedOut() ? "TIMEOUT" : "INFEASIBLE";
+                Logger.debug("Batch Placement", status + " for " + toPlace.size() + " PRs, placing them one by one");
+                SPPMonitor.getInstance().recordSolve(getName(), "CYCLE", toPlace.size(), 0, solveTimeMs, Double.NaN, status);
+                return Collections.emptySet();
+            }
+        }
+
+        double latency = acoHelper.getPlacementLatency();
+        double bound = chainLatencyLowerBound(services, sourceIndices, DeviceStates, problemIndices);
+        double gap = latency > 0 ? (latency - bound) / latency : 0.0;
+
+        Set<PlacementRequest> placedPrs = new HashSet<>();
+        offset = 0;
+        for (Map.Entry<PlacementRequest, List<String>> entry : toPlace.entrySet()) {
+            PlacementRequest placementRequest = entry.getKey();
+            Application app = applicationInfo.get(placementRequest.getApplicationId());
+            int count = entry.getValue().size();
+            commitPlacement(entry.getValue(),
+                    Arrays.copyOfRange(services, offset, offset + count),
+                    app, placementRequest,
+                    Arrays.copyOfRange(placement, offset, offset + count));
+            captureResourceMetricsAfterSuccessfulPlacement(placementRequest, getCurrentDeviceStates(), CloudSim.clock());
+            placedPrs.add(placementRequest);
+            offset += count;
+        }
+        SPPMonitor.getInstance().recordSolve(getName(), "CYCLE", toPlace.size(), placedPrs.size(), solveTimeMs, gap,
+                acoHelper.isTimedOut() ? "TIMEOUT" : "SOLVED");
+        return placedPrs;
+    }
+
+    /**
+     * Sources of the microservices of one PR: the first one is reached from the request receiver,
+     * the others from the previous microservice (-1).
+     */
+    private static int[] chainFrom(int receiverIndex, int count) {
+        int[] sourceIndices = new int[count];
+        Arrays.fill(sourceIndices, -1);
+        if (count > 0) sourceIndices[0] = receiverIndex;
+        return sourceIndices;
+    }
+
     @Override
     protected List<DeviceState> getCurrentDeviceStates() {
-        return DeviceStates;
+        return DeviceStates != null ? DeviceStates.toDeviceStates() : new ArrayList<>();
+    }
+
+    @Override
+    protected boolean supportsPlacementCache() {
+        return true;
+    }
+
+    @Override
+    protected boolean allocateCachedPlacement(int[] services, int[] deviceIds) {
+        for (int i = 0; i < services.length; i++) {
+            DeviceStates.allocate(DeviceStates.indexOf(deviceIds[i]),
+                    problem.getCpu(services[i]), problem.getRam(services[i]), problem.getStorage(services[i]));
+        }
+        return true;
     }
 
     @Override
     protected int doTryPlacingOnePr(List<String> microservices, Application app, PlacementRequest placementRequest) {
         // Length of microservices should be equal to length of placement
         int requestReceiver = closestNodes.get(placementRequest);
-        MyACOHelper acoHelper = new MyACOHelper(microservices, DeviceStates, app, globalLatencies, indices, antsNumber, tau0, requestReceiver);
+        int[] services = getServices(microservices, app);
+        MyACOHelper acoHelper = new MyACOHelper(microservices, services, DeviceStates, problemIndices, antsNumber, tau0, requestReceiver);
         int[] placement = acoHelper.acoSchedule();
 
         // Initialize temporary state
@@ -106,56 +221,7 @@ public class SPPACO extends SPPHeuristic implements MicroservicePlacementLogic {
         }
 
         if (allPlaced) {
-            // Create a key for this placement request
-            PlacementRequestKey prKey = new PlacementRequestKey(
-                placementRequest.getSensorId(), 
-                ((ContextPlacementRequest)placementRequest).getPrIndex()
-            );
-            
-            // Ensure the key exists in mappedMicroservices
-            if (!mappedMicroservices.containsKey(prKey)) {
-                mappedMicroservices.put(prKey, new LinkedHashMap<>());
-            }
-            
-            for (int i = 0 ; i < microservices.size(); i++) {
-                String s = microservices.get(i);
-                AppModule service = getModule(s, app);
-                int deviceId = placement[i];
-
-                Logger.debug("Placement Success", String.format("Operator %s on device %s, Device id: %d, sensorId: %d, prIndex: %d%n",
-                        s,
-                        CloudSim.getEntityName(deviceId),
-                        deviceId,
-                        placementRequest.getSensorId(),
-                        ((ContextPlacementRequest) placementRequest).getPrIndex()));
-
-                // DeviceStates will go into future ACOHelper objects
-                // Then all the "copy" DeviceStates will contain the updated resource information
-                for (DeviceState d : DeviceStates) {
-                    if (d.getId() == deviceId) {
-                        d.allocate(service.getMips(), service.getRam(), service.getSize());
-                    }
-                }
-
-                moduleToApp.put(s, app.getAppId());
-
-                if (!currentModuleMap.get(deviceId).contains(s))
-                    currentModuleMap.get(deviceId).add(s);
-
-                mappedMicroservices.get(prKey).put(s, deviceId);
-
-                //currentModuleLoad
-                if (!currentModuleLoadMap.get(deviceId).containsKey(s))
-                    currentModuleLoadMap.get(deviceId).put(s, service.getMips());
-                else
-                    currentModuleLoadMap.get(deviceId).put(s, service.getMips() + currentModuleLoadMap.get(deviceId).get(s)); // todo Simon says isn't this already vertical scaling? But is on PR side not FogDevice side
-
-                //currentModuleInstance
-                if (!currentModuleInstanceNum.get(deviceId).containsKey(s))
-                    currentModuleInstanceNum.get(deviceId).put(s, 1);
-                else
-                    currentModuleInstanceNum.get(deviceId).put(s, currentModuleInstanceNum.get(deviceId).get(s) + 1);
-            }
+            commitPlacement(microservices, services, app, placementRequest, placement);
         }
         else {
             Logger.debug("Placement Failed", "But temporary state not affected");
@@ -172,13 +238,50 @@ public class SPPACO extends SPPHeuristic implements MicroservicePlacementLogic {
         else return getFonID();
     }
 
+    /**
+     * Allocates the resources of every microservice of a PR in DeviceStates and records its placement.
+     *
+     * @param placement The id of the device of every microservice
+     */
+    private void commitPlacement(List<String> microservices, int[] services, Application app,
+                                 PlacementRequest placementRequest, int[] placement) {
+        // Create a key for this placement request
+        PlacementRequestKey prKey = new PlacementRequestKey(
+            placementRequest.getSensorId(), 
+            ((ContextPlacementRequest)placementRequest).getPrIndex()
+        );
+        
+        // Ensure the key exists in mappedMicroservices
+        if (!mappedMicroservices.containsKey(prKey)) {
+            mappedMicroservices.put(prKey, new LinkedHashMap<>());
+        }
+        
+        for (int i = 0 ; i < microservices.size(); i++) {
+            String s = microservices.get(i);
+            double cpu = problem.getCpu(services[i]);
+            int deviceId = placement[i];
+
+            Logger.debug("Placement Success", String.format("Operator %s on device %s, Device id: %d, sensorId: %d, prIndex: %d%n",
+                    s,
+                    CloudSim.getEntityName(deviceId),
+                    deviceId,
+                    placementRequest.getSensorId(),
+                    ((ContextPlacementRequest) placementRequest).getPrIndex()));
+
+            // DeviceStates will go into future ACOHelper objects
+            // Then all the "copy" DeviceStates will contain the updated resource information
+            DeviceStates.allocate(DeviceStates.indexOf(deviceId), cpu, problem.getRam(services[i]), problem.getStorage(services[i]));
+
+            // todo Simon says isn't the module load already vertical scaling? But is on PR side not FogDevice side
+            recordPlacement(prKey, s, app, deviceId, cpu);
+        }
+    }
+
     class MyACOHelper {
 
         private List<String> microservices;
 
-        private List<DeviceState> edgeServers;
-
-        private double[][] latencies;
+        private DeviceStateArrays edgeServers;
 
         // Total ants number
         private int antsNumber;
@@ -224,70 +327,115 @@ public class SPPACO extends SPPHeuristic implements MicroservicePlacementLogic {
         private double[][] heuristic;
 
         // Latency calculation variables
-//        private String topology = MicroservicePlacementConfig.NETWORK_TOPOLOGY;
-        private Map<Integer, Integer> serversIds;
+        private final String topology = MicroservicePlacementConfig.NETWORK_TOPOLOGY;
+        private final boolean centralised = MicroservicePlacementConfig.CENTRALISED.equals(topology);
+        // Index in the compiled problem of every edge server
+        private final int[] serverIndices;
         //    private Map<Integer, MECSystemEntity> mecSystems;
         private int requestReceiver;
-        private final Application app;
+        // Per microservice: the index in the compiled problem of the device it is reached from,
+        //  or -1 if it is reached from the node of the previous microservice
+        private final int[] sourceIndices;
         private final Random random;
 
-        MyACOHelper(List<String> microservices, List<DeviceState> edgeServers, Application app, double[][] latencies, Map<Integer, Integer> serversIds, int antsNumber, double tau0, int requestReceiver) {
+        // Latency of the placement returned by the last schedule, and whether it ran out of time
+        private double placementLatency = -1;
+        private boolean timedOut = false;
+
+        // The requirements of the microservices, looked up once
+        private final double[] cpu;
+        private final double[] ram;
+        private final double[] storage;
+
+        // Per ant: its copy of the servers, reset from edgeServers before each tour,
+        // and its selection probabilities
+        private final DeviceStateArrays[] antServers;
+        private final double[][] antSelectionProbs;
+
+        MyACOHelper(List<String> microservices, int[] services, DeviceStateArrays edgeServers, int[] serverIndices, int antsNumber, double tau0, int requestReceiver) {
+            this(microservices, services, chainFrom(problem.getDeviceIndex(requestReceiver), services.length),
+                    edgeServers, serverIndices, antsNumber, tau0);
+            this.requestReceiver = requestReceiver;
+        }
+
+        /**
+         * @param sourceIndices per microservice, the index in the compiled problem of the device it
+         *                      is reached from, or -1 for the node of the previous microservice
+         */
+        MyACOHelper(List<String> microservices, int[] services, int[] sourceIndices, DeviceStateArrays edgeServers, int[] serverIndices, int antsNumber, double tau0) {
             this.microservices = microservices;
             this.edgeServers = edgeServers;
 
-            this.app = app;
-
-            this.latencies = latencies;
-            this.serversIds = serversIds;
+            this.serverIndices = serverIndices;
             this.antsNumber = antsNumber;
             this.ants = new ANT[antsNumber];
             this.pheromone = new double[edgeServers.size()][microservices.size()];
             this.heuristic = new double[edgeServers.size()][microservices.size()];
             this.tau0 = tau0;
-            this.requestReceiver = requestReceiver;
+            this.sourceIndices = sourceIndices;
             this.random = SPPACO.this.getRandom();
+            this.cpu = new double[services.length];
+            this.ram = new double[services.length];
+            this.storage = new double[services.length];
+            for (int j = 0; j < services.length; j++) {
+                this.cpu[j] = problem.getCpu(services[j]);
+                this.ram[j] = problem.getRam(services[j]);
+                this.storage[j] = problem.getStorage(services[j]);
+            }
+            this.antServers = new DeviceStateArrays[antsNumber];
+            this.antSelectionProbs = new double[antsNumber][edgeServers.size()];
+            for (int k = 0; k < antsNumber; k++) {
+                this.antServers[k] = edgeServers.copy();
+            }
             initAnts();
             initPheromones();
         }
 
         public int[] acoSchedule() {
+            return acoSchedule(Long.MAX_VALUE);
+        }
+
+        /**
+         * Runs the iterations of the colony, or as many of them as finish before a deadline.
+         *
+         * @param deadlineNanos value of {@link System#nanoTime()} after which no iteration is started
+         * @return the id of the device of every microservice, -1 where none was found
+         */
+        public int[] acoSchedule(long deadlineNanos) {
 
             boolean done = true;
+            timedOut = false;
+            placementLatency = -1;
             int[] placement = new int[this.getMicroservices().size()];
             for (int i = 0; i < placement.length; i++)
                 placement[i] = -1;
 
+            // Every ant draws from its own stream, split in ant order from one stream per schedule,
+            // so the ants can run on any threads and still make the same choices
+            SplittableRandom streams = new SplittableRandom(random.nextLong());
+            SplittableRandom[] antRandoms = new SplittableRandom[this.antsNumber];
+
             for (int iter = 0; iter < this.iterations; iter++) {
+                if (iter > 0 && System.nanoTime() > deadlineNanos) {
+                    timedOut = true;
+                    break;
+                }
                 for (int k = 0; k < this.antsNumber; k++) {
-                    // TODO These are "copies" of the FogDevices, only containing state that we need.
-                    //  Verify that it is indeed ok to have them disappear after each iteration of this FOR loop.
-                    List<DeviceState> serversIteration = new ArrayList<>();
-                    for (DeviceState server : edgeServers) {
-                        serversIteration.add(new DeviceState(server));
-                    }
-//                    for (FogDevice fogDevice : edgeServers) {
-//                        serversIteration.add(new DeviceState(fogDevice.getId(), resourceAvailability.get(fogDevice.getId()),
-//                                fogDevice.getHost().getTotalMips(), fogDevice.getHost().getRam(), fogDevice.getHost().getStorage()));
-//                    }
-                    for (int j = 0; j < this.getMicroservices().size(); j++) {
-                        // computeHeuristic();
-                        String microservice = this.getMicroservices().get(j);
-                        AppModule service = getModule(microservice, app);
-                        done = this.forwardMovement(j, k, service.getMips(), service.getRam(), service.getSize(), serversIteration);
-                        if (!done)
-                            break;
-                    }
-                    if (!done)
-                        break;
+                    antRandoms[k] = streams.split();
                 }
+                // Ants only read the pheromones until all of them have built their solutions
+                done = IntStream.range(0, this.antsNumber).parallel()
+                        .allMatch(k -> this.runAnt(k, antRandoms[k]));
 
                 if (!done)
                     break;
                 int optimalSolutionIndex = this.processSolutions();
                 ants[optimalSolutionIndex].setSuperior(true);
 
+                placementLatency = 0;
                 for (int m = 0; m < this.ants[optimalSolutionIndex].getMemories().length; m++) {
                     placement[m] = (int) this.ants[optimalSolutionIndex].getMemories()[m].getTargetFogDeviceId();
+                    placementLatency += this.ants[optimalSolutionIndex].getMemories()[m].getLatency();
                 }
 
                 this.globalEvaporation();
@@ -306,6 +454,25 @@ public class SPPACO extends SPPHeuristic implements MicroservicePlacementLogic {
             return placement;
         }
 
+        /**
+         * Lets an ant place every microservice on its own copy of the servers.
+         *
+         * @param aIndex the index of the ant
+         * @param antRandom the random stream of the ant
+         * @return false if a microservice could not be placed
+         */
+        private boolean runAnt(int aIndex, SplittableRandom antRandom) {
+            // These are "copies" of the FogDevices, only containing state that we need.
+            //  They are reset at the start of every tour of the ant.
+            DeviceStateArrays serversIteration = this.antServers[aIndex];
+            serversIteration.copyFrom(edgeServers);
+            for (int j = 0; j < this.getMicroservices().size(); j++) {
+                if (!this.forwardMovement(j, aIndex, this.cpu[j], this.ram[j], this.storage[j], serversIteration, antRandom))
+                    return false;
+            }
+            return true;
+        }
+
         public void initPheromones() {
             for (int i = 0; i < this.getEdgeServers().size(); i++) {
                 for (int j = 0; j < this.getMicroservices().size(); j++) {
@@ -320,40 +487,22 @@ public class SPPACO extends SPPHeuristic implements MicroservicePlacementLogic {
             }
         }
 
-        protected AppModule getModule(String moduleName, Application app) {
-            for (AppModule appModule : app.getModules()) {
-                if (appModule.getName().equals(moduleName))
-                    return appModule;
-            }
-            return null;
-        }
-
-        public boolean forwardMovement(int cIndex, int aIndex, double cpuRequirement, double ramRequirement, double storageRequirement, List<DeviceState> serversIteration) {
+        public boolean forwardMovement(int cIndex, int aIndex, double cpuRequirement, double ramRequirement, double storageRequirement, DeviceStateArrays serversIteration, SplittableRandom random) {
 
             boolean done = false;
             double sumProb = 0.0;
-            double[] selectionProb = new double[serversIteration.size()];
+            double[] selectionProb = this.antSelectionProbs[aIndex];
+            // The first microservice of a PR is reached from the request receiver, the others from the previous one
+            int currentIndex = this.sourceIndices[cIndex] >= 0 ? this.sourceIndices[cIndex] : this.serverIndices[this.ants[aIndex].getCurrentNode()];
 
             for (int i = 0; i < serversIteration.size(); i++) {
-                DeviceState edge = serversIteration.get(i);
-                if (edge.canFit(cpuRequirement, ramRequirement, storageRequirement)) {
+                if (serversIteration.canFit(i, cpuRequirement, ramRequirement, storageRequirement)) {
                     double niu = 0.0;
-                    double latency = 0.0;
-                    if (cIndex == 0) {
-                        latency = getLatency(this.getLatencies(), this.requestReceiver, edge.getId(), this.serversIds);
-                        if(latency == 0)
-                            niu = 1.0 / 0.01;
-                        else
-                            niu = 1.0 / latency;
-                    }
-                    else {
-                        int currentEdgeId = ants[aIndex].getFogDevice().getId();
-                        latency = getLatency(this.getLatencies(), currentEdgeId, edge.getId(), this.serversIds);
-                        if (latency == 0)
-                            niu = 1.0 / 0.01;
-                        else
-                            niu = 1.0 / latency;
-                    }
+                    double latency = getLatency(currentIndex, this.serverIndices[i]);
+                    if (latency == 0)
+                        niu = 1.0 / 0.01;
+                    else
+                        niu = 1.0 / latency;
                     selectionProb[i] = Math.pow(this.pheromone[i][cIndex], alfa) * Math.pow(niu, beta);
                     sumProb += selectionProb[i];
                 } else {
@@ -371,24 +520,40 @@ public class SPPACO extends SPPHeuristic implements MicroservicePlacementLogic {
                     p += selectionProb[j];
                 }
 
-                DeviceState selectedEdge = serversIteration.get(j);
-                if (cIndex == 0) {
-                    serversIteration.get(j).allocate(cpuRequirement, ramRequirement, storageRequirement);
-                    double latency = getLatency(this.getLatencies(), this.requestReceiver, selectedEdge.getId(), this.serversIds);
-                    this.ants[aIndex].addMemory(cIndex, new ANTMemory(j, latency, selectedEdge.getCPUUtil(), selectedEdge.getRAMUtil(), selectedEdge.getId()));
-                } else {
-                    serversIteration.get(j).allocate(cpuRequirement, ramRequirement, storageRequirement);
-                    int currentEdgeId = this.ants[aIndex].getFogDevice().getId();
-                    double latency = getLatency(this.getLatencies(), currentEdgeId, selectedEdge.getId(), this.serversIds);
-                    this.ants[aIndex].addMemory(cIndex, new ANTMemory(j, latency, selectedEdge.getCPUUtil(), selectedEdge.getRAMUtil(), selectedEdge.getId()));
-                }
+                serversIteration.allocate(j, cpuRequirement, ramRequirement, storageRequirement);
+                double latency = getLatency(currentIndex, this.serverIndices[j]);
+                remember(aIndex, cIndex, j, latency, serversIteration);
                 this.ants[aIndex].setCurrentNode(j);
-                this.ants[aIndex].setFogDevice(selectedEdge);
             }
 
             return done;
         }
 
+        /**
+         * Records the node chosen by an ant for a microservice, reusing the memory of its previous tour.
+         */
+        private void remember(int aIndex, int cIndex, int nodeIndex, double latency, DeviceStateArrays serversIteration) {
+            ANTMemory memory = this.ants[aIndex].getMemories()[cIndex];
+            if (memory == null) {
+                this.ants[aIndex].addMemory(cIndex, new ANTMemory(nodeIndex, latency, serversIteration.getCPUUtil(nodeIndex),
+                        serversIteration.getRAMUtil(nodeIndex), serversIteration.getId(nodeIndex)));
+            } else {
+                memory.setNodeIndex(nodeIndex);
+                memory.setLatency(latency);
+                memory.setCpuUtil(serversIteration.getCPUUtil(nodeIndex));
+                memory.setRamUtil(serversIteration.getRAMUtil(nodeIndex));
+                memory.setTargetFogDeviceId(serversIteration.getId(nodeIndex));
+            }
+        }
+
+        public double getPlacementLatency() {
+            return placementLatency;
+        }
+
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
         public void backwardMovement(int cIndex, int aIndex) {
             depositPheronome(cIndex, aIndex);
         }
@@ -422,21 +587,6 @@ public class SPPACO extends SPPHeuristic implements MicroservicePlacementLogic {
             }
         }
 
-        public void computeHeuristic() {
-            double niu;
-            for (int i = 0; i < this.getEdgeServers().size(); i++) {
-                for (int j = 0; j < this.getMicroservices().size(); j++) {
-                    // DOUBLE CHECK THIS
-                    if (this.getLatencies()[i][j] > 0) {
-                        niu = 1.0 / this.getLatencies()[i][j];
-                    } else {
-                        niu = 1.0 / 0.0001;
-                    }
-                    this.heuristic[i][j] = Math.pow(this.pheromone[i][j], this.alfa) * Math.pow(niu, this.beta);
-                }
-            }
-        }
-
         // Decrease the pheromone level in the pheron
         public void globalEvaporation() {
             for (int i = 0; i < this.getEdgeServers().size(); i++) {
@@ -446,17 +596,16 @@ public class SPPACO extends SPPHeuristic implements MicroservicePlacementLogic {
             }
         }
 
-        public double getLatency(double[][] latencies, Integer edge1, Integer edge2, Map<Integer, Integer> serversIds) {
+        /**
+         * @param edge1Index index of the first edge server in the compiled problem
+         * @param edge2Index index of the second edge server in the compiled problem
+         */
+        public double getLatency(int edge1Index, int edge2Index) {
+            // The topology does not change during a schedule, it is checked once
+            if (centralised)
+                return problem.getLatency(edge1Index, edge2Index);
             double latency = 0.0;
-            switch(MicroservicePlacementConfig.NETWORK_TOPOLOGY) {
-                case MicroservicePlacementConfig.CENTRALISED:
-                    int edge1Index = serversIds.get(edge1);
-                    int edge2Index = serversIds.get(edge2);
-                    if (edge1Index == edge2Index)
-                        latency = 0.0;
-                    else
-                        latency = latencies[edge1Index][cloudIndex] + latencies[cloudIndex][edge2Index];
-                    break;
+            switch(topology) {
                 case MicroservicePlacementConfig.FEDERATED:
                     Logger.error("Control Flow Error", "Topology cannot possibly be Federated.");
                     return -1.0;
@@ -498,11 +647,11 @@ public class SPPACO extends SPPHeuristic implements MicroservicePlacementLogic {
             this.microservices = microservices;
         }
 
-        public List<DeviceState> getEdgeServers() {
+        public DeviceStateArrays getEdgeServers() {
             return edgeServers;
         }
 
-        public void setEdgeServers(List<DeviceState> edgeServers) {
+        public void setEdgeServers(DeviceStateArrays edgeServers) {
             this.edgeServers = edgeServers;
         }
 
@@ -594,12 +743,8 @@ public class SPPACO extends SPPHeuristic implements MicroservicePlacementLogic {
 //        this.topology = topology;
 //    }
 
-        public Map<Integer, Integer> getServersIds() {
-            return serversIds;
-        }
-
-        public void setServersIds(Map<Integer, Integer> serversIds) {
-            this.serversIds = serversIds;
+        public int[] getServerIndices() {
+            return serverIndices;
         }
 
 //    public Map<Integer, MECSystemEntity> getMecSystems() {
@@ -616,14 +761,7 @@ public class SPPACO extends SPPHeuristic implements MicroservicePlacementLogic {
 
         public void setRequestReceiver(Integer requestReceiver) {
             this.requestReceiver = requestReceiver;
-        }
-
-        public double[][] getLatencies() {
-            return latencies;
-        }
-
-        public void setLatencies(double[][] latencies) {
-            this.latencies = latencies;
+            this.sourceIndices[0] = problem.getDeviceIndex(requestReceiver);
         }
 
     }
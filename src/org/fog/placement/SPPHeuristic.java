@@ -1,6 +1,5 @@
 package org.fog.placement;
 import org.cloudbus.cloudsim.core.CloudSim;
-import org.fog.application.AppEdge;
 import org.fog.application.AppModule;
 import org.fog.application.Application;
 import org.fog.entities.*;
@@ -34,7 +33,10 @@ public abstract class SPPHeuristic implements MicroservicePlacementLogic {
     protected Map<Integer, Integer> indices;
     protected int cloudIndex = -1;
     protected int cloudId = -1;
-    protected double [][] globalLatencies;
+    // Latencies of the network links, shared by the controller; built per cycle if none was set
+    protected LatencyOracle latencyOracle;
+    // Compiled once per cycle, for the inner loops of the heuristics
+    protected PlacementProblem problem;
 
     // Temporary State
     protected Map<Integer, Double> currentCpuLoad;
@@ -44,9 +46,6 @@ public abstract class SPPHeuristic implements MicroservicePlacementLogic {
     protected Map<Integer, Map<String, Double>> currentModuleLoadMap = new LinkedHashMap<>();
     protected Map<Integer, Map<String, Integer>> currentModuleInstanceNum = new LinkedHashMap<>();
 
-    // For quick lookup in getModule method
-    private final Map<String, Map<String, AppModule>> moduleCache = new LinkedHashMap<>();
-
     // Composite key class for placement requests
     // sensorId (sensor that created PR), prIndex (index of PR made by this sensor)
     protected static class PlacementRequestKey {
@@ -87,6 +86,10 @@ public abstract class SPPHeuristic implements MicroservicePlacementLogic {
     protected long seed = 33;
     protected Random random = new Random(seed);
 
+    // Placements kept across cycles for reuse by similar PRs, created on first use
+    //  (see MicroservicePlacementConfig.PLACEMENT_CACHE_SIZE)
+    private PlacementCache placementCache;
+
     public SPPHeuristic(int fonID) {
         setFONId(fonID);
     }
@@ -114,7 +117,7 @@ public abstract class SPPHeuristic implements MicroservicePlacementLogic {
 
     public Map<PlacementRequest, Integer> mapPlacedAndSpecialModules(List <PlacementRequest> prs) {
         // Note the edge servers that sent the PRs
-        Map<PlacementRequest, Integer> closestNodes = new HashMap<>();
+        Map<PlacementRequest, Integer> closestNodes = new LinkedHashMap<>();
 
         for (PlacementRequest placementRequest : prs) {
             closestNodes.put(placementRequest, getDevice(placementRequest.getRequester()).getParentId());
@@ -141,9 +144,10 @@ public abstract class SPPHeuristic implements MicroservicePlacementLogic {
     }
 
     protected boolean canFit(String microservice, int deviceId, Application app) {
-        return (getModule(microservice, app).getMips() + getCurrentCpuLoad().get(deviceId) <= resourceAvailability.get(deviceId).get(ControllerComponent.CPU)
-                && getModule(microservice, app).getRam() + getCurrentRamLoad().get(deviceId) <= resourceAvailability.get(deviceId).get(ControllerComponent.RAM)
-                && getModule(microservice, app).getSize() + getCurrentStorageLoad().get(deviceId) <= resourceAvailability.get(deviceId).get(ControllerComponent.STORAGE));
+        AppModule module = getModule(microservice, app);
+        return (module.getMips() + getCurrentCpuLoad().get(deviceId) <= resourceAvailability.get(deviceId).get(ControllerComponent.CPU)
+                && module.getRam() + getCurrentRamLoad().get(deviceId) <= resourceAvailability.get(deviceId).get(ControllerComponent.RAM)
+                && module.getSize() + getCurrentStorageLoad().get(deviceId) <= resourceAvailability.get(deviceId).get(ControllerComponent.STORAGE));
     }
 
 
@@ -246,28 +250,14 @@ public abstract class SPPHeuristic implements MicroservicePlacementLogic {
     }
 
     protected List<String> getNextLayerOfModulesToPlace(Set<String> placedModules, Application app) {
-        List<String> modulesToPlace_1 = new ArrayList<String>();
         List<String> modulesToPlace = new ArrayList<String>();
-        for (AppModule module : app.getModules()) {
-            if (!placedModules.contains(module.getName()))
-                modulesToPlace_1.add(module.getName());
-        }
         /*
          * Filtering based on whether modules (to be placed) lower in physical topology are already placed
          */
-        for (String moduleName : modulesToPlace_1) {
-            boolean toBePlaced = true;
-
-            for (AppEdge edge : app.getEdges()) {
-                //CHECK IF OUTGOING DOWN EDGES ARE PLACED
-                if (edge.getSource().equals(moduleName) && edge.getDirection() == Tuple.DOWN && !placedModules.contains(edge.getDestination()))
-                    toBePlaced = false;
-                //CHECK IF INCOMING UP EDGES ARE PLACED
-                if (edge.getDestination().equals(moduleName) && edge.getDirection() == Tuple.UP && !placedModules.contains(edge.getSource()))
-                    toBePlaced = false;
-            }
-            if (toBePlaced)
-                modulesToPlace.add(moduleName);
+        boolean[] placed = problem.toPlacedServices(app, placedModules);
+        for (int service : problem.getServices(app)) {
+            if (problem.isReady(service, placed))
+                modulesToPlace.add(problem.getName(service));
         }
         return modulesToPlace;
     }
@@ -277,24 +267,29 @@ public abstract class SPPHeuristic implements MicroservicePlacementLogic {
     //  if the AppLoop belonging to the PR has non-linear structure
     protected List<String> getAllModulesToPlace(Set<String> placedModules, Application app) {
         List<String> modulesToPlace = new ArrayList<>();
-        Queue<String> toCheck = new LinkedList<>();
+        Queue<Integer> toCheck = new ArrayDeque<>();
+        boolean[] placed = problem.toPlacedServices(app, placedModules);
+        boolean[] added = new boolean[placed.length];
+        int[] services = problem.getServices(app);
 
         // Start with the initial list of modules that can be placed
-
-        toCheck.addAll(getNextLayerOfModulesToPlace(placedModules, app));
+        for (int service : services) {
+            if (problem.isReady(service, placed))
+                toCheck.add(service);
+        }
 
         while (!toCheck.isEmpty()) {
-            String currentModule = toCheck.poll();
-            if (!modulesToPlace.contains(currentModule)) {
-                modulesToPlace.add(currentModule);
+            int currentService = toCheck.poll();
+            if (!added[currentService]) {
+                added[currentService] = true;
+                modulesToPlace.add(problem.getName(currentService));
                 // Add the current module to the 'placed' set temporarily to check further dependencies
-                placedModules.add(currentModule);
+                placed[currentService] = true;
 
                 // Get next level of modules based on new 'placed' status
-                List<String> nextModules = getNextLayerOfModulesToPlace(placedModules, app);
-                for (String nextModule : nextModules) {
-                    if (!modulesToPlace.contains(nextModule)) {
-                        toCheck.add(nextModule);
+                for (int service : services) {
+                    if (problem.isReady(service, placed) && !added[service]) {
+                        toCheck.add(service);
                     }
                 }
             }
@@ -330,6 +325,19 @@ public abstract class SPPHeuristic implements MicroservicePlacementLogic {
         this.placementRequests = prs;
         this.resourceAvailability = resourceAvailability;
         this.applicationInfo = applicationInfo;
+
+        indices = new LinkedHashMap<>();
+        for (int i=0 ; i<fogDevices.size() ; i++) {
+            indices.put(fogDevices.get(i).getId(), i);
+            // While we're at it, determine cloud's index
+            if (Objects.equals(fogDevices.get(i).getName(), "cloud")) {
+                cloudIndex = i;
+                cloudId = fogDevices.get(i).getId();
+            }
+        }
+        LatencyOracle oracle = latencyOracle != null ? latencyOracle : new LatencyOracle(fogDevices);
+        problem = new PlacementProblem(fogDevices, applicationInfo, cloudIndex, oracle);
+
         this.mappedMicroservices = new LinkedHashMap<>();
         this.closestNodes = mapPlacedAndSpecialModules(placementRequests);
 
@@ -347,17 +355,6 @@ public abstract class SPPHeuristic implements MicroservicePlacementLogic {
             currentModuleInstanceNum.put(id, new LinkedHashMap<String, Integer>());
         }
 
-        indices = new LinkedHashMap<>();
-        for (int i=0 ; i<fogDevices.size() ; i++) {
-            indices.put(fogDevices.get(i).getId(), i);
-            // While we're at it, determine cloud's index
-            if (Objects.equals(fogDevices.get(i).getName(), "cloud")) {
-                cloudIndex = i;
-                cloudId = fogDevices.get(i).getId();
-            }
-        }
-        globalLatencies = fillGlobalLatencies(fogDevices.size(), indices);
-
         // Initialize placementRequestMap for efficient lookups
         placementRequestMap = new LinkedHashMap<>();
         for (PlacementRequest pr : prs) {
@@ -367,25 +364,6 @@ public abstract class SPPHeuristic implements MicroservicePlacementLogic {
         }
     }
 
-    protected double[][] fillGlobalLatencies(int length, Map<Integer, Integer> indices) {
-        double[][] latencies = new double[length][length];
-        for (int i = 0; i < length; i++) {
-            for (int j = 0; j < length; j++) {
-                if (i==j) latencies[i][j] = 0.0;
-                else latencies[i][j] = -1.0; // Initialize
-            }
-        }
-
-        // Centralised, flower-shaped topology
-        // Only latencies from cloud to edge are included
-        for (Map.Entry<Integer, Double> entry : fogDevices.get(cloudIndex).getChildToLatencyMap().entrySet()) {
-            latencies[cloudIndex][indices.get(entry.getKey())] = entry.getValue();
-            latencies[indices.get(entry.getKey())][cloudIndex] = entry.getValue();
-        }
-
-        return latencies;
-    }
-
     @Override
     public void updateResources(Map<Integer, Map<String, Double>> resourceAvailability) {
         for (int deviceId : currentModuleInstanceNum.keySet()) {
@@ -427,12 +405,65 @@ public abstract class SPPHeuristic implements MicroservicePlacementLogic {
         SPPMonitor.getInstance().storeUtilizationForPR(pr, utilization);
     }
 
+    /**
+     * Records the placement of one microservice of a PR, for heuristics that track the free
+     * resources of the devices themselves.
+     * State updated:
+     *  - mappedMicroservices (the entry of prKey must exist)
+     *  - moduleToApp
+     *  - currentModuleMap
+     *  - currentModuleLoadMap
+     *  - currentModuleInstanceNum
+     *  - currentCpuLoad, currentRamLoad, currentStorageLoad (for {@link #canFit(String, int, Application)})
+     */
+    protected void recordPlacement(PlacementRequestKey prKey, String microservice, Application app, int deviceId, double cpu) {
+        AppModule module = getModule(microservice, app);
+        getCurrentCpuLoad().put(deviceId, cpu + getCurrentCpuLoad().get(deviceId));
+        getCurrentRamLoad().put(deviceId, module.getRam() + getCurrentRamLoad().get(deviceId));
+        getCurrentStorageLoad().put(deviceId, module.getSize() + getCurrentStorageLoad().get(deviceId));
+
+        moduleToApp.put(microservice, app.getAppId());
+
+        if (!currentModuleMap.get(deviceId).contains(microservice))
+            currentModuleMap.get(deviceId).add(microservice);
+
+        mappedMicroservices.get(prKey).put(microservice, deviceId);
+
+        //currentModuleLoad
+        if (!currentModuleLoadMap.get(deviceId).containsKey(microservice))
+            currentModuleLoadMap.get(deviceId).put(microservice, cpu);
+        else
+            currentModuleLoadMap.get(deviceId).put(microservice, cpu + currentModuleLoadMap.get(deviceId).get(microservice));
+
+        //currentModuleInstance
+        if (!currentModuleInstanceNum.get(deviceId).containsKey(microservice))
+            currentModuleInstanceNum.get(deviceId).put(microservice, 1);
+        else
+            currentModuleInstanceNum.get(deviceId).put(microservice, currentModuleInstanceNum.get(deviceId).get(microservice) + 1);
+    }
+
     /**
      * Template method for placing a PR and capturing metrics
      * Child classes implement doTryPlacingOnePr with their placement logic
      */
     protected final int processOnePr(List<String> microservices, Application app, PlacementRequest placementRequest) {
-        int result = doTryPlacingOnePr(microservices, app, placementRequest);
+        PlacementCache.Key cacheKey = null;
+        if (MicroservicePlacementConfig.PLACEMENT_CACHE_SIZE > 0 && supportsPlacementCache()) {
+            if (placementCache == null) {
+                placementCache = new PlacementCache(MicroservicePlacementConfig.PLACEMENT_CACHE_SIZE);
+            }
+            cacheKey = new PlacementCache.Key(app.getAppId(), closestNodes.get(placementRequest), microservices);
+        }
+
+        int result;
+        if (cacheKey != null && reuseCachedPlacement(cacheKey, microservices, app, placementRequest)) {
+            result = -1;
+        } else {
+            result = doTryPlacingOnePr(microservices, app, placementRequest);
+            if (cacheKey != null && result == -1) {
+                cachePlacement(cacheKey, microservices, app, placementRequest);
+            }
+        }
         if (result == -1) {
             List<DeviceState> currentStates = getCurrentDeviceStates();
             captureResourceMetricsAfterSuccessfulPlacement(placementRequest, currentStates, CloudSim.clock());
@@ -442,6 +473,138 @@ public abstract class SPPHeuristic implements MicroservicePlacementLogic {
 
     protected abstract int doTryPlacingOnePr(List<String> microservices, Application app, PlacementRequest placementRequest);
 
+    /**
+     * Whether the heuristic can reuse cached placements, see {@link #allocateCachedPlacement}.
+     * Only worth it for the heuristics that take long to place a PR.
+     */
+    protected boolean supportsPlacementCache() {
+        return false;
+    }
+
+    /**
+     * Allocates the resources of a placement taken from the placement cache in the device state of
+     * the heuristic. The placement was checked to fit; its recording is done by the caller.
+     * Heuristics that keep no device state of their own cannot reuse placements, and the PR is
+     * placed as on a cache miss.
+     *
+     * @param services The services of the PR, see {@link #getServices}
+     * @param deviceIds The id of the device of every service
+     * @return whether the resources were allocated
+     */
+    protected boolean allocateCachedPlacement(int[] services, int[] deviceIds) {
+        return false;
+    }
+
+    /**
+     * Places a PR like a similar PR placed before, if the devices of that placement are still at
+     * the same free capacity level and still fit the microservices.
+     *
+     * @return whether the PR was placed
+     */
+    private boolean reuseCachedPlacement(PlacementCache.Key cacheKey, List<String> microservices, Application app,
+                                         PlacementRequest placementRequest) {
+        PlacementCache.Entry entry = placementCache.get(cacheKey);
+        if (entry == null) {
+            SPPMonitor.getInstance().recordPlacementCacheLookup(false, false);
+            return false;
+        }
+        int[] deviceIds = entry.getDeviceIds();
+        int[] services = getServices(microservices, app);
+
+        boolean reusable = true;
+        for (int i = 0; i < deviceIds.length && reusable; i++) {
+            reusable = resourceAvailability.containsKey(deviceIds[i])
+                    && freeCapacityLevel(deviceIds[i], 0.0, 0.0) == entry.getLevels()[i];
+        }
+        // Check the microservices one after the other, as several may share a device
+        int checked = 0;
+        while (reusable && checked < deviceIds.length) {
+            reusable = canFit(microservices.get(checked), deviceIds[checked], app);
+            if (reusable) {
+                addLoad(deviceIds[checked], services[checked], 1);
+                checked++;
+            }
+        }
+        for (int i = 0; i < checked; i++) {
+            addLoad(deviceIds[i], services[i], -1);
+        }
+        reusable = reusable && allocateCachedPlacement(services, deviceIds);
+        SPPMonitor.getInstance().recordPlacementCacheLookup(true, reusable);
+        if (!reusable) {
+            return false;
+        }
+
+        PlacementRequestKey prKey = new PlacementRequestKey(
+            placementRequest.getSensorId(),
+            ((ContextPlacementRequest) placementRequest).getPrIndex()
+        );
+        mappedMicroservices.computeIfAbsent(prKey, k -> new LinkedHashMap<>());
+        for (int i = 0; i < deviceIds.length; i++) {
+            recordPlacement(prKey, microservices.get(i), app, deviceIds[i], problem.getCpu(services[i]));
+        }
+        return true;
+    }
+
+    /**
+     * Caches the placement of a PR just placed, with the free capacity level of its devices before
+     * the placement.
+     */
+    private void cachePlacement(PlacementCache.Key cacheKey, List<String> microservices, Application app,
+                                PlacementRequest placementRequest) {
+        PlacementRequestKey prKey = new PlacementRequestKey(
+            placementRequest.getSensorId(),
+            ((ContextPlacementRequest) placementRequest).getPrIndex()
+        );
+        Map<String, Integer> placed = mappedMicroservices.get(prKey);
+        int[] services = getServices(microservices, app);
+        int[] deviceIds = new int[microservices.size()];
+        for (int i = 0; i < deviceIds.length; i++) {
+            deviceIds[i] = placed.get(microservices.get(i));
+        }
+
+        int[] levels = new int[deviceIds.length];
+        for (int i = 0; i < deviceIds.length; i++) {
+            // Resources of the PR on the device, to get back to its state before the placement
+            double cpu = 0.0;
+            double ram = 0.0;
+            for (int j = 0; j < deviceIds.length; j++) {
+                if (deviceIds[j] == deviceIds[i]) {
+                    cpu += problem.getCpu(services[j]);
+                    ram += problem.getRam(services[j]);
+                }
+            }
+            levels[i] = freeCapacityLevel(deviceIds[i], cpu, ram);
+        }
+        placementCache.put(cacheKey, deviceIds, levels);
+    }
+
+    /**
+     * Quantises the free CPU and RAM of a device in this cycle, as shares of its total resources,
+     * into {@link MicroservicePlacementConfig#PLACEMENT_CACHE_BUCKETS} levels each.
+     *
+     * @param cpuReleased CPU to count as free in addition to the free CPU of the device
+     * @param ramReleased RAM to count as free in addition to the free RAM of the device
+     * @return the CPU level and the RAM level, as one number
+     */
+    private int freeCapacityLevel(int deviceId, double cpuReleased, double ramReleased) {
+        int buckets = MicroservicePlacementConfig.PLACEMENT_CACHE_BUCKETS;
+        FogDevice device = getDevice(deviceId);
+        double freeCpu = resourceAvailability.get(deviceId).get(ControllerComponent.CPU)
+                - getCurrentCpuLoad().get(deviceId) + cpuReleased;
+        double freeRam = resourceAvailability.get(deviceId).get(ControllerComponent.RAM)
+                - getCurrentRamLoad().get(deviceId) + ramReleased;
+        int cpuLevel = Math.min(buckets - 1, (int) (freeCpu / device.getHost().getTotalMips() * buckets));
+        int ramLevel = Math.min(buckets - 1, (int) (freeRam / device.getHost().getRam() * buckets));
+        return cpuLevel * buckets + ramLevel;
+    }
+
+    /** Adds (sign 1) or removes (sign -1) the resources of a service to the current load of a device. */
+    private void addLoad(int deviceId, int service, int sign) {
+        getCurrentCpuLoad().put(deviceId, getCurrentCpuLoad().get(deviceId) + sign * problem.getCpu(service));
+        getCurrentRamLoad().put(deviceId, getCurrentRamLoad().get(deviceId) + sign * problem.getRam(service));
+        getCurrentStorageLoad().put(deviceId, getCurrentStorageLoad().get(deviceId) + sign * problem.getStorage(service));
+    }
+
     protected abstract List<DeviceState> getCurrentDeviceStates();
 
     /**
@@ -627,7 +790,7 @@ public abstract class SPPHeuristic implements MicroservicePlacementLogic {
                     } else {
                         List<ModuleLaunchConfig> l = new ArrayList<>();
                         l.add(moduleLaunchConfig);
-                        HashMap<Application, List<ModuleLaunchConfig>> m = new HashMap<>();
+                        Map<Application, List<ModuleLaunchConfig>> m = new LinkedHashMap<>();
                         m.put(application, l);
                         perDevice.put(deviceId, m);
                     }
@@ -724,9 +887,10 @@ public abstract class SPPHeuristic implements MicroservicePlacementLogic {
     protected List<String> getClientServices(Application application, String microservice) {
         List<String> clientServices = new LinkedList<>();
 
-        for (AppEdge edge : application.getEdges()) {
-            if (edge.getDestination().equals(microservice) && edge.getDirection() == Tuple.UP)
-                clientServices.add(edge.getSource());
+        int service = problem.getServiceIndex(application, microservice);
+        if (service >= 0) {
+            for (int client : problem.getClients(service))
+                clientServices.add(problem.getName(client));
         }
         return clientServices;
     }
@@ -735,11 +899,8 @@ public abstract class SPPHeuristic implements MicroservicePlacementLogic {
 
 
     protected FogDevice getDeviceByName(String deviceName) {
-        for (FogDevice f : fogDevices) {
-            if (f.getName().equals(deviceName))
-                return f;
-        }
-        return null;
+        int index = problem.getDeviceIndex(deviceName);
+        return index >= 0 ? problem.getDevice(index) : null;
     }
 
     public Map<Integer, Double> getCurrentCpuLoad() {
@@ -783,26 +944,151 @@ public abstract class SPPHeuristic implements MicroservicePlacementLogic {
      * @return The relevant appModule belonging to `app` with the name `moduleName`
      */
     protected AppModule getModule(String moduleName, Application app) {
-        Map<String, AppModule> appModules = moduleCache.computeIfAbsent(
-                app.getAppId(), k -> new HashMap<>()
-        );
-        if (appModules.containsKey(moduleName)) return appModules.get(moduleName);
+        int service = problem != null ? problem.getServiceIndex(app, moduleName) : -1;
+        if (service >= 0) return problem.getModule(service);
         AppModule module = app.getModuleByName(moduleName);
-        if (module != null) {
-            appModules.put(moduleName, module);
-        }
-        else {
+        if (module == null) {
             throw new NullPointerException("Module not found");
         }
         return module;
     }
 
-    protected FogDevice getDevice(int deviceId) {
-        for (FogDevice fogDevice : fogDevices) {
-            if (fogDevice.getId() == deviceId)
-                return fogDevice;
+    /**
+     * Indices of the microservices of a PR in the compiled problem, to look up their requirements
+     * with {@link PlacementProblem#getCpu(int)} etc. in the inner loops.
+     *
+     * @param microservices Names of the microservices
+     * @param app Application that the microservices belong to
+     * @return The service indices, in the same order
+     */
+    protected int[] getServices(List<String> microservices, Application app) {
+        return problem.getServiceIndices(app, microservices);
+    }
+
+    /**
+     * Lower bound of the total latency of placing chains of services. Every chain from a request
+     * receiver is placed on the servers with the lowest latency, among those with enough free
+     * resources for each service alone. The chains that could then stay on their receiver at no
+     * latency compete for its resources: those that cannot all fit pay at least the latency from
+     * the receiver to its closest other server.
+     * <p>
+     * Servers are connected through the cloud ({@link PlacementProblem#getLatency}), so the best
+     * way to reach a server from the previous service is found from the two cheapest ways of
+     * leaving it, in time linear in the number of servers.
+     *
+     * @param services The services, one chain after the other
+     * @param sourceIndices Per service, the index in the compiled problem of the device it is
+     *                      reached from, or -1 for the server of the previous service
+     * @param servers The free resources of the servers
+     * @param serverIndices Index in the compiled problem of every server
+     * @return The bound, infinite if a service fits on no server
+     */
+    protected double chainLatencyLowerBound(int[] services, int[] sourceIndices,
+                                            DeviceStateArrays servers, int[] serverIndices) {
+        int count = servers.size();
+        double[] previous = new double[count];
+        double[] current = new double[count];
+        double bound = 0;
+        // Per receiver: the cpu, ram and storage of the chains that could stay on it
+        Map<Integer, List<double[]>> freeChains = new LinkedHashMap<>();
+        int chainStart = 0;
+        for (int j = 0; j < services.length; j++) {
+            double cpu = problem.getCpu(services[j]);
+            double ram = problem.getRam(services[j]);
+            double storage = problem.getStorage(services[j]);
+            // The two cheapest ways of leaving a server of the previous service through the cloud
+            double cheapest = Double.POSITIVE_INFINITY;
+            double secondCheapest = Double.POSITIVE_INFINITY;
+            int cheapestServer = -1;
+            if (sourceIndices[j] < 0) {
+                for (int m = 0; m < count; m++) {
+                    double cost = previous[m] + problem.getCloudLatency(serverIndices[m]);
+                    if (cost < cheapest) {
+                        secondCheapest = cheapest;
+                        cheapest = cost;
+                        cheapestServer = m;
+                    } else if (cost < secondCheapest) {
+                        secondCheapest = cost;
+                    }
+                }
+            } else {
+                chainStart = j;
+            }
+            for (int n = 0; n < count; n++) {
+                current[n] = Double.POSITIVE_INFINITY;
+                if (!servers.canFit(n, cpu, ram, storage))
+                    continue;
+                if (sourceIndices[j] >= 0) {
+                    current[n] = problem.getLatency(sourceIndices[j], serverIndices[n]);
+                } else {
+                    // Stay on the server, or come from another one through the cloud
+                    double leave = n == cheapestServer ? secondCheapest : cheapest;
+                    current[n] = Math.min(previous[n], leave + problem.getCloudLatency(serverIndices[n]));
+                }
+            }
+            // End of a chain
+            if (j + 1 == services.length || sourceIndices[j + 1] >= 0) {
+                double best = Double.POSITIVE_INFINITY;
+                for (double c : current) best = Math.min(best, c);
+                bound += best;
+                if (best == 0) {
+                    double[] demand = new double[3];
+                    for (int k = chainStart; k <= j; k++) {
+                        demand[0] += problem.getCpu(services[k]);
+                        demand[1] += problem.getRam(services[k]);
+                        demand[2] += problem.getStorage(services[k]);
+                    }
+                    freeChains.computeIfAbsent(sourceIndices[chainStart], r -> new ArrayList<>()).add(demand);
+                }
+            }
+            double[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        for (Map.Entry<Integer, List<double[]>> entry : freeChains.entrySet()) {
+            int receiverIndex = entry.getKey();
+            List<double[]> demands = entry.getValue();
+            int server = -1;
+            double closest = Double.POSITIVE_INFINITY;
+            for (int n = 0; n < count; n++) {
+                if (serverIndices[n] == receiverIndex)
+                    server = n;
+                else
+                    closest = Math.min(closest, problem.getLatency(receiverIndex, serverIndices[n]));
+            }
+            if (server < 0 || closest == Double.POSITIVE_INFINITY)
+                continue;
+            // At most as many chains fit as the smallest ones do on each resource
+            int fitting = Math.min(countFitting(demands, 0, servers.getCPU(server)),
+                    Math.min(countFitting(demands, 1, servers.getRAM(server)),
+                            countFitting(demands, 2, servers.getStorage(server))));
+            bound += closest * (demands.size() - fitting);
         }
-        return null;
+        return bound;
+    }
+
+    /**
+     * @return how many of the demands fit together in the capacity on one resource, taking the smallest first
+     */
+    private static int countFitting(List<double[]> demands, int resource, double capacity) {
+        double[] sorted = new double[demands.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = demands.get(i)[resource];
+        }
+        Arrays.sort(sorted);
+        int count = 0;
+        double used = 0;
+        while (count < sorted.length && used + sorted[count] <= capacity) {
+            used += sorted[count];
+            count++;
+        }
+        return count;
+    }
+
+    protected FogDevice getDevice(int deviceId) {
+        int index = problem.getDeviceIndex(deviceId);
+        return index >= 0 ? problem.getDevice(index) : null;
     }
 
 
@@ -844,8 +1130,9 @@ public abstract class SPPHeuristic implements MicroservicePlacementLogic {
         int srcIndex = indices.get(srcId);
         int destIndex = indices.get(destId);
 
-        double l = globalLatencies[srcIndex][destIndex];
-        if (l >= 0) return l;
+        // Edge node to cloud (centralised, flower-shaped topology)
+        double l = problem.getLatency(srcIndex, destIndex);
+        if ((srcIndex == cloudIndex || destIndex == cloudIndex) && l >= 0) return l;
 
         if (MicroservicePlacementConfig.NETWORK_TOPOLOGY != MicroservicePlacementConfig.CENTRALISED) throw new NullPointerException("Wrong topology.");
         SPPFogDevice src = (SPPFogDevice) getDevice(srcId);
@@ -853,7 +1140,7 @@ public abstract class SPPHeuristic implements MicroservicePlacementLogic {
 
 
         if (Objects.equals(src.getDeviceType(), SPPFogDevice.FCN) && Objects.equals(dest.getDeviceType(), SPPFogDevice.FCN)){
-            return globalLatencies[srcIndex][cloudIndex] + globalLatencies[cloudIndex][destIndex];
+            return l;
         }
         else { // dest is user device
             throw new NullPointerException("We don't calculate latency with users anymore");
@@ -1098,20 +1385,153 @@ public abstract class SPPHeuristic implements MicroservicePlacementLogic {
         }
     }
 
+    /**
+     * The states of a fixed set of fog nodes as parallel arrays, indexed by the position of the
+     * node in the list they were created from. Inner optimisation loops work on a {@link #copy()}
+     * and reset it with {@link #copyFrom(DeviceStateArrays)} instead of copying {@link DeviceState}
+     * objects; {@link #toDeviceStates()} converts back for metrics.
+     */
+    public static class DeviceStateArrays {
+
+        /* ---------- immutable, shared by all copies ---------- */
+        private final int[] ids;
+        private final double[] totalCpu;
+        private final double[] totalRam;
+        private final double[] totalStorage;
+        private final Map<Integer, Integer> indexById;
+
+        /* ---------- mutable remainder ---------- */
+        private final double[] freeCpu;
+        private final double[] freeRam;
+        private final double[] freeStorage;
+
+        public DeviceStateArrays(List<DeviceState> states) {
+            int n = states.size();
+            ids = new int[n];
+            totalCpu = new double[n];
+            totalRam = new double[n];
+            totalStorage = new double[n];
+            freeCpu = new double[n];
+            freeRam = new double[n];
+            freeStorage = new double[n];
+            indexById = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                DeviceState state = states.get(i);
+                ids[i] = state.id;
+                totalCpu[i] = state.totalCpu;
+                totalRam[i] = state.totalRam;
+                totalStorage[i] = state.totalStorage;
+                freeCpu[i] = state.freeCpu;
+                freeRam[i] = state.freeRam;
+                freeStorage[i] = state.freeStorage;
+                indexById.put(state.id, i);
+            }
+        }
+
+        private DeviceStateArrays(DeviceStateArrays src) {
+            ids = src.ids;
+            totalCpu = src.totalCpu;
+            totalRam = src.totalRam;
+            totalStorage = src.totalStorage;
+            indexById = src.indexById;
+            freeCpu = src.freeCpu.clone();
+            freeRam = src.freeRam.clone();
+            freeStorage = src.freeStorage.clone();
+        }
+
+        /** independent copy of the free resources */
+        public DeviceStateArrays copy() {
+            return new DeviceStateArrays(this);
+        }
+
+        /** resets the free resources to those of a copy of the same nodes, without allocating */
+        public void copyFrom(DeviceStateArrays src) {
+            if (src.ids != ids) {
+                throw new IllegalArgumentException("Not a copy of the same fog nodes");
+            }
+            System.arraycopy(src.freeCpu, 0, freeCpu, 0, freeCpu.length);
+            System.arraycopy(src.freeRam, 0, freeRam, 0, freeRam.length);
+            System.arraycopy(src.freeStorage, 0, freeStorage, 0, freeStorage.length);
+        }
+
+        public int size() {
+            return ids.length;
+        }
+
+        public int getId(int index) {
+            return ids[index];
+        }
+
+        /** @return the index of the node with the given id, or -1 */
+        public int indexOf(int id) {
+            Integer index = indexById.get(id);
+            return index != null ? index : -1;
+        }
+
+        /* ---------- resource helpers ---------- */
+
+        public boolean canFit(int index, double cpu, double ram, double storage) {
+            return freeCpu[index] >= cpu && freeRam[index] >= ram && freeStorage[index] >= storage;
+        }
+
+        public void allocate(int index, double cpu, double ram, double storage) {
+            freeCpu[index]     -= cpu;
+            freeRam[index]     -= ram;
+            freeStorage[index] -= storage;
+        }
+
+        public void deallocate(int index, double cpu, double ram, double storage) {
+            freeCpu[index]     += cpu;
+            freeRam[index]     += ram;
+            freeStorage[index] += storage;
+        }
+
+        public double getCPUUtil(int index) { return 1.0 - freeCpu[index]/totalCpu[index]; }
+        public double getRAMUtil(int index) { return 1.0 - freeRam[index]/totalRam[index]; }
+
+        public double getCPU(int index) {
+            return freeCpu[index];
+        }
+
+        public double getRAM(int index) {
+            return freeRam[index];
+        }
+
+        public double getStorage(int index) {
+            return freeStorage[index];
+        }
+
+        /** compares two nodes the way {@link DeviceState#compareTo(DeviceState)} does */
+        public int compare(int index1, int index2) {
+            int byCpu = Double.compare(getCPUUtil(index1), getCPUUtil(index2));
+            if (byCpu != 0) return byCpu;
+            int byRam = Double.compare(getRAMUtil(index1), getRAMUtil(index2));
+            if (byRam != 0) return byRam;
+            return Integer.compare(ids[index1], ids[index2]);
+        }
+
+        /** snapshot as {@link DeviceState} objects, in index order */
+        public List<DeviceState> toDeviceStates() {
+            List<DeviceState> states = new ArrayList<>(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                states.add(new DeviceState(ids[i], totalCpu[i], totalRam[i], totalStorage[i],
+                        freeCpu[i], freeRam[i], freeStorage[i]));
+            }
+            return states;
+        }
+    }
+
 
     class RelativeLatencyDeviceState implements Comparable<RelativeLatencyDeviceState> {
 
         FogDevice fogDevice;
         Double latencyToClosestHost;
         FogDevice closestEdgeNode;
-        double[][] globalLatencies;
 
-        RelativeLatencyDeviceState(FogDevice fogDevice, FogDevice closestEdgeNode,
-                                   double[][] globalLatencies) {
+        RelativeLatencyDeviceState(FogDevice fogDevice, FogDevice closestEdgeNode) {
 
             this.fogDevice = fogDevice;
             this.closestEdgeNode = closestEdgeNode;
-            this.globalLatencies = globalLatencies;
 
 
             // if the same node
@@ -1138,17 +1558,14 @@ public abstract class SPPHeuristic implements MicroservicePlacementLogic {
         private Double centralisedPlacementLatency() {
             // Assuming a star network topology where every edge node is
             // connected via cloud
-            int closestEdgeNodeIndex = indices.get(closestEdgeNode.getId());
-            int fogDeviceIndex = indices.get(fogDevice.getId());
+            int closestEdgeNodeIndex = problem.getDeviceIndex(closestEdgeNode.getId());
+            int fogDeviceIndex = problem.getDeviceIndex(fogDevice.getId());
 
             if (closestEdgeNodeIndex<0 || fogDeviceIndex<0) {
                 Logger.error("Value Error", "Global Latencies not appropriately filled.");
             }
 
-            Double closestEdgeNodeToCloudLatency = this.globalLatencies[cloudIndex][closestEdgeNodeIndex];
-            Double fogDeviceToCloudLatency = this.globalLatencies[cloudIndex][fogDeviceIndex];
-
-            return fogDeviceToCloudLatency + closestEdgeNodeToCloudLatency;
+            return problem.getLatency(fogDeviceIndex, closestEdgeNodeIndex);
         }
 
         private Double federatedPlacementLatency() {
@@ -1250,6 +1667,15 @@ public abstract class SPPHeuristic implements MicroservicePlacementLogic {
         this.random = new Random(seed);
     }
     
+    /**
+     * Sets the latencies of the network links, kept up to date by the controller, instead of
+     * reading them from the fog devices every cycle.
+     * @param latencyOracle The latencies, shared with the controller
+     */
+    public void setLatencyOracle(LatencyOracle latencyOracle) {
+        this.latencyOracle = latencyOracle;
+    }
+    
     /**
      * Gets the seeded random number generator for use by child classes.
      * @return A consistently seeded Random object
@@ -1,14 +1,18 @@
 package org.fog.placement;
 
 import org.cloudbus.cloudsim.core.CloudSim;
-import org.fog.application.AppModule;
 import org.fog.application.Application;
 import org.fog.entities.FogDevice;
 import org.fog.entities.PlacementRequest;
 import org.fog.entities.ContextPlacementRequest;
 import org.fog.utils.Logger;
+import org.fog.utils.MicroservicePlacementConfig;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoubleSupplier;
+import java.util.stream.IntStream;
 
 public class SimulatedAnnealingHeuristic extends SPPHeuristic implements MicroservicePlacementLogic {
     @Override
@@ -23,16 +27,26 @@ public class SimulatedAnnealingHeuristic extends SPPHeuristic implements Microse
         super(fonID);
     }
 
-    private SortedMap<Integer, DeviceState> deviceStateMap = new TreeMap<>();
-    List<DeviceState> baseStates;
-    // For quick lookup with id as key
-    private Map<Integer, FogDevice> deviceIdMap = new LinkedHashMap<>();
-    Map<Integer,Integer> devToIdx = new LinkedHashMap<>();
-    private Map<String, Double> latencyCache = new LinkedHashMap<>();
-
-    // Simulated Annealing parameters
-    private static double temperature = 1000;
-    private static double coolingFactor = 0.995;
+    // Ordered according to deviceId
+    DeviceStateArrays baseStates;
+    // Scratch states of the first fit and of the neighbours, reset from baseStates
+    private DeviceStateArrays firstFitStates;
+    private DeviceStateArrays neighbourStates;
+    // Index of every node of baseStates in the compiled problem
+    private int[] problemIndices;
+    // Latency of every node of baseStates to the closest node of the PR being placed
+    private double[] latencyToClosest;
+
+    // Simulated Annealing parameters, read from MicroservicePlacementConfig once per placement cycle:
+    //  the temperature of every step, and the number of chains per PR
+    private double[] schedule;
+    private int chains;
+    private boolean replicaExchange;
+    // Scratch states of the chains, reset from baseStates
+    private DeviceStateArrays[] chainStates;
+    // Threads running the chains (multi-chain only), created once per heuristic; idle workers of
+    //  a ForkJoinPool end by themselves, so it is never shut down
+    private ForkJoinPool chainPool;
 
 
     @Override
@@ -52,10 +66,8 @@ public class SimulatedAnnealingHeuristic extends SPPHeuristic implements Microse
         // In the algorithm itself, copies of these DeviceStates will be made.
         //  This initialisation occurs only once, capturing the state of resourceAvailability (and fogDevices) at this point in time
         // However, everytime a placement is made (for one PR), DeviceStates will be updated.
-        deviceStateMap = new TreeMap<>();
-        deviceIdMap = new LinkedHashMap<>();
+        SortedMap<Integer, DeviceState> deviceStateMap = new TreeMap<>();
         for (FogDevice fogDevice : edgeFogDevices) {
-            // SHARED object in both states
             DeviceState deviceState = new DeviceState(
                     fogDevice.getId(),
                     resourceAvailability.get(fogDevice.getId()),
@@ -64,14 +76,29 @@ public class SimulatedAnnealingHeuristic extends SPPHeuristic implements Microse
                     fogDevice.getHost().getStorage()
             );
             deviceStateMap.put(fogDevice.getId(), deviceState);
-            deviceIdMap.put(fogDevice.getId(), fogDevice);
         }
         // For indexability.
-        baseStates = new ArrayList<>(deviceStateMap.values());
+        baseStates = new DeviceStateArrays(new ArrayList<>(deviceStateMap.values()));
+        firstFitStates = baseStates.copy();
+        neighbourStates = baseStates.copy();
+        problemIndices = new int[baseStates.size()];
         for (int i = 0; i < baseStates.size(); i++) {
-            devToIdx.put(baseStates.get(i).getId(), i);
+            problemIndices[i] = problem.getDeviceIndex(baseStates.getId(i));
+        }
+        latencyToClosest = new double[baseStates.size()];
+
+        schedule = coolingSchedule(MicroservicePlacementConfig.SA_TEMPERATURE, MicroservicePlacementConfig.SA_COOLING_FACTOR);
+        chains = MicroservicePlacementConfig.SA_CHAINS;
+        replicaExchange = MicroservicePlacementConfig.SA_REPLICA_EXCHANGE && chains > 1;
+        chainStates = new DeviceStateArrays[chains];
+        chainStates[0] = neighbourStates;
+        for (int k = 1; k < chains; k++) {
+            chainStates[k] = baseStates.copy();
+        }
+        if (chains > 1 && chainPool == null) {
+            int threads = MicroservicePlacementConfig.SA_THREADS;
+            chainPool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
         }
-
 
         Map<PlacementRequest, Integer> prStatus = new LinkedHashMap<>();
         // Process every PR individually
@@ -85,52 +112,56 @@ public class SimulatedAnnealingHeuristic extends SPPHeuristic implements Microse
             int status = processOnePr(microservices, app, placementRequest);
             prStatus.put(placementRequest, status);
         }
+
+        chainStates = null;
         return prStatus;
     }
 
-    private String getLatencyCacheKey(int deviceId, int closestNodeId) {
-        return deviceId + "-" + closestNodeId;
+    /**
+     * @return the temperature of every step: from the initial temperature, multiplied by the
+     * cooling factor after every step, while above 1
+     */
+    private static double[] coolingSchedule(double temperature, double coolingFactor) {
+        List<Double> temperatures = new ArrayList<>();
+        for (double t = temperature; t > 1; t *= coolingFactor) {
+            temperatures.add(t);
+        }
+        double[] schedule = new double[temperatures.size()];
+        for (int i = 0; i < schedule.length; i++) {
+            schedule[i] = temperatures.get(i);
+        }
+        return schedule;
     }
 
     /**
      * Calculates cumulative latency of all placements to the users closest host
      *
-     * @param placement
+     * @param placement Index in baseStates of the node of every service
+     * @param latencyToClosest Latency of every node to the closest host
      * @return
      */
-    private double placementLatencySum(int[] placement, FogDevice closestNode) {
+    private double placementLatencySum(int[] placement, double[] latencyToClosest) {
         double totalLatency = 0.0;
-        int closestNodeId = closestNode.getId();
 
         for (int j = 0; j < placement.length; j++) {
-            int deviceId = placement[j];
-            if (deviceId == -1) {
+            int node = placement[j];
+            if (node == -1) {
                 throw new NullPointerException("Placement should be populated!");
             }
-
-            String cacheKey = getLatencyCacheKey(deviceId, closestNodeId);
-            // Check if latency is in cache
-            Double cachedLatency = latencyCache.get(cacheKey);
-
-            if (cachedLatency != null) {
-                totalLatency += cachedLatency;
-            } else {
-                FogDevice device = deviceIdMap.get(deviceId);
-                if (device != null) {
-                    RelativeLatencyDeviceState relativeEdgeNode = new RelativeLatencyDeviceState(
-                            device,
-                            closestNode,
-                            this.globalLatencies
-                    );
-                    latencyCache.put(cacheKey, relativeEdgeNode.latencyToClosestHost);
-                    totalLatency += relativeEdgeNode.latencyToClosestHost;
-                }
-            }
+            totalLatency += latencyToClosest[node];
         }
 
         return totalLatency;
     }
 
+    /**
+     * Probability that two replicas at different temperatures swap their placements, so that good
+     * placements found by hot replicas reach the cold ones.
+     */
+    static double probabilityOfExchange(double latency1, double temp1, double latency2, double temp2) {
+        return Math.min(1.0, Math.exp((latency1 - latency2) * (1.0 / temp1 - 1.0 / temp2)));
+    }
+
     public static double probabilityOfAcceptance(double currentLatency, double neighborLatency, double temp) {
         // neighbour is smaller, we accept always
         if (neighborLatency < currentLatency)
@@ -146,17 +177,15 @@ public class SimulatedAnnealingHeuristic extends SPPHeuristic implements Microse
      */
     private boolean isPlacementFeasible(List<String> services, Application app) {
         boolean firstFitSuccessful = true;
-        List<DeviceState> nodesBestPlacement = new ArrayList<>(baseStates);
+        DeviceStateArrays nodesBestPlacement = firstFitStates;
+        nodesBestPlacement.copyFrom(baseStates);
+        int[] serviceIndices = getServices(services, app);
         for (int i = 0; i < services.size(); i++) {
             boolean placedThisService = false;
+            int service = serviceIndices[i];
             for (int j = 0; j < nodesBestPlacement.size(); j++) {
-                AppModule service = getModule(services.get(i), app);
-                // Ensure that DeviceState j is a PRIVATE, DEEP copy
-                if (nodesBestPlacement.get(j) == baseStates.get(j)) {
-                    nodesBestPlacement.set(j, new DeviceState(baseStates.get(j)));
-                }
-                if (nodesBestPlacement.get(j).canFit(service.getMips(), service.getRam(), service.getSize())) {
-                    nodesBestPlacement.get(j).allocate(service.getMips(), service.getRam(), service.getSize());
+                if (nodesBestPlacement.canFit(j, problem.getCpu(service), problem.getRam(service), problem.getStorage(service))) {
+                    nodesBestPlacement.allocate(j, problem.getCpu(service), problem.getRam(service), problem.getStorage(service));
                     placedThisService = true;
                     break;
                 }
@@ -173,7 +202,21 @@ public class SimulatedAnnealingHeuristic extends SPPHeuristic implements Microse
     protected List<DeviceState> getCurrentDeviceStates() {
         // For metrics collection
         // Definitely ordered according to deviceId
-        return new ArrayList<>(deviceStateMap.values());
+        return baseStates != null ? baseStates.toDeviceStates() : new ArrayList<>();
+    }
+
+    @Override
+    protected boolean supportsPlacementCache() {
+        return true;
+    }
+
+    @Override
+    protected boolean allocateCachedPlacement(int[] services, int[] deviceIds) {
+        for (int i = 0; i < services.length; i++) {
+            baseStates.allocate(baseStates.indexOf(deviceIds[i]),
+                    problem.getCpu(services[i]), problem.getRam(services[i]), problem.getStorage(services[i]));
+        }
+        return true;
     }
 
     @Override
@@ -184,29 +227,41 @@ public class SimulatedAnnealingHeuristic extends SPPHeuristic implements Microse
 //            return getFonID();
 //        }
 
-        FogDevice closestFogDevice = getDevice(closestNodes.get(placementRequest));
+        // The latencies to the closest node are the same in every iteration
+        int closestIndex = problem.getDeviceIndex(closestNodes.get(placementRequest));
+        for (int j = 0; j < latencyToClosest.length; j++) {
+            latencyToClosest[j] = problem.getLatency(problemIndices[j], closestIndex);
+        }
 
-        // create empty placement list
+        // create empty placement list, of indices in baseStates
         int[] placements = new int[services.size()];
         Arrays.fill(placements, -1);
 
         // duplicates to not use original values
         int[] bestPlacement = placements.clone();
-        List<DeviceState> nodesBestPlacement = new ArrayList<>(baseStates);
+        // private copy of the ORIGINAL device states
+        DeviceStateArrays nodesBestPlacement = firstFitStates;
+        nodesBestPlacement.copyFrom(baseStates);
+
+        // The requirements are looked up once, not in every iteration
+        int[] serviceIndices = getServices(services, app);
+        double[] cpu = new double[services.size()];
+        double[] ram = new double[services.size()];
+        double[] storage = new double[services.size()];
+        for (int i = 0; i < services.size(); i++) {
+            cpu[i] = problem.getCpu(serviceIndices[i]);
+            ram[i] = problem.getRam(serviceIndices[i]);
+            storage[i] = problem.getStorage(serviceIndices[i]);
+        }
 
         // use FirstFit for an initial "best" placement generation
         boolean firstFitSuccessful = true;
         for (int i = 0; i < services.size(); i++) {
             boolean placedThisService = false;
             for (int j = 0; j < nodesBestPlacement.size(); j++) {
-                AppModule service = getModule(services.get(i), app);
-                if (nodesBestPlacement.get(j).canFit(service.getMips(), service.getRam(), service.getSize())) {
-                    // Ensure that DeviceState j is a PRIVATE, DEEP copy
-                    if (nodesBestPlacement.get(j) == baseStates.get(j)) {
-                        nodesBestPlacement.set(j, new DeviceState(baseStates.get(j)));
-                    }
-                    nodesBestPlacement.get(j).allocate(service.getMips(), service.getRam(), service.getSize());
-                    bestPlacement[i] = nodesBestPlacement.get(j).getId();
+                if (nodesBestPlacement.canFit(j, cpu[i], ram[i], storage[i])) {
+                    nodesBestPlacement.allocate(j, cpu[i], ram[i], storage[i]);
+                    bestPlacement[i] = j;
                     placedThisService = true;
                     break;
                 }
@@ -223,77 +278,16 @@ public class SimulatedAnnealingHeuristic extends SPPHeuristic implements Microse
             return getFonID();
         }
 
-        // Current placement is also the "best" so far
-        int[] currentPlacement = bestPlacement.clone();
-
-        // iterate while reducing temperature by a cooling factor (step)
-        for (double t = temperature; t > 1; t *= coolingFactor) {
-            int[] neighbourPlacement = new int[services.size()];
-            Arrays.fill(neighbourPlacement, -1);
-            // also need a SHALLOW copy of nodes as we would update these as we book resources
-            // NOTE We take a copy of the ORIGINAL device states
-            List<DeviceState> nodesNeighborPlacement = new ArrayList<>(baseStates);
-            boolean placementStillPossible = true;
-
-            // for each service find a random node with sufficient ram and cpu
-            for (int i = 0; i < services.size(); i++) {
-                // pre-select only fitting nodes for random selection
-                List<DeviceState> onlyFittingNodesSubset = new ArrayList<DeviceState>();
-                AppModule service = getModule(services.get(i), app);
-
-                for (DeviceState node : nodesNeighborPlacement) {
-                    if (node.canFit(service.getMips(), service.getRam(), service.getSize())) {
-                        onlyFittingNodesSubset.add(node);
-                    }
-                }
-
-                // if no candidates was found set placement to -1
-                if (onlyFittingNodesSubset.isEmpty()) {
-                    placementStillPossible = false;
-                    break; // Do nothing, already -1
-                } else {
-                    // get random fitting node - use seeded random instead of Math.random()
-                    int j = (int) (onlyFittingNodesSubset.size() * getRandom().nextDouble());
-                    int j_Idx = devToIdx.get(onlyFittingNodesSubset.get(j).getId());
-                    // check if DeviceState at j_Inx is ALREADY a private copy
-                    //  (private copy would have been made if a previous service was placed on DeviceState j)
-                    if (nodesNeighborPlacement.get(j_Idx) == baseStates.get(j_Idx)) {
-                        // DeviceState j is not private, so make a private DEEP COPY
-                        nodesNeighborPlacement.set(
-                                j_Idx,
-                                new DeviceState(baseStates.get(j_Idx))
-                        );
-                    }
-                    // NOTE DeviceState j will definitely be in onlyFittingNodesSubset
-                    // nodesNeighbourPlacement will disappear after the SA iteration,
-                    //  However we still allocate to prevent overallocation WITHIN the iteration.
-                    nodesNeighborPlacement.get(j_Idx).allocate(service.getMips(), service.getRam(), service.getSize());
-                    neighbourPlacement[i] = onlyFittingNodesSubset.get(j).getId();
-                }
-            }
-
-            if (!placementStillPossible) {
-//                Logger.error(
-//                        "Simulation Limitation Problem",
-//                        "All DeviceStates have no resources for ONE of the services! Check the biggest one."
-//                );
-                continue;
-                // rationale: At least one of the values in the placement is -1
-                //  So there is no point continuing with this SA iteration.
-            }
-            double currentLatency = placementLatencySum(currentPlacement, closestFogDevice);
-            double neighborLatency = placementLatencySum(neighbourPlacement, closestFogDevice);
-
-            if (getRandom().nextDouble() < probabilityOfAcceptance(currentLatency, neighborLatency, t)) {
-                currentPlacement = neighbourPlacement.clone();
-                currentLatency = neighborLatency;
-            }
+        // Buffers reused by all the iterations
+        int[] onlyFittingNodesSubset = new int[baseStates.size()];
 
-            // if solution is the best then put it aside
-            double bestLatency = placementLatencySum(bestPlacement, closestFogDevice);
-            if (currentLatency < bestLatency) {
-                bestPlacement = currentPlacement.clone();
-            }
+        if (chains == 1) {
+            // One chain, drawing from the heuristic's own random stream
+            Chain chain = new Chain(getRandom()::nextDouble, chainStates[0], onlyFittingNodesSubset, bestPlacement, 1.0);
+            chain.run(0, schedule.length, cpu, ram, storage);
+            System.arraycopy(chain.best, 0, bestPlacement, 0, bestPlacement.length);
+        } else {
+            annealInParallel(bestPlacement, cpu, ram, storage);
         }
 
         // At the end, bestPlacement is the final placement
@@ -318,8 +312,8 @@ public class SimulatedAnnealingHeuristic extends SPPHeuristic implements Microse
             
             for (int i = 0 ; i < services.size(); i++) {
                 String s = services.get(i);
-                AppModule service = getModule(s, app);
-                int deviceId = bestPlacement[i];
+                int node = bestPlacement[i];
+                int deviceId = baseStates.getId(node);
 
                 System.out.printf("Placement of operator %s on device %s successful. Device id: %d, sensorId: %d, prIndex: %d%n",
                         s,
@@ -328,26 +322,9 @@ public class SimulatedAnnealingHeuristic extends SPPHeuristic implements Microse
                         placementRequest.getSensorId(),
                         ((ContextPlacementRequest) placementRequest).getPrIndex());
 
-                deviceStateMap.get(deviceId).allocate(service.getMips(), service.getRam(), service.getSize());
-
-                moduleToApp.put(s, app.getAppId());
-
-                if (!currentModuleMap.get(deviceId).contains(s))
-                    currentModuleMap.get(deviceId).add(s);
+                baseStates.allocate(node, cpu[i], ram[i], storage[i]);
 
-                mappedMicroservices.get(prKey).put(s, deviceId);
-
-                //currentModuleLoad
-                if (!currentModuleLoadMap.get(deviceId).containsKey(s))
-                    currentModuleLoadMap.get(deviceId).put(s, service.getMips());
-                else
-                    currentModuleLoadMap.get(deviceId).put(s, service.getMips() + currentModuleLoadMap.get(deviceId).get(s));
-
-                //currentModuleInstance
-                if (!currentModuleInstanceNum.get(deviceId).containsKey(s))
-                    currentModuleInstanceNum.get(deviceId).put(s, 1);
-                else
-                    currentModuleInstanceNum.get(deviceId).put(s, currentModuleInstanceNum.get(deviceId).get(s) + 1);
+                recordPlacement(prKey, s, app, deviceId, cpu[i]);
             }
         }
         else {
@@ -359,7 +336,155 @@ public class SimulatedAnnealingHeuristic extends SPPHeuristic implements Microse
         if (allPlaced) return -1;
         else return getFonID();
     }
-}
 
+    /**
+     * Anneals a PR with several chains on the threads of chainPool, all starting from the first fit
+     * placement. Every chain draws from its own random stream, split in chain order from one
+     * stream per PR, so the result does not depend on the threads. Without replica exchange the
+     * chains are independent; with it, they run in lockstep and try to swap their placements
+     * between neighbouring temperatures every {@link MicroservicePlacementConfig#SA_EXCHANGE_INTERVAL} steps.
+     *
+     * @param bestPlacement The first fit placement, replaced by the best placement of all the chains
+     */
+    private void annealInParallel(int[] bestPlacement, double[] cpu, double[] ram, double[] storage) {
+        SplittableRandom streams = new SplittableRandom(getRandom().nextLong());
+        SplittableRandom exchangeRandom = streams.split();
+        Chain[] ensemble = new Chain[chains];
+        for (int k = 0; k < chains; k++) {
+            SplittableRandom chainRandom = streams.split();
+            double temperatureScale = replicaExchange ? Math.pow(MicroservicePlacementConfig.SA_TEMPERATURE_SPACING, k) : 1.0;
+            ensemble[k] = new Chain(chainRandom::nextDouble, chainStates[k], new int[baseStates.size()], bestPlacement, temperatureScale);
+        }
+
+        int interval = replicaExchange ? MicroservicePlacementConfig.SA_EXCHANGE_INTERVAL : schedule.length;
+        for (int segment = 0; segment < schedule.length; segment += interval) {
+            int from = segment;
+            int to = Math.min(segment + interval, schedule.length);
+            try {
+                chainPool.submit(() -> IntStream.range(0, chains).parallel()
+                        .forEach(k -> ensemble[k].run(from, to, cpu, ram, storage))).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while annealing", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Annealing chain failed", e.getCause());
+            }
+            if (replicaExchange) {
+                double t = schedule[to - 1];
+                for (int k = 0; k + 1 < chains; k++) {
+                    Chain cold = ensemble[k];
+                    Chain hot = ensemble[k + 1];
+                    if (exchangeRandom.nextDouble() < probabilityOfExchange(cold.currentLatency, t * cold.temperatureScale,
+                            hot.currentLatency, t * hot.temperatureScale)) {
+                        cold.swapCurrent(hot);
+                    }
+                }
+            }
+        }
+
+        // The best chain, the first one on ties
+        Chain best = ensemble[0];
+        for (Chain chain : ensemble) {
+            if (chain.bestLatency < best.bestLatency) best = chain;
+        }
+        System.arraycopy(best.best, 0, bestPlacement, 0, bestPlacement.length);
+    }
 
+    /**
+     * One annealing chain over the placements of the PR being placed. Placements are indices in
+     * baseStates; the chain books the resources of its neighbours on its own scratch states.
+     */
+    private class Chain {
+        private final DoubleSupplier random;
+        private final DeviceStateArrays states;
+        private final int[] fittingNodes;
+        // Temperatures of the chain relative to the schedule
+        private final double temperatureScale;
+
+        private int[] current;
+        private double currentLatency;
+        private final int[] best;
+        private double bestLatency;
+        private final int[] neighbour;
+
+        /**
+         * @param fittingNodes Buffer of the size of baseStates
+         * @param initial The placement to start from
+         */
+        Chain(DoubleSupplier random, DeviceStateArrays states, int[] fittingNodes, int[] initial, double temperatureScale) {
+            this.random = random;
+            this.states = states;
+            this.fittingNodes = fittingNodes;
+            this.temperatureScale = temperatureScale;
+            this.current = initial.clone();
+            this.best = initial.clone();
+            this.neighbour = new int[initial.length];
+            this.currentLatency = placementLatencySum(current, latencyToClosest);
+            this.bestLatency = currentLatency;
+        }
 
+        /**
+         * Runs the steps of the schedule in [from, to).
+         */
+        void run(int from, int to, double[] cpu, double[] ram, double[] storage) {
+            for (int step = from; step < to; step++) {
+                step(schedule[step] * temperatureScale, cpu, ram, storage);
+            }
+        }
+
+        private void step(double t, double[] cpu, double[] ram, double[] storage) {
+            Arrays.fill(neighbour, -1);
+            // NOTE We start from the ORIGINAL device states, and book resources as we go
+            states.copyFrom(baseStates);
+
+            // for each service find a random node with sufficient ram and cpu
+            for (int i = 0; i < neighbour.length; i++) {
+                // pre-select only fitting nodes for random selection
+                int fittingCount = 0;
+
+                for (int node = 0; node < states.size(); node++) {
+                    if (states.canFit(node, cpu[i], ram[i], storage[i])) {
+                        fittingNodes[fittingCount++] = node;
+                    }
+                }
+
+                // if no candidates was found, there is no point continuing with this step
+                if (fittingCount == 0) {
+                    return;
+                }
+                // get random fitting node - use seeded random instead of Math.random()
+                int j = (int) (fittingCount * random.getAsDouble());
+                int j_Idx = fittingNodes[j];
+                // states is reset at the next step,
+                //  However we still allocate to prevent overallocation WITHIN the step.
+                states.allocate(j_Idx, cpu[i], ram[i], storage[i]);
+                neighbour[i] = j_Idx;
+            }
+
+            double neighborLatency = placementLatencySum(neighbour, latencyToClosest);
+
+            if (random.getAsDouble() < probabilityOfAcceptance(currentLatency, neighborLatency, t)) {
+                System.arraycopy(neighbour, 0, current, 0, current.length);
+                currentLatency = neighborLatency;
+            }
+
+            // if solution is the best then put it aside
+            if (currentLatency < bestLatency) {
+                System.arraycopy(current, 0, best, 0, best.length);
+                bestLatency = currentLatency;
+            }
+        }
+
+        /**
+         * Exchanges the current placements of two chains.
+         */
+        void swapCurrent(Chain other) {
+            int[] placement = current;
+            current = other.current;
+            other.current = placement;
+            double latency = currentLatency;
+            currentLatency = other.currentLatency;
+            other.currentLatency = latency;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.fog.placement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Races solvers of the same problem and keeps the first result found. Once it has one, or a
+ * solver fails, the others are cancelled and their threads interrupted, so solvers must stop
+ * when interrupted instead of running to their time limit.
+ */
+public class SolverPortfolio {
+
+    private final ExecutorService executor;
+
+    /**
+     * @param executor runs the solvers, with at least as many threads as there are solvers in a race
+     */
+    public SolverPortfolio(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @param solvers the solvers, each returning null if it found nothing
+     * @return the first result found, or null if no solver found one or the calling thread was
+     * interrupted
+     */
+    public <T> T race(List<Callable<T>> solvers) {
+        ExecutorCompletionService<T> race = new ExecutorCompletionService<>(executor);
+        List<Future<T>> futures = new ArrayList<>(solvers.size());
+        for (Callable<T> solver : solvers) {
+            futures.add(race.submit(solver));
+        }
+        try {
+            for (int i = 0; i < solvers.size(); i++) {
+                T result = race.take().get();
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // The losers stop instead of holding a thread until their time limit
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package org.fog.placement;
+
+import org.fog.mobilitydata.Location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Static k-d tree over device locations, to find the device closest to a location without
+ * computing the distance to every device.
+ * <p>
+ * Locations are placed on the unit sphere, where the straight-line (chord) distance between two
+ * points grows with their great-circle distance. The tree splits on the 3D coordinates and prunes
+ * with the chord distance, while candidates are compared with {@link Location#calculateDistance},
+ * so the result is the same as a scan of all the devices in order: the closest one, the first one
+ * on ties.
+ */
+public class SpatialIndex {
+
+    // Relative and absolute slack when pruning with chord distances, against rounding differences
+    //  with calculateDistance (1e-18 on the squared chord is a few millimetres on earth)
+    private static final double PRUNE_SLACK = 1e-9;
+    private static final double PRUNE_FLOOR = 1e-18;
+
+    // Per point, in tree order: the device, its position in the given order, its location and its
+    //  position on the unit sphere
+    private final int[] ids;
+    private final int[] ranks;
+    private final Location[] locations;
+    private final double[][] points;
+    // Position in tree order of every device
+    private final Map<Integer, Integer> positions = new HashMap<>();
+    // Per point, in tree order: the radius around it within which it is the closest device, NaN
+    //  until first asked for
+    private final double[] cellRadii;
+
+    /**
+     * @param deviceLocations the devices to index, with their locations, in the order used on ties
+     */
+    public SpatialIndex(Map<Integer, Location> deviceLocations) {
+        int size = deviceLocations.size();
+        List<Integer> deviceIds = new ArrayList<>(deviceLocations.keySet());
+        double[][] allPoints = new double[size][];
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            allPoints[i] = toUnitVector(deviceLocations.get(deviceIds.get(i)));
+            order[i] = i;
+        }
+        build(order, allPoints, 0, size, 0);
+
+        ids = new int[size];
+        ranks = new int[size];
+        locations = new Location[size];
+        points = new double[size][];
+        for (int i = 0; i < size; i++) {
+            ids[i] = deviceIds.get(order[i]);
+            ranks[i] = order[i];
+            locations[i] = deviceLocations.get(ids[i]);
+            points[i] = allPoints[order[i]];
+            positions.put(ids[i], i);
+        }
+        cellRadii = new double[size];
+        Arrays.fill(cellRadii, Double.NaN);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /** @return the id of the device closest to the location, or -1 if there is none */
+    public int nearest(Location location) {
+        Search search = new Search(location, toUnitVector(location));
+        search.visit(0, ids.length, 0);
+        return search.best >= 0 ? ids[search.best] : -1;
+    }
+
+    /**
+     * Checks whether a device is the one closest to a location, like {@code nearest(location) == id}.
+     * A location nearer the device than half the distance from the device to any other one is
+     * closer to it than to all the others, so no search is needed there.
+     *
+     * @param id the device
+     * @param location the location
+     * @return whether the device is indexed and closest to the location
+     */
+    public boolean isNearest(int id, Location location) {
+        Integer position = positions.get(id);
+        if (position == null) return false;
+        double radius = cellRadii[position];
+        if (Double.isNaN(radius)) {
+            Search search = new Search(locations[position], points[position]);
+            search.excluded = position;
+            search.visit(0, ids.length, 0);
+            radius = search.bestDistance / 2 * (1 - PRUNE_SLACK);
+            cellRadii[position] = radius;
+        }
+        if (location.calculateDistance(locations[position]) < radius) return true;
+        return nearest(location) == id;
+    }
+
+    private static double[] toUnitVector(Location location) {
+        double lat = Math.toRadians(location.getLatitude());
+        double lon = Math.toRadians(location.getLongitude());
+        return new double[] { Math.cos(lat) * Math.cos(lon), Math.cos(lat) * Math.sin(lon), Math.sin(lat) };
+    }
+
+    /** Sorts order[from, to) so that the median on the axis of the depth splits the range. */
+    private static void build(Integer[] order, double[][] allPoints, int from, int to, int depth) {
+        if (to - from <= 1) return;
+        int axis = depth % 3;
+        Arrays.sort(order, from, to, Comparator.comparingDouble(i -> allPoints[i][axis]));
+        int mid = (from + to) >>> 1;
+        build(order, allPoints, from, mid, depth + 1);
+        build(order, allPoints, mid + 1, to, depth + 1);
+    }
+
+    private static double squaredChord(double[] p, double[] q) {
+        double dx = p[0] - q[0];
+        double dy = p[1] - q[1];
+        double dz = p[2] - q[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /** One nearest device query, over the implicit tree: the median of a range is its root. */
+    private final class Search {
+        private final Location location;
+        private final double[] point;
+        // Position in tree order of the closest device so far
+        private int best = -1;
+        private double bestDistance = Double.MAX_VALUE;
+        private double bestSquaredChord = Double.MAX_VALUE;
+        // Position in tree order of a device left out of the search, -1 for none
+        private int excluded = -1;
+
+        Search(Location location, double[] point) {
+            this.location = location;
+            this.point = point;
+        }
+
+        void visit(int from, int to, int depth) {
+            if (from >= to) return;
+            int mid = (from + to) >>> 1;
+            double distance = location.calculateDistance(locations[mid]);
+            if (mid != excluded
+                    && (distance < bestDistance || (distance == bestDistance && ranks[mid] < ranks[best]))) {
+                bestDistance = distance;
+                best = mid;
+                bestSquaredChord = squaredChord(point, points[mid]);
+            }
+
+            int axis = depth % 3;
+            double diff = point[axis] - points[mid][axis];
+            if (diff < 0) {
+                visit(from, mid, depth + 1);
+                if (mayBeCloser(diff)) visit(mid + 1, to, depth + 1);
+            } else {
+                visit(mid + 1, to, depth + 1);
+                if (mayBeCloser(diff)) visit(from, mid, depth + 1);
+            }
+        }
+
+        /** @return whether the other side of a split, diff away on its axis, may hold a closer device */
+        private boolean mayBeCloser(double diff) {
+            return diff * diff <= bestSquaredChord * (1 + PRUNE_SLACK) + PRUNE_FLOOR;
+        }
+    }
+}
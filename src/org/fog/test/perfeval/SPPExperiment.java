@@ -2,6 +2,9 @@ package org.fog.test.perfeval;
 
 import org.cloudbus.cloudsim.*;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.FutureQueue;
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.cloudbus.cloudsim.core.SimulationProfiler;
 import org.cloudbus.cloudsim.power.PowerHost;
 import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
 import org.cloudbus.cloudsim.sdn.example.policies.VmSchedulerTimeSharedEnergy;
@@ -13,6 +16,7 @@ import org.fog.application.Application;
 import org.fog.application.MyApplication;
 import org.fog.application.selectivity.FractionalSelectivity;
 import org.fog.entities.*;
+import org.fog.mobility.RouteCache;
 import org.fog.mobilitydata.Location;
 import org.fog.mobilitydata.References;
 import org.fog.placement.PlacementSimulationController;
@@ -31,6 +35,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Platform to run the OnlinePOC simulation under variable parameters:
@@ -58,12 +67,30 @@ public class SPPExperiment {
     
     private static String outputFile = DEFAULT_OUTPUT_FILE;
 
-    static List<FogDevice> fogDevices = new ArrayList<FogDevice>();
-    static List<Sensor> sensors = new ArrayList<Sensor>();
-    static List<Actuator> actuators = new ArrayList<Actuator>();
-    
-    // Store controller reference for cleanup
-    static PlacementSimulationController currentController = null;
+    /**
+     * State of the experiment running on the calling thread. It lives in the thread's
+     * simulation context, so experiments running in parallel do not share it.
+     */
+    private static class RunState {
+        final List<FogDevice> fogDevices = new ArrayList<FogDevice>();
+        final List<Sensor> sensors = new ArrayList<Sensor>();
+        final List<Actuator> actuators = new ArrayList<Actuator>();
+        
+        // Store controller reference for cleanup
+        PlacementSimulationController currentController = null;
+        
+        // Paths for dynamically generated files (will be populated at runtime)
+        String dynamicResourcesLocationPath = "";
+        String dynamicUsersLocationPath = "";
+        String dynamicLocationConfigFile = "";
+        
+        // Directory for generated files, per worker when experiments run in parallel
+        String outputDirectory = OUTPUT_DIRECTORY;
+    }
+
+    private static RunState runState() {
+        return SimulationContext.current().getComponent(RunState.class, RunState::new);
+    }
 
     // Constants for data configurations
     static double SENSOR_TRANSMISSION_TIME = 10;
@@ -71,10 +98,6 @@ public class SPPExperiment {
     // Add these constants after the existing constants
     // Flag to enable dynamic location generation
     private static boolean USE_DYNAMIC_LOCATIONS = false;
-    // Paths for dynamically generated files (will be populated at runtime)
-    private static String DYNAMIC_RESOURCES_LOCATION_PATH = "";
-    private static String DYNAMIC_USERS_LOCATION_PATH = "";
-    private static String DYNAMIC_LOCATION_CONFIG_FILE = "";
     // Default output directory for generated files
     private static String OUTPUT_DIRECTORY = "./dataset/simon/";
 
@@ -108,13 +131,14 @@ public class SPPExperiment {
 
     /**
      * Generates CSV files and configuration for locations.
+     * Synchronized because CoordinateConverter keeps its settings in static fields.
      * 
      * @param numberOfEdge Number of edge servers to generate
      * @param numberOfUsers Number of users to generate
      * @param seed Random seed for reproducibility
      * @throws IOException If file generation fails
      */
-    private static void generateLocationFiles(int numberOfEdge, int numberOfUsers, long seed) throws IOException {
+    private static synchronized void generateLocationFiles(int numberOfEdge, int numberOfUsers, long seed) throws IOException {
         // First initialize the CoordinateConverter from the config file specified in constants
         String locationConfigFile = experimentConstants.getLocationConfigFile();
         boolean initialized = CoordinateConverter.initializeFromConfig(locationConfigFile);
@@ -124,7 +148,8 @@ public class SPPExperiment {
         }
         
         // Define output directory for generated files
-        String outputDir = OUTPUT_DIRECTORY;
+        RunState state = runState();
+        String outputDir = state.outputDirectory;
         
         // Create the directory if it doesn't exist
         java.io.File dir = new java.io.File(outputDir);
@@ -139,15 +164,15 @@ public class SPPExperiment {
         }
         
         // Generate location configuration file
-        DYNAMIC_LOCATION_CONFIG_FILE = CoordinateConverter.generateLocationConfig(
+        state.dynamicLocationConfigFile = CoordinateConverter.generateLocationConfig(
             outputDir + "location_config_" + seed + ".json");
         
         // Generate resource locations in a grid pattern
-        DYNAMIC_RESOURCES_LOCATION_PATH = CoordinateConverter.generateResourceLocationsCSV(
+        state.dynamicResourcesLocationPath = CoordinateConverter.generateResourceLocationsCSV(
             numberOfEdge, outputDir + "resources_" + seed + ".csv", seed);
         
         // Generate user locations with random distribution
-        DYNAMIC_USERS_LOCATION_PATH = CoordinateConverter.generateUserLocationsCSV(
+        state.dynamicUsersLocationPath = CoordinateConverter.generateUserLocationsCSV(
             numberOfUsers, outputDir + "users_" + seed + ".csv", seed);
         
         System.out.println("Generated dynamic location files in " + outputDir + " with seed: " + seed);
@@ -166,24 +191,193 @@ public class SPPExperiment {
             e.printStackTrace();
         }
         
+        int parallelism = experimentConstants != null ? experimentConstants.getParallelism() : 1;
+        List<List<Integer>> groups = groupConfigurations(configs);
+        if (parallelism > 1 && groups.size() > 1) {
+            runInParallel(configs, groups, Math.min(parallelism, groups.size()));
+        } else {
+            for (List<Integer> group : groups) {
+                List<PerformanceMetrics> metrics = runGroup(configs, group, null);
+                
+                // Immediately write these simulations' results to the CSV
+                for (int i = 0; i < group.size(); i++) {
+                    writeSimulationResultRows(group.get(i), configs.get(group.get(i)), metrics.get(i));
+                }
+            }
+        }
+        
+        System.out.println("\n========= FINAL SUMMARY =========");
+        System.out.println("All " + configs.size() + " simulations completed successfully.");
+        System.out.println("");
+        System.out.println("RESULTS LOCATION:");
+        System.out.println("  CSV Metrics File: " + new java.io.File(outputFile).getAbsolutePath());
+        System.out.println("");
+        System.out.println("The CSV file contains per-simulation metrics including:");
+        System.out.println("  - Resource utilization (avg/stddev)");
+        System.out.println("  - Latency (avg/stddev)");
+        System.out.println("  - Failure ratios");
+        System.out.println("  - Energy consumption");
+        System.out.println("  - Execution time");
+        System.out.println("");
+        System.out.println("TIP: To save the console log, run with:");
+        System.out.println("  ./mvnw exec:java 2>&1 | tee output/SPPExperiment.txt");
+        System.out.println("=================================\n");
+    }
+
+    /**
+     * Splits the simulations into groups run together. With a fork time, consecutive simulations
+     * of the same scenario form one group and run the same warm-up; otherwise every simulation is
+     * a group of its own.
+     *
+     * @param configs The simulation configurations
+     * @return The indices of the simulations of each group, in configuration order
+     */
+    private static List<List<Integer>> groupConfigurations(List<SimulationConfig> configs) {
+        boolean fork = experimentConstants != null && experimentConstants.getForkTime() > 0;
+        List<List<Integer>> groups = new ArrayList<>();
+        List<Integer> group = null;
         for (int simIndex = 0; simIndex < configs.size(); simIndex++) {
-            SimulationConfig config = configs.get(simIndex);
-            
-            // Force garbage collection before starting to ensure clean state
-            System.out.println("\n========= Starting Simulation " + simIndex + " =========");
-            printMemoryUsage("Before GC");
-            
-            // Aggressive GC to clean up previous simulation
-            System.gc();
-            System.runFinalization();
-            System.gc(); // Call GC twice for more thorough cleanup
+            if (group == null || !fork || !configs.get(group.get(0)).hasSameScenario(configs.get(simIndex))) {
+                group = new ArrayList<>();
+                groups.add(group);
+            }
+            group.add(simIndex);
+        }
+        return groups;
+    }
+
+    /**
+     * Runs the groups of simulations on a pool of worker threads and writes their results to the CSV
+     * in configuration order, each as soon as it and all the ones before it have completed.
+     * Every simulation runs in its own simulation context, and every worker keeps its temporary
+     * files in its own directory, so the results are the same as when running them one by one.
+     *
+     * @param configs The simulation configurations
+     * @param groups The groups of simulations, see {@link #groupConfigurations(List)}
+     * @param parallelism The number of worker threads
+     */
+    private static void runInParallel(List<SimulationConfig> configs, List<List<Integer>> groups, int parallelism) {
+        System.out.println("Running " + configs.size() + " simulations on " + parallelism + " worker threads");
+        
+        AtomicInteger workerCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+                task -> new Thread(task, "worker_" + workerCount.getAndIncrement()));
+        try {
+            List<Future<List<PerformanceMetrics>>> results = new ArrayList<>();
+            for (List<Integer> group : groups) {
+                results.add(executor.submit(() -> runGroup(configs, group, Thread.currentThread().getName())));
+            }
             
-            try {
-                Thread.sleep(3000); // Allow GC to complete (3 seconds)
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+            for (int i = 0; i < groups.size(); i++) {
+                List<Integer> group = groups.get(i);
+                try {
+                    List<PerformanceMetrics> metrics = results.get(i).get();
+                    for (int j = 0; j < group.size(); j++) {
+                        writeSimulationResultRows(group.get(j), configs.get(group.get(j)), metrics.get(j));
+                    }
+                } catch (ExecutionException e) {
+                    System.err.println("Simulations " + group + " failed: " + e.getCause());
+                    e.getCause().printStackTrace();
+                }
+            }
+        } catch (InterruptedException e) {
+            System.err.println("Interrupted while waiting for simulations to complete");
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs a group of simulations, from a shared warm-up if it has several.
+     *
+     * @param configs The simulation configurations
+     * @param group The indices of the simulations of the group
+     * @param workerDirectory Subdirectory for this worker's temporary and generated files,
+     *                        or null to use the shared directories
+     * @return The metrics of the simulations, in group order
+     */
+    private static List<PerformanceMetrics> runGroup(List<SimulationConfig> configs, List<Integer> group,
+                                                     String workerDirectory) {
+        if (group.size() > 1) {
+            List<PerformanceMetrics> metrics = runForked(configs, group, workerDirectory);
+            if (metrics != null) {
+                return metrics;
+            }
+        }
+        List<PerformanceMetrics> metrics = new ArrayList<>();
+        for (int simIndex : group) {
+            metrics.add(runExperiment(simIndex, configs.get(simIndex), workerDirectory));
+        }
+        return metrics;
+    }
+
+    /**
+     * Runs simulations of the same scenario from the same warm-up: every simulation is set up and
+     * run up to the fork time with the first one's configuration, then switches to its own
+     * placement logic. Since the warm-up is seeded, it reaches the same state in every simulation.
+     *
+     * @param configs The simulation configurations
+     * @param group The indices of the simulations of the group
+     * @param workerDirectory Subdirectory for this worker's temporary and generated files,
+     *                        or null to use the shared directories
+     * @return The metrics of the simulations, in group order, or null if the warm-up
+     *         ended before the fork time
+     */
+    private static List<PerformanceMetrics> runForked(List<SimulationConfig> configs, List<Integer> group,
+                                                      String workerDirectory) {
+        SimulationConfig warmUpConfig = configs.get(group.get(0));
+        List<PerformanceMetrics> results = new ArrayList<>();
+        for (int simIndex : group) {
+            PerformanceMetrics metrics = runExperiment(simIndex, configs.get(simIndex), warmUpConfig, workerDirectory);
+            if (metrics == null) {
+                // The warm-up is the same for all of them, so this is the first one
+                System.out.println("Warm-up ended before the fork time, running the simulations one by one");
+                return null;
+            }
+            results.add(metrics);
+        }
+        return results;
+    }
+
+    /**
+     * Runs one simulation in a fresh simulation context bound to the calling thread
+     * and collects its metrics.
+     *
+     * @param simIndex The index of the simulation
+     * @param config The simulation configuration
+     * @param workerDirectory Subdirectory for this worker's temporary and generated files,
+     *                        or null to use the shared directories
+     * @return The metrics of the simulation
+     */
+    private static PerformanceMetrics runExperiment(int simIndex, SimulationConfig config, String workerDirectory) {
+        return runExperiment(simIndex, config, null, workerDirectory);
+    }
+
+    /**
+     * Runs one simulation in a fresh simulation context bound to the calling thread
+     * and collects its metrics.
+     *
+     * @param simIndex The index of the simulation
+     * @param config The simulation configuration
+     * @param warmUpConfig The configuration the simulation is set up and run with up to the fork
+     *                     time, or null to run it with its own configuration throughout
+     * @param workerDirectory Subdirectory for this worker's temporary and generated files,
+     *                        or null to use the shared directories
+     * @return The metrics of the simulation, or null if it ended before the fork time
+     */
+    private static PerformanceMetrics runExperiment(int simIndex, SimulationConfig config,
+                                                    SimulationConfig warmUpConfig, String workerDirectory) {
+        System.out.println("\n========= Starting Simulation " + simIndex + " =========");
+        printMemoryUsage("Before simulation");
+        
+        // Each simulation gets its own context, so nothing from the previous run leaks into it
+        SimulationContext.setCurrent(new SimulationContext());
+        try {
+            if (workerDirectory != null) {
+                SPPMonitor.getInstance().setTempDir(SPPMonitor.DEFAULT_TEMP_DIR + workerDirectory);
+                runState().outputDirectory = OUTPUT_DIRECTORY + workerDirectory + "/";
             }
-            printMemoryUsage("After forced GC");
             
             // Clear power metrics BEFORE each simulation
             MetricUtils.clearPowerMetrics();
@@ -198,32 +392,25 @@ public class SPPExperiment {
             long startTime = System.currentTimeMillis();
             
             // Run the simulation
-            run(config);
+            if (warmUpConfig == null) {
+                run(config);
+            } else if (!runFromWarmUp(config, warmUpConfig)) {
+                deleteTempFiles(simIndex);
+                cleanupAfterSimulation();
+                return null;
+            }
             
             // Record metrics
             long endTime = System.currentTimeMillis();
             metrics.setExecutionTimeMs(endTime - startTime);
+            writeProfile(simIndex);
+            writeSolverRecords(simIndex);
+            printPlacementCacheStats();
+            printRouteCacheStats();
             
             // Process metrics from temporary CSV files
             processTempMetricsFiles(simIndex, metrics);
             
-            // Immediately write this simulation's results to the CSV
-            try (FileWriter fileWriter = new FileWriter(outputFile, true)) { // append mode
-                // Write aggregate metrics
-                writeSimulationResultRow(fileWriter, simIndex, config, metrics, "Aggregate");
-                
-                // Write edge server specific row
-                writeSimulationResultRow(fileWriter, simIndex, config, metrics, "EDGE_SERVERS");
-                
-                // Write user type specific rows
-                for (String userType : metrics.getUserTypeAvgUtilization().keySet()) {
-                    writeSimulationResultRow(fileWriter, simIndex, config, metrics, userType);
-                }
-            } catch (IOException e) {
-                System.err.println("Error writing to output file: " + e.getMessage());
-                e.printStackTrace();
-            }
-            
             // Optional: Delete temporary files
             deleteTempFiles(simIndex);
             
@@ -232,24 +419,116 @@ public class SPPExperiment {
             
             System.out.println("Simulation completed in " + metrics.getExecutionTimeMs() + " ms");
             System.out.println("Memory cleanup performed.");
+            return metrics;
+        } finally {
+            SimulationContext.setCurrent(null);
+        }
+    }
+
+    /**
+     * Writes the profile of the simulation of the current context next to the output CSV, as
+     * <code>&lt;output&gt;_profile_sim&lt;index&gt;.csv</code> (time spent per entity class and event tag)
+     * and <code>&lt;output&gt;_queue_sim&lt;index&gt;.csv</code> (event queue depths over time).
+     * Does nothing unless profiling is enabled.
+     *
+     * @param simIndex The index of the simulation
+     */
+    private static void writeProfile(int simIndex) {
+        SimulationProfiler profiler = CloudSim.getProfiler();
+        if (profiler == null) {
+            return;
+        }
+        String base = outputFile.endsWith(".csv") ? outputFile.substring(0, outputFile.length() - 4) : outputFile;
+        try {
+            profiler.writeSummary(base + "_profile_sim" + simIndex + ".csv");
+            profiler.writeQueueDepths(base + "_queue_sim" + simIndex + ".csv");
+            System.out.printf("Profile: %d events in %.3f s (%.0f events/s), written to %s_profile_sim%d.csv%n",
+                              profiler.getEventCount(), profiler.getElapsedSeconds(),
+                              profiler.getEventsPerSecond(), base, simIndex);
+        } catch (IOException e) {
+            System.err.println("Error writing profile: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the solver runs of the placement heuristics next to the output CSV, as
+     * <code>&lt;output&gt;_solver_sim&lt;index&gt;.csv</code> (solve time, PRs placed and optimality
+     * gap per run), and prints the distribution of the per-PR solve times. Does nothing if no
+     * heuristic recorded a run.
+     *
+     * @param simIndex The index of the simulation
+     */
+    private static void writeSolverRecords(int simIndex) {
+        SPPMonitor monitor = SPPMonitor.getInstance();
+        if (monitor.getSolverRecords().isEmpty()) {
+            return;
+        }
+        String base = outputFile.endsWith(".csv") ? outputFile.substring(0, outputFile.length() - 4) : outputFile;
+        try {
+            monitor.writeSolverRecords(base + "_solver_sim" + simIndex + ".csv");
+            System.out.printf("Solver: %d runs written to %s_solver_sim%d.csv%n",
+                              monitor.getSolverRecords().size(), base, simIndex);
+            double p50 = monitor.getSolveTimePercentile("PR", 50);
+            if (!Double.isNaN(p50)) {
+                System.out.printf("Solver: per-PR solve time p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                                  p50, monitor.getSolveTimePercentile("PR", 90),
+                                  monitor.getSolveTimePercentile("PR", 99), monitor.getSolveTimePercentile("PR", 100));
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing solver runs: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Prints how often the placement cache of the heuristics reused a placement. Does nothing if
+     * the cache was not used.
+     */
+    private static void printPlacementCacheStats() {
+        SPPMonitor monitor = SPPMonitor.getInstance();
+        double hitRate = monitor.getPlacementCacheHitRate();
+        if (!Double.isNaN(hitRate)) {
+            System.out.printf("Placement cache: %d hits, %d misses, %d stale (hit rate %.1f%%)%n",
+                              monitor.getPlacementCacheHits(), monitor.getPlacementCacheMisses(),
+                              monitor.getPlacementCacheRejections(), hitRate * 100);
+        }
+    }
+
+    /**
+     * Prints how often the route cache of GraphHopper pathing reused routes. Does nothing if the
+     * cache was not used.
+     */
+    private static void printRouteCacheStats() {
+        RouteCache cache = RouteCache.getInstance();
+        if (cache != null && !Double.isNaN(cache.getHitRate())) {
+            System.out.printf("Route cache: %d hits, %d misses, %d routes of %d points kept (hit rate %.1f%%)%n",
+                              cache.getHits(), cache.getMisses(), cache.size(), cache.getPoints(),
+                              cache.getHitRate() * 100);
+        }
+    }
+
+    /**
+     * Appends the result rows of a simulation to the output CSV
+     *
+     * @param simIndex The index of the simulation
+     * @param config The simulation configuration
+     * @param metrics The metrics of the simulation
+     */
+    private static void writeSimulationResultRows(int simIndex, SimulationConfig config, PerformanceMetrics metrics) {
+        try (FileWriter fileWriter = new FileWriter(outputFile, true)) { // append mode
+            // Write aggregate metrics
+            writeSimulationResultRow(fileWriter, simIndex, config, metrics, "Aggregate");
+            
+            // Write edge server specific row
+            writeSimulationResultRow(fileWriter, simIndex, config, metrics, "EDGE_SERVERS");
+            
+            // Write user type specific rows
+            for (String userType : metrics.getUserTypeAvgUtilization().keySet()) {
+                writeSimulationResultRow(fileWriter, simIndex, config, metrics, userType);
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing to output file: " + e.getMessage());
+            e.printStackTrace();
         }
-        
-        System.out.println("\n========= FINAL SUMMARY =========");
-        System.out.println("All " + configs.size() + " simulations completed successfully.");
-        System.out.println("");
-        System.out.println("RESULTS LOCATION:");
-        System.out.println("  CSV Metrics File: " + new java.io.File(outputFile).getAbsolutePath());
-        System.out.println("");
-        System.out.println("The CSV file contains per-simulation metrics including:");
-        System.out.println("  - Resource utilization (avg/stddev)");
-        System.out.println("  - Latency (avg/stddev)");
-        System.out.println("  - Failure ratios");
-        System.out.println("  - Energy consumption");
-        System.out.println("  - Execution time");
-        System.out.println("");
-        System.out.println("TIP: To save the console log, run with:");
-        System.out.println("  ./mvnw exec:java 2>&1 | tee output/SPPExperiment.txt");
-        System.out.println("=================================\n");
     }
 
     /**
@@ -533,10 +812,100 @@ public class SPPExperiment {
         }
         
         String outputFilePath = (String) constantsMap.get("outputFilePath");
+        String futureQueue = (String) constantsMap.get("futureQueue");  // Optional
+        Boolean lazyCancellation = (Boolean) constantsMap.get("lazyCancellation");  // Optional
+        Boolean eventPooling = (Boolean) constantsMap.get("eventPooling");  // Optional
+        Integer parallelism = constantsMap.get("parallelism") != null  // Optional
+            ? ((Number) constantsMap.get("parallelism")).intValue() : null;
+        Double forkTime = constantsMap.get("forkTime") != null  // Optional
+            ? ((Number) constantsMap.get("forkTime")).doubleValue() : null;
+        Boolean profiling = (Boolean) constantsMap.get("profiling");  // Optional
+        Boolean batchPlacement = (Boolean) constantsMap.get("batchPlacement");  // Optional
+        Double batchTimeBudget = constantsMap.get("batchTimeBudget") != null  // Optional
+            ? ((Number) constantsMap.get("batchTimeBudget")).doubleValue() : null;
+        Integer ilpTimeLimit = constantsMap.get("ilpTimeLimit") != null  // Optional
+            ? ((Number) constantsMap.get("ilpTimeLimit")).intValue() : null;
+        Integer ilpPortfolio = constantsMap.get("ilpPortfolio") != null  // Optional
+            ? ((Number) constantsMap.get("ilpPortfolio")).intValue() : null;
+        Integer placementCacheSize = constantsMap.get("placementCacheSize") != null  // Optional
+            ? ((Number) constantsMap.get("placementCacheSize")).intValue() : null;
+        Integer placementCacheBuckets = constantsMap.get("placementCacheBuckets") != null  // Optional
+            ? ((Number) constantsMap.get("placementCacheBuckets")).intValue() : null;
+        Boolean handoverEvents = (Boolean) constantsMap.get("handoverEvents");  // Optional
+        SPPExperimentConstants.RouteCacheConfig routeCache = new SPPExperimentConstants.RouteCacheConfig(
+            (Map<String, Object>) constantsMap.get("routeCache"));  // Optional
+        Boolean batchPaths = (Boolean) constantsMap.get("batchPaths");  // Optional
+        Integer pathThreads = constantsMap.get("pathThreads") != null  // Optional
+            ? ((Number) constantsMap.get("pathThreads")).intValue() : null;
+        SPPExperimentConstants.AnnealingConfig annealing = new SPPExperimentConstants.AnnealingConfig(
+            (Map<String, Object>) constantsMap.get("simulatedAnnealing"));  // Optional
         
         SPPExperimentConstants constants = new SPPExperimentConstants(
             locationConfigFile, resourcesLocationPath, usersLocationPath, useDynamicLocations,
-            osmFilePath, graphHopperFolder, events, geographicArea, outputFilePath);
+            osmFilePath, graphHopperFolder, events, geographicArea, outputFilePath, futureQueue, lazyCancellation,
+            eventPooling, parallelism, forkTime, profiling, batchPlacement, batchTimeBudget, ilpTimeLimit, ilpPortfolio,
+            placementCacheSize, placementCacheBuckets, handoverEvents, routeCache,
+            batchPaths, pathThreads, annealing);
+        
+        CloudSim.setFutureQueueType(FutureQueue.getQueueTypeCode(constants.getFutureQueue()));
+        System.out.println("Future event queue: " + constants.getFutureQueue());
+        CloudSim.setLazyCancellation(constants.isLazyCancellation());
+        if (constants.isLazyCancellation()) {
+            System.out.println("Lazy event cancellation: ENABLED");
+        }
+        CloudSim.setEventPooling(constants.isEventPooling());
+        if (constants.isEventPooling()) {
+            System.out.println("Event pooling: ENABLED");
+        }
+        System.out.println("Parallel simulations: " + constants.getParallelism());
+        if (constants.getForkTime() > 0) {
+            System.out.println("Placement logics fork off the same warm-up at time: " + constants.getForkTime());
+        }
+        CloudSim.setProfiling(constants.isProfiling());
+        if (constants.isProfiling()) {
+            SimulationProfiler.addTagNames(FogEvents.class);
+            System.out.println("Event handler profiling: ENABLED");
+        }
+        MicroservicePlacementConfig.BATCH_PLACEMENT = constants.isBatchPlacement();
+        MicroservicePlacementConfig.BATCH_TIME_BUDGET = constants.getBatchTimeBudget();
+        if (constants.isBatchPlacement()) {
+            System.out.println("Batch placement: ENABLED (time budget " + constants.getBatchTimeBudget() + " s)");
+        }
+        MicroservicePlacementConfig.ILP_TIME_LIMIT = constants.getIlpTimeLimit();
+        MicroservicePlacementConfig.ILP_PORTFOLIO = constants.getIlpPortfolio();
+        MicroservicePlacementConfig.PLACEMENT_CACHE_SIZE = constants.getPlacementCacheSize();
+        MicroservicePlacementConfig.PLACEMENT_CACHE_BUCKETS = constants.getPlacementCacheBuckets();
+        if (constants.getPlacementCacheSize() > 0) {
+            System.out.println("Placement cache: ENABLED (" + constants.getPlacementCacheSize() + " placements, "
+                + constants.getPlacementCacheBuckets() + " capacity levels)");
+        }
+        MicroservicePlacementConfig.HANDOVER_EVENTS = constants.isHandoverEvents();
+        if (constants.isHandoverEvents()) {
+            System.out.println("Mobility events: at handovers only");
+        }
+        MicroservicePlacementConfig.ROUTE_CACHE_SIZE = routeCache.getSize();
+        MicroservicePlacementConfig.ROUTE_CACHE_GRID = routeCache.getGrid();
+        MicroservicePlacementConfig.ROUTE_CACHE_MEMORY_MB = routeCache.getMaxMemoryMb();
+        if (routeCache.getSize() > 0) {
+            System.out.println("Route cache: ENABLED (" + routeCache.getSize() + " routes, "
+                + routeCache.getGrid() + " m grid, " + routeCache.getMaxMemoryMb() + " MB)");
+        }
+        MicroservicePlacementConfig.BATCH_PATHS = constants.isBatchPaths();
+        MicroservicePlacementConfig.PATH_THREADS = constants.getPathThreads();
+        if (constants.isBatchPaths()) {
+            System.out.println("Batched path creation: ENABLED");
+        }
+        MicroservicePlacementConfig.SA_TEMPERATURE = annealing.getTemperature();
+        MicroservicePlacementConfig.SA_COOLING_FACTOR = annealing.getCoolingFactor();
+        MicroservicePlacementConfig.SA_CHAINS = annealing.getChains();
+        MicroservicePlacementConfig.SA_THREADS = annealing.getThreads();
+        MicroservicePlacementConfig.SA_REPLICA_EXCHANGE = annealing.isReplicaExchange();
+        MicroservicePlacementConfig.SA_EXCHANGE_INTERVAL = annealing.getExchangeInterval();
+        MicroservicePlacementConfig.SA_TEMPERATURE_SPACING = annealing.getTemperatureSpacing();
+        if (annealing.getChains() > 1) {
+            System.out.println("Simulated annealing: " + annealing.getChains() + " chains"
+                + (annealing.isReplicaExchange() ? " with replica exchange" : ""));
+        }
         
         USE_DYNAMIC_LOCATIONS = useDynamicLocations;
         System.out.println("Dynamic location generation: " + (useDynamicLocations ? "ENABLED" : "DISABLED"));
@@ -653,6 +1022,37 @@ public class SPPExperiment {
     }
 
     private static void run(SimulationConfig simulationConfig) {
+        PlacementSimulationController microservicesController = setUpSimulation(simulationConfig);
+        if (microservicesController != null) {
+            completeSimulation(microservicesController);
+        }
+    }
+
+    /**
+     * Sets up a simulation with the warm-up configuration and runs it up to the fork time, then
+     * switches it to the placement logic of its own configuration and runs it to the end.
+     *
+     * @param simulationConfig The simulation configuration
+     * @param warmUpConfig The configuration used up to the fork time
+     * @return false if the simulation could not be set up or ended before the fork time
+     */
+    private static boolean runFromWarmUp(SimulationConfig simulationConfig, SimulationConfig warmUpConfig) {
+        PlacementSimulationController controller = setUpSimulation(warmUpConfig);
+        if (controller == null || !CloudSim.runUntil(experimentConstants.getForkTime())) {
+            return false;
+        }
+        controller.switchPlacementLogic(simulationConfig.getPlacementLogic(), simulationConfig.getHeuristicSeed());
+        completeSimulation(controller);
+        return true;
+    }
+
+    /**
+     * Creates the entities of a simulation and schedules its initial events, without running it.
+     *
+     * @param simulationConfig The simulation configuration
+     * @return The controller of the simulation, or null if it could not be set up
+     */
+    private static PlacementSimulationController setUpSimulation(SimulationConfig simulationConfig) {
         System.out.println("Starting Simon's Experiment...");
         System.out.println(simulationConfig.toString());
 
@@ -671,15 +1071,17 @@ public class SPPExperiment {
         org.cloudbus.cloudsim.network.datacenter.NetworkConstants.clear();
         TimeKeeper.deleteInstance();
         FogBroker.clear();
+        RouteCache.clear();
 
         // Debug: Print entity and tuple IDs after reset
         System.out.println("After reset - ENTITY_ID: " + FogUtils.getCurrentEntityId() + 
                            ", TUPLE_ID: " + FogUtils.getCurrentTupleId());
 
         // Reset THIS class's temporary state
-        fogDevices.clear();
-        sensors.clear();
-        actuators.clear();
+        RunState state = runState();
+        state.fogDevices.clear();
+        state.sensors.clear();
+        state.actuators.clear();
         
         // Dynamic file generation if enabled
         if (USE_DYNAMIC_LOCATIONS) {
@@ -701,7 +1103,7 @@ public class SPPExperiment {
         // Load location configuration from JSON before creating any Location objects
         String locationConfigFile;
         if (USE_DYNAMIC_LOCATIONS) {
-            locationConfigFile = DYNAMIC_LOCATION_CONFIG_FILE;
+            locationConfigFile = state.dynamicLocationConfigFile;
         } else {
             locationConfigFile = experimentConstants.getLocationConfigFile();
         }
@@ -825,7 +1227,7 @@ public class SPPExperiment {
              * Central controller for performing preprocessing functions
              */
             PlacementSimulationController microservicesController;
-            currentController = null; // Clear previous controller reference
+            state.currentController = null; // Clear previous controller reference
             
             // Get interval values from the configuration
             Map<String, Integer> intervalValues = simulationConfig.getIntervalValues();
@@ -836,9 +1238,9 @@ public class SPPExperiment {
                 
                 microservicesController = new PlacementSimulationController(
                     "controller",
-                    fogDevices,
-                    sensors,
-                    actuators,
+                    state.fogDevices,
+                    state.sensors,
+                    state.actuators,
                     applicationPool,
                     placementLogicType,
                     intervalValues,
@@ -849,7 +1251,7 @@ public class SPPExperiment {
             } else {throw new NullPointerException("Need interval values in experiment config");}
             
             // Store controller reference for later cleanup
-            currentController = microservicesController;
+            state.currentController = microservicesController;
             
             // Register device-sensor-actuator mappings
             microservicesController.registerDeviceMappings();
@@ -862,8 +1264,8 @@ public class SPPExperiment {
                 String resourcesPath;
                 String usersPath;
                 if (USE_DYNAMIC_LOCATIONS) {
-                    resourcesPath = DYNAMIC_RESOURCES_LOCATION_PATH;
-                    usersPath = DYNAMIC_USERS_LOCATION_PATH;
+                    resourcesPath = state.dynamicResourcesLocationPath;
+                    usersPath = state.dynamicUsersLocationPath;
                 } else {
                     resourcesPath = experimentConstants.getResourcesLocationPath();
                     usersPath = experimentConstants.getUsersLocationPath();
@@ -886,7 +1288,7 @@ public class SPPExperiment {
             } catch (IOException e) {
                 System.out.println("Failed to initialize location data: " + e.getMessage());
                 e.printStackTrace();
-                return;
+                return null;
             }
 
             List<PlacementRequest> placementRequests = new ArrayList<>();
@@ -917,7 +1319,22 @@ public class SPPExperiment {
             } else {
                 System.out.println("No OPERA_ACCIDENT event configured in constants");
             }
+            return microservicesController;
+        } catch (Exception e) {
+            e.printStackTrace();
+            Log.printLine("Unwanted errors happen");
+            return null;
+        }
+    }
 
+    /**
+     * Runs a simulation that has been set up, or run up to the fork time, to the end
+     * and collects its power metrics.
+     *
+     * @param microservicesController The controller of the simulation
+     */
+    private static void completeSimulation(PlacementSimulationController microservicesController) {
+        try {
             CloudSim.startSimulation();
             // CloudSim.stopSimulation() is called automatically in CloudSim.startSimulation() 
             // after the simulation completes via finishSimulation()
@@ -959,6 +1376,8 @@ public class SPPExperiment {
     private static void createFogDevices(int brokerId, Map<String, Application> applicationsPerType,
                                          int numberOfEdge, Map<String, Integer> usersPerType, 
                                          SimulationConfig simulationConfig) {
+        List<FogDevice> fogDevices = runState().fogDevices;
+        
         // Create cloud device at the top of the hierarchy
         SPPFogDevice cloud = createFogDevice("cloud", 44800, -1, 40000, 100, 10000, 0.01, 16 * 103, 16 * 83.25, SPPFogDevice.CLOUD);
         cloud.setParentId(References.NOT_SET);
@@ -1114,10 +1533,10 @@ public class SPPExperiment {
             // Create sensor and actuator with specific application
             Sensor mobileSensor = new PassiveSensor("s-" + name, "SENSOR", brokerId, app.getAppId(), new DeterministicDistribution(SENSOR_TRANSMISSION_TIME));
             mobileSensor.setApp(app);
-            sensors.add(mobileSensor);
+            runState().sensors.add(mobileSensor);
             
             Actuator mobileDisplay = new Actuator("a-" + name, brokerId, app.getAppId(), "DISPLAY");
-            actuators.add(mobileDisplay);
+            runState().actuators.add(mobileDisplay);
     
             mobileSensor.setGatewayDeviceId(mobile.getId());
             mobileSensor.setLatency(6.0);  // latency of connection between EEG sensors and the parent Smartphone is 6 ms
@@ -1129,10 +1548,10 @@ public class SPPExperiment {
             // If no app create sensor and actuator without specific application
             // The application will be randomly assigned during placement request generation
             Sensor mobileSensor = new PassiveSensor("s-" + name, "SENSOR", brokerId, null, new DeterministicDistribution(SENSOR_TRANSMISSION_TIME));
-            sensors.add(mobileSensor);
+            runState().sensors.add(mobileSensor);
             
             Actuator mobileDisplay = new Actuator("a-" + name, brokerId, null, "DISPLAY");
-            actuators.add(mobileDisplay);
+            runState().actuators.add(mobileDisplay);
     
             mobileSensor.setGatewayDeviceId(mobile.getId());
             mobileSensor.setLatency(6.0);
@@ -1245,7 +1664,7 @@ public class SPPExperiment {
         userTypeEnergyConsumptions.put(SPPFogDevice.OPERA_USER, new ArrayList<>());
         userTypeEnergyConsumptions.put(SPPFogDevice.IMMOBILE_USER, new ArrayList<>());
         
-        for (FogDevice device : fogDevices) {
+        for (FogDevice device : runState().fogDevices) {
             SPPFogDevice sppDevice = (SPPFogDevice) device;
             double energyConsumption = device.getEnergyConsumption();
             
@@ -1400,15 +1819,17 @@ public class SPPExperiment {
         // Print memory usage before cleanup
         printMemoryUsage("Before cleanup");
         
+        RunState state = runState();
+        
         // Clear controller references FIRST
-        if (currentController != null) {
+        if (state.currentController != null) {
             try {
-                currentController.reset();
+                state.currentController.reset();
                 System.out.println("Controller reset completed");
             } catch (Exception e) {
                 System.err.println("Error resetting controller: " + e.getMessage());
             }
-            currentController = null; // Null out the reference
+            state.currentController = null; // Null out the reference
         }
         
         // Clear CloudSim event queues
@@ -1418,20 +1839,19 @@ public class SPPExperiment {
             // Ignore if CloudSim is not in proper state
         }
         
-        // Clear SPPMonitor static data
+        // Clear SPPMonitor data
         SPPMonitor.getInstance().clearCurrentSimulationData();
         
         // Clear power metrics
         MetricUtils.clearPowerMetrics();
         
-        // Clear static lists (though they're cleared at start of run(), doing it here helps GC)
-        // Using explicit null assignments after clear to help GC
-        fogDevices.clear();
-        sensors.clear();
-        actuators.clear();
+        // Clear this run's lists (though they're cleared at start of run(), doing it here helps GC)
+        state.fogDevices.clear();
+        state.sensors.clear();
+        state.actuators.clear();
         
-        // Note: We don't force GC here as we do it before the next simulation starts
-        // This gives the JVM more flexibility in GC scheduling
+        // Note: We don't force GC here; the simulation context is dropped right after cleanup
+        // and everything else it holds becomes garbage with it
         
         printMemoryUsage("After cleanup");
         System.out.println("Simulation cleanup completed.\n");
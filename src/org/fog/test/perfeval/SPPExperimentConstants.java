@@ -1,5 +1,7 @@
 package org.fog.test.perfeval;
 
+import org.cloudbus.cloudsim.core.FutureQueue;
+
 import java.util.HashMap;
 import java.util.Map;
 
@@ -14,6 +16,9 @@ public class SPPExperimentConstants {
     private static final String DEFAULT_OSM_FILE = "./melbourne.osm.pbf";
     private static final String DEFAULT_GRAPH_FOLDER = "./output/graphhopper_melbourne";
     private static final String DEFAULT_OUTPUT_FILE = "./output/MiH_Melbourne.csv";
+    private static final String DEFAULT_FUTURE_QUEUE = FutureQueue.TREE_SET_STR;
+    private static final int DEFAULT_PARALLELISM = 1;
+    private static final double DEFAULT_BATCH_TIME_BUDGET = 10.0;
     
     private final String locationConfigFile;
     private final String outputFilePath;
@@ -33,6 +38,58 @@ public class SPPExperimentConstants {
     // Geographic area name (e.g., "MELBOURNE", "DUBLIN")
     private final String geographicArea;
     
+    // CloudSim future event queue implementation (e.g., "TREE_SET", "CALENDAR")
+    private final String futureQueue;
+    
+    // Whether cancelled events are left in the future event queue until they are due
+    private final boolean lazyCancellation;
+    
+    // Whether processed events are recycled for the next events sent
+    private final boolean eventPooling;
+    
+    // Number of experiments run concurrently (1 runs them one after another)
+    private final int parallelism;
+    
+    // Simulation time at which experiments differing only in placement logic branch off
+    // the same warm-up run (0 disables forking)
+    private final double forkTime;
+    
+    // Whether event handlers are profiled, with a summary table written next to the output CSV
+    private final boolean profiling;
+    
+    // Whether the ILP and ACO heuristics place all the PRs of a placement cycle as one problem
+    private final boolean batchPlacement;
+    
+    // Wall-clock seconds a joint placement may take before falling back to placing PRs one by one
+    private final double batchTimeBudget;
+    
+    // Time limit in seconds of one ILP solve (0 for none)
+    private final int ilpTimeLimit;
+    
+    // Number of differently configured ILP solvers racing on each problem
+    private final int ilpPortfolio;
+    
+    // Number of placements kept by the placement cache (0 for no cache)
+    private final int placementCacheSize;
+    
+    // Number of free capacity levels of a device in the key of the placement cache
+    private final int placementCacheBuckets;
+    
+    // Whether moving users only get mobility events at waypoints where their closest edge node changes
+    private final boolean handoverEvents;
+    
+    // Settings of the route cache of GraphHopper pathing
+    private final RouteCacheConfig routeCache;
+    
+    // Whether the paths requested at the same simulated time are made in one batch
+    private final boolean batchPaths;
+    
+    // Number of threads computing the routes of a batch of paths (0 for one per core)
+    private final int pathThreads;
+    
+    // Settings of the simulated annealing heuristic
+    private final AnnealingConfig annealing;
+    
     /**
      * Configuration for a simulation event (e.g., opera accident)
      */
@@ -60,6 +117,128 @@ public class SPPExperimentConstants {
         }
     }
     
+    /**
+     * Settings of the route cache of GraphHopper pathing: how many routing requests it keeps the
+     * routes of, the grid origins and destinations are matched in, and its memory limit
+     */
+    public static class RouteCacheConfig {
+        private final int size;
+        private final double grid;
+        private final int maxMemoryMb;
+        
+        /**
+         * @param settings The settings by name, any of them missing taking its default; may be null
+         */
+        public RouteCacheConfig(Map<String, Object> settings) {
+            Map<String, Object> values = settings != null ? settings : new HashMap<>();
+            this.size = AnnealingConfig.getNumber(values, "size", 0).intValue();
+            this.grid = AnnealingConfig.getNumber(values, "grid", 10.0).doubleValue();
+            this.maxMemoryMb = AnnealingConfig.getNumber(values, "maxMemoryMb", 64).intValue();
+            
+            if (size < 0) {
+                throw new IllegalArgumentException("routeCache.size must not be negative, got " + size);
+            }
+            if (grid < 0) {
+                throw new IllegalArgumentException("routeCache.grid must not be negative, got " + grid);
+            }
+            if (maxMemoryMb < 1) {
+                throw new IllegalArgumentException("routeCache.maxMemoryMb must be at least 1, got " + maxMemoryMb);
+            }
+        }
+        
+        public int getSize() {
+            return size;
+        }
+        
+        public double getGrid() {
+            return grid;
+        }
+        
+        public int getMaxMemoryMb() {
+            return maxMemoryMb;
+        }
+    }
+    
+    /**
+     * Settings of the simulated annealing heuristic: its cooling schedule, and how many chains
+     * it runs per PR and on how many threads
+     */
+    public static class AnnealingConfig {
+        private final double temperature;
+        private final double coolingFactor;
+        private final int chains;
+        private final int threads;
+        private final boolean replicaExchange;
+        private final int exchangeInterval;
+        private final double temperatureSpacing;
+        
+        /**
+         * @param settings The settings by name, any of them missing taking its default; may be null
+         */
+        public AnnealingConfig(Map<String, Object> settings) {
+            Map<String, Object> values = settings != null ? settings : new HashMap<>();
+            this.temperature = getNumber(values, "temperature", 1000).doubleValue();
+            this.coolingFactor = getNumber(values, "coolingFactor", 0.995).doubleValue();
+            this.chains = getNumber(values, "chains", 1).intValue();
+            this.threads = getNumber(values, "threads", 0).intValue();
+            this.replicaExchange = values.get("replicaExchange") != null && (Boolean) values.get("replicaExchange");
+            this.exchangeInterval = getNumber(values, "exchangeInterval", 10).intValue();
+            this.temperatureSpacing = getNumber(values, "temperatureSpacing", 2.0).doubleValue();
+            
+            if (temperature <= 1) {
+                throw new IllegalArgumentException("simulatedAnnealing.temperature must be above 1, got " + temperature);
+            }
+            if (coolingFactor <= 0 || coolingFactor >= 1) {
+                throw new IllegalArgumentException("simulatedAnnealing.coolingFactor must be in (0, 1), got " + coolingFactor);
+            }
+            if (chains < 1) {
+                throw new IllegalArgumentException("simulatedAnnealing.chains must be at least 1, got " + chains);
+            }
+            if (threads < 0) {
+                throw new IllegalArgumentException("simulatedAnnealing.threads must not be negative, got " + threads);
+            }
+            if (exchangeInterval < 1) {
+                throw new IllegalArgumentException("simulatedAnnealing.exchangeInterval must be at least 1, got " + exchangeInterval);
+            }
+            if (temperatureSpacing < 1) {
+                throw new IllegalArgumentException("simulatedAnnealing.temperatureSpacing must be at least 1, got " + temperatureSpacing);
+            }
+        }
+        
+        private static Number getNumber(Map<String, Object> values, String name, Number defaultValue) {
+            Object value = values.get(name);
+            return value != null ? (Number) value : defaultValue;
+        }
+        
+        public double getTemperature() {
+            return temperature;
+        }
+        
+        public double getCoolingFactor() {
+            return coolingFactor;
+        }
+        
+        public int getChains() {
+            return chains;
+        }
+        
+        public int getThreads() {
+            return threads;
+        }
+        
+        public boolean isReplicaExchange() {
+            return replicaExchange;
+        }
+        
+        public int getExchangeInterval() {
+            return exchangeInterval;
+        }
+        
+        public double getTemperatureSpacing() {
+            return temperatureSpacing;
+        }
+    }
+    
     public SPPExperimentConstants(String locationConfigFile, 
                                String resourcesLocationPath,
                                String usersLocationPath,
@@ -68,7 +247,24 @@ public class SPPExperimentConstants {
                                String graphHopperFolder,
                                Map<String, EventConfig> events,
                                String geographicArea,
-                               String outputFilePath) {
+                               String outputFilePath,
+                               String futureQueue,
+                               Boolean lazyCancellation,
+                               Boolean eventPooling,
+                               Integer parallelism,
+                               Double forkTime,
+                               Boolean profiling,
+                               Boolean batchPlacement,
+                               Double batchTimeBudget,
+                               Integer ilpTimeLimit,
+                               Integer ilpPortfolio,
+                               Integer placementCacheSize,
+                               Integer placementCacheBuckets,
+                               Boolean handoverEvents,
+                               RouteCacheConfig routeCache,
+                               Boolean batchPaths,
+                               Integer pathThreads,
+                               AnnealingConfig annealing) {
         // Validate required fields
         if (locationConfigFile == null || geographicArea == null) {
             throw new IllegalArgumentException(
@@ -100,6 +296,51 @@ public class SPPExperimentConstants {
             }
         }
         
+        if (futureQueue != null && FutureQueue.getQueueTypeCode(futureQueue) == -1) {
+            throw new IllegalArgumentException(
+                "Unknown futureQueue '" + futureQueue + "'. Expected " + FutureQueue.TREE_SET_STR +
+                " or " + FutureQueue.CALENDAR_STR);
+        }
+        
+        if (parallelism != null && parallelism < 1) {
+            throw new IllegalArgumentException(
+                "parallelism must be at least 1, got " + parallelism);
+        }
+        
+        if (forkTime != null && forkTime < 0) {
+            throw new IllegalArgumentException(
+                "forkTime must not be negative, got " + forkTime);
+        }
+        
+        if (batchTimeBudget != null && batchTimeBudget <= 0) {
+            throw new IllegalArgumentException(
+                "batchTimeBudget must be positive, got " + batchTimeBudget);
+        }
+        
+        if (ilpTimeLimit != null && ilpTimeLimit < 0) {
+            throw new IllegalArgumentException(
+                "ilpTimeLimit must not be negative, got " + ilpTimeLimit);
+        }
+        
+        if (ilpPortfolio != null && ilpPortfolio < 1) {
+            throw new IllegalArgumentException(
+                "ilpPortfolio must be at least 1, got " + ilpPortfolio);
+        }
+        
+        if (placementCacheSize != null && placementCacheSize < 0) {
+            throw new IllegalArgumentException(
+                "placementCacheSize must not be negative, got " + placementCacheSize);
+        }
+        
+        if (placementCacheBuckets != null && placementCacheBuckets < 1) {
+            throw new IllegalArgumentException(
+                "placementCacheBuckets must be at least 1, got " + placementCacheBuckets);
+        }
+        if (pathThreads != null && pathThreads < 0) {
+            throw new IllegalArgumentException(
+                "pathThreads must not be negative, got " + pathThreads);
+        }
+        
         // Check that location config file exists (always required)
         java.io.File locationConfigFileObj = new java.io.File(locationConfigFile);
         if (!locationConfigFileObj.exists()) {
@@ -116,6 +357,23 @@ public class SPPExperimentConstants {
         this.events = events != null ? events : new HashMap<>();
         this.geographicArea = geographicArea;
         this.outputFilePath = outputFilePath != null ? outputFilePath : DEFAULT_OUTPUT_FILE;
+        this.futureQueue = futureQueue != null ? futureQueue.toUpperCase() : DEFAULT_FUTURE_QUEUE;
+        this.lazyCancellation = lazyCancellation != null && lazyCancellation;
+        this.eventPooling = eventPooling != null && eventPooling;
+        this.parallelism = parallelism != null ? parallelism : DEFAULT_PARALLELISM;
+        this.forkTime = forkTime != null ? forkTime : 0;
+        this.profiling = profiling != null && profiling;
+        this.batchPlacement = batchPlacement != null && batchPlacement;
+        this.batchTimeBudget = batchTimeBudget != null ? batchTimeBudget : DEFAULT_BATCH_TIME_BUDGET;
+        this.ilpTimeLimit = ilpTimeLimit != null ? ilpTimeLimit : 0;
+        this.ilpPortfolio = ilpPortfolio != null ? ilpPortfolio : 1;
+        this.placementCacheSize = placementCacheSize != null ? placementCacheSize : 0;
+        this.placementCacheBuckets = placementCacheBuckets != null ? placementCacheBuckets : 10;
+        this.handoverEvents = handoverEvents != null && handoverEvents;
+        this.routeCache = routeCache != null ? routeCache : new RouteCacheConfig(null);
+        this.batchPaths = batchPaths != null && batchPaths;
+        this.pathThreads = pathThreads != null ? pathThreads : 0;
+        this.annealing = annealing != null ? annealing : new AnnealingConfig(null);
         
         // Note: OSM file validation happens in SPPExperiment.validateOsmFileForMobileUsers()
         // after all configs are loaded, so we can check if mobile users are actually used
@@ -159,6 +417,74 @@ public class SPPExperimentConstants {
         return outputFilePath;
     }
     
+    public String getFutureQueue() {
+        return futureQueue;
+    }
+    
+    public boolean isLazyCancellation() {
+        return lazyCancellation;
+    }
+    
+    public boolean isEventPooling() {
+        return eventPooling;
+    }
+    
+    public int getParallelism() {
+        return parallelism;
+    }
+    
+    public double getForkTime() {
+        return forkTime;
+    }
+    
+    public boolean isProfiling() {
+        return profiling;
+    }
+    
+    public boolean isBatchPlacement() {
+        return batchPlacement;
+    }
+    
+    public double getBatchTimeBudget() {
+        return batchTimeBudget;
+    }
+    
+    public int getIlpTimeLimit() {
+        return ilpTimeLimit;
+    }
+    
+    public int getIlpPortfolio() {
+        return ilpPortfolio;
+    }
+    
+    public int getPlacementCacheSize() {
+        return placementCacheSize;
+    }
+    
+    public int getPlacementCacheBuckets() {
+        return placementCacheBuckets;
+    }
+    
+    public boolean isHandoverEvents() {
+        return handoverEvents;
+    }
+    
+    public RouteCacheConfig getRouteCache() {
+        return routeCache;
+    }
+    
+    public boolean isBatchPaths() {
+        return batchPaths;
+    }
+    
+    public int getPathThreads() {
+        return pathThreads;
+    }
+    
+    public AnnealingConfig getAnnealing() {
+        return annealing;
+    }
+    
     /**
      * Gets a specific event configuration by name
      */
@@ -169,8 +495,12 @@ public class SPPExperimentConstants {
     @Override
     public String toString() {
         return String.format("ExperimentConstants{area=%s, locationConfig=%s, useDynamic=%s, resourcesCSV=%s, " +
-                           "usersCSV=%s, osmFile=%s, outputFile=%s, events=%d}",
+                           "usersCSV=%s, osmFile=%s, outputFile=%s, futureQueue=%s, lazyCancellation=%s, eventPooling=%s, parallelism=%d, forkTime=%.1f, profiling=%s, " +
+                           "batchPlacement=%s, batchTimeBudget=%.1f, ilpTimeLimit=%d, ilpPortfolio=%d, " +
+                           "placementCacheSize=%d, placementCacheBuckets=%d, handoverEvents=%s, events=%d}",
                            geographicArea, locationConfigFile, useDynamicLocations, resourcesLocationPath, 
-                           usersLocationPath, osmFilePath, outputFilePath, events.size());
+                           usersLocationPath, osmFilePath, outputFilePath, futureQueue, lazyCancellation, eventPooling, parallelism, forkTime, profiling,
+                           batchPlacement, batchTimeBudget, ilpTimeLimit, ilpPortfolio,
+                           placementCacheSize, placementCacheBuckets, handoverEvents, events.size());
     }
 }
@@ -4,6 +4,7 @@ import org.fog.utils.Logger;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 public class SimulationConfig {
     final int numberOfEdge;
@@ -196,4 +197,25 @@ public class SimulationConfig {
     public String getAreaName() {
         return areaName;
     }
+
+    /**
+     * Checks if another configuration simulates the same scenario, i.e. differs at most in its
+     * placement logic and heuristic seed. Such simulations can branch off a shared warm-up.
+     * 
+     * @param other The other configuration
+     * @return true if both configurations simulate the same scenario
+     */
+    public boolean hasSameScenario(SimulationConfig other) {
+        return numberOfEdge == other.numberOfEdge
+            && numberOfUser == other.numberOfUser
+            && numberOfApplications == other.numberOfApplications
+            && appLoopLength == other.appLoopLength
+            && Objects.equals(usersPerType, other.usersPerType)
+            && Objects.equals(intervalValues, other.intervalValues)
+            && placementProcessInterval == other.placementProcessInterval
+            && experimentSeed == other.experimentSeed
+            && locationSeed == other.locationSeed
+            && mobilityStrategySeed == other.mobilityStrategySeed
+            && Objects.equals(areaName, other.areaName);
+    }
 }
@@ -0,0 +1,137 @@
+package org.fog.test.unit;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.FutureQueue;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for CalendarEventQueue, the calendar queue implementation of the future event queue.
+ * Runs the same small simulation with the TreeSet queue and with the calendar queue, and checks
+ * that the events are delivered in the same (time, serial) order.
+ */
+public class CalendarEventQueueTest {
+
+    private int queueType;
+
+    /**
+     * Sends itself events at random times, and more events while processing them, and records the
+     * order in which they are delivered.
+     */
+    private static class Recorder extends SimEntity {
+        private final Random random;
+        private final int initialEvents;
+        private final int maxEvents;
+        private final double step;
+        private final int spread;
+        private final List<String> delivered = new ArrayList<>();
+        private int sent = 0;
+
+        /**
+         * @param initialEvents the number of events sent at the start
+         * @param maxEvents     the number of events sent in all
+         * @param step          the time between two possible event times, events at the same
+         *                      multiple of it have equal timestamps
+         * @param spread        the number of possible delays, in steps
+         */
+        Recorder(long seed, int initialEvents, int maxEvents, double step, int spread) {
+            super("Recorder");
+            this.random = new Random(seed);
+            this.initialEvents = initialEvents;
+            this.maxEvents = maxEvents;
+            this.step = step;
+            this.spread = spread;
+        }
+
+        private void sendRandom() {
+            int tag = sent++;
+            double delay = random.nextInt(spread) * step;
+            // Some events go before the others of the same time
+            if (tag % 11 == 0) {
+                scheduleFirst(getId(), delay, tag);
+            } else {
+                schedule(getId(), delay, tag);
+            }
+        }
+
+        @Override
+        public void startEntity() {
+            for (int i = 0; i < initialEvents; i++) {
+                sendRandom();
+            }
+        }
+
+        @Override
+        public void processEvent(SimEvent ev) {
+            delivered.add(ev.eventTime() + "/" + ev.getTag());
+            // Events sent while running land among the pending ones, some at the current time
+            for (int i = 0; i < 2 && sent < maxEvents; i++) {
+                sendRandom();
+            }
+        }
+
+        @Override
+        public void shutdownEntity() {
+        }
+    }
+
+    @Before
+    public void setUp() {
+        queueType = CloudSim.getFutureQueueType();
+    }
+
+    @After
+    public void tearDown() {
+        CloudSim.setFutureQueueType(queueType);
+    }
+
+    private static List<String> run(int queueType, int initialEvents, int maxEvents, double step, int spread) {
+        CloudSim.setFutureQueueType(queueType);
+        CloudSim.init(0, null, false);
+        Recorder recorder = new Recorder(42, initialEvents, maxEvents, step, spread);
+        CloudSim.startSimulation();
+        assertEquals("Every event should be delivered", maxEvents, recorder.delivered.size());
+        return recorder.delivered;
+    }
+
+    private static void assertSameOrder(int initialEvents, int maxEvents, double step, int spread) {
+        List<String> expected = run(FutureQueue.TREE_SET, initialEvents, maxEvents, step, spread);
+        List<String> actual = run(FutureQueue.CALENDAR, initialEvents, maxEvents, step, spread);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("Event " + i + " should be the same", expected.get(i), actual.get(i));
+        }
+    }
+
+    @Test
+    public void testSameOrderAsTreeSet() {
+        // Few possible times, so many events share a timestamp
+        assertSameOrder(200, 1000, 0.5, 50);
+    }
+
+    @Test
+    public void testSameOrderThroughResizes() {
+        // 3000 pending events grow the calendar from 16 to 2048 buckets, and delivering them
+        //  shrinks it back
+        assertSameOrder(3000, 6000, 0.1, 2000);
+    }
+
+    @Test
+    public void testSameOrderWithEqualTimestamps() {
+        assertSameOrder(500, 1500, 1.0, 1);
+    }
+
+    @Test
+    public void testSameOrderWithSparseEvents() {
+        // Events much further apart than a bucket is wide, spanning many calendar years
+        assertSameOrder(100, 400, 1e5, 1000);
+    }
+}
@@ -0,0 +1,152 @@
+package org.fog.test.unit;
+
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.fog.application.AppModule;
+import org.fog.application.Application;
+import org.fog.entities.ContextPlacementRequest;
+import org.fog.entities.FogDevice;
+import org.fog.entities.PlacementRequest;
+import org.fog.placement.ClosestFitHeuristic;
+import org.fog.placement.PlacementLogicOutput;
+import org.fog.placement.SPPHeuristic;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ClosestFitHeuristic, which sorts the edge nodes by latency once per request
+ * receiving node and cycle and shares the order between the PRs of the receiver. Checks its
+ * placements against the edge nodes sorted again for every PR.
+ */
+public class ClosestFitTest {
+
+    private static final int PR_COUNT = 8;
+
+    @After
+    public void tearDown() {
+        SimulationContext.setCurrent(null);
+    }
+
+    /** @return the key of a microservice of a PR in the placements */
+    private static String key(int sensorId, int prIndex, String microservice) {
+        return sensorId + "/" + prIndex + " " + microservice;
+    }
+
+    /** @return the device of every microservice of every placed PR */
+    private static Map<String, Integer> placements(PlacementLogicOutput output) {
+        Map<String, Integer> placements = new LinkedHashMap<>();
+        for (List<SPPHeuristic.PRContextAwareEntry> entries : output.getServiceDiscoveryInfoV2().values()) {
+            for (SPPHeuristic.PRContextAwareEntry entry : entries) {
+                placements.put(key(entry.getSensorId(), entry.getPrIndex(), entry.getMicroserviceName()),
+                        entry.getDeviceId());
+            }
+        }
+        return placements;
+    }
+
+    /**
+     * Places the PRs the way closest fit is defined: every microservice on the first edge node with
+     * room for it, the edge nodes sorted by latency from the receiver of the PR (through the cloud),
+     * then by id, for every PR. PRs are taken by sensor then PR index like SPPHeuristic does, and
+     * those that do not fit whole are not placed.
+     */
+    private static Map<String, Integer> placeSortingPerPr(SmallFogNetwork network, List<PlacementRequest> prs) {
+        Map<Integer, double[]> free = new LinkedHashMap<>();
+        for (FogDevice edge : network.edges) {
+            free.put(edge.getId(), new double[]{edge.getHost().getTotalMips(), edge.getHost().getRam(),
+                    edge.getHost().getStorage()});
+        }
+        Application app = network.applications.get(SmallFogNetwork.APP);
+        List<PlacementRequest> sorted = new ArrayList<>(prs);
+        sorted.sort(Comparator.<PlacementRequest>comparingInt(PlacementRequest::getSensorId)
+                .thenComparingInt(pr -> ((ContextPlacementRequest) pr).getPrIndex()));
+        Map<String, Integer> placements = new LinkedHashMap<>();
+        for (PlacementRequest pr : sorted) {
+            FogDevice receiver = parentOf(network, pr.getRequester());
+            List<FogDevice> candidates = new ArrayList<>(network.edges);
+            candidates.sort(Comparator.<FogDevice>comparingDouble(edge -> edge == receiver ? 0.0
+                    : cloudLatency(network, edge) + cloudLatency(network, receiver)).thenComparingInt(FogDevice::getId));
+
+            Map<String, Integer> prPlacements = new LinkedHashMap<>();
+            for (String microservice : network.microservices) {
+                AppModule module = app.getModuleByName(microservice);
+                double[] demand = {module.getMips(), module.getRam(), module.getSize()};
+                for (FogDevice candidate : candidates) {
+                    double[] resources = free.get(candidate.getId());
+                    if (resources[0] >= demand[0] && resources[1] >= demand[1] && resources[2] >= demand[2]) {
+                        for (int r = 0; r < demand.length; r++) resources[r] -= demand[r];
+                        prPlacements.put(key(pr.getSensorId(), ((ContextPlacementRequest) pr).getPrIndex(), microservice),
+                                candidate.getId());
+                        break;
+                    }
+                }
+            }
+            if (prPlacements.size() == network.microservices.size()) {
+                placements.putAll(prPlacements);
+            } else {
+                // Give back what the PR took
+                for (Map.Entry<String, Integer> placed : prPlacements.entrySet()) {
+                    AppModule module = app.getModuleByName(placed.getKey().substring(placed.getKey().indexOf(' ') + 1));
+                    double[] resources = free.get(placed.getValue());
+                    resources[0] += module.getMips();
+                    resources[1] += module.getRam();
+                    resources[2] += module.getSize();
+                }
+            }
+        }
+        return placements;
+    }
+
+    private static FogDevice parentOf(SmallFogNetwork network, int deviceId) {
+        for (FogDevice user : network.users) {
+            if (user.getId() == deviceId) {
+                for (FogDevice edge : network.edges) {
+                    if (edge.getId() == user.getParentId()) return edge;
+                }
+            }
+        }
+        throw new IllegalArgumentException("No user " + deviceId);
+    }
+
+    private static double cloudLatency(SmallFogNetwork network, FogDevice edge) {
+        return network.cloud.getChildToLatencyMap().get(edge.getId());
+    }
+
+    @Test
+    public void testSharedCandidatesSameAsSortingPerPr() throws Exception {
+        SimulationContext.setCurrent(new SimulationContext());
+        // Edge nodes 2 and 3 are as far from the cloud, so their order depends on their ids
+        SmallFogNetwork network = new SmallFogNetwork(new long[]{1000, 600, 800, 700}, new double[]{10, 20, 15, 15},
+                2, new int[]{200, 150, 100});
+        List<PlacementRequest> prs = network.newPrs(PR_COUNT);
+        Map<String, Integer> expected = placeSortingPerPr(network, prs);
+
+        ClosestFitHeuristic closestFit = new ClosestFitHeuristic(network.cloud.getId());
+        PlacementLogicOutput output = closestFit.run(network.devices, network.applications, network.availability(), prs);
+        assertEquals("Placements should match the edge nodes sorted for every PR", expected, placements(output));
+
+        // The PRs should have had to go beyond their receivers, and some should not fit at all
+        Set<Integer> usedNodes = new HashSet<>();
+        Set<String> placedPrs = new HashSet<>();
+        for (Map.Entry<String, Integer> placed : expected.entrySet()) {
+            usedNodes.add(placed.getValue());
+            placedPrs.add(placed.getKey().substring(0, placed.getKey().indexOf(' ')));
+        }
+        assertEquals("Every edge node should be used", network.edges.size(), usedNodes.size());
+        assertTrue("Some PRs should not fit", placedPrs.size() < PR_COUNT);
+        int failed = 0;
+        for (int status : output.getPrStatus().values()) {
+            if (status != -1) failed++;
+        }
+        assertEquals("PRs not placed should go back to the cloud", PR_COUNT - placedPrs.size(), failed);
+    }
+}
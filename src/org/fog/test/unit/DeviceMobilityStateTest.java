@@ -0,0 +1,51 @@
+package org.fog.test.unit;
+
+import org.fog.mobility.GenericUserMobilityState;
+import org.fog.mobility.WayPoint;
+import org.fog.mobility.WayPointPath;
+import org.fog.mobilitydata.Location;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the location of a device between two movement updates, read from its path when
+ * mobility events are only scheduled at handovers.
+ */
+public class DeviceMobilityStateTest {
+
+    private static final Location START = new Location(-37.8100, 144.9600, -1);
+    private static final Location FIRST = new Location(-37.8101, 144.9601, -1);
+    private static final Location SECOND = new Location(-37.8102, 144.9602, -1);
+
+    private GenericUserMobilityState state;
+
+    @Before
+    public void setUp() {
+        state = new GenericUserMobilityState(START, null, 1.0);
+        WayPointPath path = new WayPointPath();
+        path.addWayPoint(new WayPoint(FIRST, 10.0));
+        path.addWayPoint(new WayPoint(SECOND, 20.0));
+        state.setPath(path);
+    }
+
+    @Test
+    public void testLocationBeforeFirstWaypoint() {
+        assertSame("Location should not change before the first waypoint", START, state.getLocationAt(5.0));
+    }
+
+    @Test
+    public void testLocationAtPassedWaypoints() {
+        assertSame("Location should be the waypoint reached", FIRST, state.getLocationAt(10.0));
+        assertSame("Location should stay at the last waypoint reached", FIRST, state.getLocationAt(15.0));
+        assertSame("Location should be the destination after it is reached", SECOND, state.getLocationAt(25.0));
+        assertSame("Current location should not be changed by the queries", START, state.getCurrentLocation());
+    }
+
+    @Test
+    public void testLocationWithoutPath() {
+        state.setPath(new WayPointPath());
+        assertSame("Location should be the current one without a path", START, state.getLocationAt(25.0));
+    }
+}
@@ -0,0 +1,103 @@
+package org.fog.test.unit;
+
+import org.fog.placement.SPPHeuristic;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the struct-of-arrays DeviceStateArrays used in placement inner loops.
+ * Checks that it behaves like the DeviceState objects it is built from.
+ */
+public class DeviceStateArraysTest {
+
+    private static final double DELTA = 0.001; // Tolerance for double comparisons
+
+    private SPPHeuristic.DeviceStateArrays states;
+
+    @Before
+    public void setUp() {
+        // Three devices with 1000 MIPS, 2000 MB RAM, 10000 MB storage; device 20 is half used
+        states = new SPPHeuristic.DeviceStateArrays(Arrays.asList(
+            new SPPHeuristic.DeviceState(10, 1000.0, 2000.0, 10000.0, 1000.0, 2000.0, 10000.0),
+            new SPPHeuristic.DeviceState(20, 1000.0, 2000.0, 10000.0, 500.0, 1000.0, 5000.0),
+            new SPPHeuristic.DeviceState(30, 1000.0, 2000.0, 10000.0, 1000.0, 2000.0, 10000.0)
+        ));
+    }
+
+    @Test
+    public void testIndicesFollowListOrder() {
+        assertEquals("Should hold every device", 3, states.size());
+        assertEquals("Index 1 should be device 20", 20, states.getId(1));
+        assertEquals("Device 30 should be at index 2", 2, states.indexOf(30));
+        assertEquals("Unknown device should have no index", -1, states.indexOf(40));
+    }
+
+    @Test
+    public void testCanFitUsesFreeResources() {
+        assertTrue("Fresh device should fit", states.canFit(0, 600.0, 1200.0, 6000.0));
+        assertFalse("Half used device should not fit", states.canFit(1, 600.0, 1200.0, 6000.0));
+    }
+
+    @Test
+    public void testAllocateAndDeallocate() {
+        states.allocate(0, 200.0, 400.0, 1000.0);
+        assertEquals("CPU should be reduced", 800.0, states.getCPU(0), DELTA);
+        assertEquals("RAM should be reduced", 1600.0, states.getRAM(0), DELTA);
+        assertEquals("Storage should be reduced", 9000.0, states.getStorage(0), DELTA);
+
+        states.deallocate(0, 200.0, 400.0, 1000.0);
+        assertEquals("CPU should be restored", 1000.0, states.getCPU(0), DELTA);
+        assertEquals("Other devices should be unchanged", 500.0, states.getCPU(1), DELTA);
+    }
+
+    @Test
+    public void testCopyIsIndependentAndResettable() {
+        SPPHeuristic.DeviceStateArrays copy = states.copy();
+        copy.allocate(2, 100.0, 200.0, 500.0);
+        assertEquals("Original should be unchanged", 1000.0, states.getCPU(2), DELTA);
+        assertEquals("Copy should be changed", 900.0, copy.getCPU(2), DELTA);
+
+        copy.copyFrom(states);
+        assertEquals("Reset copy should match the original", 1000.0, copy.getCPU(2), DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCopyFromOtherDevicesFails() {
+        SPPHeuristic.DeviceStateArrays other = new SPPHeuristic.DeviceStateArrays(Arrays.asList(
+            new SPPHeuristic.DeviceState(10, 1000.0, 2000.0, 10000.0, 1000.0, 2000.0, 10000.0)));
+        states.copyFrom(other);
+    }
+
+    @Test
+    public void testCompareMatchesDeviceStateOrder() {
+        List<SPPHeuristic.DeviceState> objects = states.toDeviceStates();
+        for (int i = 0; i < states.size(); i++) {
+            for (int j = 0; j < states.size(); j++) {
+                assertEquals("compare should agree with compareTo",
+                             Integer.signum(objects.get(i).compareTo(objects.get(j))),
+                             Integer.signum(states.compare(i, j)));
+            }
+        }
+        // Equal utilization is ordered by ID
+        assertTrue("Lower ID should sort first when utilization equal", states.compare(0, 2) < 0);
+    }
+
+    @Test
+    public void testToDeviceStatesSnapshot() {
+        states.allocate(1, 250.0, 500.0, 2500.0);
+        List<SPPHeuristic.DeviceState> objects = states.toDeviceStates();
+
+        assertEquals("Should convert every device", 3, objects.size());
+        assertEquals("Should keep index order", 20, objects.get(1).getId());
+        assertEquals("Should have 75% CPU utilization", 0.75, objects.get(1).getCPUUtil(), DELTA);
+
+        // Snapshot is not affected by later allocations
+        states.allocate(1, 250.0, 500.0, 2500.0);
+        assertEquals("Snapshot should be unchanged", 250.0, objects.get(1).getCPU(), DELTA);
+    }
+}
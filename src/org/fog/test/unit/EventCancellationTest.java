@@ -0,0 +1,303 @@
+package org.fog.test.unit;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.FutureQueue;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the cancellation of future events, which looks events up in a per source index
+ * and, with lazy cancellation, only marks them. Small simulations cancel events with different
+ * predicates, and check that the same events are cancelled as by a scan of the pending events,
+ * and that cancelled events are never delivered.
+ */
+public class EventCancellationTest {
+
+    // Tag of the events telling a sender to cancel events, never matched by the predicates below
+    private static final int CANCEL = 99;
+    private static final int TAGS = 5;
+
+    private int queueType;
+    private boolean lazyCancellation;
+
+    /** An event sent by a sender, as known to the sender. */
+    private static class Sent {
+        final int id;
+        final double time;
+        final int tag;
+
+        Sent(int id, double time, int tag) {
+            this.id = id;
+            this.time = time;
+            this.tag = tag;
+        }
+    }
+
+    /** Matches the events carrying an even or an odd ID, like predicates written by entities. */
+    private static class ParityPredicate extends Predicate {
+        private final int parity;
+
+        ParityPredicate(int parity) {
+            this.parity = parity;
+        }
+
+        @Override
+        public boolean match(SimEvent event) {
+            return event.getTag() != CANCEL && ((Integer) event.getData()) % 2 == parity;
+        }
+
+        boolean match(Sent sent) {
+            return sent.id % 2 == parity;
+        }
+    }
+
+    /** Records the IDs of the events it receives. */
+    private static class Sink extends SimEntity {
+        final Set<Integer> delivered = new HashSet<>();
+
+        Sink() {
+            super("Sink");
+        }
+
+        @Override
+        public void startEntity() {
+        }
+
+        @Override
+        public void processEvent(SimEvent ev) {
+            assertTrue("Event " + ev.getData() + " should be delivered once", delivered.add((Integer) ev.getData()));
+        }
+
+        @Override
+        public void shutdownEntity() {
+        }
+    }
+
+    /**
+     * Sends events to the sink, and cancels some of them on the events it sends itself. Keeps the
+     * events it expects to be pending in send order: those after the current time, since all the
+     * events of a time leave the future queue before any of them is processed.
+     */
+    private static class Sender extends SimEntity {
+        private final Sink sink;
+        private final Random random;
+        private final int prefix;
+        final List<Sent> pending = new ArrayList<>();
+        final Set<Integer> cancelled = new HashSet<>();
+        private int sent = 0;
+
+        Sender(String name, Sink sink, long seed, int prefix) {
+            super(name);
+            this.sink = sink;
+            this.random = new Random(seed);
+            this.prefix = prefix;
+        }
+
+        private void sendEvents(int count) {
+            for (int i = 0; i < count; i++) {
+                int id = prefix + sent++;
+                int tag = 1 + random.nextInt(TAGS);
+                double delay = 1 + random.nextInt(40);
+                schedule(sink.getId(), delay, tag, id);
+                pending.add(new Sent(id, CloudSim.clock() + delay, tag));
+            }
+        }
+
+        @Override
+        public void startEntity() {
+            sendEvents(300);
+            for (int i = 0; i < 30; i++) {
+                schedule(getId(), i + 0.5, CANCEL);
+            }
+        }
+
+        @Override
+        public void processEvent(SimEvent ev) {
+            pending.removeIf(sent -> sent.time <= CloudSim.clock());
+            switch (random.nextInt(4)) {
+                case 0: {
+                    // The first event of a tag, in (time, serial) order
+                    int tag = 1 + random.nextInt(TAGS);
+                    Sent expected = null;
+                    for (Sent sent : pending) {
+                        if (sent.tag == tag && (expected == null || sent.time < expected.time)) {
+                            expected = sent;
+                        }
+                    }
+                    SimEvent cancelled = cancelEvent(new PredicateType(tag));
+                    if (expected == null) {
+                        assertNull("Nothing should be cancelled", cancelled);
+                    } else {
+                        assertNotNull("An event should be cancelled", cancelled);
+                        assertEquals("The first event of the tag should be cancelled",
+                            expected.id, ((Integer) cancelled.getData()).intValue());
+                        remove(expected);
+                    }
+                    break;
+                }
+                case 1: {
+                    int[] tags = {1 + random.nextInt(TAGS), 1 + random.nextInt(TAGS)};
+                    List<Sent> expected = new ArrayList<>();
+                    for (Sent sent : pending) {
+                        if (sent.tag == tags[0] || sent.tag == tags[1]) {
+                            expected.add(sent);
+                        }
+                    }
+                    assertEquals(!expected.isEmpty(), CloudSim.cancelAll(getId(), new PredicateType(tags)));
+                    expected.forEach(this::remove);
+                    break;
+                }
+                case 2: {
+                    ParityPredicate predicate = new ParityPredicate(random.nextInt(2));
+                    Sent expected = null;
+                    for (Sent sent : pending) {
+                        if (predicate.match(sent) && (expected == null || sent.time < expected.time)) {
+                            expected = sent;
+                        }
+                    }
+                    SimEvent cancelled = cancelEvent(predicate);
+                    assertEquals("The first matching event should be cancelled",
+                        expected == null ? null : expected.id, cancelled == null ? null : cancelled.getData());
+                    if (expected != null) {
+                        remove(expected);
+                    }
+                    break;
+                }
+                default: {
+                    // A predicate of another class, matching a third of the events
+                    ParityPredicate predicate = new ParityPredicate(random.nextInt(2)) {
+                        @Override
+                        public boolean match(SimEvent event) {
+                            return super.match(event) && ((Integer) event.getData()) % 3 == 0;
+                        }
+                    };
+                    List<Sent> expected = new ArrayList<>();
+                    for (Sent sent : pending) {
+                        if (predicate.match(sent) && sent.id % 3 == 0) {
+                            expected.add(sent);
+                        }
+                    }
+                    assertEquals(!expected.isEmpty(), CloudSim.cancelAll(getId(), predicate));
+                    expected.forEach(this::remove);
+                    break;
+                }
+            }
+            // Events sent after the source was indexed
+            sendEvents(10);
+        }
+
+        private void remove(Sent sent) {
+            pending.remove(sent);
+            cancelled.add(sent.id);
+        }
+
+        @Override
+        public void shutdownEntity() {
+        }
+    }
+
+    @Before
+    public void setUp() {
+        queueType = CloudSim.getFutureQueueType();
+        lazyCancellation = CloudSim.isLazyCancellation();
+    }
+
+    @After
+    public void tearDown() {
+        CloudSim.setFutureQueueType(queueType);
+        CloudSim.setLazyCancellation(lazyCancellation);
+    }
+
+    private static void runAndCheck(int queueType, boolean lazy) {
+        CloudSim.setFutureQueueType(queueType);
+        CloudSim.setLazyCancellation(lazy);
+        CloudSim.init(0, null, false);
+        Sink sink = new Sink();
+        Sender first = new Sender("First", sink, 1, 0);
+        Sender second = new Sender("Second", sink, 2, 1000000);
+        CloudSim.startSimulation();
+
+        int sent = 0;
+        for (Sender sender : new Sender[]{first, second}) {
+            assertFalse("Events should have been cancelled", sender.cancelled.isEmpty());
+            for (int id : sender.cancelled) {
+                assertFalse("Cancelled event " + id + " should not be delivered", sink.delivered.contains(id));
+            }
+            sent += sender.sent;
+        }
+        assertEquals("Every other event should be delivered",
+            sent - first.cancelled.size() - second.cancelled.size(), sink.delivered.size());
+    }
+
+    @Test
+    public void testEagerCancellation() {
+        runAndCheck(FutureQueue.TREE_SET, false);
+    }
+
+    @Test
+    public void testLazyCancellation() {
+        runAndCheck(FutureQueue.TREE_SET, true);
+    }
+
+    @Test
+    public void testLazyCancellationWithCalendarQueue() {
+        runAndCheck(FutureQueue.CALENDAR, true);
+    }
+
+    /**
+     * Removes with the iterator of a queue holding a cancelled event, after hasNext skipped it,
+     * and checks that the queue keeps the other events.
+     */
+    private static void checkIteratorRemove(boolean lazy) {
+        FutureQueue queue = new FutureQueue(FutureQueue.TREE_SET, lazy);
+        List<SimEvent> events = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            SimEvent event = new SimEvent();
+            event.setSource(1);
+            queue.addEvent(event);
+            events.add(event);
+        }
+        SimEvent skipped = events.get(2);
+        assertSame(skipped, queue.cancel(1, new Predicate() {
+            @Override
+            public boolean match(SimEvent event) {
+                return event == skipped;
+            }
+        }));
+
+        Iterator<SimEvent> iterator = queue.iterator();
+        assertSame(events.get(0), iterator.next());
+        assertSame(events.get(1), iterator.next());
+        assertTrue(iterator.hasNext());
+        iterator.remove();
+        assertSame("The iteration should go on after the removal", events.get(3), iterator.next());
+        iterator.remove();
+        assertSame(events.get(4), iterator.next());
+        assertFalse(iterator.hasNext());
+
+        assertEquals(2, queue.size());
+        assertSame(events.get(0), queue.poll());
+        assertSame("The removed events should not be delivered", events.get(4), queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testIteratorRemoveAfterSkippingCancelled() {
+        checkIteratorRemove(false);
+        checkIteratorRemove(true);
+    }
+}
@@ -0,0 +1,197 @@
+package org.fog.test.unit;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the recycling of processed events. Checks that an event is only reused once it
+ * has been processed, so that every event is delivered as it was sent, and that the debug mode
+ * detects the use of an event after it was processed.
+ */
+public class EventPoolTest {
+
+    private boolean pooling;
+    private boolean poolDebug;
+
+    /** What an entity sent, to check it against what is delivered. */
+    private static class Sent {
+        final double time;
+        final int source;
+        final int tag;
+
+        Sent(double time, int source, int tag) {
+            this.time = time;
+            this.source = source;
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * Sends events to the other peer and to itself, many of them at the same time, while
+     * processing the ones it receives.
+     */
+    private static class Peer extends SimEntity {
+        private final Map<Integer, Sent> sent;
+        private final Set<SimEvent> instances;
+        private final Random random;
+        private final int prefix;
+        Peer other;
+        int received = 0;
+        private int count = 0;
+
+        Peer(String name, int prefix, Map<Integer, Sent> sent, Set<SimEvent> instances) {
+            super(name);
+            this.prefix = prefix;
+            this.sent = sent;
+            this.instances = instances;
+            this.random = new Random(prefix);
+        }
+
+        private void sendRandom() {
+            int id = prefix + count++;
+            int tag = 1 + random.nextInt(3);
+            double delay = random.nextInt(3);
+            SimEntity target = random.nextBoolean() ? this : other;
+            sent.put(id, new Sent(CloudSim.clock() + delay, getId(), tag));
+            schedule(target.getId(), delay, tag, id);
+        }
+
+        @Override
+        public void startEntity() {
+            for (int i = 0; i < 50; i++) {
+                sendRandom();
+            }
+        }
+
+        @Override
+        public void processEvent(SimEvent ev) {
+            Sent expected = sent.remove((Integer) ev.getData());
+            assertNotNull("Event " + ev.getData() + " should be delivered once", expected);
+            assertEquals(expected.time, ev.eventTime(), 0.0);
+            assertEquals(expected.source, ev.getSource());
+            assertEquals(getId(), ev.getDestination());
+            assertEquals(expected.tag, ev.getTag());
+            instances.add(ev);
+            received++;
+            // The events sent now may reuse the ones processed before, never this one or the
+            //  pending ones
+            if (count < 2000) {
+                for (int i = random.nextInt(3); i > 0; i--) {
+                    sendRandom();
+                }
+            }
+        }
+
+        @Override
+        public void shutdownEntity() {
+        }
+    }
+
+    /** Keeps an event it processed, and uses it when processing the next one. */
+    private static class Keeper extends SimEntity {
+        private SimEvent kept;
+        IllegalStateException detected;
+
+        Keeper() {
+            super("Keeper");
+        }
+
+        @Override
+        public void startEntity() {
+            schedule(getId(), 1, 1, "first");
+            schedule(getId(), 2, 1, "second");
+        }
+
+        @Override
+        public void processEvent(SimEvent ev) {
+            if (kept != null) {
+                try {
+                    kept.getData();
+                } catch (IllegalStateException e) {
+                    detected = e;
+                }
+            }
+            kept = ev;
+        }
+
+        @Override
+        public void shutdownEntity() {
+        }
+    }
+
+    @Before
+    public void setUp() {
+        pooling = CloudSim.isEventPooling();
+        poolDebug = CloudSim.isEventPoolDebug();
+    }
+
+    @After
+    public void tearDown() {
+        CloudSim.setEventPooling(pooling);
+        CloudSim.setEventPoolDebug(poolDebug);
+    }
+
+    /**
+     * @return the number of distinct event instances delivered
+     */
+    private static int runPeers(boolean pooling, boolean debug) {
+        CloudSim.setEventPooling(pooling);
+        CloudSim.setEventPoolDebug(debug);
+        CloudSim.init(0, null, false);
+        Map<Integer, Sent> sent = new HashMap<>();
+        Set<SimEvent> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        Peer first = new Peer("First", 0, sent, instances);
+        Peer second = new Peer("Second", 1000000, sent, instances);
+        first.other = second;
+        second.other = first;
+        CloudSim.startSimulation();
+
+        assertTrue("Every event should be delivered, " + sent.size() + " were not", sent.isEmpty());
+        assertEquals(first.count + second.count, first.received + second.received);
+        return instances.size();
+    }
+
+    @Test
+    public void testRecycledEventsDeliveredAsSent() {
+        int instances = runPeers(true, false);
+        // About as many instances as events pending at once, far fewer than the 2000 events
+        assertTrue("Events should be recycled, " + instances + " instances were delivered", instances < 1000);
+    }
+
+    @Test
+    public void testEventsNotRecycledWithoutPooling() {
+        int delivered = runPeers(false, false);
+        assertTrue("Every event should be a new instance", delivered > 2000);
+    }
+
+    @Test
+    public void testEventsNotRecycledInDebugMode() {
+        int delivered = runPeers(true, true);
+        assertTrue("Every event should be a new instance", delivered > 2000);
+    }
+
+    @Test
+    public void testUseAfterProcessingDetectedInDebugMode() {
+        CloudSim.setEventPooling(true);
+        CloudSim.setEventPoolDebug(true);
+        CloudSim.init(0, null, false);
+        Keeper keeper = new Keeper();
+        CloudSim.startSimulation();
+
+        assertNotNull("Using a processed event should fail", keeper.detected);
+        assertTrue(keeper.detected.getMessage().contains("used after it was processed"));
+    }
+}
@@ -0,0 +1,101 @@
+package org.fog.test.unit;
+
+import org.fog.placement.FreeCapacityIndex;
+import org.fog.placement.SPPHeuristic;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for FreeCapacityIndex, the utilisation ordered index used by BestFit and MaxFit.
+ * Checks that its searches find the same nodes as a scan of every node.
+ */
+public class FreeCapacityIndexTest {
+
+    private static SPPHeuristic.DeviceStateArrays newStates(int count, Random random) {
+        List<SPPHeuristic.DeviceState> states = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            // Devices of different sizes, so that the least utilised is not always the roomiest
+            double cpu = 1000.0 * (1 + random.nextInt(4));
+            double ram = 2000.0 * (1 + random.nextInt(4));
+            double storage = 10000.0 * (1 + random.nextInt(4));
+            states.add(new SPPHeuristic.DeviceState(100 + i, cpu, ram, storage, cpu, ram, storage));
+        }
+        return new SPPHeuristic.DeviceStateArrays(states);
+    }
+
+    private static int scan(SPPHeuristic.DeviceStateArrays states, double cpu, double ram, double storage,
+                            int sign) {
+        int best = -1;
+        for (int i = 0; i < states.size(); i++) {
+            if (states.canFit(i, cpu, ram, storage)
+                    && (best < 0 || Integer.signum(states.compare(i, best)) == sign)) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    @Test
+    public void testSearchesOnFreshDevices() {
+        SPPHeuristic.DeviceStateArrays states = newStates(3, new Random(1));
+        FreeCapacityIndex index = new FreeCapacityIndex(states);
+
+        // Equal utilisation is ordered by ID
+        assertEquals("Least utilised should be the lowest ID", 0, index.least());
+        assertEquals("Should find the lowest ID", 0, index.leastUtilisedFitting(1.0, 1.0, 1.0));
+        assertEquals("Should find the highest ID", 2, index.mostUtilisedFitting(1.0, 1.0, 1.0));
+        assertEquals("Nothing should fit", -1, index.leastUtilisedFitting(1e9, 1.0, 1.0));
+        assertEquals("Nothing should fit", -1, index.mostUtilisedFitting(1.0, 1.0, 1e9));
+    }
+
+    @Test
+    public void testAllocationMovesDevice() {
+        SPPHeuristic.DeviceStateArrays states = newStates(3, new Random(1));
+        FreeCapacityIndex index = new FreeCapacityIndex(states);
+
+        double freeCpu = states.getCPU(0);
+        index.allocate(0, 1.0, 1.0, 1.0);
+        assertEquals("Allocation should go to the device", freeCpu - 1.0, states.getCPU(0), 0.001);
+        assertEquals("Used device should no longer be least utilised", 1, index.least());
+        assertEquals("Used device should be most utilised", 0, index.mostUtilisedFitting(1.0, 1.0, 1.0));
+
+        index.deallocate(0, 1.0, 1.0, 1.0);
+        assertEquals("Released device should be least utilised again", 0, index.least());
+    }
+
+    @Test
+    public void testMatchesScanUnderRandomAllocations() {
+        Random random = new Random(42);
+        SPPHeuristic.DeviceStateArrays states = newStates(200, random);
+        FreeCapacityIndex index = new FreeCapacityIndex(states);
+        List<double[]> allocations = new ArrayList<>();
+
+        for (int step = 0; step < 2000; step++) {
+            double cpu = 50.0 + random.nextInt(400);
+            double ram = 100.0 + random.nextInt(800);
+            double storage = 500.0 + random.nextInt(4000);
+
+            int least = index.leastUtilisedFitting(cpu, ram, storage);
+            int most = index.mostUtilisedFitting(cpu, ram, storage);
+            assertEquals("Least utilised fitting node should match the scan", scan(states, cpu, ram, storage, -1), least);
+            assertEquals("Most utilised fitting node should match the scan", scan(states, cpu, ram, storage, 1), most);
+            assertEquals("Least utilised node should match the scan", scan(states, 0.0, 0.0, 0.0, -1), index.least());
+
+            if (random.nextInt(4) == 0 && !allocations.isEmpty()) {
+                double[] released = allocations.remove(random.nextInt(allocations.size()));
+                index.deallocate((int) released[0], released[1], released[2], released[3]);
+            } else {
+                int target = random.nextBoolean() ? least : most;
+                if (target >= 0) {
+                    index.allocate(target, cpu, ram, storage);
+                    allocations.add(new double[] { target, cpu, ram, storage });
+                }
+            }
+        }
+    }
+}
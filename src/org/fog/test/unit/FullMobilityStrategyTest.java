@@ -0,0 +1,115 @@
+package org.fog.test.unit;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.fog.mobility.BeelinePathingStrategy;
+import org.fog.mobility.DeviceMobilityState;
+import org.fog.mobility.FullMobilityStrategy;
+import org.fog.mobility.GenericUserMobilityState;
+import org.fog.mobility.PathingStrategy;
+import org.fog.mobility.WayPoint;
+import org.fog.mobilitydata.Location;
+import org.fog.utils.MicroservicePlacementConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the batched path creation of FullMobilityStrategy, used with batchPaths. Checks
+ * that makePaths gives the devices the same attraction points, paths and delays as makePath called
+ * for each device in ID order, whatever the number of path threads.
+ */
+public class FullMobilityStrategyTest {
+
+    // Device IDs, in another order than their mobility states are created
+    private static final int[] DEVICE_IDS = {12, 3, 7, 20, 5};
+
+    private int pathThreads;
+
+    @Before
+    public void setUp() {
+        pathThreads = MicroservicePlacementConfig.PATH_THREADS;
+    }
+
+    @After
+    public void tearDown() {
+        MicroservicePlacementConfig.PATH_THREADS = pathThreads;
+        SimulationContext.setCurrent(null);
+    }
+
+    /**
+     * @return the mobility states of the devices in a new simulation, sharing one pathing strategy
+     * like the users of an experiment
+     */
+    private static SortedMap<Integer, DeviceMobilityState> createStates() {
+        SimulationContext.setCurrent(new SimulationContext());
+        CloudSim.init(0, null, false);
+        Location.setDefaultRandomSeed(42);
+        PathingStrategy strategy = new BeelinePathingStrategy(7);
+        SortedMap<Integer, DeviceMobilityState> states = new TreeMap<>();
+        for (int i = 0; i < DEVICE_IDS.length; i++) {
+            Location start = new Location(-37.81 - i * 0.001, 144.96 + i * 0.001, -1);
+            states.put(DEVICE_IDS[i], new GenericUserMobilityState(start, strategy, 1.5));
+        }
+        return states;
+    }
+
+    /** The delay and the path of each device, in ID order. */
+    private static List<String> describe(Map<Integer, Double> delays, SortedMap<Integer, DeviceMobilityState> states) {
+        List<String> paths = new ArrayList<>();
+        for (Map.Entry<Integer, DeviceMobilityState> entry : states.entrySet()) {
+            StringBuilder path = new StringBuilder(entry.getKey() + ": " + delays.get(entry.getKey()));
+            path.append(" to ").append(entry.getValue().getCurrentAttractor().getAttractionPoint());
+            for (WayPoint waypoint : entry.getValue().getPath().getRemainingWaypoints()) {
+                Location location = waypoint.getLocation();
+                path.append(" / ").append(location.latitude).append(',').append(location.longitude)
+                    .append('@').append(waypoint.getArrivalTime());
+            }
+            paths.add(path.toString());
+        }
+        return paths;
+    }
+
+    private static List<String> makePathsOneByOne() {
+        SortedMap<Integer, DeviceMobilityState> states = createStates();
+        FullMobilityStrategy strategy = new FullMobilityStrategy();
+        Map<Integer, Double> delays = new TreeMap<>();
+        for (Map.Entry<Integer, DeviceMobilityState> entry : states.entrySet()) {
+            delays.put(entry.getKey(), strategy.makePath(entry.getKey(), entry.getValue()));
+        }
+        return describe(delays, states);
+    }
+
+    private static List<String> makePathsBatched(int threads) {
+        MicroservicePlacementConfig.PATH_THREADS = threads;
+        SortedMap<Integer, DeviceMobilityState> states = createStates();
+        Map<Integer, Double> delays = new FullMobilityStrategy().makePaths(states);
+        assertEquals("Every device should get a delay", states.keySet(), delays.keySet());
+        return describe(delays, states);
+    }
+
+    @Test
+    public void testBatchedPathsSameAsOneByOne() {
+        List<String> expected = makePathsOneByOne();
+        assertEquals(DEVICE_IDS.length, expected.size());
+        assertEquals("Batched paths should match paths made one device at a time in ID order",
+            expected, makePathsBatched(2));
+    }
+
+    @Test
+    public void testBatchedPathsIndependentOfThreadCount() {
+        List<String> expected = makePathsOneByOne();
+        for (int threads : new int[]{1, 3}) {
+            assertEquals("Batched paths on " + threads + " threads should match paths made one device at a time",
+                expected, makePathsBatched(threads));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.fog.test.unit;
+
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.fog.mobility.Attractor;
+import org.fog.mobility.GraphHopperPathingStrategy;
+import org.fog.mobility.PauseTimeStrategy;
+import org.fog.mobility.WayPoint;
+import org.fog.mobility.WayPointPath;
+import org.fog.mobilitydata.Location;
+import org.fog.utils.Config;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the prepared graphs of GraphHopperPathingStrategy. A graph is kept on disk in a
+ * folder named after its graph key, loaded from there when it is complete, and imported again from
+ * the OSM file when it cannot be loaded. Uses the Dublin OSM file of the repository; the first
+ * import takes a while.
+ */
+public class GraphHopperPathingStrategyTest {
+
+    private static final String OSM_FILE = "./dublin.osm.pbf";
+    private static final Location START = new Location(53.3498, -6.2603, -1);
+    private static final Attractor DESTINATION = new Attractor(new Location(53.3438, -6.2546, -1),
+            "Trinity College", 0, 0, new PauseTimeStrategy(1));
+    private static final double SPEED = 10.0;
+    // Left in a graph folder, and removed when the graph is imported into it again
+    private static final String MARKER = "marker";
+
+    private File tempFolder;
+    private String graphFolder;
+
+    @Before
+    public void setUp() throws IOException {
+        SimulationContext.setCurrent(new SimulationContext());
+        Config.setGeographicArea("DUBLIN");
+        tempFolder = Files.createTempDirectory("graphhopper_test").toFile();
+        // Named after the area, which the strategy checks before routing
+        graphFolder = new File(tempFolder, "graphhopper_dublin").getPath();
+        GraphHopperPathingStrategy.closeSharedHoppers();
+    }
+
+    @After
+    public void tearDown() {
+        GraphHopperPathingStrategy.closeSharedHoppers();
+        delete(tempFolder);
+        SimulationContext.setCurrent(null);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private GraphHopperPathingStrategy strategy(String osmFile, String movement) {
+        return new GraphHopperPathingStrategy(osmFile, graphFolder, movement, 1);
+    }
+
+    /** @return the waypoints of the route to the destination, as "latitude longitude time" */
+    private static List<String> route(GraphHopperPathingStrategy strategy) {
+        WayPointPath path = strategy.makePath(DESTINATION, SPEED, START);
+        List<String> waypoints = new ArrayList<>();
+        for (WayPoint waypoint : path.getRemainingWaypoints()) {
+            waypoints.add(waypoint.getLocation().getLatitude() + " " + waypoint.getLocation().getLongitude()
+                    + " " + waypoint.getArrivalTime());
+        }
+        // Without a graph, a single waypoint straight to the destination
+        assertTrue("Should route along the roads", waypoints.size() > 1);
+        return waypoints;
+    }
+
+    @Test
+    public void testGraphKey() throws IOException {
+        File copy = new File(tempFolder, "copy.osm.pbf");
+        Files.copy(new File(OSM_FILE).toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        String location = strategy(OSM_FILE, "car").getGraphLocation();
+        assertTrue("Graph should be in the graph folder", location.startsWith(graphFolder + File.separator));
+        assertEquals("Same settings should have the same graph", location, strategy(OSM_FILE, "car").getGraphLocation());
+        assertEquals("Copy of the OSM file should have the same graph", location, strategy(copy.getPath(), "car").getGraphLocation());
+        assertNotEquals("Other profile should have another graph", location, strategy(OSM_FILE, "foot").getGraphLocation());
+
+        try (RandomAccessFile osm = new RandomAccessFile(copy, "rw")) {
+            osm.seek(osm.length() / 2);
+            int b = osm.read();
+            osm.seek(osm.length() / 2);
+            osm.write(b ^ 1);
+        }
+        assertTrue("Modification should be seen", copy.setLastModified(copy.lastModified() + 2000));
+        assertNotEquals("Other OSM content should have another graph", location,
+                strategy(copy.getPath(), "car").getGraphLocation());
+    }
+
+    @Test
+    public void testPreparedGraphIsLoaded() throws IOException {
+        GraphHopperPathingStrategy imported = strategy(OSM_FILE, "car");
+        List<String> expected = route(imported);
+        File location = new File(imported.getGraphLocation());
+        assertTrue("Complete graph should be prepared", new File(location, "properties").exists());
+
+        // Not shared anymore, so the next strategy goes to the disk
+        GraphHopperPathingStrategy.closeSharedHoppers();
+        assertTrue(new File(location, MARKER).createNewFile());
+        assertEquals("Loaded graph should route the same", expected, route(strategy(OSM_FILE, "car")));
+        assertTrue("Prepared graph should be loaded, not imported", new File(location, MARKER).exists());
+
+        // Complete on the face of it, with empty data
+        GraphHopperPathingStrategy.closeSharedHoppers();
+        for (File file : location.listFiles()) {
+            if (!file.getName().equals("properties")) {
+                try (RandomAccessFile data = new RandomAccessFile(file, "rw")) {
+                    data.setLength(0);
+                }
+            }
+        }
+        assertEquals("Imported graph should route the same", expected, route(strategy(OSM_FILE, "car")));
+        assertFalse("Graph that cannot be loaded should be imported", new File(location, MARKER).exists());
+    }
+
+    @Test
+    public void testFailedImportIsNotKept() {
+        GraphHopperPathingStrategy strategy = strategy(new File(tempFolder, "missing.osm.pbf").getPath(), "car");
+        for (int attempt = 1; attempt <= 2; attempt++) {
+            try {
+                strategy.makePath(DESTINATION, SPEED, START);
+                fail("Import without an OSM file should fail, attempt " + attempt);
+            } catch (RuntimeException e) {
+                // The graph of the failed import is neither kept nor shared, so it is tried again
+            }
+        }
+    }
+}
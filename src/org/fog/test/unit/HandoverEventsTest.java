@@ -0,0 +1,226 @@
+package org.fog.test.unit;
+
+import org.apache.commons.math3.util.Pair;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.fog.entities.FogDevice;
+import org.fog.entities.SPPFogDevice;
+import org.fog.mobility.DeviceMobilityState;
+import org.fog.mobility.FullMobilityStrategy;
+import org.fog.mobility.GenericUserMobilityState;
+import org.fog.mobility.JitterBugPathingStrategy;
+import org.fog.mobility.PathingStrategy;
+import org.fog.mobility.WayPoint;
+import org.fog.mobility.WayPointPath;
+import org.fog.mobilitydata.Location;
+import org.fog.placement.LatencyOracle;
+import org.fog.placement.LocationManager;
+import org.fog.utils.Config;
+import org.fog.utils.MicroservicePlacementConfig;
+import org.fog.utils.ShortestPathRoutingGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the handover events of FullMobilityStrategy (handoverEvents), which schedules a
+ * movement update only where the closest edge node of a user changes and at its destination.
+ * Users walk across a grid of edge nodes, one of them given a new path on the way, as the
+ * controller does on an accident; their parents must change at the same times and with the same
+ * latencies, and they must arrive at the same times, as with an update at every waypoint.
+ */
+public class HandoverEventsTest {
+
+    private static final int GRID = 3;
+    private static final double SPEED = 1.5;
+    private static final int MOVE = 1;
+    private static final int REROUTE = 2;
+
+    private boolean handoverEvents;
+
+    @Before
+    public void setUp() {
+        handoverEvents = MicroservicePlacementConfig.HANDOVER_EVENTS;
+    }
+
+    @After
+    public void tearDown() {
+        MicroservicePlacementConfig.HANDOVER_EVENTS = handoverEvents;
+        SimulationContext.setCurrent(null);
+    }
+
+    /**
+     * Moves the users like the controller does: every movement update is scheduled with the path
+     * it was scheduled on, and ignored once the user has another path. Records every parent change.
+     */
+    private static class Mover extends SimEntity {
+        private final FullMobilityStrategy strategy;
+        private final LocationManager locationManager;
+        private final Map<Integer, DeviceMobilityState> states;
+        private final Map<Integer, FogDevice> users;
+        private int rerouted = -1;
+        private final Map<Integer, Integer> parents = new HashMap<>();
+        final List<String> parentChanges = new ArrayList<>();
+        final List<String> arrivals = new ArrayList<>();
+        int updates = 0;
+        int staleUpdates = 0;
+        // Movement updates not processed yet, stale ones included
+        private int pending = 0;
+
+        Mover(FullMobilityStrategy strategy, LocationManager locationManager, Map<Integer, DeviceMobilityState> states,
+              Map<Integer, FogDevice> users) {
+            super("Mover");
+            this.strategy = strategy;
+            this.locationManager = locationManager;
+            this.states = states;
+            this.users = users;
+        }
+
+        private void scheduleUpdate(int userId, double delay) {
+            pending++;
+            schedule(getId(), delay, MOVE, new Pair<>(userId, states.get(userId).getPath()));
+        }
+
+        @Override
+        public void startEntity() {
+            List<WayPoint> waypoints = new ArrayList<>();
+            for (Map.Entry<Integer, DeviceMobilityState> entry : states.entrySet()) {
+                parents.put(entry.getKey(), users.get(entry.getKey()).getParentId());
+                scheduleUpdate(entry.getKey(), strategy.makePath(entry.getKey(), entry.getValue()));
+                // The user with the longest path is rerouted
+                if (entry.getValue().getPath().getRemainingWaypoints().size() > waypoints.size()) {
+                    rerouted = entry.getKey();
+                    waypoints = new ArrayList<>(entry.getValue().getPath().getRemainingWaypoints());
+                }
+            }
+            // Between two waypoints, several waypoints along the path
+            assertTrue("Rerouted user should pass several waypoints", waypoints.size() > 4);
+            int passed = waypoints.size() * 3 / 4;
+            schedule(getId(), (waypoints.get(passed - 1).getArrivalTime() + waypoints.get(passed).getArrivalTime()) / 2,
+                    REROUTE, rerouted);
+        }
+
+        @Override
+        public void processEvent(SimEvent ev) {
+            if (ev.getTag() == REROUTE) {
+                // A new destination in the middle of the path
+                DeviceMobilityState dms = states.get(rerouted);
+                dms.updateAttractionPoint(dms.getCurrentAttractor());
+                dms.makePath();
+                scheduleUpdate(rerouted, dms.getPath().getNextWayPoint().getArrivalTime() - CloudSim.clock());
+                return;
+            }
+            @SuppressWarnings("unchecked")
+            Pair<Integer, WayPointPath> update = (Pair<Integer, WayPointPath>) ev.getData();
+            pending--;
+            int userId = update.getFirst();
+            DeviceMobilityState dms = states.get(userId);
+            if (dms.getPath() != update.getSecond()) {
+                staleUpdates++;
+            } else {
+                move(userId, dms);
+            }
+            // The devices would keep the simulation running once the users are at their destination
+            if (pending == 0) {
+                CloudSim.terminateSimulation();
+            }
+        }
+
+        private void move(int userId, DeviceMobilityState dms) {
+            updates++;
+            double delay = strategy.handleMovementUpdate(userId, dms, locationManager);
+            FogDevice user = users.get(userId);
+            if (user.getParentId() != parents.get(userId)) {
+                parents.put(userId, user.getParentId());
+                parentChanges.add(String.format("%.6f %d -> %d %.9f", CloudSim.clock(), userId,
+                        user.getParentId(), user.getUplinkLatency()));
+            }
+            // Users stop at their destination
+            if (!dms.getPath().isEmpty()) {
+                scheduleUpdate(userId, delay);
+            } else {
+                arrivals.add(String.format("%.6f %d %s", CloudSim.clock(), userId, dms.getCurrentLocation()));
+            }
+        }
+
+        @Override
+        public void shutdownEntity() {
+        }
+    }
+
+    /** Walks the users in a new simulation with or without handover events. */
+    private static Mover walk(boolean handoverEvents) throws Exception {
+        MicroservicePlacementConfig.HANDOVER_EVENTS = handoverEvents;
+        SimulationContext.setCurrent(new SimulationContext());
+        long[] mips = new long[GRID * GRID];
+        double[] latencies = new double[GRID * GRID];
+        Arrays.fill(mips, 1000);
+        Arrays.fill(latencies, 10);
+        SmallFogNetwork network = new SmallFogNetwork(mips, latencies, 1, new int[]{100});
+        Location.setDefaultRandomSeed(42);
+
+        Map<String, Integer> levelID = new HashMap<>();
+        levelID.put("Cloud", 0);
+        levelID.put("Gateway", 1);
+        levelID.put("User", 2);
+        Map<Integer, DeviceMobilityState> states = new TreeMap<>();
+        LocationManager locationManager = new LocationManager(levelID, new HashMap<>(), states);
+
+        // Edge nodes in the middle of the cells of a grid over the area
+        network.cloud.setLevel(0);
+        locationManager.registerResourceLocation(network.cloud.getId(), new Location(Config.getMinLat(),
+                Config.getMinLon(), -1), "cloud", 0);
+        for (int i = 0; i < network.edges.size(); i++) {
+            FogDevice edge = network.edges.get(i);
+            edge.setLevel(1);
+            double lat = Config.getMinLat() + (i / GRID + 0.5) * (Config.getMaxLat() - Config.getMinLat()) / GRID;
+            double lon = Config.getMinLon() + (i % GRID + 0.5) * (Config.getMaxLon() - Config.getMinLon()) / GRID;
+            locationManager.registerResourceLocation(edge.getId(), new Location(lat, lon, -1), "edge" + i, 1);
+        }
+        PathingStrategy pathing = new JitterBugPathingStrategy(7);
+        Map<Integer, FogDevice> users = new TreeMap<>();
+        Map<Integer, Integer> parentReferences = new HashMap<>();
+        for (FogDevice user : network.users) {
+            user.setLevel(2);
+            ((SPPFogDevice) user).setFonID(network.cloud.getId());
+            states.put(user.getId(), new GenericUserMobilityState(Location.getRandomLocation(), pathing, SPEED));
+            users.put(user.getId(), user);
+            parentReferences.put(user.getId(), user.getParentId());
+        }
+        Map<Integer, Map<Integer, Integer>> routing = ShortestPathRoutingGenerator.generateRoutingTable(network.devices);
+        for (FogDevice device : network.devices) {
+            ((SPPFogDevice) device).addRoutingTable(routing.get(device.getId()));
+        }
+
+        FullMobilityStrategy strategy = new FullMobilityStrategy();
+        strategy.initialize(network.devices, parentReferences);
+        strategy.setLatencyOracle(new LatencyOracle(network.devices));
+        Mover mover = new Mover(strategy, locationManager, states, users);
+        CloudSim.startSimulation();
+        return mover;
+    }
+
+    @Test
+    public void testSameParentChangesAsUpdatesAtEveryWaypoint() throws Exception {
+        Mover everyWaypoint = walk(false);
+        Mover handovers = walk(true);
+        assertTrue("Users should change parents", everyWaypoint.parentChanges.size() > GRID);
+        assertEquals("Parents should change at the same times, with the same latencies",
+                everyWaypoint.parentChanges, handovers.parentChanges);
+        assertEquals("Users should arrive at the same times and places", everyWaypoint.arrivals, handovers.arrivals);
+        assertTrue("Handover events should take fewer updates", handovers.updates < everyWaypoint.updates);
+        assertEquals("The update scheduled on the replaced path should be ignored", 1, handovers.staleUpdates);
+        assertEquals("The update scheduled on the replaced path should be ignored", 1, everyWaypoint.staleUpdates);
+    }
+}
@@ -0,0 +1,114 @@
+package org.fog.test.unit;
+
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.fog.entities.FogDevice;
+import org.fog.entities.PlacementRequest;
+import org.fog.placement.LatencyOracle;
+import org.fog.placement.PlacementLogicOutput;
+import org.fog.placement.SPPACO;
+import org.fog.placement.SPPHeuristic;
+import org.fog.utils.MicroservicePlacementConfig;
+import org.fog.utils.SPPMonitor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for batch placement, which places all the PRs of a placement cycle jointly instead
+ * of first come, first served. On a network where the first PR takes the node the second one
+ * needs, the joint placement must have the lower total latency.
+ */
+public class JointPlacementTest {
+
+    private static final long SEED = 3;
+    private static final double DELTA = 0.001; // Tolerance for double comparisons
+
+    private boolean batchPlacement;
+    private double batchTimeBudget;
+    private SmallFogNetwork network;
+    private List<PlacementRequest> prs;
+
+    @Before
+    public void setUp() {
+        batchPlacement = MicroservicePlacementConfig.BATCH_PLACEMENT;
+        batchTimeBudget = MicroservicePlacementConfig.BATCH_TIME_BUDGET;
+    }
+
+    @After
+    public void tearDown() {
+        MicroservicePlacementConfig.BATCH_PLACEMENT = batchPlacement;
+        MicroservicePlacementConfig.BATCH_TIME_BUDGET = batchTimeBudget;
+        SimulationContext.setCurrent(null);
+    }
+
+    /**
+     * Places a PR of the users of edge nodes 0 and 1 with ACO. Edge node 0 is too small for the
+     * microservice, edge node 1 has room for one and edge node 2, far from the cloud, for both.
+     * First come, first served, the first PR takes edge node 1 (latency 10) and leaves edge node 2
+     * (latency 55) to the second; jointly, the first PR takes edge node 2 (latency 55) and the second
+     * stays on its receiver.
+     *
+     * @return the total latency from the receivers of the PRs to their microservices
+     */
+    private double place(boolean batch) throws Exception {
+        MicroservicePlacementConfig.BATCH_PLACEMENT = batch;
+        MicroservicePlacementConfig.BATCH_TIME_BUDGET = 10.0;
+        SimulationContext.setCurrent(new SimulationContext());
+        network = new SmallFogNetwork(new long[]{100, 600, 5000}, new double[]{5, 5, 50}, 1, new int[]{500});
+        prs = Arrays.asList(network.newPr(network.users.get(0)), network.newPr(network.users.get(1)));
+        SPPACO aco = new SPPACO(network.cloud.getId());
+        aco.setSeed(SEED);
+        PlacementLogicOutput output = aco.run(network.devices, network.applications, network.availability(), prs);
+        for (int status : output.getPrStatus().values()) {
+            assertEquals("Every PR should be placed", -1, status);
+        }
+
+        LatencyOracle oracle = new LatencyOracle(network.devices);
+        double latency = 0;
+        int placed = 0;
+        for (List<SPPHeuristic.PRContextAwareEntry> entries : output.getServiceDiscoveryInfoV2().values()) {
+            for (SPPHeuristic.PRContextAwareEntry entry : entries) {
+                latency += oracle.getLatency(receiverOf(entry.getSensorId()), entry.getDeviceId());
+                placed++;
+            }
+        }
+        assertEquals("Every microservice should be placed", prs.size(), placed);
+        return latency;
+    }
+
+    /** @return the edge node above the user of a PR */
+    private int receiverOf(int sensorId) {
+        for (PlacementRequest pr : prs) {
+            if (pr.getSensorId() == sensorId) {
+                for (FogDevice user : network.users) {
+                    if (user.getId() == pr.getRequester()) return user.getParentId();
+                }
+            }
+        }
+        throw new IllegalArgumentException("No PR of sensor " + sensorId);
+    }
+
+    @Test
+    public void testJointPlacementBeatsFirstComeFirstServed() throws Exception {
+        double firstComeFirstServed = place(false);
+        assertEquals("First come, first served should leave the far node to the second PR",
+                65.0, firstComeFirstServed, DELTA);
+
+        double joint = place(true);
+        assertEquals("Joint placement should leave the second PR on its receiver", 55.0, joint, DELTA);
+        assertTrue("Joint placement should have the lower latency", joint < firstComeFirstServed);
+
+        SPPMonitor.SolverRecord cycle = null;
+        for (SPPMonitor.SolverRecord record : SPPMonitor.getInstance().getSolverRecords()) {
+            if ("CYCLE".equals(record.getScope())) cycle = record;
+        }
+        assertNotNull("Joint placement should record its solve", cycle);
+        assertEquals(prs.size(), cycle.getPlaced());
+        assertTrue("Gap should be known and not negative", cycle.getGap() >= 0);
+    }
+}
@@ -0,0 +1,62 @@
+package org.fog.test.unit;
+
+import org.fog.placement.LatencyOracle;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for LatencyOracle, the network link latencies shared by the controller and the heuristics.
+ */
+public class LatencyOracleTest {
+
+    private static final double DELTA = 0.001; // Tolerance for double comparisons
+
+    private static final int CLOUD = 1;
+    private static final int EDGE_A = 2;
+    private static final int EDGE_B = 3;
+    private static final int USER = 4;
+
+    private LatencyOracle oracle;
+
+    @Before
+    public void setUp() {
+        // Star around the cloud, and a user connected to edge node A
+        oracle = new LatencyOracle(new ArrayList<>());
+        oracle.setLink(EDGE_A, CLOUD, 10.0);
+        oracle.setLink(EDGE_B, CLOUD, 20.0);
+        oracle.setLink(USER, EDGE_A, 2.0);
+    }
+
+    @Test
+    public void testDirectLatencyOnlyForLinks() {
+        assertEquals("Same device should have no latency", 0.0, oracle.getDirectLatency(EDGE_A, EDGE_A), DELTA);
+        assertEquals("Link should work both ways", 10.0, oracle.getDirectLatency(CLOUD, EDGE_A), DELTA);
+        assertEquals("Link should work both ways", 10.0, oracle.getDirectLatency(EDGE_A, CLOUD), DELTA);
+        assertEquals("Edge nodes should not be linked", -1.0, oracle.getDirectLatency(EDGE_A, EDGE_B), DELTA);
+    }
+
+    @Test
+    public void testLatencyThroughCommonAncestor() {
+        assertEquals("Edge to edge should go through the cloud", 30.0, oracle.getLatency(EDGE_A, EDGE_B), DELTA);
+        assertEquals("User to other edge should go through its edge and the cloud",
+                     32.0, oracle.getLatency(USER, EDGE_B), DELTA);
+        assertEquals("User to its edge should be the direct link", 2.0, oracle.getLatency(EDGE_A, USER), DELTA);
+        assertEquals("Unknown device should not be connected", -1.0, oracle.getLatency(EDGE_A, 99), DELTA);
+    }
+
+    @Test
+    public void testLinkUpdates() {
+        // The user moves to edge node B
+        oracle.setLink(USER, EDGE_B, 3.0);
+        assertEquals("New parent should be used", EDGE_B, oracle.getParent(USER));
+        assertEquals("Old link should be gone", -1.0, oracle.getDirectLatency(USER, EDGE_A), DELTA);
+        assertEquals("New link should be used", 23.0, oracle.getLatency(USER, CLOUD), DELTA);
+
+        oracle.removeLink(USER);
+        assertEquals("Removed device should have no parent", -1, oracle.getParent(USER));
+    }
+}
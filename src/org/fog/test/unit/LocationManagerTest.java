@@ -0,0 +1,106 @@
+package org.fog.test.unit;
+
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.fog.entities.FogDevice;
+import org.fog.mobilitydata.Location;
+import org.fog.placement.LocationManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the closest parent search of LocationManager, whose spatial indices are kept
+ * between searches. A search must see the devices of the list it is given, also after devices are
+ * added to the same list, or replaced in it and the indices invalidated.
+ */
+public class LocationManagerTest {
+
+    private static final int CLOUD_LEVEL = 0;
+    private static final int EDGE_LEVEL = 1;
+    private static final int USER_LEVEL = 2;
+
+    private SmallFogNetwork network;
+    private LocationManager locationManager;
+    private final Location[] edgeLocations = {
+            new Location(-37.80, 144.96, -1),
+            new Location(-37.85, 145.00, -1),
+            new Location(-37.90, 145.10, -1)
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        SimulationContext.setCurrent(new SimulationContext());
+        network = new SmallFogNetwork(new long[]{1000, 1000, 1000}, new double[]{10, 10, 10}, 0, new int[]{100});
+        Map<String, Integer> levelID = new HashMap<>();
+        levelID.put("Cloud", CLOUD_LEVEL);
+        levelID.put("Gateway", EDGE_LEVEL);
+        levelID.put("User", USER_LEVEL);
+        locationManager = new LocationManager(levelID, new HashMap<>(), new HashMap<>());
+
+        network.cloud.setLevel(CLOUD_LEVEL);
+        locationManager.registerResourceLocation(network.cloud.getId(), new Location(-37.81, 144.96, -1),
+                "cloud", CLOUD_LEVEL);
+        for (int i = 0; i < network.edges.size(); i++) {
+            FogDevice edge = network.edges.get(i);
+            edge.setLevel(EDGE_LEVEL);
+            locationManager.registerResourceLocation(edge.getId(), edgeLocations[i], "edge" + i, EDGE_LEVEL);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        SimulationContext.setCurrent(null);
+    }
+
+    /** @return the closest edge node of a user at the location of edge node i */
+    private int parentAt(int i, List<FogDevice> fogDevices) {
+        return locationManager.determineUserParentByProximity(edgeLocations[i], fogDevices);
+    }
+
+    @Test
+    public void testDevicesAddedToTheSameList() {
+        List<FogDevice> fogDevices = new ArrayList<>();
+        fogDevices.add(network.cloud);
+        fogDevices.add(network.edges.get(0));
+        fogDevices.add(network.edges.get(1));
+        assertEquals("Closest edge node in the list should be found", network.edges.get(1).getId(), parentAt(2, fogDevices));
+
+        fogDevices.add(network.edges.get(2));
+        assertEquals("Edge node added to the list should be found", network.edges.get(2).getId(), parentAt(2, fogDevices));
+        fogDevices.remove(network.edges.get(2));
+        assertEquals("Edge node removed from the list should not be found",
+                network.edges.get(1).getId(), parentAt(2, fogDevices));
+    }
+
+    @Test
+    public void testDevicesReplacedInTheSameList() {
+        List<FogDevice> fogDevices = new ArrayList<>();
+        fogDevices.add(network.cloud);
+        fogDevices.add(network.edges.get(0));
+        fogDevices.add(network.edges.get(1));
+        assertEquals(network.edges.get(1).getId(), parentAt(2, fogDevices));
+
+        fogDevices.set(2, network.edges.get(2));
+        locationManager.invalidateResourceIndex();
+        assertEquals("Edge node replacing another should be found", network.edges.get(2).getId(), parentAt(2, fogDevices));
+        assertEquals("Replaced edge node should not be found", network.edges.get(0).getId(), parentAt(1, fogDevices));
+
+        network.edges.get(2).setLevel(USER_LEVEL);
+        locationManager.invalidateResourceIndex();
+        assertEquals("Edge node at another level should not be found", network.edges.get(0).getId(), parentAt(2, fogDevices));
+    }
+
+    @Test
+    public void testOtherListOfDevices() {
+        List<FogDevice> some = new ArrayList<>(network.edges.subList(0, 2));
+        assertEquals(network.edges.get(1).getId(), parentAt(2, some));
+        assertEquals("Other list should be searched", network.edges.get(2).getId(), parentAt(2, network.edges));
+    }
+}
@@ -0,0 +1,338 @@
+package org.fog.test.unit;
+
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.power.PowerHost;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.cloudbus.cloudsim.sdn.example.policies.VmSchedulerTimeSharedEnergy;
+import org.cloudbus.cloudsim.sdn.overbooking.BwProvisionerOverbooking;
+import org.cloudbus.cloudsim.sdn.overbooking.PeProvisionerOverbooking;
+import org.fog.application.AppEdge;
+import org.fog.application.Application;
+import org.fog.entities.ContextPlacementRequest;
+import org.fog.entities.ControllerComponent;
+import org.fog.entities.FogDevice;
+import org.fog.entities.FogDeviceCharacteristics;
+import org.fog.entities.PlacementRequest;
+import org.fog.entities.SPPFogDevice;
+import org.fog.entities.Tuple;
+import org.fog.placement.PlacementCache;
+import org.fog.placement.SPPHeuristic;
+import org.fog.policy.AppModuleAllocationPolicy;
+import org.fog.utils.FogLinearPowerModel;
+import org.fog.utils.FogUtils;
+import org.fog.utils.MicroservicePlacementConfig;
+import org.fog.utils.SPPMonitor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for PlacementCache, the placements reused by similar PRs in the SA, ACO and ILP heuristics,
+ * and for their reuse by SPPHeuristic: a cached placement is only reused while its devices are at
+ * the same free capacity level and still fit the PR.
+ */
+public class PlacementCacheTest {
+
+    private static final String APP = "A0";
+    private static final List<String> MICROSERVICES = Arrays.asList("m1", "m2");
+    // CPU of m1 and m2; edge nodes have 1000 MIPS
+    private static final double M1_MIPS = 300;
+    private static final double M2_MIPS = 200;
+
+    private int cacheSize;
+    private int cacheBuckets;
+
+    private List<FogDevice> devices;
+    private Map<String, Application> applications;
+    private FogDevice edgeA;
+    private FogDevice edgeB;
+    private FogDevice user;
+    private int prCount = 0;
+
+    /**
+     * Places every microservice of a PR on the target device, and counts the placements it
+     * computes, i.e. those not taken from the cache.
+     */
+    private static class FixedTargetHeuristic extends SPPHeuristic {
+        private final boolean keepsDeviceState;
+        int target;
+        int solves = 0;
+        final List<int[]> allocated = new ArrayList<>();
+
+        /**
+         * @param keepsDeviceState false for a heuristic that does not override allocateCachedPlacement
+         */
+        FixedTargetHeuristic(boolean keepsDeviceState) {
+            super(0);
+            this.keepsDeviceState = keepsDeviceState;
+        }
+
+        /** Runs a placement cycle of one PR, without generating the placement decision. */
+        int place(List<FogDevice> devices, Map<String, Application> applications,
+                  Map<Integer, Map<String, Double>> availability, PlacementRequest pr) {
+            resetTemporaryState(devices, applications, availability, Collections.singletonList(pr));
+            return processOnePr(MICROSERVICES, applications.get(APP), pr);
+        }
+
+        @Override
+        public String getName() {
+            return "FixedTarget";
+        }
+
+        @Override
+        protected Map<PlacementRequest, Integer> mapModules() {
+            return new LinkedHashMap<>();
+        }
+
+        @Override
+        public void postProcessing() {
+        }
+
+        @Override
+        protected boolean supportsPlacementCache() {
+            return true;
+        }
+
+        @Override
+        protected boolean allocateCachedPlacement(int[] services, int[] deviceIds) {
+            if (!keepsDeviceState) {
+                return super.allocateCachedPlacement(services, deviceIds);
+            }
+            allocated.add(deviceIds);
+            return true;
+        }
+
+        @Override
+        protected int doTryPlacingOnePr(List<String> microservices, Application app, PlacementRequest placementRequest) {
+            solves++;
+            PlacementRequestKey prKey = new PlacementRequestKey(placementRequest.getSensorId(),
+                    ((ContextPlacementRequest) placementRequest).getPrIndex());
+            for (String microservice : microservices) {
+                recordPlacement(prKey, microservice, app, target, getModule(microservice, app).getMips());
+            }
+            return -1;
+        }
+
+        @Override
+        protected List<DeviceState> getCurrentDeviceStates() {
+            return new ArrayList<>();
+        }
+
+        @Override
+        protected void captureResourceMetricsAfterSuccessfulPlacement(PlacementRequest pr,
+                                                                       List<DeviceState> currentDeviceStates,
+                                                                       double timestamp) {
+        }
+    }
+
+    private static PlacementCache.Key key(String appId, int closestNodeId, String... microservices) {
+        return new PlacementCache.Key(appId, closestNodeId, Arrays.asList(microservices));
+    }
+
+    @Test
+    public void testKeyEquality() {
+        assertEquals("Same app, node and modules should be the same key",
+                     key("A0", 5, "m1", "m2"), key("A0", 5, "m1", "m2"));
+        assertEquals("Equal keys should have equal hashes",
+                     key("A0", 5, "m1", "m2").hashCode(), key("A0", 5, "m1", "m2").hashCode());
+        assertNotEquals("Other closest node should be another key", key("A0", 5, "m1"), key("A0", 6, "m1"));
+        assertNotEquals("Other modules should be another key", key("A0", 5, "m1", "m2"), key("A0", 5, "m2", "m1"));
+        assertNotEquals("Other app should be another key", key("A0", 5, "m1"), key("A1", 5, "m1"));
+    }
+
+    @Test
+    public void testPutAndGet() {
+        PlacementCache cache = new PlacementCache(4);
+        assertNull("Empty cache should have nothing", cache.get(key("A0", 5, "m1")));
+
+        cache.put(key("A0", 5, "m1", "m2"), new int[] { 7, 8 }, new int[] { 12, 34 });
+        PlacementCache.Entry entry = cache.get(key("A0", 5, "m1", "m2"));
+        assertNotNull("Placement should be cached", entry);
+        assertArrayEquals("Devices should be kept", new int[] { 7, 8 }, entry.getDeviceIds());
+        assertArrayEquals("Levels should be kept", new int[] { 12, 34 }, entry.getLevels());
+
+        cache.put(key("A0", 5, "m1", "m2"), new int[] { 9, 9 }, new int[] { 0, 0 });
+        assertEquals("Placement should be replaced", 1, cache.size());
+        assertArrayEquals("Devices should be replaced", new int[] { 9, 9 },
+                          cache.get(key("A0", 5, "m1", "m2")).getDeviceIds());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsDropped() {
+        PlacementCache cache = new PlacementCache(2);
+        cache.put(key("A0", 1, "m1"), new int[] { 1 }, new int[] { 0 });
+        cache.put(key("A0", 2, "m1"), new int[] { 2 }, new int[] { 0 });
+        // Using the first placement makes the second the least recently used
+        cache.get(key("A0", 1, "m1"));
+        cache.put(key("A0", 3, "m1"), new int[] { 3 }, new int[] { 0 });
+
+        assertEquals("Should keep at most 2 placements", 2, cache.size());
+        assertNotNull("Recently used placement should be kept", cache.get(key("A0", 1, "m1")));
+        assertNull("Least recently used placement should be dropped", cache.get(key("A0", 2, "m1")));
+        assertNotNull("New placement should be kept", cache.get(key("A0", 3, "m1")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroCapacityFails() {
+        new PlacementCache(0);
+    }
+
+    @Before
+    public void setUp() {
+        cacheSize = MicroservicePlacementConfig.PLACEMENT_CACHE_SIZE;
+        cacheBuckets = MicroservicePlacementConfig.PLACEMENT_CACHE_BUCKETS;
+    }
+
+    @After
+    public void tearDown() {
+        MicroservicePlacementConfig.PLACEMENT_CACHE_SIZE = cacheSize;
+        MicroservicePlacementConfig.PLACEMENT_CACHE_BUCKETS = cacheBuckets;
+    }
+
+    private static FogDevice createDevice(String name, long mips, int ram, String deviceType) throws Exception {
+        List<Pe> peList = new ArrayList<>();
+        peList.add(new Pe(0, new PeProvisionerOverbooking(mips)));
+        PowerHost host = new PowerHost(FogUtils.generateEntityId(), new RamProvisionerSimple(ram),
+                new BwProvisionerOverbooking(10000), 1000000, peList,
+                new VmSchedulerTimeSharedEnergy(peList), new FogLinearPowerModel(100, 50));
+        List<Host> hostList = new ArrayList<>();
+        hostList.add(host);
+        FogDeviceCharacteristics characteristics = new FogDeviceCharacteristics(
+                "x86", "Linux", "Xen", host, 10.0, 3.0, 0.05, 0.001, 0.0);
+        return new SPPFogDevice(name, characteristics, new AppModuleAllocationPolicy(hostList),
+                new LinkedList<Storage>(), 10, 10000, 10000, 10000, 2, 0, deviceType);
+    }
+
+    /** A cloud, edge nodes A and B below it, and a user of A, with an application of m1 then m2. */
+    private void createNetwork() throws Exception {
+        CloudSim.init(1, Calendar.getInstance(), false);
+        FogDevice cloud = createDevice("cloud", 100000, 100000, SPPFogDevice.CLOUD);
+        edgeA = createDevice("edgeA", 1000, 1000, SPPFogDevice.FCN);
+        edgeB = createDevice("edgeB", 1000, 1000, SPPFogDevice.FCN);
+        user = createDevice("user", 100, 100, SPPFogDevice.IMMOBILE_USER);
+        edgeA.setParentId(cloud.getId());
+        edgeB.setParentId(cloud.getId());
+        user.setParentId(edgeA.getId());
+        devices = Arrays.asList(cloud, edgeA, edgeB, user);
+
+        Application app = Application.createApplication(APP, 0);
+        app.addAppModule("client", 10, 10, 10);
+        app.addAppModule("m1", 100, (int) M1_MIPS, 100);
+        app.addAppModule("m2", 100, (int) M2_MIPS, 100);
+        app.addAppEdge("client", "m1", 1000, 500, "RAW", Tuple.UP, AppEdge.MODULE);
+        app.addAppEdge("m1", "m2", 1000, 500, "FILTERED", Tuple.UP, AppEdge.MODULE);
+        applications = new HashMap<>();
+        applications.put(APP, app);
+    }
+
+    /** @return the free resources of every device, with the given free CPU on edge node A */
+    private Map<Integer, Map<String, Double>> availability(double edgeACpu) {
+        Map<Integer, Map<String, Double>> availability = new HashMap<>();
+        for (FogDevice device : devices) {
+            Map<String, Double> resources = new HashMap<>();
+            resources.put(ControllerComponent.CPU, device == edgeA ? edgeACpu : device.getHost().getTotalMips());
+            resources.put(ControllerComponent.RAM, (double) device.getHost().getRam());
+            resources.put(ControllerComponent.STORAGE, (double) device.getHost().getStorage());
+            availability.put(device.getId(), resources);
+        }
+        return availability;
+    }
+
+    /** @return a new PR of the user, whose client module is placed on the user device */
+    private PlacementRequest newPr() {
+        Map<String, Integer> placed = new LinkedHashMap<>();
+        placed.put("client", user.getId());
+        prCount++;
+        return new ContextPlacementRequest(APP, prCount, 0, user.getId(), SPPFogDevice.IMMOBILE_USER, placed, 0.0);
+    }
+
+    /**
+     * Places a PR on edge node A, which gets cached, then a similar PR in a new cycle with the
+     * given free CPU on edge node A and edge node B as the target.
+     *
+     * @return the heuristic after the second cycle
+     */
+    private FixedTargetHeuristic placeTwice(boolean keepsDeviceState, double edgeACpu) throws Exception {
+        MicroservicePlacementConfig.PLACEMENT_CACHE_SIZE = 10;
+        createNetwork();
+        FixedTargetHeuristic heuristic = new FixedTargetHeuristic(keepsDeviceState);
+        heuristic.target = edgeA.getId();
+        assertEquals("First PR should be placed", -1, heuristic.place(devices, applications, availability(1000), newPr()));
+        assertEquals("First PR should be computed", 1, heuristic.solves);
+
+        heuristic.target = edgeB.getId();
+        assertEquals("Second PR should be placed", -1,
+                     heuristic.place(devices, applications, availability(edgeACpu), newPr()));
+        return heuristic;
+    }
+
+    @Test
+    public void testCachedPlacementReused() throws Exception {
+        MicroservicePlacementConfig.PLACEMENT_CACHE_BUCKETS = 10;
+        long hits = SPPMonitor.getInstance().getPlacementCacheHits();
+        FixedTargetHeuristic heuristic = placeTwice(true, 1000);
+
+        assertEquals("Second PR should be taken from the cache", 1, heuristic.solves);
+        assertEquals(hits + 1, SPPMonitor.getInstance().getPlacementCacheHits());
+        assertEquals("Cached placement should be allocated once", 1, heuristic.allocated.size());
+        assertArrayEquals("Cached devices should be allocated",
+                          new int[] { edgeA.getId(), edgeA.getId() }, heuristic.allocated.get(0));
+        assertEquals("Reused placement should be recorded", M1_MIPS + M2_MIPS,
+                     heuristic.getCurrentCpuLoad().get(edgeA.getId()), 0.0);
+        assertEquals(0.0, heuristic.getCurrentCpuLoad().get(edgeB.getId()), 0.0);
+    }
+
+    @Test
+    public void testCachedPlacementRejectedAtOtherCapacityLevel() throws Exception {
+        MicroservicePlacementConfig.PLACEMENT_CACHE_BUCKETS = 10;
+        long rejections = SPPMonitor.getInstance().getPlacementCacheRejections();
+        // Edge node A still fits the PR, but has less free CPU than when it was cached
+        FixedTargetHeuristic heuristic = placeTwice(true, 700);
+
+        assertEquals("Second PR should be computed again", 2, heuristic.solves);
+        assertEquals(rejections + 1, SPPMonitor.getInstance().getPlacementCacheRejections());
+        assertTrue("Nothing should be allocated from the cache", heuristic.allocated.isEmpty());
+        assertEquals(M1_MIPS + M2_MIPS, heuristic.getCurrentCpuLoad().get(edgeB.getId()), 0.0);
+    }
+
+    @Test
+    public void testCachedPlacementRejectedWhenDeviceNoLongerFits() throws Exception {
+        // One level only, so that only the capacity check can reject the placement
+        MicroservicePlacementConfig.PLACEMENT_CACHE_BUCKETS = 1;
+        long rejections = SPPMonitor.getInstance().getPlacementCacheRejections();
+        // Edge node A fits m1 and m2 one at a time, not both
+        FixedTargetHeuristic heuristic = placeTwice(true, M1_MIPS + M2_MIPS - 1);
+
+        assertEquals("Second PR should be computed again", 2, heuristic.solves);
+        assertEquals(rejections + 1, SPPMonitor.getInstance().getPlacementCacheRejections());
+        assertTrue("Nothing should be allocated from the cache", heuristic.allocated.isEmpty());
+        assertEquals("The check should leave no load on the cached device", 0.0,
+                     heuristic.getCurrentCpuLoad().get(edgeA.getId()), 0.0);
+        assertEquals(M1_MIPS + M2_MIPS, heuristic.getCurrentCpuLoad().get(edgeB.getId()), 0.0);
+    }
+
+    @Test
+    public void testHeuristicWithoutDeviceStateComputesPlacement() throws Exception {
+        MicroservicePlacementConfig.PLACEMENT_CACHE_BUCKETS = 10;
+        FixedTargetHeuristic heuristic = placeTwice(false, 1000);
+
+        assertEquals("Second PR should be computed as on a cache miss", 2, heuristic.solves);
+        assertEquals(0.0, heuristic.getCurrentCpuLoad().get(edgeA.getId()), 0.0);
+        assertEquals(M1_MIPS + M2_MIPS, heuristic.getCurrentCpuLoad().get(edgeB.getId()), 0.0);
+    }
+}
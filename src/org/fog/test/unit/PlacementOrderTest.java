@@ -0,0 +1,166 @@
+package org.fog.test.unit;
+
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.power.PowerHost;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.cloudbus.cloudsim.sdn.example.policies.VmSchedulerTimeSharedEnergy;
+import org.cloudbus.cloudsim.sdn.overbooking.BwProvisionerOverbooking;
+import org.cloudbus.cloudsim.sdn.overbooking.PeProvisionerOverbooking;
+import org.fog.application.AppEdge;
+import org.fog.application.Application;
+import org.fog.entities.ContextPlacementRequest;
+import org.fog.entities.ControllerComponent;
+import org.fog.entities.FogDevice;
+import org.fog.entities.FogDeviceCharacteristics;
+import org.fog.entities.PlacementRequest;
+import org.fog.entities.SPPFogDevice;
+import org.fog.entities.Tuple;
+import org.fog.placement.SPPHeuristic;
+import org.fog.policy.AppModuleAllocationPolicy;
+import org.fog.utils.FogLinearPowerModel;
+import org.fog.utils.FogUtils;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the order in which SPPHeuristic keeps the PRs of a placement cycle. PRs and
+ * applications hash by identity, so the maps keyed by them must keep the order of the PRs for
+ * runs to be repeatable.
+ */
+public class PlacementOrderTest {
+
+    private static final String APP = "A0";
+    private static final int PR_COUNT = 24;
+
+    /** Exposes the closest nodes of the PRs of a cycle, without placing anything. */
+    private static class ClosestNodesHeuristic extends SPPHeuristic {
+        ClosestNodesHeuristic() {
+            super(0);
+        }
+
+        Map<PlacementRequest, Integer> closestNodes(List<FogDevice> devices, Map<String, Application> applications,
+                                                    Map<Integer, Map<String, Double>> availability,
+                                                    List<PlacementRequest> prs) {
+            resetTemporaryState(devices, applications, availability, prs);
+            return closestNodes;
+        }
+
+        @Override
+        public String getName() {
+            return "ClosestNodes";
+        }
+
+        @Override
+        protected Map<PlacementRequest, Integer> mapModules() {
+            return new LinkedHashMap<>();
+        }
+
+        @Override
+        public void postProcessing() {
+        }
+
+        @Override
+        protected int doTryPlacingOnePr(List<String> microservices, Application app, PlacementRequest placementRequest) {
+            return -1;
+        }
+
+        @Override
+        protected List<DeviceState> getCurrentDeviceStates() {
+            return new ArrayList<>();
+        }
+
+        @Override
+        protected void captureResourceMetricsAfterSuccessfulPlacement(PlacementRequest pr,
+                                                                       List<DeviceState> currentDeviceStates,
+                                                                       double timestamp) {
+        }
+    }
+
+    private static FogDevice createDevice(String name, long mips, int ram, String deviceType) throws Exception {
+        List<Pe> peList = new ArrayList<>();
+        peList.add(new Pe(0, new PeProvisionerOverbooking(mips)));
+        PowerHost host = new PowerHost(FogUtils.generateEntityId(), new RamProvisionerSimple(ram),
+                new BwProvisionerOverbooking(10000), 1000000, peList,
+                new VmSchedulerTimeSharedEnergy(peList), new FogLinearPowerModel(100, 50));
+        List<Host> hostList = new ArrayList<>();
+        hostList.add(host);
+        FogDeviceCharacteristics characteristics = new FogDeviceCharacteristics(
+                "x86", "Linux", "Xen", host, 10.0, 3.0, 0.05, 0.001, 0.0);
+        return new SPPFogDevice(name, characteristics, new AppModuleAllocationPolicy(hostList),
+                new LinkedList<Storage>(), 10, 10000, 10000, 10000, 2, 0, deviceType);
+    }
+
+    @Test
+    public void testClosestNodesKeepPrOrder() throws Exception {
+        CloudSim.init(1, Calendar.getInstance(), false);
+        FogDevice cloud = createDevice("cloud", 100000, 100000, SPPFogDevice.CLOUD);
+        List<FogDevice> devices = new ArrayList<>();
+        devices.add(cloud);
+        List<FogDevice> users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            FogDevice edge = createDevice("edge" + i, 1000, 1000, SPPFogDevice.FCN);
+            FogDevice user = createDevice("user" + i, 100, 100, SPPFogDevice.IMMOBILE_USER);
+            edge.setParentId(cloud.getId());
+            user.setParentId(edge.getId());
+            devices.add(edge);
+            devices.add(user);
+            users.add(user);
+        }
+
+        Application app = Application.createApplication(APP, 0);
+        app.addAppModule("client", 10, 10, 10);
+        app.addAppModule("m1", 100, 300, 100);
+        app.addAppEdge("client", "m1", 1000, 500, "RAW", Tuple.UP, AppEdge.MODULE);
+        Map<String, Application> applications = new HashMap<>();
+        applications.put(APP, app);
+
+        Map<Integer, Map<String, Double>> availability = new HashMap<>();
+        for (FogDevice device : devices) {
+            Map<String, Double> resources = new HashMap<>();
+            resources.put(ControllerComponent.CPU, device.getHost().getTotalMips());
+            resources.put(ControllerComponent.RAM, (double) device.getHost().getRam());
+            resources.put(ControllerComponent.STORAGE, (double) device.getHost().getStorage());
+            availability.put(device.getId(), resources);
+        }
+
+        // PRs of the users in turn, so that neither the users nor the PR indices are in order
+        List<PlacementRequest> prs = new ArrayList<>();
+        for (int i = 0; i < PR_COUNT; i++) {
+            FogDevice user = users.get((i * 2) % users.size());
+            Map<String, Integer> placed = new LinkedHashMap<>();
+            placed.put("client", user.getId());
+            prs.add(new ContextPlacementRequest(APP, user.getId(), PR_COUNT - i, user.getId(),
+                    SPPFogDevice.IMMOBILE_USER, placed, 0.0));
+        }
+
+        Map<PlacementRequest, Integer> closestNodes =
+                new ClosestNodesHeuristic().closestNodes(devices, applications, availability, prs);
+        assertEquals("PRs should be iterated in the order they were received",
+                prs, new ArrayList<>(closestNodes.keySet()));
+        for (PlacementRequest pr : prs) {
+            assertEquals("Closest node should be the user's edge node",
+                    Integer.valueOf(getParentId(devices, pr.getRequester())), closestNodes.get(pr));
+        }
+    }
+
+    private static int getParentId(List<FogDevice> devices, int deviceId) {
+        for (FogDevice device : devices) {
+            if (device.getId() == deviceId) {
+                return device.getParentId();
+            }
+        }
+        throw new IllegalArgumentException("No device " + deviceId);
+    }
+}
@@ -0,0 +1,141 @@
+package org.fog.test.unit;
+
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.fog.application.AppEdge;
+import org.fog.application.AppModule;
+import org.fog.application.Application;
+import org.fog.entities.FogDevice;
+import org.fog.entities.Tuple;
+import org.fog.placement.LatencyOracle;
+import org.fog.placement.PlacementProblem;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for PlacementProblem, the placement cycle compiled to int indices for the
+ * heuristics. Checks the indices and requirements against the devices and applications they
+ * were compiled from, and the latencies against the LatencyOracle.
+ */
+public class PlacementProblemTest {
+
+    private static final double DELTA = 0.001; // Tolerance for double comparisons
+
+    private SmallFogNetwork network;
+    private Application app;
+    // Another application with modules of the same names
+    private Application other;
+    private LatencyOracle oracle;
+    private PlacementProblem problem;
+
+    @Before
+    public void setUp() throws Exception {
+        SimulationContext.setCurrent(new SimulationContext());
+        network = new SmallFogNetwork(new long[]{1000, 1500, 800}, new double[]{10, 20, 15},
+                1, new int[]{300, 200, 250});
+        app = network.applications.get(SmallFogNetwork.APP);
+        other = Application.createApplication("A1", 0);
+        other.addAppModule("client", 10, 10, 10);
+        other.addAppModule("m1", 50, 700, 500);
+        other.addAppEdge("client", "m1", 1000, 500, "RAW", Tuple.UP, AppEdge.MODULE);
+
+        Map<String, Application> applications = new LinkedHashMap<>();
+        applications.put(app.getAppId(), app);
+        applications.put(other.getAppId(), other);
+        oracle = new LatencyOracle(network.devices);
+        problem = new PlacementProblem(network.devices, applications, 0, oracle);
+    }
+
+    @After
+    public void tearDown() {
+        SimulationContext.setCurrent(null);
+    }
+
+    @Test
+    public void testDeviceIndices() {
+        assertEquals(network.devices.size(), problem.getDeviceCount());
+        for (int i = 0; i < network.devices.size(); i++) {
+            FogDevice device = network.devices.get(i);
+            assertEquals("Devices should be indexed in list order", i, problem.getDeviceIndex(device.getId()));
+            assertEquals("Devices should be found by name", i, problem.getDeviceIndex(device.getName()));
+            assertEquals(device.getId(), problem.getDeviceId(i));
+            assertSame(device, problem.getDevice(i));
+        }
+        assertEquals("Unknown device should have no index", -1, problem.getDeviceIndex(-5));
+        assertEquals("Unknown device should have no index", -1, problem.getDeviceIndex("nowhere"));
+        assertEquals("Cloud should be the given index", 0, problem.getCloudIndex());
+    }
+
+    @Test
+    public void testServiceRequirements() {
+        assertEquals("Every module of every application should be a service",
+                app.getModules().size() + other.getModules().size(), problem.getServiceCount());
+        for (Application application : Arrays.asList(app, other)) {
+            int[] services = problem.getServices(application);
+            assertEquals(application.getModules().size(), services.length);
+            for (int m = 0; m < services.length; m++) {
+                AppModule module = application.getModules().get(m);
+                int service = services[m];
+                assertEquals("Services should be in module order", service,
+                        problem.getServiceIndex(application, module.getName()));
+                assertEquals(module.getName(), problem.getName(service));
+                assertSame(module, problem.getModule(service));
+                assertEquals("CPU should be the module MIPS", module.getMips(), problem.getCpu(service), DELTA);
+                assertEquals("RAM should be the module RAM", module.getRam(), problem.getRam(service), DELTA);
+                assertEquals("Storage should be the module size", module.getSize(), problem.getStorage(service), DELTA);
+            }
+        }
+        assertNotEquals("Modules of the same name should be other services in another application",
+                problem.getServiceIndex(app, "m1"), problem.getServiceIndex(other, "m1"));
+        assertArrayEquals("Indices should follow the given modules",
+                new int[]{problem.getServiceIndex(app, "m3"), problem.getServiceIndex(app, "m1")},
+                problem.getServiceIndices(app, Arrays.asList("m3", "m1")));
+        assertEquals("Unknown module should have no index", -1, problem.getServiceIndex(other, "m2"));
+        assertEquals("Unknown application should have no services",
+                0, problem.getServices(Application.createApplication("A2", 0)).length);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testUnknownModuleIndicesFail() {
+        problem.getServiceIndices(other, Arrays.asList("m1", "m2"));
+    }
+
+    @Test
+    public void testLatenciesMatchOracle() {
+        // Every edge node is connected through the cloud
+        for (int i = 0; i <= network.edges.size(); i++) {
+            for (int j = 0; j <= network.edges.size(); j++) {
+                assertEquals("Latency between " + i + " and " + j + " should be the oracle's",
+                        oracle.getLatency(problem.getDeviceId(i), problem.getDeviceId(j)), problem.getLatency(i, j), DELTA);
+            }
+        }
+        int edge1 = problem.getDeviceIndex(network.edges.get(1).getId());
+        int edge2 = problem.getDeviceIndex(network.edges.get(2).getId());
+        assertEquals("Edge to edge should go through the cloud", 35.0, problem.getLatency(edge1, edge2), DELTA);
+        assertEquals("Same device should have no latency", 0.0, problem.getLatency(edge1, edge1), DELTA);
+    }
+
+    @Test
+    public void testClientsAndReadiness() {
+        int client = problem.getServiceIndex(app, "client");
+        int m1 = problem.getServiceIndex(app, "m1");
+        int m2 = problem.getServiceIndex(app, "m2");
+        assertArrayEquals("Clients should be the sources of the UP edges", new int[]{client}, problem.getClients(m1));
+        assertArrayEquals("Client module should have no clients", new int[0], problem.getClients(client));
+
+        boolean[] placed = problem.toPlacedServices(app, Collections.singletonList("client"));
+        assertTrue("Placed module should be marked", placed[client]);
+        assertFalse("Placed module should not be ready again", problem.isReady(client, placed));
+        assertTrue("Module after the placed client should be ready", problem.isReady(m1, placed));
+        assertFalse("Module after an unplaced one should not be ready", problem.isReady(m2, placed));
+        assertFalse("Other application's modules should not be marked",
+                placed[problem.getServiceIndex(other, "client")]);
+    }
+}
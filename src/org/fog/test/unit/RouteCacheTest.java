@@ -0,0 +1,171 @@
+package org.fog.test.unit;
+
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.fog.mobility.RouteCache;
+import org.fog.mobilitydata.Location;
+import org.fog.utils.MicroservicePlacementConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for RouteCache, the road routes reused by GraphHopper pathing between the same places.
+ */
+public class RouteCacheTest {
+
+    private static final Location HOSPITAL = new Location(-37.7990, 144.9560, -1);
+
+    private int cacheSize;
+
+    @Before
+    public void setUp() {
+        cacheSize = MicroservicePlacementConfig.ROUTE_CACHE_SIZE;
+        MicroservicePlacementConfig.ROUTE_CACHE_SIZE = 10;
+    }
+
+    @After
+    public void tearDown() {
+        MicroservicePlacementConfig.ROUTE_CACHE_SIZE = cacheSize;
+        SimulationContext.setCurrent(null);
+    }
+
+    private static RouteCache.Key key(double latitude, double longitude, double gridSize) {
+        return new RouteCache.Key("car", new Location(latitude, longitude, -1), HOSPITAL, gridSize);
+    }
+
+    private static RouteCache.Route[] routes(int points) {
+        return new RouteCache.Route[] { new RouteCache.Route(new double[points], new double[points], 100.0) };
+    }
+
+    @Test
+    public void testKeyGrid() {
+        assertEquals("Origins a metre apart should share a 10 m cell",
+                     key(-37.81003, 144.96000, 10), key(-37.81004, 144.96000, 10));
+        assertEquals("Equal keys should have equal hashes",
+                     key(-37.81003, 144.96000, 10).hashCode(), key(-37.81004, 144.96000, 10).hashCode());
+        assertNotEquals("Origins 100 m apart should be in other cells",
+                        key(-37.81000, 144.96000, 10), key(-37.81090, 144.96000, 10));
+        assertNotEquals("Without a grid only exact origins should match",
+                        key(-37.81000, 144.96000, 0), key(-37.81001, 144.96000, 0));
+        assertNotEquals("Other settings should be another key",
+                        new RouteCache.Key("foot", HOSPITAL, HOSPITAL, 10), new RouteCache.Key("car", HOSPITAL, HOSPITAL, 10));
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        RouteCache cache = new RouteCache(4, 1000);
+        assertTrue("Hit rate should be undefined before any lookup", Double.isNaN(cache.getHitRate()));
+        assertNull("Empty cache should have nothing", cache.get(key(-37.81, 144.96, 10)));
+
+        cache.put(key(-37.81, 144.96, 10), routes(3));
+        RouteCache.Route[] cached = cache.get(key(-37.81, 144.96, 10));
+        assertNotNull("Routes should be cached", cached);
+        assertEquals("Route length should be kept", 100.0, cached[0].getDistance(), 0.001);
+        assertEquals("Should count the hit", 1, cache.getHits());
+        assertEquals("Should count the miss", 1, cache.getMisses());
+        assertEquals("Hit rate should be half", 0.5, cache.getHitRate(), 0.001);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsDropped() {
+        RouteCache cache = new RouteCache(2, 1000);
+        cache.put(key(-37.81, 144.96, 0), routes(1));
+        cache.put(key(-37.82, 144.96, 0), routes(1));
+        // Using the first routes makes the second the least recently used
+        cache.get(key(-37.81, 144.96, 0));
+        cache.put(key(-37.83, 144.96, 0), routes(1));
+
+        assertEquals("Should keep the routes of at most 2 requests", 2, cache.size());
+        assertNotNull("Recently used routes should be kept", cache.get(key(-37.81, 144.96, 0)));
+        assertNull("Least recently used routes should be dropped", cache.get(key(-37.82, 144.96, 0)));
+    }
+
+    @Test
+    public void testPointLimit() {
+        RouteCache cache = new RouteCache(10, 10);
+        cache.put(key(-37.81, 144.96, 0), routes(6));
+        cache.put(key(-37.82, 144.96, 0), routes(6));
+        assertEquals("Oldest routes should be dropped to stay within the point limit", 1, cache.size());
+        assertEquals("Should count the points kept", 6, cache.getPoints());
+
+        cache.put(key(-37.83, 144.96, 0), routes(11));
+        assertNull("Routes larger than the cache should not be cached", cache.get(key(-37.83, 144.96, 0)));
+        assertNotNull("Other routes should be kept", cache.get(key(-37.82, 144.96, 0)));
+    }
+
+    @Test
+    public void testClearDropsCurrentSimulationCache() {
+        SimulationContext.setCurrent(new SimulationContext());
+        RouteCache cache = RouteCache.getInstance();
+        assertSame("Simulation should keep its cache", cache, RouteCache.getInstance());
+        cache.put(key(-37.81, 144.96, 0), routes(1));
+
+        RouteCache.clear();
+        RouteCache next = RouteCache.getInstance();
+        assertNotSame("Cleared cache should be replaced", cache, next);
+        assertEquals("New cache should be empty", 0, next.size());
+    }
+
+    @Test
+    public void testClearLeavesOtherSimulationsAlone() throws Exception {
+        SimulationContext.setCurrent(new SimulationContext());
+        RouteCache cache = RouteCache.getInstance();
+        cache.put(key(-37.81, 144.96, 0), routes(1));
+
+        // Another simulation being set up on another thread, as by SPPExperiment with parallel simulations
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> {
+                SimulationContext.setCurrent(new SimulationContext());
+                try {
+                    RouteCache.getInstance().put(key(-37.82, 144.96, 0), routes(1));
+                    RouteCache.clear();
+                } finally {
+                    SimulationContext.setCurrent(null);
+                }
+            }).get();
+            // And a thread without a simulation of its own
+            executor.submit(RouteCache::clear).get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertSame("Running simulation should keep its cache", cache, RouteCache.getInstance());
+        assertNotNull("Running simulation should keep its routes", cache.get(key(-37.81, 144.96, 0)));
+    }
+
+    @Test
+    public void testWorkersUseBoundSimulationCache() throws Exception {
+        SimulationContext context = new SimulationContext();
+        SimulationContext.setCurrent(context);
+        RouteCache cache = RouteCache.getInstance();
+
+        // Like the path prefetching workers of FullMobilityStrategy
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            RouteCache workerCache = executor.submit(() -> {
+                SimulationContext.setCurrent(context);
+                try {
+                    return RouteCache.getInstance();
+                } finally {
+                    SimulationContext.setCurrent(null);
+                }
+            }).get();
+            assertSame("Worker should use the cache of the simulation bound to it", cache, workerCache);
+            assertNotSame("Unbound thread should not see the simulation's cache", cache,
+                          executor.submit(RouteCache::getInstance).get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroCapacityFails() {
+        new RouteCache(0, 10);
+    }
+}
@@ -0,0 +1,131 @@
+package org.fog.test.unit;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for CloudSim.runUntil: a small simulation is run to some time and then to the end.
+ * Checks that it continues exactly like an uninterrupted run, and that simulations run again from
+ * the same seeds up to that time branch off the same state, as the placement logics of SPPExperiment
+ * do with a fork time.
+ */
+public class RunUntilTest {
+
+    private static final String NAME = "Walker";
+    private static final int STEPS = 200;
+    private static final double FORK_TIME = 40;
+
+    /**
+     * Takes random steps, drawn from the kinds of random generators the heuristics hold, and
+     * records them.
+     */
+    private static class Walker extends SimEntity {
+        private final Random random = new Random(7);
+        private final SplittableRandom splittable = new SplittableRandom(11);
+        final List<String> steps = new ArrayList<>();
+        int stride = 1;
+
+        Walker() {
+            super(NAME);
+        }
+
+        @Override
+        public void startEntity() {
+            schedule(getId(), 0, 1, 0);
+        }
+
+        @Override
+        public void processEvent(SimEvent ev) {
+            int position = (Integer) ev.getData();
+            steps.add(CloudSim.clock() + "/" + position);
+            if (steps.size() < STEPS) {
+                int next = position + stride * (random.nextInt(3) - 1);
+                schedule(getId(), 0.5 + splittable.nextInt(2), 1, next);
+            }
+        }
+
+        @Override
+        public void shutdownEntity() {
+        }
+    }
+
+    @After
+    public void tearDown() {
+        SimulationContext.setCurrent(null);
+    }
+
+    private static Walker start() {
+        SimulationContext.setCurrent(new SimulationContext());
+        CloudSim.init(0, null, false);
+        return new Walker();
+    }
+
+    /** Runs the simulation of the current context to the end and returns its walker. */
+    private static Walker finish() {
+        Walker walker = (Walker) CloudSim.getEntity(NAME);
+        CloudSim.startSimulation();
+        return walker;
+    }
+
+    private static List<String> uninterrupted() {
+        start();
+        return finish().steps;
+    }
+
+    @Test
+    public void testRunInStepsMatchesUninterrupted() {
+        List<String> expected = uninterrupted();
+
+        Walker walker = start();
+        assertTrue("Should stop at the fork time", CloudSim.runUntil(FORK_TIME));
+        assertTrue("Should not go past the fork time", CloudSim.clock() <= FORK_TIME);
+        assertTrue("Should have stepped up to the fork time", walker.steps.size() > 1);
+        assertEquals("Run in steps and uninterrupted runs should match", expected, finish().steps);
+    }
+
+    @Test
+    public void testRunUntilAfterEnd() {
+        List<String> expected = uninterrupted();
+
+        Walker walker = start();
+        assertFalse("Should end before the given time", CloudSim.runUntil(10 * STEPS));
+        assertEquals("Should be finished as by a full run", expected, walker.steps);
+    }
+
+    @Test
+    public void testRerunsBranchOffTheSameState() {
+        List<String> expected = uninterrupted();
+
+        // Two simulations run up to the fork time from the same seeds, as SPPExperiment does per placement logic
+        Walker changed = start();
+        CloudSim.runUntil(FORK_TIME);
+        SimulationContext changedContext = SimulationContext.current();
+        Walker unchanged = start();
+        CloudSim.runUntil(FORK_TIME);
+        SimulationContext unchangedContext = SimulationContext.current();
+        int stepsAtFork = changed.steps.size();
+        assertEquals("Both should reach the same state", changed.steps, unchanged.steps);
+
+        SimulationContext.setCurrent(changedContext);
+        changed.stride = 10;
+        List<String> changedSteps = finish().steps;
+        SimulationContext.setCurrent(unchangedContext);
+        List<String> unchangedSteps = finish().steps;
+
+        assertEquals("The changed simulation should keep the steps before the fork",
+            expected.subList(0, stepsAtFork), changedSteps.subList(0, stepsAtFork));
+        assertNotEquals("The changed simulation should diverge", expected, changedSteps);
+        assertEquals("The unchanged simulation should not diverge", expected, unchangedSteps);
+    }
+}
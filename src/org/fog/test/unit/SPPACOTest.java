@@ -0,0 +1,69 @@
+package org.fog.test.unit;
+
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.fog.placement.SPPACO;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SPPACO. The ants of an iteration run in parallel, each on its own random
+ * stream, so a seeded placement must not depend on the number of threads running them.
+ */
+public class SPPACOTest {
+
+    private static final long SEED = 7;
+    private static final int PR_COUNT = 8;
+
+    @After
+    public void tearDown() {
+        SimulationContext.setCurrent(null);
+    }
+
+    /**
+     * Places PRs with more microservices than fit on the best edge node, so the ants have to
+     * spread them, on a pool of the given parallelism.
+     */
+    private static List<String> placeOn(int parallelism) throws Exception {
+        SimulationContext context = new SimulationContext();
+        SimulationContext.setCurrent(context);
+        SmallFogNetwork network = new SmallFogNetwork(new long[]{1000, 1500, 800}, new double[]{10, 20, 15},
+                2, new int[]{120, 80, 100});
+        SPPACO aco = new SPPACO(network.cloud.getId());
+        aco.setSeed(SEED);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            // The placement runs on a thread of the pool, bound to the simulation like the simulation thread
+            return SmallFogNetwork.describe(pool.submit(() -> {
+                SimulationContext.setCurrent(context);
+                try {
+                    return aco.run(network.devices, network.applications, network.availability(),
+                            network.newPrs(PR_COUNT));
+                } finally {
+                    SimulationContext.setCurrent(null);
+                }
+            }).get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testPlacementIndependentOfParallelism() throws Exception {
+        List<String> sequential = placeOn(1);
+        assertTrue("Every PR should have a status", sequential.size() > PR_COUNT);
+        for (int parallelism : new int[]{2, 4}) {
+            assertEquals("Placement with " + parallelism + " threads should match the one with 1",
+                    sequential, placeOn(parallelism));
+        }
+    }
+
+    @Test
+    public void testSameSeedSamePlacement() throws Exception {
+        assertEquals("Repeated placement with the same seed should match", placeOn(4), placeOn(4));
+    }
+}
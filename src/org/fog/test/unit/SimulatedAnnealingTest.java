@@ -0,0 +1,76 @@
+package org.fog.test.unit;
+
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.fog.placement.SimulatedAnnealingHeuristic;
+import org.fog.utils.MicroservicePlacementConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the multi-chain SimulatedAnnealingHeuristic. The chains of a PR run on
+ * SA_THREADS threads, each on its own random stream, so a seeded placement must only depend on
+ * the number of chains, with or without replica exchange.
+ */
+public class SimulatedAnnealingTest {
+
+    private static final long SEED = 11;
+    private static final int PR_COUNT = 8;
+    private static final int CHAINS = 4;
+
+    private int chains;
+    private int threads;
+    private boolean replicaExchange;
+
+    @Before
+    public void setUp() {
+        chains = MicroservicePlacementConfig.SA_CHAINS;
+        threads = MicroservicePlacementConfig.SA_THREADS;
+        replicaExchange = MicroservicePlacementConfig.SA_REPLICA_EXCHANGE;
+    }
+
+    @After
+    public void tearDown() {
+        MicroservicePlacementConfig.SA_CHAINS = chains;
+        MicroservicePlacementConfig.SA_THREADS = threads;
+        MicroservicePlacementConfig.SA_REPLICA_EXCHANGE = replicaExchange;
+        SimulationContext.setCurrent(null);
+    }
+
+    /** Places PRs in a new simulation with a new heuristic, whose chains run on the given threads. */
+    private static List<String> place(int chains, int threads, boolean replicaExchange) throws Exception {
+        MicroservicePlacementConfig.SA_CHAINS = chains;
+        MicroservicePlacementConfig.SA_THREADS = threads;
+        MicroservicePlacementConfig.SA_REPLICA_EXCHANGE = replicaExchange;
+        SimulationContext.setCurrent(new SimulationContext());
+        SmallFogNetwork network = new SmallFogNetwork(new long[]{1000, 1500, 800}, new double[]{10, 20, 15},
+                2, new int[]{120, 80, 100});
+        SimulatedAnnealingHeuristic sa = new SimulatedAnnealingHeuristic(network.cloud.getId());
+        sa.setSeed(SEED);
+        return SmallFogNetwork.describe(sa.run(network.devices, network.applications, network.availability(),
+                network.newPrs(PR_COUNT)));
+    }
+
+    @Test
+    public void testSameSeedSamePlacement() throws Exception {
+        List<String> placement = place(CHAINS, 2, false);
+        assertTrue("Every PR should have a status", placement.size() > PR_COUNT);
+        assertEquals("Repeated placement with the same seed should match", placement, place(CHAINS, 2, false));
+    }
+
+    @Test
+    public void testIndependentChainsIndependentOfThreadCount() throws Exception {
+        List<String> expected = place(CHAINS, 1, false);
+        assertEquals("Chains on 4 threads should place as on 1", expected, place(CHAINS, 4, false));
+    }
+
+    @Test
+    public void testReplicaExchangeIndependentOfThreadCount() throws Exception {
+        List<String> expected = place(CHAINS, 1, true);
+        assertEquals("Exchanging chains on 4 threads should place as on 1", expected, place(CHAINS, 4, true));
+    }
+}
@@ -0,0 +1,168 @@
+package org.fog.test.unit;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.SimulationProfiler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SimulationProfiler, the handler statistics and queue depths recorded with
+ * CloudSim.setProfiling. A ping and a pong entity exchange a known number of events, and the
+ * reports are checked against it.
+ */
+public class SimulationProfilerTest {
+
+    /** Tags of the test, named in the reports once registered. */
+    public static class Tags {
+        public static final int PING = 9001;
+        public static final int PONG = 9002;
+    }
+
+    private static final int ROUNDS = 50;
+    // Simulated time between a ping and its pong
+    private static final double DELAY = 0.5;
+
+    private boolean profiling;
+
+    /** Pings the pong entity until it has had all the pongs. */
+    private static class Pinger extends SimEntity {
+        int pongs = 0;
+
+        Pinger() {
+            super("Pinger");
+        }
+
+        @Override
+        public void startEntity() {
+            send("Ponger", DELAY, Tags.PING);
+        }
+
+        @Override
+        public void processEvent(SimEvent ev) {
+            if (ev.getTag() == Tags.PONG && ++pongs < ROUNDS) {
+                send(ev.getSource(), DELAY, Tags.PING);
+            }
+        }
+
+        @Override
+        public void shutdownEntity() {
+        }
+    }
+
+    /** Answers every ping. */
+    private static class Ponger extends SimEntity {
+        Ponger() {
+            super("Ponger");
+        }
+
+        @Override
+        public void startEntity() {
+        }
+
+        @Override
+        public void processEvent(SimEvent ev) {
+            send(ev.getSource(), DELAY, Tags.PONG);
+        }
+
+        @Override
+        public void shutdownEntity() {
+        }
+    }
+
+    @Before
+    public void setUp() {
+        profiling = CloudSim.isProfiling();
+    }
+
+    @After
+    public void tearDown() {
+        CloudSim.setProfiling(profiling);
+    }
+
+    /** @return the profiler of a ping pong simulation run to the end */
+    private static SimulationProfiler runPingPong(boolean profile) {
+        CloudSim.setProfiling(profile);
+        CloudSim.init(0, null, false);
+        new Pinger();
+        new Ponger();
+        SimulationProfiler profiler = CloudSim.getProfiler();
+        CloudSim.startSimulation();
+        return profiler;
+    }
+
+    private static List<String> write(SimulationProfiler profiler, boolean summary) throws IOException {
+        File file = File.createTempFile("profile", ".csv");
+        try {
+            if (summary) {
+                profiler.writeSummary(file.getPath());
+            } else {
+                profiler.writeQueueDepths(file.getPath());
+            }
+            return Files.readAllLines(file.toPath());
+        } finally {
+            file.delete();
+        }
+    }
+
+    /** @return the rows of the summary by entity class and tag name, without the header */
+    private static Map<String, String[]> summaryRows(SimulationProfiler profiler) throws IOException {
+        List<String> lines = write(profiler, true);
+        assertTrue("Summary should start with the totals", lines.get(0).startsWith("# events="));
+        assertEquals("EntityClass,Tag,TagName,Count,TotalMs,MeanUs,P50Us,P90Us,P99Us,MaxUs,TimeShare", lines.get(1));
+        Map<String, String[]> rows = new HashMap<>();
+        for (String line : lines.subList(2, lines.size())) {
+            String[] columns = line.split(",");
+            rows.put(columns[0] + "/" + columns[2], columns);
+        }
+        return rows;
+    }
+
+    @Test
+    public void testNoProfilerWhenOff() {
+        assertNull("No profiler should be created when profiling is off", runPingPong(false));
+    }
+
+    @Test
+    public void testHandlerCountsByEntityClassAndTag() throws IOException {
+        SimulationProfiler.addTagNames(Tags.class);
+        SimulationProfiler profiler = runPingPong(true);
+        assertNotNull(profiler);
+        Map<String, String[]> rows = summaryRows(profiler);
+
+        assertEquals("Every ping should be handled", String.valueOf(ROUNDS), rows.get("Ponger/PING")[3]);
+        assertEquals("Every pong should be handled", String.valueOf(ROUNDS), rows.get("Pinger/PONG")[3]);
+        assertEquals("Class rows should add up the tags of the class", String.valueOf(ROUNDS), rows.get("Ponger/*")[3]);
+        assertEquals("Tag rows should add up the classes", String.valueOf(ROUNDS), rows.get("*/PONG")[3]);
+        assertTrue("Every handled event should be counted as dispatched", profiler.getEventCount() >= 2 * ROUNDS);
+        assertTrue(profiler.getElapsedSeconds() > 0);
+    }
+
+    @Test
+    public void testQueueDepthsSampledOverSimulatedTime() throws IOException {
+        List<String> lines = write(runPingPong(true), false);
+        assertEquals("SimulationTime,WallMs,FutureQueue,DeferredQueue,EventsPerSecond", lines.get(0));
+
+        // One event every DELAY, sampled at most once per unit of simulated time
+        double end = 2 * ROUNDS * DELAY;
+        int samples = lines.size() - 1;
+        assertTrue("Should sample about once per unit of time, got " + samples, samples >= end - 1 && samples <= end + 1);
+        double previous = -1;
+        for (String line : lines.subList(1, lines.size())) {
+            double time = Double.parseDouble(line.split(",")[0]);
+            assertTrue("Samples should be in later units of time", Math.floor(time) > previous);
+            previous = Math.floor(time);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.fog.test.unit;
+
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.power.PowerHost;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.cloudbus.cloudsim.sdn.example.policies.VmSchedulerTimeSharedEnergy;
+import org.cloudbus.cloudsim.sdn.overbooking.BwProvisionerOverbooking;
+import org.cloudbus.cloudsim.sdn.overbooking.PeProvisionerOverbooking;
+import org.fog.application.AppEdge;
+import org.fog.application.Application;
+import org.fog.entities.ContextPlacementRequest;
+import org.fog.entities.ControllerComponent;
+import org.fog.entities.FogBroker;
+import org.fog.entities.FogDevice;
+import org.fog.entities.FogDeviceCharacteristics;
+import org.fog.entities.PlacementRequest;
+import org.fog.entities.SPPFogDevice;
+import org.fog.entities.Tuple;
+import org.fog.placement.PlacementLogicOutput;
+import org.fog.placement.SPPHeuristic;
+import org.fog.policy.AppModuleAllocationPolicy;
+import org.fog.utils.FogLinearPowerModel;
+import org.fog.utils.FogUtils;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A small fog network for the tests of the placement heuristics: a cloud, edge nodes below it
+ * and users below the edge nodes, with an application of a client module on the user followed by
+ * a chain of microservices.
+ */
+class SmallFogNetwork {
+
+    static final String APP = "A0";
+    static final double USER_LATENCY = 2.0;
+    static final int EDGE_RAM = 1000;
+    static final int MICROSERVICE_RAM = 100;
+
+    final FogDevice cloud;
+    final List<FogDevice> edges = new ArrayList<>();
+    final List<FogDevice> users = new ArrayList<>();
+    final List<FogDevice> devices = new ArrayList<>();
+    final List<String> microservices = new ArrayList<>();
+    final Map<String, Application> applications = new HashMap<>();
+    private int prCount = 0;
+
+    /**
+     * Starts a new simulation with the network.
+     *
+     * @param edgeMips         the MIPS of every edge node
+     * @param edgeLatencies    the latency from every edge node to the cloud
+     * @param usersPerEdge     the number of users of every edge node
+     * @param microserviceMips the MIPS of every microservice of the chain, in order
+     */
+    SmallFogNetwork(long[] edgeMips, double[] edgeLatencies, int usersPerEdge, int[] microserviceMips) throws Exception {
+        CloudSim.init(1, Calendar.getInstance(), false);
+        cloud = createDevice("cloud", 100000, 100000, SPPFogDevice.CLOUD);
+        devices.add(cloud);
+        for (int i = 0; i < edgeMips.length; i++) {
+            FogDevice edge = createDevice("edge" + i, edgeMips[i], EDGE_RAM, SPPFogDevice.FCN);
+            link(edge, cloud, edgeLatencies[i]);
+            edges.add(edge);
+            for (int u = 0; u < usersPerEdge; u++) {
+                FogDevice user = createDevice("user" + i + "_" + u, 100, 100, SPPFogDevice.IMMOBILE_USER);
+                link(user, edge, USER_LATENCY);
+                users.add(user);
+            }
+        }
+        devices.addAll(edges);
+        devices.addAll(users);
+
+        Application app = Application.createApplication(APP, 0);
+        app.addAppModule("client", 10, 10, 10);
+        String previous = "client";
+        for (int m = 0; m < microserviceMips.length; m++) {
+            String microservice = "m" + (m + 1);
+            app.addAppModule(microservice, MICROSERVICE_RAM, microserviceMips[m], 100);
+            app.addAppEdge(previous, microservice, 1000, 500, "T" + m, Tuple.UP, AppEdge.MODULE);
+            microservices.add(microservice);
+            previous = microservice;
+        }
+        applications.put(APP, app);
+        // The broker starts the execution of the PRs at their first microservice
+        FogBroker.getApplicationToSecondServicesMap().put(app, Collections.singletonList(microservices.get(0)));
+    }
+
+    private static FogDevice createDevice(String name, long mips, int ram, String deviceType) throws Exception {
+        List<Pe> peList = new ArrayList<>();
+        peList.add(new Pe(0, new PeProvisionerOverbooking(mips)));
+        PowerHost host = new PowerHost(FogUtils.generateEntityId(), new RamProvisionerSimple(ram),
+                new BwProvisionerOverbooking(10000), 1000000, peList,
+                new VmSchedulerTimeSharedEnergy(peList), new FogLinearPowerModel(100, 50));
+        List<Host> hostList = new ArrayList<>();
+        hostList.add(host);
+        FogDeviceCharacteristics characteristics = new FogDeviceCharacteristics(
+                "x86", "Linux", "Xen", host, 10.0, 3.0, 0.05, 0.001, 0.0);
+        return new SPPFogDevice(name, characteristics, new AppModuleAllocationPolicy(hostList),
+                new LinkedList<Storage>(), 10, 10000, 10000, 10000, 2, 0, deviceType);
+    }
+
+    private static void link(FogDevice child, FogDevice parent, double latency) {
+        child.setParentId(parent.getId());
+        parent.getChildToLatencyMap().put(child.getId(), latency);
+        parent.getChildrenIds().add(child.getId());
+    }
+
+    /** @return the resources of every device, all free */
+    Map<Integer, Map<String, Double>> availability() {
+        Map<Integer, Map<String, Double>> availability = new HashMap<>();
+        for (FogDevice device : devices) {
+            Map<String, Double> resources = new HashMap<>();
+            resources.put(ControllerComponent.CPU, device.getHost().getTotalMips());
+            resources.put(ControllerComponent.RAM, (double) device.getHost().getRam());
+            resources.put(ControllerComponent.STORAGE, (double) device.getHost().getStorage());
+            availability.put(device.getId(), resources);
+        }
+        return availability;
+    }
+
+    /** @return a new PR of the user, whose client module is placed on the user device */
+    PlacementRequest newPr(FogDevice user) {
+        Map<String, Integer> placed = new LinkedHashMap<>();
+        placed.put("client", user.getId());
+        return new ContextPlacementRequest(APP, user.getId(), ++prCount, user.getId(),
+                SPPFogDevice.IMMOBILE_USER, placed, 0.0);
+    }
+
+    /** @return new PRs of the users in turn */
+    List<PlacementRequest> newPrs(int count) {
+        List<PlacementRequest> prs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            prs.add(newPr(users.get(i % users.size())));
+        }
+        return prs;
+    }
+
+    /**
+     * @return the status of every PR of a placement cycle and the device of every microservice
+     * it placed, one line each in the order of the output
+     */
+    static List<String> describe(PlacementLogicOutput output) {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<PlacementRequest, Integer> entry : output.getPrStatus().entrySet()) {
+            PlacementRequest pr = entry.getKey();
+            lines.add(pr.getSensorId() + "/" + ((ContextPlacementRequest) pr).getPrIndex() + ": " + entry.getValue());
+        }
+        for (Map.Entry<Integer, List<SPPHeuristic.PRContextAwareEntry>> entry : output.getServiceDiscoveryInfoV2().entrySet()) {
+            for (SPPHeuristic.PRContextAwareEntry placed : entry.getValue()) {
+                lines.add(entry.getKey() + " -> " + placed.getSensorId() + "/" + placed.getPrIndex() + " "
+                        + placed.getMicroserviceName() + "@" + placed.getDeviceId());
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,102 @@
+package org.fog.test.unit;
+
+import org.fog.placement.SolverPortfolio;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SolverPortfolio, which races the ILP solvers of a portfolio. The solvers still
+ * searching when a result is found must be interrupted instead of running to their time limit.
+ */
+public class SolverPortfolioTest {
+
+    private static final long WAIT_SECONDS = 5;
+
+    private ExecutorService executor;
+    private SolverPortfolio portfolio;
+    // Counted down by every slow solver once searching, and once interrupted
+    private CountDownLatch started;
+    private CountDownLatch interrupted;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+        portfolio = new SolverPortfolio(executor);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /** @return a solver that searches until it is interrupted, far longer than the test */
+    private Callable<String> slowSolver() {
+        return () -> {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(10));
+                return "slow";
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                return null;
+            }
+        };
+    }
+
+    @Test
+    public void testFirstResultStopsTheOthers() throws Exception {
+        started = new CountDownLatch(2);
+        interrupted = new CountDownLatch(2);
+        long start = System.nanoTime();
+        String result = portfolio.race(Arrays.asList(slowSolver(), () -> {
+            // A solver cancelled before it starts is never run, so the others must be searching
+            started.await();
+            return "fast";
+        }, slowSolver()));
+        assertEquals("First result should be used", "fast", result);
+        assertTrue("Other solvers should be interrupted", interrupted.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertTrue("Race should not wait for the other solvers",
+                System.nanoTime() - start < TimeUnit.SECONDS.toNanos(WAIT_SECONDS));
+    }
+
+    @Test
+    public void testSolversWithoutResultDoNotWin() {
+        CountDownLatch failed = new CountDownLatch(1);
+        String result = portfolio.race(Arrays.asList(() -> {
+            failed.countDown();
+            return null;
+        }, () -> {
+            // Only answers once the other solver has found nothing
+            failed.await();
+            return "found";
+        }));
+        assertEquals("Result of the solver that found one should be used", "found", result);
+        assertNull("No result should be null", portfolio.race(Arrays.<Callable<String>>asList(() -> null, () -> null)));
+    }
+
+    @Test
+    public void testFailureStopsTheOthers() throws Exception {
+        started = new CountDownLatch(1);
+        interrupted = new CountDownLatch(1);
+        try {
+            portfolio.race(Arrays.asList(slowSolver(), () -> {
+                started.await();
+                throw new IllegalArgumentException("failed");
+            }));
+            fail("Failure of a solver should be thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("failed", e.getMessage());
+        }
+        assertTrue("Other solvers should be interrupted", interrupted.await(WAIT_SECONDS, TimeUnit.SECONDS));
+    }
+}
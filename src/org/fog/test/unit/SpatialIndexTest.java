@@ -0,0 +1,76 @@
+package org.fog.test.unit;
+
+import org.fog.mobilitydata.Location;
+import org.fog.placement.SpatialIndex;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SpatialIndex, the k-d tree used by LocationManager to find the closest parent.
+ * Checks that it finds the same device as a scan of every device.
+ */
+public class SpatialIndexTest {
+
+    private static int scan(Map<Integer, Location> locations, Location location) {
+        double minDistance = Double.MAX_VALUE;
+        int closest = -1;
+        for (Map.Entry<Integer, Location> entry : locations.entrySet()) {
+            double distance = location.calculateDistance(entry.getValue());
+            if (distance < minDistance) {
+                minDistance = distance;
+                closest = entry.getKey();
+            }
+        }
+        return closest;
+    }
+
+    @Test
+    public void testEmptyIndex() {
+        SpatialIndex index = new SpatialIndex(new HashMap<>());
+        assertEquals("Empty index should have no device", 0, index.size());
+        assertEquals("Empty index should find nothing", -1, index.nearest(new Location(-37.8136, 144.9631, -1)));
+    }
+
+    @Test
+    public void testTiesGoToFirstDevice() {
+        Map<Integer, Location> locations = new LinkedHashMap<>();
+        locations.put(7, new Location(-37.80, 144.96, -1));
+        locations.put(3, new Location(-37.80, 144.96, -1));
+        locations.put(5, new Location(-37.90, 145.10, -1));
+        SpatialIndex index = new SpatialIndex(locations);
+
+        assertEquals("Devices at the same place should resolve to the first one given",
+                     7, index.nearest(new Location(-37.81, 144.97, -1)));
+        assertEquals("Closest device should be found", 5, index.nearest(new Location(-37.91, 145.11, -1)));
+    }
+
+    @Test
+    public void testMatchesScanAroundMelbourne() {
+        Random random = new Random(42);
+        Map<Integer, Location> locations = new HashMap<>();
+        for (int id = 0; id < 2000; id++) {
+            // Some devices share a location with an earlier one
+            Location location = id > 0 && random.nextInt(20) == 0
+                ? locations.get(random.nextInt(id))
+                : new Location(-37.9 + random.nextDouble() * 0.2, 144.9 + random.nextDouble() * 0.2, -1);
+            locations.put(id, location);
+        }
+        SpatialIndex index = new SpatialIndex(locations);
+
+        for (int query = 0; query < 2000; query++) {
+            Location location = new Location(-37.95 + random.nextDouble() * 0.3, 144.85 + random.nextDouble() * 0.3, -1);
+            assertEquals("Closest device should match the scan", scan(locations, location), index.nearest(location));
+        }
+        // Queries exactly at a device location
+        for (int id = 0; id < 2000; id += 7) {
+            Location location = locations.get(id);
+            assertEquals("Device location should find the device or a twin", scan(locations, location), index.nearest(location));
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.fog.utils;
 
 import org.cloudbus.cloudsim.Consts;
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.fog.mobilitydata.Location;
 import java.util.HashMap;
 import java.util.Map;
@@ -21,30 +22,37 @@ public class Config {
 	public static double FOG_DEVICE_COST_PER_BW = 0.0;
 //	public static double MAX_VALUE = 1000000.0;
 
-	// Geographic area name
-	private static String geographicArea = "MELBOURNE";
-	
-	// Points of interest map
-	private static Map<String, Location> pointsOfInterest = new HashMap<>();
-	
-	// Initialize default points of interest
+	// Area settings, kept per simulation context
+	private static class AreaSettings {
+		// Geographic area name
+		private String geographicArea = "MELBOURNE";
+
+		// Points of interest map
+		private Map<String, Location> pointsOfInterest = new HashMap<>();
+
+		// Initialize default points of interest
 //	static {
 //		 Add default points
 //		pointsOfInterest.put("HOSPITAL1", new Location(-37.81192, 144.95807, -1)); // Top left-ish
 //		pointsOfInterest.put("OPERA_HOUSE", new Location(-37.81501, 144.97388, -1)); // Around bottom right
 //	}
 
-	// Location-related fields
-	private static double[][] BOUNDARY = {
-			{-37.8234, 144.95441}, // Bottom-left
-			{-37.81559, 144.97882}, // Bottom-right
-			{-37.81192, 144.94713}, // Top-left
-			{-37.80406, 144.97107}  // Top-right
-	};
-	private static double minLat = -37.823400;
-	private static double maxLat = -37.804060;
-	private static double minLon = 144.947130;
-	private static double maxLon = 144.978820;
+		// Location-related fields
+		private double[][] BOUNDARY = {
+				{-37.8234, 144.95441}, // Bottom-left
+				{-37.81559, 144.97882}, // Bottom-right
+				{-37.81192, 144.94713}, // Top-left
+				{-37.80406, 144.97107}  // Top-right
+		};
+		private double minLat = -37.823400;
+		private double maxLat = -37.804060;
+		private double minLon = 144.947130;
+		private double maxLon = 144.978820;
+	}
+
+	private static AreaSettings area() {
+		return SimulationContext.current().getComponent(AreaSettings.class, AreaSettings::new);
+	}
 
 	public static final double baseServerLatency = 31 * Consts.MILLISECOND;
 	public static final double baseWifiLatency = 30 * Consts.MILLISECOND;
@@ -73,7 +81,7 @@ public class Config {
 	 * @return the Location, or null if not found
 	 */
 	public static Location getPointOfInterest(String name) {
-		return pointsOfInterest.get(name);
+		return area().pointsOfInterest.get(name);
 	}
 	
 	/**
@@ -83,7 +91,7 @@ public class Config {
 	 * @param location the location to set
 	 */
 	public static void setPointOfInterest(String name, Location location) {
-		pointsOfInterest.put(name, location);
+		area().pointsOfInterest.put(name, location);
 	}
 	
 	/**
@@ -92,7 +100,7 @@ public class Config {
 	 * @return a map of all points of interest
 	 */
 	public static Map<String, Location> getAllPointsOfInterest() {
-		return new HashMap<>(pointsOfInterest);
+		return new HashMap<>(area().pointsOfInterest);
 	}
 	
 	/**
@@ -101,48 +109,48 @@ public class Config {
 	 * @param points the new points of interest
 	 */
 	public static void setAllPointsOfInterest(Map<String, Location> points) {
-		pointsOfInterest.clear();
-		pointsOfInterest.putAll(points);
+		area().pointsOfInterest.clear();
+		area().pointsOfInterest.putAll(points);
 	}
 	
 	public static double[][] getBOUNDARY() {
-		return BOUNDARY;
+		return area().BOUNDARY;
 	}
 	
 	public static void setBOUNDARY(double[][] boundary) {
-		BOUNDARY = boundary;
+		area().BOUNDARY = boundary;
 	}
 	
 	public static double getMinLat() {
-		return minLat;
+		return area().minLat;
 	}
 	
 	public static void setMinLat(double value) {
-		minLat = value;
+		area().minLat = value;
 	}
 	
 	public static double getMaxLat() {
-		return maxLat;
+		return area().maxLat;
 	}
 	
 	public static void setMaxLat(double value) {
-		maxLat = value;
+		area().maxLat = value;
 	}
 	
 	public static double getMinLon() {
-		return minLon;
+		return area().minLon;
 	}
 	
 	public static void setMinLon(double value) {
-		minLon = value;
+		area().minLon = value;
 	}
 	
 	public static double getMaxLon() {
-		return maxLon;
+		return area().maxLon;
 	}
 	
 	public static void setMaxLon(double value) {
-		maxLon = value;
+		area().maxLon = value;
 	}
 	
 	/**
@@ -151,7 +159,7 @@ public class Config {
 	 * @return the geographic area name
 	 */
 	public static String getGeographicArea() {
-		return geographicArea;
+		return area().geographicArea;
 	}
 	
 	/**
@@ -160,6 +168,6 @@ public class Config {
 	 * @param area the geographic area name
 	 */
 	public static void setGeographicArea(String area) {
-		geographicArea = area;
+		area().geographicArea = area;
 	}
 }
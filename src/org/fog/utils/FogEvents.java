@@ -63,4 +63,6 @@ public class FogEvents {
     public static final int OPERA_ACCIDENT_EVENT = BASE + 57;
     // PR Generation Device-specific ------------
     public static final int GENERATE_PR_FOR_DEVICE = BASE + 58;
+    // Mobility Management, batched ---------------
+    public static final int MAKE_PATHS = BASE + 59;
 }
\ No newline at end of file
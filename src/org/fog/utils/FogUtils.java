@@ -3,25 +3,32 @@ package org.fog.utils;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.cloudbus.cloudsim.core.SimulationContext;
+
 public class FogUtils {
-	private static int TUPLE_ID = 1;
-	private static int ENTITY_ID = 1;
-	private static int ACTUAL_TUPLE_ID = 1;
+
+	// Id counters and coverage map, kept per simulation context
+	private static class Counters {
+		private int tupleId = 1;
+		private int entityId = 1;
+		private int actualTupleId = 1;
+		private final Map<String, GeoCoverage> appIdToGeoCoverageMap = new HashMap<String, GeoCoverage>();
+	}
+
+	private static Counters counters() {
+		return SimulationContext.current().getComponent(Counters.class, Counters::new);
+	}
 	
 	// Reset all static state for clean simulation runs
 	public static void clear() {
-		TUPLE_ID = 1;
-		ACTUAL_TUPLE_ID = 1;
-		// Reset ENTITY_ID to ensure VMs and other entities start from ID 1 in each simulation
-		ENTITY_ID = 1;
+		// Resets TUPLE_ID, ACTUAL_TUPLE_ID and ENTITY_ID to ensure VMs and other entities start from ID 1 in each simulation
+		SimulationContext.current().removeComponent(Counters.class);
 		// Reset USER_ID as well
 		USER_ID = 1;
-		// Reset any other static state here if needed
-		appIdToGeoCoverageMap.clear();
 	}
 	
 	public static int generateTupleId(){
-		return TUPLE_ID++;
+		return counters().tupleId++;
 	}
 	
 	public static String getSensorTypeFromSensorName(String sensorName){
@@ -29,11 +36,11 @@ public class FogUtils {
 	}
 	
 	public static int generateEntityId(){
-		return ENTITY_ID++;
+		return counters().entityId++;
 	}
 	
 	public static int generateActualTupleId(){
-		return ACTUAL_TUPLE_ID++;
+		return counters().actualTupleId++;
 	}
 	
 	public static int USER_ID = 1;
@@ -41,18 +48,20 @@ public class FogUtils {
 	//public static int MAX = 10000000;
 	public static int MAX = 10000000;
 	
-	public static Map<String, GeoCoverage> appIdToGeoCoverageMap = new HashMap<String, GeoCoverage>();
+	public static Map<String, GeoCoverage> getAppIdToGeoCoverageMap() {
+		return counters().appIdToGeoCoverageMap;
+	}
 	
 	// Add debugging methods to check current counter values
 	public static int getCurrentEntityId() {
-		return ENTITY_ID;
+		return counters().entityId;
 	}
 	
 	public static int getCurrentTupleId() {
-		return TUPLE_ID;
+		return counters().tupleId;
 	}
 	
 	public static int getCurrentActualTupleId() {
-		return ACTUAL_TUPLE_ID;
+		return counters().actualTupleId;
 	}
 }
@@ -15,9 +15,6 @@ import java.util.Map;
  * Utility class for loading location configuration from JSON files and applying it to Config class.
  */
 public class LocationConfigLoader {
-    
-    // Cache for original field values, so we can report if they were changed
-    private static final Map<String, Object> originalValues = new HashMap<>();
 
     /**
      * Loads location configuration from a JSON file and applies it to the Config class.
@@ -29,7 +26,7 @@ public class LocationConfigLoader {
     public static boolean loadAndApplyConfig(String jsonFilePath) {
         try {
             // Store original values to report changes
-            storeOriginalValues();
+            Map<String, Object> originalValues = storeOriginalValues();
             
             JSONParser parser = new JSONParser();
             JSONObject config = (JSONObject) parser.parse(new FileReader(jsonFilePath));
@@ -67,7 +64,7 @@ public class LocationConfigLoader {
             verifyConfigConsistency();
             
             // Report changes
-            reportChanges();
+            reportChanges(originalValues);
             
             System.out.println("Successfully loaded location configuration from " + jsonFilePath);
             return true;
@@ -79,9 +76,11 @@ public class LocationConfigLoader {
     }
     
     /**
-     * Stores the original values of Config fields before modification
+     * Stores the original values of Config fields before modification, so we can report if they were changed
      */
-    private static void storeOriginalValues() {
+    private static Map<String, Object> storeOriginalValues() {
+        Map<String, Object> originalValues = new HashMap<>();
+
         // Store min/max values
         originalValues.put("minLat", Config.getMinLat());
         originalValues.put("maxLat", Config.getMaxLat());
@@ -101,12 +100,13 @@ public class LocationConfigLoader {
             copy[i] = original[i].clone();
         }
         originalValues.put("BOUNDARY", copy);
+        return originalValues;
     }
     
     /**
      * Reports changes to the Config fields after modification
      */
-    private static void reportChanges() {
+    private static void reportChanges(Map<String, Object> originalValues) {
         // Report changes to min/max values
         reportChange("minLat", (Double)originalValues.get("minLat"), Config.getMinLat());
         reportChange("maxLat", (Double)originalValues.get("maxLat"), Config.getMaxLat());
@@ -117,10 +117,10 @@ public class LocationConfigLoader {
         reportChange("geographicArea", (String)originalValues.get("geographicArea"), Config.getGeographicArea());
         
         // Report changes to boundary
-        reportBoundaryChanges();
+        reportBoundaryChanges(originalValues);
         
         // Report changes to points of interest
-        reportPointsOfInterestChanges();
+        reportPointsOfInterestChanges(originalValues);
     }
     
     /**
@@ -135,7 +135,7 @@ public class LocationConfigLoader {
     /**
      * Reports changes to the BOUNDARY field
      */
-    private static void reportBoundaryChanges() {
+    private static void reportBoundaryChanges(Map<String, Object> originalValues) {
         double[][] newBoundary = Config.getBOUNDARY();
         double[][] oldBoundary = (double[][]) originalValues.get("BOUNDARY");
         
@@ -158,7 +158,7 @@ public class LocationConfigLoader {
     /**
      * Reports changes to the points of interest
      */
-    private static void reportPointsOfInterestChanges() {
+    private static void reportPointsOfInterestChanges(Map<String, Object> originalValues) {
         Map<String, Location> originalPoints = (Map<String, Location>) originalValues.get("pointsOfInterest");
         Map<String, Location> newPoints = Config.getAllPointsOfInterest();
         
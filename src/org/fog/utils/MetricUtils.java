@@ -1,5 +1,6 @@
 package org.fog.utils;
 
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.fog.entities.PlacementRequest;
 import org.fog.entities.ContextPlacementRequest;
 import org.fog.placement.SPPHeuristic;
@@ -18,12 +19,14 @@ public class MetricUtils {
     // Resources
     private static final String[] resources = new String[]{"cpu", "ram"};
 
-    // Replace collection lists with single values for current simulation
-    private static double currentCloudEnergyConsumption = 0.0;
-    private static double currentAvgEdgeEnergyConsumption = 0.0;
-    private static double currentStdDevEdgeEnergyConsumption = 0.0;
-    private static Map<String, Double> currentEnergyByUserType = new HashMap<>();
-    private static Map<String, Double> currentEnergyStdDevsByUserType = new HashMap<>();
+    // Replace collection lists with single values for current simulation, kept per simulation context
+    private static class EnergyMetrics {
+        private double currentCloudEnergyConsumption = 0.0;
+        private double currentAvgEdgeEnergyConsumption = 0.0;
+        private double currentStdDevEdgeEnergyConsumption = 0.0;
+        private final Map<String, Double> currentEnergyByUserType = new HashMap<>();
+        private final Map<String, Double> currentEnergyStdDevsByUserType = new HashMap<>();
+    }
 
     private static final HashMap<Integer, String> heuristics = new HashMap<Integer, String>(){{
         put(PlacementLogicFactory.BEST_FIT, "BestFit");
@@ -36,29 +39,29 @@ public class MetricUtils {
         put(PlacementLogicFactory.ILP, "ILP");
     }};
 
+    private static EnergyMetrics energy() {
+        return SimulationContext.current().getComponent(EnergyMetrics.class, EnergyMetrics::new);
+    }
+
     /**
      * Clears all stored power metrics, called before starting a new simulation
      */
     public static void clearPowerMetrics() {
-        currentCloudEnergyConsumption = 0.0;
-        currentAvgEdgeEnergyConsumption = 0.0;
-        currentStdDevEdgeEnergyConsumption = 0.0;
-        currentEnergyByUserType.clear();
-        currentEnergyStdDevsByUserType.clear();
+        SimulationContext.current().removeComponent(EnergyMetrics.class);
     }
 
     /**
      * Stores cloud energy consumption for the current simulation
      */
     public static void setCloudEnergyConsumption(double energyConsumption) {
-        currentCloudEnergyConsumption = energyConsumption;
+        energy().currentCloudEnergyConsumption = energyConsumption;
     }
 
     /**
      * Gets the cloud energy consumption for the current simulation
      */
     public static double getCloudEnergyConsumption() {
-        return currentCloudEnergyConsumption;
+        return energy().currentCloudEnergyConsumption;
     }
 
     /**
@@ -66,7 +69,7 @@ public class MetricUtils {
      * @param energyConsumption Average energy consumption in watt-seconds
      */
     public static void setAvgEdgeEnergyConsumption(double energyConsumption) {
-        currentAvgEdgeEnergyConsumption = energyConsumption;
+        energy().currentAvgEdgeEnergyConsumption = energyConsumption;
     }
 
     /**
@@ -74,7 +77,7 @@ public class MetricUtils {
      * @param energyConsumption Standard deviation of energy consumption in watt-seconds
      */
     public static void setStdDevEdgeEnergyConsumption(double energyConsumption) {
-        currentStdDevEdgeEnergyConsumption = energyConsumption;
+        energy().currentStdDevEdgeEnergyConsumption = energyConsumption;
     }
 
     /**
@@ -83,22 +86,22 @@ public class MetricUtils {
      * @param energyConsumption Average energy consumption in watt-seconds
      */
     public static void setUserTypeEnergyConsumption(String userType, double energyConsumption, double stdDev) {
-        currentEnergyByUserType.put(userType, energyConsumption);
-        currentEnergyStdDevsByUserType.put(userType, stdDev);
+        energy().currentEnergyByUserType.put(userType, energyConsumption);
+        energy().currentEnergyStdDevsByUserType.put(userType, stdDev);
     }
 
     /**
      * Gets the average edge energy consumption for the current simulation
      */
     public static double getAvgEdgeEnergyConsumption() {
-        return currentAvgEdgeEnergyConsumption;
+        return energy().currentAvgEdgeEnergyConsumption;
     }
 
     /**
      * Gets the standard deviation of edge energy consumption for the current simulation
      */
     public static double getStdDevEdgeEnergyConsumption() {
-        return currentStdDevEdgeEnergyConsumption;
+        return energy().currentStdDevEdgeEnergyConsumption;
     }
 
     /**
@@ -107,7 +110,7 @@ public class MetricUtils {
      * @return Average energy consumption in watt-seconds, or 0.0 if not available
      */
     public static double getUserTypeEnergyConsumption(String userType) {
-        return currentEnergyByUserType.getOrDefault(userType, 0.0);
+        return energy().currentEnergyByUserType.getOrDefault(userType, 0.0);
     }
 
     /**
@@ -116,7 +119,7 @@ public class MetricUtils {
      * @return Standard deviation of energy consumption in watt-seconds, or 0.0 if not available
      */
     public static double getUserTypeEnergyStdDev(String userType) {
-        return currentEnergyStdDevsByUserType.getOrDefault(userType, 0.0);
+        return energy().currentEnergyStdDevsByUserType.getOrDefault(userType, 0.0);
     }
 
     /**
@@ -30,6 +30,53 @@ public class MicroservicePlacementConfig {
     public static final String DECENTRALISED = "decentralised";
     public static String NETWORK_TOPOLOGY = CENTRALISED;
 
+    // Batch placement: the ILP and ACO heuristics place all the PRs of a placement cycle as one problem,
+    //  and fall back to placing them one by one if no joint placement is found within the time budget
+    public static boolean BATCH_PLACEMENT = false;
+    // Wall-clock seconds
+    public static double BATCH_TIME_BUDGET = 10.0;
+
+    // ILP solver: time limit of one solve in seconds (0 for none), and number of differently
+    //  configured solvers run in parallel on each problem, the first solution found being used.
+    //  The other solvers are then interrupted
+    public static int ILP_TIME_LIMIT = 0;
+    public static int ILP_PORTFOLIO = 1;
+
+    // Placement cache of the SA, ACO and ILP heuristics: number of placements kept (0 turns the
+    //  cache off), and number of free capacity levels of a device that a reused placement must
+    //  still be at
+    public static int PLACEMENT_CACHE_SIZE = 0;
+    public static int PLACEMENT_CACHE_BUCKETS = 10;
+
+    // Mobility: schedule the movement update of a moving user only at the waypoints where its closest
+    //  edge node changes and at its destination, instead of at every waypoint of its path. The
+    //  location of a user between two updates is read from its path when asked for
+    public static boolean HANDOVER_EVENTS = false;
+
+    // Route cache of GraphHopper pathing: number of routing requests whose routes are kept (0 turns
+    //  the cache off), side in metres of the grid cells that origins and destinations are matched
+    //  in, and megabytes of route points kept
+    public static int ROUTE_CACHE_SIZE = 0;
+    public static double ROUTE_CACHE_GRID = 10.0;
+    public static int ROUTE_CACHE_MEMORY_MB = 64;
+
+    // Batched path creation: the paths requested at the same simulated time are made together, in
+    //  device ID order, with their routes computed beforehand on PATH_THREADS threads (0 for one per core)
+    public static boolean BATCH_PATHS = false;
+    public static int PATH_THREADS = 0;
+
+    // Simulated annealing: the cooling schedule, and the number of chains run per PR on SA_THREADS
+    //  threads (0 for one per core), the best result being used. With replica exchange, chain k runs
+    //  SA_TEMPERATURE_SPACING^k times hotter, and neighbouring chains try to swap their placements
+    //  every SA_EXCHANGE_INTERVAL steps
+    public static double SA_TEMPERATURE = 1000;
+    public static double SA_COOLING_FACTOR = 0.995;
+    public static int SA_CHAINS = 1;
+    public static int SA_THREADS = 0;
+    public static boolean SA_REPLICA_EXCHANGE = false;
+    public static int SA_EXCHANGE_INTERVAL = 10;
+    public static double SA_TEMPERATURE_SPACING = 2.0;
+
     public enum FAILURE_REASON {
         PLACEMENT_FAILED,
         USER_LACKED_RESOURCES
@@ -1,14 +1,23 @@
 package org.fog.utils;
 
+import org.cloudbus.cloudsim.core.SimulationContext;
+
 public class MigrationDelayMonitor {
 	
-	private static double migrationDelay = 0.0;
+	// Migration delay of the current simulation context
+	private static class Delay {
+		private double migrationDelay = 0.0;
+	}
+
+	private static Delay delay() {
+		return SimulationContext.current().getComponent(Delay.class, Delay::new);
+	}
 	
 	public static double getMigrationDelay() {
-		return migrationDelay;
+		return delay().migrationDelay;
 	}
 
 	public static void setMigrationDelay(double migrationDelayReceived) {
-		migrationDelay += migrationDelayReceived;
+		delay().migrationDelay += migrationDelayReceived;
 	}
 }
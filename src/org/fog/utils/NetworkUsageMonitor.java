@@ -1,18 +1,27 @@
 package org.fog.utils;
 
+import org.cloudbus.cloudsim.core.SimulationContext;
+
 public class NetworkUsageMonitor {
 
-	private static double networkUsage = 0.0;
+	// Network usage of the current simulation context
+	private static class Usage {
+		private double networkUsage = 0.0;
+	}
+
+	private static Usage usage() {
+		return SimulationContext.current().getComponent(Usage.class, Usage::new);
+	}
 	
 	public static void sendingTuple(double latency, double tupleNwSize){
-		networkUsage += latency*tupleNwSize;
+		usage().networkUsage += latency*tupleNwSize;
 	}
 	
 	public static void sendingModule(double latency, long moduleSize){
-		networkUsage += latency*moduleSize;
+		usage().networkUsage += latency*moduleSize;
 	}
 	
 	public static double getNetworkUsage(){
-		return networkUsage;
+		return usage().networkUsage;
 	}
 }
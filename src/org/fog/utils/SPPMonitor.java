@@ -1,32 +1,82 @@
 package org.fog.utils;
 
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.fog.entities.PlacementRequest;
 import org.fog.entities.ContextPlacementRequest;
 
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class SPPMonitor {
 
+    // Default directory for the temporary CSV files
+    public static final String DEFAULT_TEMP_DIR = "./temp_metrics/";
+
     private int simulationRoundNumber = 0;
     
     // Temporary storage for current simulation metrics
-    private static Map<Double, Map<PlacementRequest, Double>> currentUtilizations = new HashMap<>();
-    private static Map<Double, Map<PlacementRequest, Double>> currentLatencies = new HashMap<>();
-    private static Map<Double, Map<PlacementRequest, MicroservicePlacementConfig.FAILURE_REASON>> currentFailedPRs = new HashMap<>();
-    private static Map<Double, Integer> currentTotalPRs = new HashMap<>();
+    private Map<Double, Map<PlacementRequest, Double>> currentUtilizations = new HashMap<>();
+    private Map<Double, Map<PlacementRequest, Double>> currentLatencies = new HashMap<>();
+    private Map<Double, Map<PlacementRequest, MicroservicePlacementConfig.FAILURE_REASON>> currentFailedPRs = new HashMap<>();
+    private Map<Double, Integer> currentTotalPRs = new HashMap<>();
     
     // Path for temporary CSV files
-    private static String tempDir = "./temp_metrics/";
-    private static String tempMetricsFile = null;
-    private static String tempFailedPRsFile = null;
+    private String tempDir = DEFAULT_TEMP_DIR;
+    private String tempMetricsFile = null;
+    private String tempFailedPRsFile = null;
     
     // Temporary storage for utilization values that will be combined with latency later
-    private static Map<PlacementRequest, Double> tempUtilizations = new HashMap<>();
+    private Map<PlacementRequest, Double> tempUtilizations = new HashMap<>();
+
+    // Solver runs of the placement heuristics, in order
+    private List<SolverRecord> solverRecords = new ArrayList<>();
+
+    // Lookups in the placement caches of the heuristics: reused placements, placements not found,
+    //  and placements found that no longer fit
+    private long placementCacheHits = 0;
+    private long placementCacheMisses = 0;
+    private long placementCacheRejections = 0;
+
+    /**
+     * One run of a placement solver, for one PR or for all the PRs of a placement cycle.
+     */
+    public static class SolverRecord {
+        private final double timestamp;
+        private final String heuristic;
+        private final String scope;
+        private final int prs;
+        private final int placed;
+        private final double solveTimeMs;
+        private final double gap;
+        private final String status;
+
+        public SolverRecord(double timestamp, String heuristic, String scope, int prs, int placed,
+                            double solveTimeMs, double gap, String status) {
+            this.timestamp = timestamp;
+            this.heuristic = heuristic;
+            this.scope = scope;
+            this.prs = prs;
+            this.placed = placed;
+            this.solveTimeMs = solveTimeMs;
+            this.gap = gap;
+            this.status = status;
+        }
+
+        public double getTimestamp() { return timestamp; }
+        public String getHeuristic() { return heuristic; }
+        public String getScope() { return scope; }
+        public int getPrs() { return prs; }
+        public int getPlaced() { return placed; }
+        public double getSolveTimeMs() { return solveTimeMs; }
+        public double getGap() { return gap; }
+        public String getStatus() { return status; }
+    }
 
     private SPPMonitor() {
         // Initialize temp directory
@@ -36,12 +86,26 @@ public class SPPMonitor {
         }
     }
 
-    private static class MyMonitorHolder {
-        private static final SPPMonitor INSTANCE = new SPPMonitor();
+    // One monitor per simulation context
+    public static SPPMonitor getInstance() {
+        return SimulationContext.current().getComponent(SPPMonitor.class, SPPMonitor::new);
     }
 
-    public static SPPMonitor getInstance() {
-        return MyMonitorHolder.INSTANCE;
+    /**
+     * Sets the directory the temporary CSV files of this simulation are written to.
+     * Simulations running at the same time must use different directories.
+     * Call before initializeSimulation.
+     * @param dir The directory, created if it does not exist
+     */
+    public void setTempDir(String dir) {
+        if (!dir.endsWith("/")) {
+            dir += "/";
+        }
+        File file = new File(dir);
+        if (!file.exists()) {
+            file.mkdirs();
+        }
+        tempDir = dir;
     }
 
     /**
@@ -80,6 +144,10 @@ public class SPPMonitor {
         currentFailedPRs.clear();
         currentTotalPRs.clear();
         tempUtilizations.clear();
+        solverRecords.clear();
+        placementCacheHits = 0;
+        placementCacheMisses = 0;
+        placementCacheRejections = 0;
     }
 
     /**
@@ -208,6 +276,109 @@ public class SPPMonitor {
         // Store in memory for current simulation
         currentTotalPRs.put(timestamp, total);
     }
+
+    /**
+     * Records a run of a placement solver
+     * @param heuristic Name of the placement heuristic
+     * @param scope "PR" for one placement request, "CYCLE" for all the PRs of a placement cycle
+     * @param prs Number of PRs given to the solver
+     * @param placed Number of PRs placed by the solver
+     * @param solveTimeMs Wall-clock solving time
+     * @param gap Relative gap between the solution and a lower bound of the objective, NaN if unknown
+     * @param status Outcome of the run, e.g. SOLVED, FEASIBLE (solution not proven optimal),
+     *               TIMEOUT, INFEASIBLE
+     */
+    public void recordSolve(String heuristic, String scope, int prs, int placed, double solveTimeMs,
+                            double gap, String status) {
+        solverRecords.add(new SolverRecord(CloudSim.clock(), heuristic, scope, prs, placed, solveTimeMs, gap, status));
+    }
+
+    /**
+     * Get the solver runs of the current simulation
+     * @return The runs, in order
+     */
+    public List<SolverRecord> getSolverRecords() {
+        return solverRecords;
+    }
+
+    /**
+     * Get a percentile of the solve times of the current simulation
+     * @param scope Scope of the runs to consider, e.g. "PR"
+     * @param percentile Between 0 and 100
+     * @return The solve time in ms (nearest rank), NaN if there is no run of the scope
+     */
+    public double getSolveTimePercentile(String scope, double percentile) {
+        List<Double> times = new ArrayList<>();
+        for (SolverRecord record : solverRecords) {
+            if (record.getScope().equals(scope)) {
+                times.add(record.getSolveTimeMs());
+            }
+        }
+        if (times.isEmpty()) {
+            return Double.NaN;
+        }
+        times.sort(null);
+        int rank = (int) Math.ceil(percentile / 100.0 * times.size());
+        return times.get(Math.max(0, rank - 1));
+    }
+
+    /**
+     * Records a lookup in a placement cache
+     * @param found Whether a placement was cached for the PR
+     * @param reused Whether the cached placement still fits and was used
+     */
+    public void recordPlacementCacheLookup(boolean found, boolean reused) {
+        if (reused) {
+            placementCacheHits++;
+        } else if (found) {
+            placementCacheRejections++;
+        } else {
+            placementCacheMisses++;
+        }
+    }
+
+    public long getPlacementCacheHits() {
+        return placementCacheHits;
+    }
+
+    public long getPlacementCacheMisses() {
+        return placementCacheMisses;
+    }
+
+    public long getPlacementCacheRejections() {
+        return placementCacheRejections;
+    }
+
+    /**
+     * Get the share of the placement cache lookups of the current simulation that reused a placement
+     * @return The hit rate, NaN if there was no lookup
+     */
+    public double getPlacementCacheHitRate() {
+        long lookups = placementCacheHits + placementCacheMisses + placementCacheRejections;
+        return lookups > 0 ? (double) placementCacheHits / lookups : Double.NaN;
+    }
+
+    /**
+     * Writes the solver runs of the current simulation to a CSV file
+     * @param file Path of the file, overwritten
+     * @throws IOException If the file cannot be written
+     */
+    public void writeSolverRecords(String file) throws IOException {
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("timestamp,heuristic,scope,prs,placed,solveTimeMs,gap,status\n");
+            for (SolverRecord record : solverRecords) {
+                writer.write(String.format("%.2f,%s,%s,%d,%d,%.3f,%.6f,%s\n",
+                    record.getTimestamp(),
+                    record.getHeuristic(),
+                    record.getScope(),
+                    record.getPrs(),
+                    record.getPlaced(),
+                    record.getSolveTimeMs(),
+                    record.getGap(),
+                    record.getStatus()));
+            }
+        }
+    }
     
     /**
      * Gets the path to the temporary metrics file for the current simulation
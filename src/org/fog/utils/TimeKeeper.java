@@ -6,12 +6,11 @@ import java.util.Map;
 
 import org.apache.commons.math3.util.Pair;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.fog.entities.Tuple;
 
 public class TimeKeeper {
 
-	private static TimeKeeper instance;
-	
 	private long simulationStartTime;
 	private int count; 
 	private Map<Integer, Double> emitTimes;
@@ -31,18 +30,19 @@ public class TimeKeeper {
 	// last execution time
 	private Map<Integer, Double> tupleIdToExecutionTime = new HashMap<>();
 	
+	// One instance per simulation context
 	public static TimeKeeper getInstance(){
-		if(instance == null) {
-			instance = new TimeKeeper();
+		return SimulationContext.current().getComponent(TimeKeeper.class, () -> {
+			TimeKeeper instance = new TimeKeeper();
 			// Initialize the count to 0 explicitly when creating a new instance
 			instance.count = 0;
-		}
-		return instance;
+			return instance;
+		});
 	}
 
 	// This is part of the state that should be reset between simulations
 	public static void deleteInstance() {
-		instance = null;
+		SimulationContext.current().removeComponent(TimeKeeper.class);
 	}
 	
 	public int getUniqueId(){